@@ -0,0 +1,116 @@
+import java.util.Arrays;
+
+/**
+ * The AdversarialTarget class is the deferred target of the adversarial ("Absurdle") mode.
+ * Instead of a fixed target it keeps every equation still consistent with the feedback given so far.
+ * Each guess partitions these candidates by feedback pattern and only the largest partition is kept,
+ * so the target is committed to as late as possible.
+ *
+ * Candidates are packed equations with their presence masks in parallel arrays. A new game shares the arrays of
+ * the dictionary snapshot and owns only its survivor count; the first guess copies the kept partition into arrays
+ * of the game, which later guesses compact in place. A guess takes two passes: the first counts partition sizes in a
+ * reusable per-pattern array, the second scores the candidates again and keeps the chosen partition.
+ */
+public class AdversarialTarget {
+
+    private static final byte[] CORRECT = correctCounts(); // The correct symbols of every pattern, for ties.
+
+    private int[] candidates; // The packed candidates; the first count entries are live.
+    private int[] masks; // The presence mask of each candidate.
+    private boolean shared; // Indicates whether the arrays still belong to the dictionary snapshot.
+    private int[] counts; // Partition sizes for the current guess, allocated by the first guess.
+    private int count; // The number of live candidates.
+
+    /**
+     * Constructs a deferred target over a packed dictionary.
+     *
+     * @param dictionary The packed dictionary; it is shared, not modified.
+     * @param masks      The presence masks of the dictionary, see EquationDictionary.getMasks; also shared.
+     */
+    public AdversarialTarget(int[] dictionary, int[] masks) {
+        this.candidates = dictionary;
+        this.masks = masks;
+        this.shared = true;
+        this.count = dictionary.length;
+    }
+
+    /**
+     * Returns the number of equations still consistent with the feedback.
+     *
+     * @return The candidate count.
+     */
+    public int getCount() {
+        return count;
+    }
+
+    /**
+     * Returns an equation consistent with all feedback so far.
+     * Scoring a guess against it gives the feedback of the partition that was kept.
+     *
+     * @return The packed representative target.
+     */
+    public int getRepresentative() {
+        return candidates[0];
+    }
+
+    /**
+     * Answers a guess with the feedback that keeps the most candidates and drops all others.
+     * On a tie the pattern with fewer correct symbols is chosen, so a win is only conceded when nothing else is left;
+     * patterns with as many correct symbols are ranked by their base-3 value.
+     *
+     * @param guess The packed guess.
+     * @return The feedback pattern given for the guess.
+     */
+    public int narrow(int guess) {
+        if (counts == null) {
+            counts = new int[NumberleSolver.PATTERNS];
+        }
+        // Pass 1: partition sizes
+        for (int i = 0; i < count; i++) {
+            counts[NumberleSolver.feedback(guess, candidates[i], masks[i])]++;
+        }
+
+        int kept = 0;
+        for (int pattern = 1; pattern < NumberleSolver.PATTERNS; pattern++) {
+            if (counts[pattern] > counts[kept] || counts[pattern] == counts[kept] && CORRECT[pattern] < CORRECT[kept]) {
+                kept = pattern;
+            }
+        }
+        int survivors = counts[kept];
+        Arrays.fill(counts, 0); // Reset for the next guess
+
+        // Pass 2: move the kept partition to the front, into arrays of the game on the first guess
+        int[] keptCandidates = shared ? new int[survivors] : candidates;
+        int[] keptMasks = shared ? new int[survivors] : masks;
+        int next = 0;
+        for (int i = 0; i < count; i++) {
+            if (NumberleSolver.feedback(guess, candidates[i], masks[i]) == kept) {
+                keptCandidates[next] = candidates[i];
+                keptMasks[next] = masks[i];
+                next++;
+            }
+        }
+        candidates = keptCandidates;
+        masks = keptMasks;
+        shared = false;
+        count = survivors;
+        return kept;
+    }
+
+    /**
+     * Counts the correct symbols of every feedback pattern.
+     *
+     * @return The counts, indexed by pattern.
+     */
+    private static byte[] correctCounts() {
+        byte[] correct = new byte[NumberleSolver.PATTERNS];
+        for (int pattern = 0; pattern < correct.length; pattern++) {
+            for (int rest = pattern; rest > 0; rest /= 3) {
+                if (rest % 3 == 2) {
+                    correct[pattern]++;
+                }
+            }
+        }
+        return correct;
+    }
+}
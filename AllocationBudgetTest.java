@@ -0,0 +1,131 @@
+import java.lang.management.ManagementFactory;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+/**
+ * Allocation-budget tests for the hot paths of the NumberleModel class.
+ * Each test warms a path up, measures the bytes the current thread allocates per call with
+ * com.sun.management.ThreadMXBean, and fails if the path allocates more than its budget.
+ * The budget of compare is zero; the others are ceilings a little above the current cost, to catch regressions.
+ */
+public class AllocationBudgetTest {
+
+    private static final int WARM_UP = 20_000; // Calls before measuring, so the JIT has compiled the path.
+    private static final int CALLS = 20_000; // Calls measured.
+
+    private NumberleModel numberleModel;
+    private com.sun.management.ThreadMXBean threads;
+
+    /**
+     * Sets up the NumberleModel instance and enables allocation accounting before each test.
+     */
+    @Before
+    public void setUp() {
+        numberleModel = new NumberleModel();
+        numberleModel.initialize();
+        threads = (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+        threads.setThreadAllocatedMemoryEnabled(true);
+    }
+
+    /**
+     * Tests the allocations of the compare method.
+     *
+     * @pre The NumberleModel instance is created.
+     * @post Scoring a guess allocates no bytes after warm-up.
+     */
+    @Test
+    public void testCompareAllocatesNothing() {
+        assertEquals(0, bytesPerCall(() -> numberleModel.compare("2+4=6-0", "1+3=1+3")));
+        assertEquals(0, bytesPerCall(() -> numberleModel.compare("1+3=1+3", "1+3=1+3")));
+    }
+
+    /**
+     * Tests the allocations of the validateEquation method.
+     *
+     * @pre The NumberleModel instance is created.
+     * @post Rejected and valid equations stay within their budgets.
+     */
+    @Test
+    public void testValidateEquationBudget() {
+        assertWithin(1_024, bytesPerCall(() -> numberleModel.validateEquation("7*8=56")));
+        assertWithin(12_288, bytesPerCall(() -> numberleModel.validateEquation("1+2=3+4")));
+        assertWithin(12_288, bytesPerCall(() -> numberleModel.validateEquation("1+3=1+3")));
+    }
+
+    /**
+     * Tests the allocations of the speed-run clock.
+     *
+     * @pre The NumberleModel instance is in speed-run mode.
+     * @post Timestamping keys allocates no bytes after warm-up.
+     */
+    @Test
+    public void testSpeedRunKeysAllocateNothing() {
+        numberleModel.setSpeedRun();
+        numberleModel.initialize();
+        assertEquals(0, bytesPerCall(() -> numberleModel.typeSymbol('1')));
+        assertEquals(0, bytesPerCall(numberleModel::deleteSymbol));
+    }
+
+    /**
+     * Tests the allocations of the calculate method.
+     *
+     * @pre The NumberleModel instance is created.
+     * @post Evaluating one side of an equation stays within its budget.
+     */
+    @Test
+    public void testCalculateBudget() {
+        assertWithin(8_192, bytesPerCall(() -> numberleModel.calculate("12*3-4")));
+    }
+
+    /**
+     * Tests the allocations of a full game through the NumberleModel instance.
+     *
+     * @pre The NumberleModel instance is created.
+     * @post A three-guess game, from initialize to the win, stays within its budget.
+     */
+    @Test
+    public void testGameLoopBudget() {
+        String[] guesses = {"2+4=6-0", "7/1=2+5", "1+3=1+3"};
+        assertWithin(36_864, bytesPerCall(() -> {
+            numberleModel.initialize();
+            for (String guess : guesses) {
+                if (numberleModel.validateEquation(guess) == 4) {
+                    numberleModel.compare(guess, numberleModel.getTargetEquations());
+                    numberleModel.processInput(guess);
+                }
+            }
+            assertTrue(numberleModel.isGameWon());
+        }));
+    }
+
+    /**
+     * Measures the mean number of bytes a call allocates on the current thread.
+     *
+     * @param call The call to measure.
+     * @return The bytes per call, rounded down.
+     */
+    private long bytesPerCall(Runnable call) {
+        for (int i = 0; i < WARM_UP; i++) {
+            call.run();
+        }
+        long thread = Thread.currentThread().getId();
+        long before = threads.getThreadAllocatedBytes(thread);
+        for (int i = 0; i < CALLS; i++) {
+            call.run();
+        }
+        return (threads.getThreadAllocatedBytes(thread) - before) / CALLS;
+    }
+
+    /**
+     * Fails if a measured allocation exceeds its budget.
+     *
+     * @param budget The budget in bytes per call.
+     * @param bytes  The measured bytes per call.
+     */
+    private static void assertWithin(long budget, long bytes) {
+        assertTrue("allocated " + bytes + " bytes per call, budget " + budget, bytes <= budget);
+    }
+}
@@ -1,4 +1,6 @@
 import java.io.IOException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
 import java.util.*;
 
 /**
@@ -8,7 +10,12 @@ import java.util.*;
 public class CLIApp {
     public static void main(String[] args) throws IOException {
 
+        ModelMetrics.register(); // Publish the timers over JMX
         NumberleModel model = new NumberleModel();
+        Path dataDir = Paths.get(System.getProperty("numberle.dataDir", "."));
+        model.addGameListener(PlayerStatsStore.open(dataDir));
+        model.addGameListener(GameJournal.forProcess(dataDir));
+        model.addGameListener(ModelMetrics.getInstance().getStatistics()); // Reported by the m option
         Scanner scan = new Scanner(System.in);
         model.initialize();
         System.out.println("Answer is: " + model.getTargetEquations());
@@ -22,7 +29,7 @@ public class CLIApp {
             System.out.println("current guess：" + currentGuess);
         }
         // receive guess from cli
-        System.out.print("e: Enter \nd: Delete 1 charter:");
+        System.out.print("e: Enter \nd: Delete 1 charter \nm: Metrics:");
         String options = scan.next();
         ArrayList<Integer> Green = new ArrayList<>();
         ArrayList<Integer> Orange = new ArrayList<>();
@@ -57,6 +64,7 @@ public class CLIApp {
                 // CG: current Guess TG: target Guess
 
                 case "d" -> System.out.println("Delete");
+                case "m" -> System.out.print(ModelMetrics.getInstance().getReport());
                 default -> System.out.println("Wrong option");
             }
     }
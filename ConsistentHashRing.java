@@ -0,0 +1,158 @@
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * The ConsistentHashRing class assigns game ids to nodes by consistent hashing.
+ * Every node is placed on a ring of 64-bit positions at several virtual points derived from its name, and a game
+ * belongs to the first point at or after the hash of its id. When a node joins it only takes over the arcs before
+ * its own points, and when it leaves only its games move, so a topology change of N nodes moves about 1 / N of the games.
+ * Virtual points even out the arcs, so every node owns close to the same share.
+ * A ring is immutable; adding or removing a node returns a new ring, so routers can swap it atomically.
+ */
+public final class ConsistentHashRing {
+
+    public static final int DEFAULT_VIRTUAL_NODES = 128; // The points of each node.
+
+    private final List<String> nodes; // The node names, sorted.
+    private final int virtualNodes; // The points of each node.
+    private final long[] points; // The ring positions, sorted as unsigned values.
+    private final int[] owners; // The index in nodes of the owner of each point.
+
+    /**
+     * Constructs a ring of nodes.
+     *
+     * @param nodes        The node names.
+     * @param virtualNodes The points of each node, at least 1.
+     */
+    public ConsistentHashRing(List<String> nodes, int virtualNodes) {
+        if (virtualNodes < 1) {
+            throw new IllegalArgumentException("virtualNodes must be positive: " + virtualNodes);
+        }
+        List<String> sorted = new ArrayList<>(nodes);
+        Collections.sort(sorted);
+        this.nodes = Collections.unmodifiableList(sorted);
+        this.virtualNodes = virtualNodes;
+
+        int count = sorted.size() * virtualNodes;
+        long[] entries = new long[count * 2]; // Position and owner pairs, sorted together below
+        int n = 0;
+        for (int node = 0; node < sorted.size(); node++) {
+            long seed = nameHash(sorted.get(node));
+            for (int i = 0; i < virtualNodes; i++) {
+                entries[n++] = mix(seed + i * 0x9E3779B97F4A7C15L) ^ Long.MIN_VALUE; // Signed order of the flipped value is unsigned order
+                entries[n++] = node;
+            }
+        }
+        Integer[] order = new Integer[count];
+        for (int i = 0; i < count; i++) {
+            order[i] = i;
+        }
+        Arrays.sort(order, (a, b) -> Long.compare(entries[2 * a], entries[2 * b]));
+        points = new long[count];
+        owners = new int[count];
+        for (int i = 0; i < count; i++) {
+            points[i] = entries[2 * order[i]];
+            owners[i] = (int) entries[2 * order[i] + 1];
+        }
+    }
+
+    /**
+     * Returns a ring with one more node.
+     *
+     * @param node The name of the joining node.
+     * @return The new ring.
+     */
+    public ConsistentHashRing withNode(String node) {
+        if (nodes.contains(node)) {
+            return this;
+        }
+        List<String> updated = new ArrayList<>(nodes);
+        updated.add(node);
+        return new ConsistentHashRing(updated, virtualNodes);
+    }
+
+    /**
+     * Returns a ring without a node.
+     *
+     * @param node The name of the leaving node.
+     * @return The new ring.
+     */
+    public ConsistentHashRing withoutNode(String node) {
+        List<String> updated = new ArrayList<>(nodes);
+        updated.remove(node);
+        return new ConsistentHashRing(updated, virtualNodes);
+    }
+
+    /**
+     * Returns the node owning a game.
+     *
+     * @param gameId The game id.
+     * @return The node name.
+     * @throws IllegalStateException If the ring has no nodes.
+     */
+    public String nodeFor(long gameId) {
+        if (points.length == 0) {
+            throw new IllegalStateException("The ring has no nodes");
+        }
+        long hash = mix(gameId) ^ Long.MIN_VALUE;
+        int low = 0;
+        int high = points.length; // The first point at or after the hash is in [low, high]
+        while (low < high) {
+            int middle = (low + high) >>> 1;
+            if (points[middle] < hash) {
+                low = middle + 1;
+            } else {
+                high = middle;
+            }
+        }
+        return nodes.get(owners[low == points.length ? 0 : low]); // Past the last point the ring wraps around
+    }
+
+    /**
+     * Returns the nodes of the ring.
+     *
+     * @return The node names, sorted.
+     */
+    public List<String> getNodes() {
+        return nodes;
+    }
+
+    /**
+     * Returns the points of each node.
+     *
+     * @return The virtual node count.
+     */
+    public int getVirtualNodes() {
+        return virtualNodes;
+    }
+
+    /**
+     * Hashes a node name, so that every router places a node at the same points.
+     *
+     * @param name The node name.
+     * @return The hash.
+     */
+    private static long nameHash(String name) {
+        long hash = 0xCBF29CE484222325L; // 64-bit FNV-1a
+        for (byte b : name.getBytes(StandardCharsets.UTF_8)) {
+            hash = (hash ^ (b & 0xFF)) * 0x100000001B3L;
+        }
+        return hash;
+    }
+
+    /**
+     * Spreads the bits of a value over a 64-bit hash (the SplitMix64 finalizer).
+     *
+     * @param value The value.
+     * @return The hash.
+     */
+    private static long mix(long value) {
+        long z = value * 0x9E3779B97F4A7C15L;
+        z = (z ^ (z >>> 30)) * 0xBF58476D1CE4E5B9L;
+        z = (z ^ (z >>> 27)) * 0x94D049BB133111EBL;
+        return z ^ (z >>> 31);
+    }
+}
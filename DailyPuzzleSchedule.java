@@ -0,0 +1,284 @@
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.time.LocalDate;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * The DailyPuzzleSchedule class maps dates to the daily puzzle target.
+ * The target of a day is the dictionary entry at position (epoch day) of a fixed-seed EquationPermutation,
+ * so every node computes the same target without coordination.
+ * A schedule file precomputes the targets and solver difficulty of the next days, so serving a day is an array lookup.
+ *
+ * File layout (big-endian): int magic, int version, long first epoch day, int day count,
+ * then per day: int packed target, short candidates left after the solver's opening, byte solver guesses, byte reserved.
+ */
+public class DailyPuzzleSchedule {
+
+    public static final long DAILY_SEED = 0x4E554D4245524C45L; // The seed shared by all nodes ("NUMBERLE").
+    private static final int MAGIC = 0x4E445053; // "NDPS"
+    private static final int VERSION = 1; // The file format version.
+
+    private static final ConcurrentHashMap<String, Optional<DailyPuzzleSchedule>> SCHEDULES = new ConcurrentHashMap<>(); // Schedules by file name, empty if none could be read.
+    private static volatile Fallback lastFallback; // The last target computed without a schedule file, or null.
+
+    private final long firstDay; // The epoch day of the first entry.
+    private final int[] targets; // The packed target of each day.
+    private final short[] remainingAfterOpening; // Candidates left after the solver's opening, per day.
+    private final byte[] guesses; // Solver guesses, per day.
+
+    /**
+     * Constructs a schedule from its columns.
+     *
+     * @param firstDay              The epoch day of the first entry.
+     * @param targets               The packed target of each day.
+     * @param remainingAfterOpening Candidates left after the solver's opening, per day.
+     * @param guesses               Solver guesses, per day.
+     */
+    private DailyPuzzleSchedule(long firstDay, int[] targets, short[] remainingAfterOpening, byte[] guesses) {
+        this.firstDay = firstDay;
+        this.targets = targets;
+        this.remainingAfterOpening = remainingAfterOpening;
+        this.guesses = guesses;
+    }
+
+    /**
+     * Computes the target of a day directly from the dictionary, without a schedule file.
+     *
+     * @param packedDictionary The packed dictionary.
+     * @param date             The date.
+     * @return The packed target of the day.
+     */
+    public static int targetFor(int[] packedDictionary, LocalDate date) {
+        EquationPermutation permutation = new EquationPermutation(packedDictionary.length, DAILY_SEED);
+        return packedDictionary[permutation.indexAt(date.toEpochDay())];
+    }
+
+    /**
+     * Returns the target of a day like targetFor, remembering the last one computed, so the games of a day
+     * served without a schedule file share one computation.
+     *
+     * @param packedDictionary The packed dictionary.
+     * @param date             The date.
+     * @return The packed target of the day.
+     */
+    public static int cachedTargetFor(int[] packedDictionary, LocalDate date) {
+        Fallback fallback = lastFallback;
+        long day = date.toEpochDay();
+        if (fallback == null || fallback.dictionary != packedDictionary || fallback.day != day) {
+            fallback = new Fallback(packedDictionary, day, targetFor(packedDictionary, date));
+            lastFallback = fallback;
+        }
+        return fallback.target;
+    }
+
+    /**
+     * Computes the schedule of a range of days, including the solver difficulty of each target.
+     *
+     * @param packedDictionary The packed dictionary.
+     * @param first            The first date of the schedule.
+     * @param days             The number of days.
+     * @return The schedule.
+     */
+    public static DailyPuzzleSchedule compute(int[] packedDictionary, LocalDate first, int days) {
+        NumberleSolver solver = new NumberleSolver(packedDictionary);
+        int[] targets = new int[days];
+        short[] remaining = new short[days];
+        byte[] guesses = new byte[days];
+        for (int i = 0; i < days; i++) {
+            targets[i] = targetFor(packedDictionary, first.plusDays(i));
+            NumberleSolver.Difficulty difficulty = solver.solve(targets[i]);
+            remaining[i] = (short) Math.min(difficulty.getRemainingAfterOpening(), 0xFFFF);
+            guesses[i] = (byte) difficulty.getGuesses();
+        }
+        return new DailyPuzzleSchedule(first.toEpochDay(), targets, remaining, guesses);
+    }
+
+    /**
+     * Writes the schedule to a file.
+     *
+     * @param file The schedule file.
+     * @throws IOException If the file cannot be written.
+     */
+    public void write(Path file) throws IOException {
+        try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(file)))) {
+            out.writeInt(MAGIC);
+            out.writeInt(VERSION);
+            out.writeLong(firstDay);
+            out.writeInt(targets.length);
+            for (int i = 0; i < targets.length; i++) {
+                out.writeInt(targets[i]);
+                out.writeShort(remainingAfterOpening[i]);
+                out.writeByte(guesses[i]);
+                out.writeByte(0);
+            }
+        }
+    }
+
+    /**
+     * Reads a schedule file.
+     *
+     * @param file The schedule file.
+     * @return The schedule.
+     * @throws IOException If the file cannot be read or is not a schedule file.
+     */
+    public static DailyPuzzleSchedule read(Path file) throws IOException {
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(file)))) {
+            if (in.readInt() != MAGIC || in.readInt() != VERSION) {
+                throw new IOException("Not a daily schedule file: " + file);
+            }
+            long firstDay = in.readLong();
+            int days = in.readInt();
+            int[] targets = new int[days];
+            short[] remaining = new short[days];
+            byte[] guesses = new byte[days];
+            for (int i = 0; i < days; i++) {
+                targets[i] = in.readInt();
+                remaining[i] = in.readShort();
+                guesses[i] = in.readByte();
+                in.readByte(); // Reserved
+            }
+            return new DailyPuzzleSchedule(firstDay, targets, remaining, guesses);
+        }
+    }
+
+    /**
+     * Returns the schedule stored in a file. The file is looked up and read on first use only,
+     * so a schedule written later is served after a restart.
+     *
+     * @param fileName The schedule file name.
+     * @return The schedule, or null if the file did not exist or could not be read.
+     */
+    public static DailyPuzzleSchedule forFile(String fileName) {
+        Optional<DailyPuzzleSchedule> schedule = SCHEDULES.get(fileName);
+        if (schedule == null) {
+            schedule = SCHEDULES.computeIfAbsent(fileName, DailyPuzzleSchedule::load);
+        }
+        return schedule.orElse(null);
+    }
+
+    /**
+     * Reads the schedule of a file if it exists.
+     *
+     * @param fileName The schedule file name.
+     * @return The schedule, or empty if the file does not exist or cannot be read.
+     */
+    private static Optional<DailyPuzzleSchedule> load(String fileName) {
+        Path path = Paths.get(fileName).toAbsolutePath().normalize();
+        if (!Files.exists(path)) {
+            return Optional.empty();
+        }
+        try {
+            return Optional.of(read(path));
+        } catch (IOException e) {
+            GameLog.log(GameLog.Level.WARN, "Daily schedule unreadable: ", e);
+            return Optional.empty();
+        }
+    }
+
+    /**
+     * Checks if the schedule covers a date.
+     *
+     * @param date The date.
+     * @return True if the date has a precomputed entry, false otherwise.
+     */
+    public boolean covers(LocalDate date) {
+        long offset = date.toEpochDay() - firstDay;
+        return offset >= 0 && offset < targets.length;
+    }
+
+    /**
+     * Returns the target of a covered date.
+     *
+     * @param date The date.
+     * @return The target equation.
+     */
+    public String getTarget(LocalDate date) {
+        return EquationCodec.unpack(targets[offset(date)]);
+    }
+
+    /**
+     * Returns the number of guesses the solver needs for the target of a covered date.
+     *
+     * @param date The date.
+     * @return The solver guesses.
+     */
+    public int getSolverGuesses(LocalDate date) {
+        return guesses[offset(date)];
+    }
+
+    /**
+     * Returns the number of candidates left after the solver's opening guess for a covered date.
+     *
+     * @param date The date.
+     * @return The candidate count.
+     */
+    public int getRemainingAfterOpening(LocalDate date) {
+        return remainingAfterOpening[offset(date)] & 0xFFFF;
+    }
+
+    /**
+     * Returns the index of a covered date in the schedule.
+     *
+     * @param date The date.
+     * @return The index.
+     */
+    private int offset(LocalDate date) {
+        if (!covers(date)) {
+            throw new IllegalArgumentException("Date not in schedule: " + date);
+        }
+        return (int) (date.toEpochDay() - firstDay);
+    }
+
+    /**
+     * Precomputes a schedule file.
+     * Usage: DailyPuzzleSchedule &lt;dictionary file&gt; &lt;schedule file&gt; [days]
+     *
+     * @param args The command-line arguments.
+     * @throws IOException If a file cannot be read or written.
+     */
+    public static void main(String[] args) throws IOException {
+        if (args.length < 2) {
+            System.out.println("Usage: DailyPuzzleSchedule <dictionary file> <schedule file> [days]");
+            return;
+        }
+        int days = args.length > 2 ? Integer.parseInt(args[2]) : 365;
+        int[] packed = EquationDictionary.load(Paths.get(args[0]), 1).getPacked();
+        LocalDate today = LocalDate.now(java.time.ZoneOffset.UTC);
+
+        long start = System.nanoTime();
+        DailyPuzzleSchedule schedule = compute(packed, today, days);
+        schedule.write(Paths.get(args[1]));
+        System.out.println("Scheduled " + days + " days from " + today + " in "
+                + (System.nanoTime() - start) / 1_000_000 + " ms");
+    }
+
+    /**
+     * The Fallback class is a target computed without a schedule file, with the dictionary and day it is for.
+     */
+    private static final class Fallback {
+
+        private final int[] dictionary; // The packed dictionary the target was drawn from.
+        private final long day; // The epoch day.
+        private final int target; // The packed target.
+
+        /**
+         * Constructs a fallback target.
+         *
+         * @param dictionary The packed dictionary.
+         * @param day        The epoch day.
+         * @param target     The packed target.
+         */
+        private Fallback(int[] dictionary, long day, int target) {
+            this.dictionary = dictionary;
+            this.day = day;
+            this.target = target;
+        }
+    }
+}
@@ -0,0 +1,200 @@
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Arrays;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * The DecisionTree class is the solver's precomputed best-play tree, built by DecisionTreeBuilder.
+ * Each node holds the guess to play and one edge per feedback pattern that guess can receive.
+ * A hint walks the tree along the rows already played, so it costs one edge lookup per row and no search.
+ *
+ * The tree is stored as flat arrays: node n has the edges firstEdge[n] to firstEdge[n + 1] - 1,
+ * sorted by pattern. File layout (big-endian): int magic, int version, int node count, int edge count,
+ * then per node: int packed guess, int candidate count; then firstEdge; then per edge: short pattern, int child node.
+ */
+public class DecisionTree {
+
+    private static final int MAGIC = 0x4E445454; // "NDTT"
+    private static final int VERSION = 1; // The file format version.
+
+    private static final ConcurrentHashMap<String, Optional<DecisionTree>> TREES = new ConcurrentHashMap<>(); // Trees by file name, empty if none could be read.
+
+    private final int[] guess; // The packed guess of each node.
+    private final int[] candidates; // The number of candidates left at each node.
+    private final int[] firstEdge; // The first edge of each node, plus the end of the last node's edges.
+    private final short[] edgePattern; // The feedback pattern of each edge.
+    private final int[] edgeChild; // The child node of each edge.
+
+    /**
+     * Constructs a tree from its arrays; node 0 is the root.
+     *
+     * @param guess       The packed guess of each node.
+     * @param candidates  The number of candidates left at each node.
+     * @param firstEdge   The first edge of each node, plus the end of the last node's edges.
+     * @param edgePattern The feedback pattern of each edge.
+     * @param edgeChild   The child node of each edge.
+     */
+    public DecisionTree(int[] guess, int[] candidates, int[] firstEdge, short[] edgePattern, int[] edgeChild) {
+        this.guess = guess;
+        this.candidates = candidates;
+        this.firstEdge = firstEdge;
+        this.edgePattern = edgePattern;
+        this.edgeChild = edgeChild;
+    }
+
+    /**
+     * Returns the number of nodes in the tree.
+     *
+     * @return The node count.
+     */
+    public int size() {
+        return guess.length;
+    }
+
+    /**
+     * Walks the tree along the rows played so far and returns the guess to play next.
+     *
+     * @param guesses  The packed guesses played so far.
+     * @param patterns The feedback patterns received for them.
+     * @param rows     The number of rows played.
+     * @return The hint, or null if the player deviated from the tree and the hint has to be searched.
+     */
+    public Hint hint(int[] guesses, int[] patterns, int rows) {
+        long start = System.nanoTime();
+        int node = 0;
+        for (int row = 0; row < rows; row++) {
+            if (guesses[row] != guess[node]) {
+                return null; // The player did not follow the tree
+            }
+            node = child(node, patterns[row]);
+            if (node < 0) {
+                return null; // Feedback the tree does not know, e.g. a target outside the dictionary
+            }
+        }
+
+        // Expected candidates left after the guess, from the sizes of the partitions it splits the candidates into
+        long squares = 0;
+        long partitioned = 0;
+        for (int edge = firstEdge[node]; edge < firstEdge[node + 1]; edge++) {
+            long size = candidates[edgeChild[edge]];
+            squares += size * size;
+            partitioned += size;
+        }
+        squares += candidates[node] - partitioned; // The guess itself, if it is a candidate, wins outright
+        return new Hint(EquationCodec.unpack(guess[node]), candidates[node], 0, 0,
+                (double) squares / candidates[node], System.nanoTime() - start);
+    }
+
+    /**
+     * Returns the child of a node for a feedback pattern.
+     *
+     * @param node    The node.
+     * @param pattern The feedback pattern.
+     * @return The child node, or -1 if the node has no edge for the pattern.
+     */
+    private int child(int node, int pattern) {
+        int edge = Arrays.binarySearch(edgePattern, firstEdge[node], firstEdge[node + 1], (short) pattern);
+        return edge < 0 ? -1 : edgeChild[edge];
+    }
+
+    /**
+     * Writes the tree to a file.
+     *
+     * @param file The tree file.
+     * @throws IOException If the file cannot be written.
+     */
+    public void write(Path file) throws IOException {
+        try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(file)))) {
+            out.writeInt(MAGIC);
+            out.writeInt(VERSION);
+            out.writeInt(guess.length);
+            out.writeInt(edgeChild.length);
+            for (int node = 0; node < guess.length; node++) {
+                out.writeInt(guess[node]);
+                out.writeInt(candidates[node]);
+            }
+            for (int edge : firstEdge) {
+                out.writeInt(edge);
+            }
+            for (int edge = 0; edge < edgeChild.length; edge++) {
+                out.writeShort(edgePattern[edge]);
+                out.writeInt(edgeChild[edge]);
+            }
+        }
+    }
+
+    /**
+     * Reads a tree file.
+     *
+     * @param file The tree file.
+     * @return The tree.
+     * @throws IOException If the file cannot be read or is not a tree file.
+     */
+    public static DecisionTree read(Path file) throws IOException {
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(file)))) {
+            if (in.readInt() != MAGIC || in.readInt() != VERSION) {
+                throw new IOException("Not a decision tree file: " + file);
+            }
+            int nodes = in.readInt();
+            int edges = in.readInt();
+            int[] guess = new int[nodes];
+            int[] candidates = new int[nodes];
+            for (int node = 0; node < nodes; node++) {
+                guess[node] = in.readInt();
+                candidates[node] = in.readInt();
+            }
+            int[] firstEdge = new int[nodes + 1];
+            for (int node = 0; node <= nodes; node++) {
+                firstEdge[node] = in.readInt();
+            }
+            short[] edgePattern = new short[edges];
+            int[] edgeChild = new int[edges];
+            for (int edge = 0; edge < edges; edge++) {
+                edgePattern[edge] = in.readShort();
+                edgeChild[edge] = in.readInt();
+            }
+            return new DecisionTree(guess, candidates, firstEdge, edgePattern, edgeChild);
+        }
+    }
+
+    /**
+     * Returns the tree stored in a file. The file is looked up and read on first use only,
+     * so a tree built later is served after a restart.
+     *
+     * @param fileName The tree file name.
+     * @return The tree, or null if the file did not exist or could not be read.
+     */
+    public static DecisionTree forFile(String fileName) {
+        Optional<DecisionTree> tree = TREES.get(fileName);
+        if (tree == null) {
+            tree = TREES.computeIfAbsent(fileName, DecisionTree::load);
+        }
+        return tree.orElse(null);
+    }
+
+    /**
+     * Reads the tree of a file if it exists.
+     *
+     * @param fileName The tree file name.
+     * @return The tree, or empty if the file does not exist or cannot be read.
+     */
+    private static Optional<DecisionTree> load(String fileName) {
+        Path path = Paths.get(fileName).toAbsolutePath().normalize();
+        if (!Files.exists(path)) {
+            return Optional.empty();
+        }
+        try {
+            return Optional.of(read(path));
+        } catch (IOException e) {
+            GameLog.log(GameLog.Level.WARN, "Decision tree unreadable: ", e);
+            return Optional.empty();
+        }
+    }
+}
@@ -0,0 +1,194 @@
+import java.io.IOException;
+import java.nio.file.Paths;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+
+/**
+ * The DecisionTreeBuilder class computes the solver's best-play tree offline.
+ * Starting from the solver's opening guess, the candidates are partitioned by feedback pattern and
+ * each partition gets the guess the solver would play next, recursively until every partition is solved.
+ * Sibling partitions are independent, so they are built as parallel fork-join tasks.
+ */
+public class DecisionTreeBuilder {
+
+    private static final int SEQUENTIAL_THRESHOLD = 64; // Partitions at most this large are built on the current thread.
+
+    /**
+     * Prevents instantiation of the utility class.
+     */
+    private DecisionTreeBuilder() {
+    }
+
+    /**
+     * Builds the tree for a packed dictionary.
+     *
+     * @param dictionary The packed dictionary.
+     * @return The decision tree.
+     */
+    public static DecisionTree build(int[] dictionary) {
+        int opening = new NumberleSolver(dictionary).getOpening();
+        Node root = ForkJoinPool.commonPool().invoke(new Builder(dictionary.clone(), opening));
+        return flatten(root);
+    }
+
+    /**
+     * Lays a built tree out as the flat arrays of DecisionTree, in breadth-first order.
+     *
+     * @param root The root node.
+     * @return The decision tree.
+     */
+    private static DecisionTree flatten(Node root) {
+        List<Node> nodes = new ArrayList<>();
+        ArrayDeque<Node> queue = new ArrayDeque<>();
+        queue.add(root);
+        int edges = 0;
+        while (!queue.isEmpty()) {
+            Node node = queue.poll();
+            node.index = nodes.size();
+            nodes.add(node);
+            edges += node.children.length;
+            queue.addAll(Arrays.asList(node.children));
+        }
+
+        int[] guess = new int[nodes.size()];
+        int[] candidates = new int[nodes.size()];
+        int[] firstEdge = new int[nodes.size() + 1];
+        short[] edgePattern = new short[edges];
+        int[] edgeChild = new int[edges];
+        int edge = 0;
+        for (Node node : nodes) {
+            guess[node.index] = node.guess;
+            candidates[node.index] = node.candidates;
+            firstEdge[node.index] = edge;
+            for (int i = 0; i < node.children.length; i++) {
+                edgePattern[edge] = (short) node.patterns[i];
+                edgeChild[edge] = node.children[i].index;
+                edge++;
+            }
+        }
+        firstEdge[nodes.size()] = edge;
+        return new DecisionTree(guess, candidates, firstEdge, edgePattern, edgeChild);
+    }
+
+    /**
+     * The Node class is a tree node while the tree is being built.
+     */
+    private static final class Node {
+        private final int guess; // The packed guess of the node.
+        private final int candidates; // The number of candidates at the node.
+        private int[] patterns; // The feedback pattern of each child, ascending.
+        private Node[] children; // The child nodes.
+        private int index; // The position of the node in the flattened tree.
+
+        /**
+         * Constructs a node.
+         *
+         * @param guess      The packed guess of the node.
+         * @param candidates The number of candidates at the node.
+         */
+        private Node(int guess, int candidates) {
+            this.guess = guess;
+            this.candidates = candidates;
+        }
+    }
+
+    /**
+     * The Builder class builds the subtree of one set of candidates.
+     */
+    @SuppressWarnings("serial") // Tasks are never serialized
+    private static final class Builder extends RecursiveTask<Node> {
+        private final int[] candidates; // The candidates of the subtree.
+        private int guess; // The guess played against them, or -1 to let the solver choose it.
+
+        /**
+         * Constructs a subtree task.
+         *
+         * @param candidates The candidates of the subtree.
+         * @param guess      The guess played against them, or -1 to let the solver choose it.
+         */
+        private Builder(int[] candidates, int guess) {
+            this.candidates = candidates;
+            this.guess = guess;
+        }
+
+        /**
+         * Partitions the candidates by the feedback to the guess and builds a child per partition.
+         *
+         * @return The subtree root.
+         */
+        @Override
+        protected Node compute() {
+            if (guess < 0) {
+                guess = NumberleSolver.bestGuess(candidates, candidates.length, new int[NumberleSolver.PATTERNS]);
+            }
+            Node node = new Node(guess, candidates.length);
+
+            // Counting sort of the candidates by pattern, leaving out the solved one
+            int[] counts = new int[NumberleSolver.PATTERNS + 1];
+            int[] patternOf = new int[candidates.length];
+            for (int i = 0; i < candidates.length; i++) {
+                patternOf[i] = NumberleSolver.feedback(guess, candidates[i]);
+                counts[patternOf[i] + 1]++;
+            }
+            int partitions = 0;
+            for (int p = 0; p < NumberleSolver.SOLVED; p++) {
+                if (counts[p + 1] > 0) {
+                    partitions++;
+                }
+                counts[p + 1] += counts[p];
+            }
+            int[] sorted = new int[candidates.length];
+            int[] next = Arrays.copyOf(counts, NumberleSolver.PATTERNS);
+            for (int i = 0; i < candidates.length; i++) {
+                sorted[next[patternOf[i]]++] = candidates[i];
+            }
+
+            node.patterns = new int[partitions];
+            node.children = new Node[partitions];
+            Builder[] tasks = new Builder[partitions];
+            int child = 0;
+            for (int p = 0; p < NumberleSolver.SOLVED; p++) {
+                int from = counts[p];
+                int to = counts[p + 1];
+                if (to > from) {
+                    int[] partition = Arrays.copyOfRange(sorted, from, to);
+                    node.patterns[child] = p;
+                    tasks[child] = new Builder(partition, -1);
+                    if (partition.length > SEQUENTIAL_THRESHOLD) {
+                        tasks[child].fork();
+                    }
+                    child++;
+                }
+            }
+            for (int i = 0; i < partitions; i++) {
+                node.children[i] = tasks[i].candidates.length > SEQUENTIAL_THRESHOLD ? tasks[i].join() : tasks[i].compute();
+            }
+            return node;
+        }
+    }
+
+    /**
+     * Builds the tree of a dictionary file and writes it.
+     * Usage: DecisionTreeBuilder &lt;dictionary file&gt; &lt;tree file&gt;
+     *
+     * @param args The command-line arguments.
+     * @throws IOException If a file cannot be read or written.
+     */
+    public static void main(String[] args) throws IOException {
+        if (args.length < 2) {
+            System.out.println("Usage: DecisionTreeBuilder <dictionary file> <tree file>");
+            return;
+        }
+        int[] packed = EquationDictionary.load(Paths.get(args[0]), 1).getPacked();
+
+        long start = System.nanoTime();
+        DecisionTree tree = build(packed);
+        tree.write(Paths.get(args[1]));
+        System.out.println("Built a tree of " + tree.size() + " nodes for " + packed.length + " equations in "
+                + (System.nanoTime() - start) / 1_000_000 + " ms");
+    }
+}
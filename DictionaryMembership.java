@@ -0,0 +1,143 @@
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.IntBuffer;
+import java.nio.LongBuffer;
+import java.util.Arrays;
+
+/**
+ * The DictionaryMembership class answers whether a packed equation is in a dictionary.
+ * A Bloom filter answers first and rejects most equations that are not in it with a few bit probes;
+ * only its positives are confirmed by a binary search of the sorted packed equations.
+ * Both structures live in direct buffers outside the Java heap, taking about BITS_PER_ENTRY / 8 + 4 bytes per equation.
+ * The structure is immutable and safe to share between threads.
+ */
+public final class DictionaryMembership {
+
+    private static final int BITS_PER_ENTRY = 10; // Filter bits per equation; gives about 1% false positives.
+    private static final int HASHES = 7; // Bits set per equation, optimal for BITS_PER_ENTRY.
+    private static final long MAX_BITS = 1L << 33; // The largest filter, 1 GiB; beyond it false positives rise.
+
+    private final LongBuffer filter; // The Bloom filter bits, off-heap.
+    private final long bitMask; // Maps a hash to a filter bit; the bit count is a power of two.
+    private final IntBuffer sorted; // The distinct packed equations in ascending order, off-heap.
+
+    /**
+     * Builds the filter and the sorted table of a packed dictionary.
+     *
+     * @param packed The packed equations; entries below 0 are ignored.
+     */
+    public DictionaryMembership(int[] packed) {
+        int[] values = new int[packed.length]; // The only copy; the caller's array is left in its order
+        int count = 0;
+        for (int value : packed) {
+            if (value >= 0) {
+                values[count++] = value;
+            }
+        }
+        Arrays.sort(values, 0, count);
+        int distinct = 0;
+        for (int i = 0; i < count; i++) { // Equal values are adjacent once sorted
+            if (distinct == 0 || values[i] != values[distinct - 1]) {
+                values[distinct++] = values[i];
+            }
+        }
+        sorted = ByteBuffer.allocateDirect(Math.max(distinct, 1) * Integer.BYTES).order(ByteOrder.nativeOrder()).asIntBuffer();
+        sorted.put(values, 0, distinct).flip();
+
+        long bits = Long.highestOneBit(Math.max((long) distinct * BITS_PER_ENTRY, Long.SIZE) - 1) << 1;
+        bits = Math.min(bits, MAX_BITS);
+        filter = ByteBuffer.allocateDirect((int) (bits / Byte.SIZE)).order(ByteOrder.nativeOrder()).asLongBuffer();
+        bitMask = bits - 1;
+        for (int v = 0; v < distinct; v++) {
+            long hash = mix(values[v]);
+            long step = (hash >>> 32) | 1; // Double hashing: bit i is hash + i * step
+            for (int i = 0; i < HASHES; i++) {
+                long bit = (hash + i * step) & bitMask;
+                int word = (int) (bit >>> 6);
+                filter.put(word, filter.get(word) | 1L << bit);
+            }
+        }
+    }
+
+    /**
+     * Checks whether a packed equation is in the dictionary.
+     *
+     * @param packed The packed equation, or -1 for an equation that cannot be packed.
+     * @return True if the equation is in the dictionary.
+     */
+    public boolean contains(int packed) {
+        return packed >= 0 && mightContain(packed) && binarySearch(packed);
+    }
+
+    /**
+     * Checks the Bloom filter.
+     *
+     * @param packed The packed equation.
+     * @return False if the equation is certainly not in the dictionary.
+     */
+    boolean mightContain(int packed) {
+        long hash = mix(packed);
+        long step = (hash >>> 32) | 1;
+        for (int i = 0; i < HASHES; i++) {
+            long bit = (hash + i * step) & bitMask;
+            if ((filter.get((int) (bit >>> 6)) & 1L << bit) == 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Searches the sorted table.
+     *
+     * @param packed The packed equation.
+     * @return True if the equation is in the table.
+     */
+    private boolean binarySearch(int packed) {
+        int low = 0;
+        int high = sorted.limit() - 1;
+        while (low <= high) {
+            int middle = (low + high) >>> 1;
+            int value = sorted.get(middle);
+            if (value < packed) {
+                low = middle + 1;
+            } else if (value > packed) {
+                high = middle - 1;
+            } else {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Returns the number of distinct equations.
+     *
+     * @return The equation count.
+     */
+    public int size() {
+        return sorted.limit();
+    }
+
+    /**
+     * Returns the off-heap memory used.
+     *
+     * @return The bytes of the filter and the table.
+     */
+    public long getMemoryBytes() {
+        return (long) filter.capacity() * Long.BYTES + (long) sorted.capacity() * Integer.BYTES;
+    }
+
+    /**
+     * Spreads the bits of a packed equation over a 64-bit hash (the SplitMix64 finalizer).
+     *
+     * @param packed The packed equation.
+     * @return The hash.
+     */
+    static long mix(int packed) {
+        long z = packed * 0x9E3779B97F4A7C15L;
+        z = (z ^ (z >>> 30)) * 0xBF58476D1CE4E5B9L;
+        z = (z ^ (z >>> 27)) * 0x94D049BB133111EBL;
+        return z ^ (z >>> 31);
+    }
+}
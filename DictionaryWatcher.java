@@ -0,0 +1,139 @@
+import java.io.IOException;
+import java.nio.file.ClosedWatchServiceException;
+import java.nio.file.FileSystems;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardWatchEventKinds;
+import java.nio.file.WatchEvent;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The DictionaryWatcher class keeps the current EquationDictionary of a file and reloads it when the file changes.
+ * Reloads are built on a background thread and published through a volatile reference, so readers never block.
+ */
+public class DictionaryWatcher {
+
+    private static final ConcurrentHashMap<Path, DictionaryWatcher> WATCHERS = new ConcurrentHashMap<>(); // One watcher per file.
+    private static final long SETTLE_MILLIS = 50; // Time to wait for further writes before reloading.
+
+    private final Path file; // The watched dictionary file.
+    private volatile EquationDictionary current; // The published dictionary snapshot.
+
+    /**
+     * Constructs a watcher and performs the initial load of the file.
+     *
+     * @param file The dictionary file.
+     * @throws IOException If the initial load fails.
+     */
+    private DictionaryWatcher(Path file) throws IOException {
+        this.file = file;
+        this.current = EquationDictionary.load(file, 1);
+    }
+
+    /**
+     * Returns the watcher of a dictionary file, loading and starting to watch it on first use.
+     *
+     * @param fileName The dictionary file name.
+     * @return The watcher of the file.
+     */
+    public static DictionaryWatcher forFile(String fileName) {
+        Path path = Paths.get(fileName).toAbsolutePath().normalize();
+        DictionaryWatcher watcher = WATCHERS.get(path);
+        if (watcher != null) {
+            return watcher; // Fast path: no locking once the file is known
+        }
+        return WATCHERS.computeIfAbsent(path, p -> {
+            try {
+                DictionaryWatcher created = new DictionaryWatcher(p);
+                created.startWatching();
+                return created;
+            } catch (IOException e) {
+                throw new RuntimeException(e);
+            }
+        });
+    }
+
+    /**
+     * Returns the current dictionary snapshot.
+     *
+     * @return The latest successfully loaded dictionary.
+     */
+    public EquationDictionary current() {
+        return current;
+    }
+
+    /**
+     * Starts the daemon thread that watches the parent directory of the file.
+     *
+     * @throws IOException If the watch service cannot be registered.
+     */
+    private void startWatching() throws IOException {
+        Path directory = file.getParent();
+        WatchService watchService = FileSystems.getDefault().newWatchService();
+        directory.register(watchService, StandardWatchEventKinds.ENTRY_CREATE, StandardWatchEventKinds.ENTRY_MODIFY);
+
+        Thread thread = new Thread(() -> watch(watchService), "dictionary-watcher-" + file.getFileName());
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    /**
+     * Waits for changes to the file and reloads it until the watch service is closed.
+     *
+     * @param watchService The watch service registered on the parent directory.
+     */
+    private void watch(WatchService watchService) {
+        try {
+            while (true) {
+                WatchKey key = watchService.take();
+                boolean changed = collect(key);
+
+                // Let the writer finish and coalesce the burst of events it produces
+                WatchKey next;
+                while ((next = watchService.poll(SETTLE_MILLIS, TimeUnit.MILLISECONDS)) != null) {
+                    changed |= collect(next);
+                }
+
+                if (changed) {
+                    reload();
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (ClosedWatchServiceException e) {
+            // The watch service was closed, stop watching
+        }
+    }
+
+    /**
+     * Drains the events of a watch key and resets it.
+     *
+     * @param key The signalled watch key.
+     * @return True if one of the events concerns the watched file, false otherwise.
+     */
+    private boolean collect(WatchKey key) {
+        boolean changed = false;
+        for (WatchEvent<?> event : key.pollEvents()) {
+            if (file.getFileName().equals(event.context())) {
+                changed = true;
+            }
+        }
+        key.reset();
+        return changed;
+    }
+
+    /**
+     * Loads the file into a new snapshot and publishes it.
+     * A failed load keeps the previous snapshot, so a half-written file never reaches new games.
+     */
+    private void reload() {
+        try {
+            current = EquationDictionary.load(file, current.getVersion() + 1);
+        } catch (IOException e) {
+            System.out.println("Dictionary reload failed: " + e.getMessage());
+        }
+    }
+}
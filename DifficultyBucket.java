@@ -0,0 +1,9 @@
+/**
+ * The DifficultyBucket enum groups dictionary equations by how hard they are for the solver.
+ * Each bucket holds roughly a third of the dictionary (see DifficultyRater).
+ */
+public enum DifficultyBucket {
+    EASY,
+    MEDIUM,
+    HARD
+}
@@ -0,0 +1,77 @@
+import java.io.IOException;
+import java.nio.file.Paths;
+import java.util.Arrays;
+import java.util.stream.IntStream;
+
+/**
+ * The DifficultyRater class is the batch job that rates every dictionary equation with the solver.
+ * An equation is rated by the number of guesses the solver needs and by the number of candidates
+ * left after the solver's opening guess, i.e. how fast the candidate set shrinks.
+ * The equations are then split into three equally sized difficulty buckets by that rating.
+ */
+public class DifficultyRater {
+
+    /**
+     * Prevents instantiation of the utility class.
+     */
+    private DifficultyRater() {
+    }
+
+    /**
+     * Rates every equation of a packed dictionary in parallel on all cores.
+     *
+     * @param packed The packed dictionary.
+     * @return The rated dictionary.
+     */
+    public static RatedDictionary rate(int[] packed) {
+        NumberleSolver solver = new NumberleSolver(packed);
+        solver.getOpening(); // Compute the shared opening once before the workers start
+
+        int count = packed.length;
+        byte[] guesses = new byte[count];
+        short[] remaining = new short[count];
+        IntStream.range(0, count).parallel().forEach(i -> {
+            NumberleSolver.Difficulty difficulty = solver.solve(packed[i]);
+            guesses[i] = (byte) difficulty.getGuesses();
+            remaining[i] = (short) Math.min(difficulty.getRemainingAfterOpening(), 0xFFFF);
+        });
+
+        // Order by rating: more guesses is harder, then more candidates left after the opening is harder
+        long[] order = new long[count];
+        for (int i = 0; i < count; i++) {
+            order[i] = ((long) guesses[i] << 48) | ((long) (remaining[i] & 0xFFFF) << 32) | i;
+        }
+        Arrays.parallelSort(order);
+
+        byte[] buckets = new byte[count];
+        int bucketCount = DifficultyBucket.values().length;
+        for (int rank = 0; rank < count; rank++) {
+            buckets[(int) order[rank]] = (byte) ((long) rank * bucketCount / count);
+        }
+        return new RatedDictionary(packed, guesses, remaining, buckets);
+    }
+
+    /**
+     * Rates a dictionary file and writes the rated binary dictionary.
+     * Usage: DifficultyRater &lt;dictionary file&gt; &lt;rated dictionary file&gt;
+     *
+     * @param args The command-line arguments.
+     * @throws IOException If a file cannot be read or written.
+     */
+    public static void main(String[] args) throws IOException {
+        if (args.length < 2) {
+            System.out.println("Usage: DifficultyRater <dictionary file> <rated dictionary file>");
+            return;
+        }
+        int[] packed = EquationDictionary.load(Paths.get(args[0]), 1).getPacked();
+
+        long start = System.nanoTime();
+        RatedDictionary rated = rate(packed);
+        rated.write(Paths.get(args[1]));
+        System.out.println("Rated " + packed.length + " equations on " + Runtime.getRuntime().availableProcessors()
+                + " cores in " + (System.nanoTime() - start) / 1_000_000 + " ms");
+        for (DifficultyBucket bucket : DifficultyBucket.values()) {
+            System.out.println(bucket + ": " + rated.size(bucket) + " equations");
+        }
+    }
+}
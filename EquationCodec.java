@@ -0,0 +1,136 @@
+import java.util.Arrays;
+
+/**
+ * The EquationCodec class packs 7-symbol equations into an int, four bits per symbol.
+ * Symbols use the same indices as the keyboard buttons of the model: 0-9 for digits,
+ * 10 for '+', 11 for '-', 12 for '*' (or 'x'), 13 for '/' and 14 for '='.
+ * The first symbol is stored in the highest nibble, so packed values sort like their symbol sequences.
+ */
+public final class EquationCodec {
+
+    public static final int LENGTH = 7; // Number of symbols in an equation.
+    public static final int SYMBOLS = 15; // Number of distinct symbols.
+    private static final char[] SYMBOL_CHARS = "0123456789+-*/=".toCharArray(); // Symbol characters by index.
+
+    /**
+     * Prevents instantiation of the utility class.
+     */
+    private EquationCodec() {
+    }
+
+    /**
+     * Returns the index of a symbol character.
+     *
+     * @param c The character.
+     * @return The symbol index, or -1 if the character is not a symbol.
+     */
+    public static int symbolIndex(char c) {
+        if (c >= '0' && c <= '9') {
+            return c - '0';
+        }
+        switch (c) {
+            case '+':
+                return 10;
+            case '-':
+                return 11;
+            case '*':
+            case 'x': // The keyboard of the view labels multiplication 'x'
+                return 12;
+            case '/':
+                return 13;
+            case '=':
+                return 14;
+            default:
+                return -1;
+        }
+    }
+
+    /**
+     * Returns the character of a symbol index.
+     *
+     * @param index The symbol index.
+     * @return The symbol character.
+     */
+    public static char symbolChar(int index) {
+        return SYMBOL_CHARS[index];
+    }
+
+    /**
+     * Packs an equation into an int.
+     *
+     * @param equation The equation to pack.
+     * @return The packed equation, or -1 if it does not have 7 symbols.
+     */
+    public static int pack(CharSequence equation) {
+        if (equation.length() != LENGTH) {
+            return -1;
+        }
+        int packed = 0;
+        for (int i = 0; i < LENGTH; i++) {
+            int symbol = symbolIndex(equation.charAt(i));
+            if (symbol < 0) {
+                return -1;
+            }
+            packed = (packed << 4) | symbol;
+        }
+        return packed;
+    }
+
+    /**
+     * Unpacks a packed equation.
+     *
+     * @param packed The packed equation.
+     * @return The equation string.
+     */
+    public static String unpack(int packed) {
+        char[] chars = new char[LENGTH];
+        for (int i = 0; i < LENGTH; i++) {
+            chars[i] = SYMBOL_CHARS[symbolAt(packed, i)];
+        }
+        return new String(chars);
+    }
+
+    /**
+     * Returns the symbol at a position of a packed equation.
+     *
+     * @param packed   The packed equation.
+     * @param position The position, 0 to 6.
+     * @return The symbol index.
+     */
+    public static int symbolAt(int packed, int position) {
+        return (packed >>> (4 * (LENGTH - 1 - position))) & 0xF;
+    }
+
+    /**
+     * Returns the set of symbols occurring in a packed equation as a bit mask.
+     *
+     * @param packed The packed equation.
+     * @return A mask with bit i set if symbol i occurs.
+     */
+    public static int presenceMask(int packed) {
+        int mask = 0;
+        for (int i = 0; i < LENGTH; i++) {
+            mask |= 1 << (packed & 0xF);
+            packed >>>= 4;
+        }
+        return mask;
+    }
+
+    /**
+     * Packs every equation of a dictionary, skipping lines that are not 7 symbols long.
+     *
+     * @param dictionary The dictionary.
+     * @return The packed equations in dictionary order.
+     */
+    public static int[] packAll(EquationDictionary dictionary) {
+        int[] packed = new int[dictionary.size()];
+        int count = 0;
+        for (int i = 0; i < dictionary.size(); i++) {
+            int value = pack(dictionary.get(i));
+            if (value >= 0) {
+                packed[count++] = value;
+            }
+        }
+        return count == packed.length ? packed : Arrays.copyOf(packed, count);
+    }
+}
@@ -0,0 +1,129 @@
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * The EquationDictionary class is an immutable snapshot of the equations loaded from a dictionary file.
+ * A new instance is built for every reload, so a reader holding a reference never sees it change.
+ * The packed equations, their masks and the membership index are built while loading, on the loading thread,
+ * so a published snapshot never builds them on the request path of a game.
+ */
+public final class EquationDictionary {
+
+    private final String[] equations; // The equations in file order.
+    private final long version; // The reload generation this snapshot belongs to.
+    private final int[] packed; // The packed equations.
+    private final int[] masks; // The presence masks of the packed equations.
+    private final DictionaryMembership membership; // The membership index.
+
+    /**
+     * Constructs a dictionary snapshot and builds its packed equations, masks and membership index.
+     *
+     * @param equations The equations of the snapshot.
+     * @param version   The reload generation of the snapshot.
+     */
+    private EquationDictionary(String[] equations, long version) {
+        this.equations = equations;
+        this.version = version;
+        this.packed = EquationCodec.packAll(this); // Reads only the equations
+        this.masks = new int[packed.length];
+        for (int i = 0; i < packed.length; i++) {
+            masks[i] = EquationCodec.presenceMask(packed[i]);
+        }
+        this.membership = new DictionaryMembership(packed);
+    }
+
+    /**
+     * Reads a dictionary file into a new snapshot. Blank lines are skipped.
+     *
+     * @param path    The dictionary file, one equation per line.
+     * @param version The reload generation to stamp on the snapshot.
+     * @return The loaded snapshot.
+     * @throws IOException If the file cannot be read or holds no equations.
+     */
+    public static EquationDictionary load(Path path, long version) throws IOException {
+        GameEvents.DictionaryLoad event = GameEvents.dictionaryLoad();
+        List<String> lines = new ArrayList<>();
+        try (BufferedReader reader = Files.newBufferedReader(path, StandardCharsets.UTF_8)) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                line = line.trim();
+                if (!line.isEmpty()) {
+                    lines.add(line);
+                }
+            }
+        }
+        if (lines.isEmpty()) {
+            throw new IOException("No equations in " + path);
+        }
+        EquationDictionary dictionary = new EquationDictionary(lines.toArray(new String[0]), version);
+        if (event != null && event.shouldCommit()) { // Only while a flight recording is running
+            event.path = path.toString();
+            event.version = version;
+            event.equations = lines.size();
+            event.bytes = Files.size(path);
+            event.commit();
+        }
+        return dictionary;
+    }
+
+    /**
+     * Returns the number of equations in the snapshot.
+     *
+     * @return The number of equations.
+     */
+    public int size() {
+        return equations.length;
+    }
+
+    /**
+     * Returns the equation at the given index.
+     *
+     * @param index The index of the equation.
+     * @return The equation.
+     */
+    public String get(int index) {
+        return equations[index];
+    }
+
+    /**
+     * Returns the 7-symbol equations of the snapshot packed by EquationCodec.
+     *
+     * @return The packed equations in file order.
+     */
+    public int[] getPacked() {
+        return packed;
+    }
+
+    /**
+     * Returns the presence masks of the packed equations.
+     * Adversarial games share them instead of computing their own.
+     *
+     * @return The masks, parallel to getPacked.
+     */
+    public int[] getMasks() {
+        return masks;
+    }
+
+    /**
+     * Returns the membership index of the snapshot.
+     *
+     * @return The membership index.
+     */
+    public DictionaryMembership getMembership() {
+        return membership;
+    }
+
+    /**
+     * Returns the reload generation of the snapshot.
+     *
+     * @return The version number, starting at 1 for the first load.
+     */
+    public long getVersion() {
+        return version;
+    }
+}
@@ -0,0 +1,102 @@
+/**
+ * The EquationPermutation class is a seeded, format-preserving permutation over the indices 0..size-1.
+ * It uses a balanced Feistel network over the smallest even number of bits that covers the size,
+ * and cycle-walks results that fall outside the range back into it.
+ * The mapping is stateless: a sequence position alone determines the index, so a player needs only a seed and a counter.
+ * The no-repeat guarantee holds for one size only. A dictionary reloaded with a different number of equations gets a
+ * different permutation, so a player's counter carries on into it but may serve equations served before the reload.
+ */
+public final class EquationPermutation {
+
+    public static final int MAX_SIZE = 1 << 30; // The largest range; a larger one needs 32 bits, which an int index cannot hold.
+
+    private static final int ROUNDS = 4; // Number of Feistel rounds.
+
+    private final int size; // The size of the permuted range.
+    private final int halfBits; // The number of bits in each Feistel half.
+    private final int halfMask; // The mask selecting one Feistel half.
+    private final long seed; // The seed the round keys are derived from.
+
+    /**
+     * Constructs a permutation over the given range.
+     *
+     * @param size The size of the range, 1 to MAX_SIZE.
+     * @param seed The seed selecting the permutation.
+     * @throws IllegalArgumentException If the size is out of range.
+     */
+    public EquationPermutation(int size, long seed) {
+        if (size < 1) {
+            throw new IllegalArgumentException("Empty range");
+        }
+        if (size > MAX_SIZE) {
+            throw new IllegalArgumentException("Range too large: " + size);
+        }
+        int bits = 2;
+        while ((1L << bits) < size) {
+            bits += 2;
+        }
+        this.size = size;
+        this.halfBits = bits / 2;
+        this.halfMask = (1 << halfBits) - 1;
+        this.seed = seed;
+    }
+
+    /**
+     * Returns the size of the permuted range.
+     *
+     * @return The size of the range.
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Returns the index served at a position of the sequence.
+     * Every run of size consecutive positions starting at a multiple of size visits each index exactly once;
+     * each further pass over the range uses a fresh permutation.
+     *
+     * @param position The position in the sequence, not negative.
+     * @return The index at that position.
+     */
+    public int indexAt(long position) {
+        long pass = position / size;
+        int value = (int) (position % size);
+        long key = mix(seed + pass * 0x9E3779B97F4A7C15L);
+
+        // Cycle-walk: re-encrypt until the value falls inside the range
+        do {
+            value = encrypt(value, key);
+        } while (value >= size);
+        return value;
+    }
+
+    /**
+     * Applies the Feistel network to a value of 2 * halfBits bits.
+     *
+     * @param value The value to encrypt.
+     * @param key   The key of the current pass.
+     * @return The encrypted value.
+     */
+    private int encrypt(int value, long key) {
+        int left = value >>> halfBits;
+        int right = value & halfMask;
+        for (int round = 0; round < ROUNDS; round++) {
+            int next = left ^ (int) (mix(key + round + ((long) right << 8)) & halfMask);
+            left = right;
+            right = next;
+        }
+        return (left << halfBits) | right;
+    }
+
+    /**
+     * Scrambles a 64-bit value (the SplitMix64 finalizer).
+     *
+     * @param z The value to scramble.
+     * @return The scrambled value.
+     */
+    private static long mix(long z) {
+        z = (z ^ (z >>> 30)) * 0xBF58476D1CE4E5B9L;
+        z = (z ^ (z >>> 27)) * 0x94D049BB133111EBL;
+        return z ^ (z >>> 31);
+    }
+}
@@ -1,19 +1,39 @@
 import javax.swing.*;
+import java.io.IOException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
 
 public class GUIApp {
     public static void main(String[] args) {
+        ModelMetrics.register(); // Publish the timers over JMX
+        List<GameListener> listeners = new ArrayList<>();
+        listeners.add(ModelMetrics.getInstance().getStatistics()); // Reported over JMX, like the CLI's m option
+        Path dataDir = Paths.get(System.getProperty("numberle.dataDir", "."));
+        try {
+            listeners.add(PlayerStatsStore.open(dataDir));
+        } catch (IOException e) {
+            GameLog.log(GameLog.Level.WARN, "Player statistics are not saved: ", e);
+        }
+        try {
+            listeners.add(GameJournal.forProcess(dataDir));
+        } catch (IOException e) {
+            GameLog.log(GameLog.Level.WARN, "Games are not journaled: ", e);
+        }
 
         SwingUtilities.invokeLater(
                 new Runnable() {
                     public void run() {
-                        createAndShowGUI();
+                        createAndShowGUI(listeners);
                     }
                 }
         );
     }
 
-    public static void createAndShowGUI() {
-        INumberleModel model = new NumberleModel();
+    public static void createAndShowGUI(List<GameListener> listeners) {
+        NumberleModel model = new NumberleModel();
+        listeners.forEach(model::addGameListener);
         NumberleController controller = new NumberleController(model);
         NumberleView view = new NumberleView(model, controller);
     }
@@ -0,0 +1,224 @@
+import jdk.jfr.Category;
+import jdk.jfr.DataAmount;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.EventType;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/**
+ * The GameEvents class holds the Java Flight Recorder events of the game, so that one recording shows the phases
+ * of every game next to the GC, safepoint and I/O events of the JVM, e.g. with
+ * java -XX:StartFlightRecording:filename=numberle.jfr GUIApp.
+ * Every event is timed from begin to end. The factories return null when no recording enables the event, so the
+ * hot paths pay one field read and allocate nothing; fields are only filled in once shouldCommit says the event is
+ * recorded, which also applies the threshold of the recording.
+ * All events carry the mode of the game and the attempt index, so flame graphs can be grouped per game phase.
+ */
+public final class GameEvents {
+
+    private static final EventType GAME_START = EventType.getEventType(GameStart.class); // The settings of GameStart.
+    private static final EventType GUESS_VALIDATED = EventType.getEventType(GuessValidated.class); // The settings of GuessValidated.
+    private static final EventType GUESS_SCORED = EventType.getEventType(GuessScored.class); // The settings of GuessScored.
+    private static final EventType DICTIONARY_LOAD = EventType.getEventType(DictionaryLoad.class); // The settings of DictionaryLoad.
+    private static final EventType HINT_COMPUTED = EventType.getEventType(HintComputed.class); // The settings of HintComputed.
+
+    /**
+     * Prevents instantiation of the holder class.
+     */
+    private GameEvents() {
+    }
+
+    /**
+     * Begins a GameStart event if a recording enables it.
+     *
+     * @return The begun event, or null.
+     */
+    static GameStart gameStart() {
+        return GAME_START.isEnabled() ? begin(new GameStart()) : null;
+    }
+
+    /**
+     * Begins a GuessValidated event if a recording enables it.
+     *
+     * @return The begun event, or null.
+     */
+    static GuessValidated guessValidated() {
+        return GUESS_VALIDATED.isEnabled() ? begin(new GuessValidated()) : null;
+    }
+
+    /**
+     * Begins a GuessScored event if a recording enables it.
+     *
+     * @return The begun event, or null.
+     */
+    static GuessScored guessScored() {
+        return GUESS_SCORED.isEnabled() ? begin(new GuessScored()) : null;
+    }
+
+    /**
+     * Begins a DictionaryLoad event if a recording enables it.
+     *
+     * @return The begun event, or null.
+     */
+    static DictionaryLoad dictionaryLoad() {
+        return DICTIONARY_LOAD.isEnabled() ? begin(new DictionaryLoad()) : null;
+    }
+
+    /**
+     * Begins a HintComputed event if a recording enables it.
+     *
+     * @return The begun event, or null.
+     */
+    static HintComputed hintComputed() {
+        return HINT_COMPUTED.isEnabled() ? begin(new HintComputed()) : null;
+    }
+
+    /**
+     * Starts the timing of an event.
+     *
+     * @param event The event.
+     * @param <E>   The type of the event.
+     * @return The event.
+     */
+    private static <E extends Event> E begin(E event) {
+        event.begin();
+        return event;
+    }
+
+    /**
+     * The GameStart event is a game being initialized, including choosing its target.
+     */
+    @Name("numberle.GameStart")
+    @Label("Game Start")
+    @Category({"Numberle", "Game"})
+    @Description("A game was initialized and its target chosen")
+    @StackTrace(false)
+    public static final class GameStart extends Event {
+
+        @Label("Mode")
+        String mode; // The mode of the game, see NumberleModel.
+
+        @Label("Player")
+        long playerId; // The player of the game.
+
+        @Label("Strict")
+        boolean strict; // Indicates whether guesses must be in the dictionary.
+
+        @Label("Speed Run")
+        boolean speedRun; // Indicates whether the game is played against the clock.
+
+        @Label("Candidates")
+        @Description("Targets still possible, or -1 when the target is fixed")
+        int candidates; // The candidates of an adversarial game.
+    }
+
+    /**
+     * The GuessValidated event is a guess being checked before it is scored.
+     */
+    @Name("numberle.GuessValidated")
+    @Label("Guess Validated")
+    @Category({"Numberle", "Game"})
+    @Description("A guess was validated")
+    @StackTrace(false)
+    public static final class GuessValidated extends Event {
+
+        @Label("Mode")
+        String mode; // The mode of the game.
+
+        @Label("Attempt")
+        @Description("The row of the guess, from 0")
+        int attempt; // The attempt index.
+
+        @Label("Code")
+        @Description("The validation code: 4 valid, otherwise the error, see NumberleModel.validateEquation")
+        int code; // The validation code.
+    }
+
+    /**
+     * The GuessScored event is a valid guess being compared with the target.
+     */
+    @Name("numberle.GuessScored")
+    @Label("Guess Scored")
+    @Category({"Numberle", "Game"})
+    @Description("A guess was compared with the target")
+    @StackTrace(false)
+    public static final class GuessScored extends Event {
+
+        @Label("Mode")
+        String mode; // The mode of the game.
+
+        @Label("Attempt")
+        @Description("The row of the guess, from 0")
+        int attempt; // The attempt index.
+
+        @Label("Pattern")
+        @Description("The feedback pattern, see NumberleSolver")
+        int pattern; // The feedback pattern.
+
+        @Label("Won")
+        boolean won; // Indicates whether the guess won.
+
+        @Label("Candidates")
+        @Description("Targets still possible after the guess, or -1 when the target is fixed")
+        int candidates; // The candidates of an adversarial game.
+    }
+
+    /**
+     * The DictionaryLoad event is a dictionary file being read, at first use or on a reload.
+     */
+    @Name("numberle.DictionaryLoad")
+    @Label("Dictionary Load")
+    @Category({"Numberle", "Dictionary"})
+    @Description("A dictionary file was read")
+    @StackTrace(false)
+    public static final class DictionaryLoad extends Event {
+
+        @Label("Path")
+        String path; // The dictionary file.
+
+        @Label("Version")
+        long version; // The reload generation.
+
+        @Label("Equations")
+        int equations; // The equations read.
+
+        @Label("File Size")
+        @DataAmount
+        long bytes; // The size of the file.
+    }
+
+    /**
+     * The HintComputed event is a hint being computed for the player.
+     */
+    @Name("numberle.HintComputed")
+    @Label("Hint Computed")
+    @Category({"Numberle", "Hint"})
+    @Description("A hint was computed")
+    @StackTrace(false)
+    public static final class HintComputed extends Event {
+
+        @Label("Mode")
+        String mode; // The mode of the game.
+
+        @Label("Attempt")
+        @Description("The row the hint is for, from 0")
+        int attempt; // The attempt index.
+
+        @Label("Candidates")
+        @Description("Equations consistent with the feedback so far")
+        int candidates; // The candidates of the hint.
+
+        @Label("Evaluated")
+        @Description("Guesses scored before the search stopped")
+        int evaluated; // The guesses evaluated.
+
+        @Label("Complete")
+        boolean complete; // Indicates whether the search finished within its budget.
+
+        @Label("Budget")
+        @Description("The time the hint was allowed, in milliseconds")
+        long budgetMillis; // The budget of the search.
+    }
+}
@@ -0,0 +1,344 @@
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * The GameJournal class records every transition of the games it listens to as a compact binary event,
+ * so that any game can be rebuilt later by JournalReplayer, e.g. to audit a disputed result or to recompute
+ * statistics under changed rules, without keeping the games themselves.
+ * Events are appended to a buffer under the journal's lock, which serializes concurrent games but never waits
+ * for the disk. A writer thread swaps the buffer for a spare one when it is half full, every FLUSH_MILLIS, on
+ * flush and on close, and writes it to the journal file's FileChannel outside the lock. A game thread only waits
+ * if the buffer fills up while the spare one is still being written.
+ *
+ * Layout: a 16-byte header (int magic, int version, long creation time in epoch milliseconds), then
+ * 24-byte records: long game id, long player id, byte type, byte symbol, short pattern, int value.
+ * <pre>
+ * STARTED   pattern = ADVERSARIAL if the target is not chosen yet, value = packed target
+ * KEY       symbol = EquationCodec symbol index
+ * DELETE    -
+ * SCORED    symbol = row, pattern = feedback pattern, value = packed guess (-1 if it cannot be packed)
+ * OVER      symbol = guesses, pattern = 1 if won, value = packed final target
+ * ABANDONED -
+ * HOSTED    player id = the session id a SessionNode hosts the game under, symbol = 1 if it was imported
+ * </pre>
+ * An adversarial game journals one of its candidates when it starts; its target is only final in OVER.
+ * A game moved between SessionNodes is linked to its journal on the node it came from by the session id.
+ * Game ids are numbered from 1 per journal file.
+ */
+public class GameJournal implements GameListener, AutoCloseable {
+
+    public static final int MAGIC = 0x4E474A4C; // "NGJL"
+    public static final int VERSION = 2; // The journal format version.
+    public static final int HEADER_SIZE = 16; // The size of the header.
+    public static final int RECORD_SIZE = 24; // The size of an event record.
+
+    public static final byte STARTED = 1; // A game started.
+    public static final byte KEY = 2; // A symbol was typed.
+    public static final byte DELETE = 3; // A symbol was deleted.
+    public static final byte SCORED = 4; // A guess was scored.
+    public static final byte OVER = 5; // The game ended.
+    public static final byte ABANDONED = 6; // The game was discarded before it ended.
+    public static final byte HOSTED = 7; // A session node hosts the game under a session id.
+
+    public static final int ADVERSARIAL = 1; // The STARTED pattern of a game whose target is chosen as it goes.
+
+    private static final int BUFFER_RECORDS = 4096; // Records buffered between writes.
+    private static final int FLUSH_BYTES = BUFFER_RECORDS / 2 * RECORD_SIZE; // The buffered bytes that wake the writer.
+    private static final long FLUSH_MILLIS = 200; // The longest time a record waits for the writer.
+
+    private final FileChannel channel; // The journal file.
+    private ByteBuffer buffer = ByteBuffer.allocateDirect(BUFFER_RECORDS * RECORD_SIZE); // Records appended, under the lock.
+    private ByteBuffer spare = ByteBuffer.allocateDirect(BUFFER_RECORDS * RECORD_SIZE); // Records being written by the writer.
+    private final Thread writer; // The writer thread.
+    private long swaps; // The buffers handed to the writer.
+    private long written; // The buffers the writer has written.
+    private boolean flushing; // Indicates whether a flush waits for the buffer to be written.
+    private boolean closing; // Indicates whether close was called; later events are dropped.
+    private final ConcurrentHashMap<NumberleModel, Long> games = new ConcurrentHashMap<>(); // The id of each running game, until it ends or is abandoned.
+    private final AtomicLong lastGameId = new AtomicLong(); // The id of the last game started.
+    private IOException failure; // The first write error, rethrown by flush and close.
+
+    /**
+     * Creates a journal file. An existing file is replaced.
+     *
+     * @param file The journal file.
+     * @throws IOException If the file cannot be created.
+     */
+    public GameJournal(Path file) throws IOException {
+        channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.TRUNCATE_EXISTING);
+        buffer.putInt(MAGIC).putInt(VERSION).putLong(System.currentTimeMillis());
+        writer = new Thread(this::writeLoop, "game-journal-writer");
+        writer.setDaemon(true);
+        writer.start();
+    }
+
+    /**
+     * Creates the journal of this process in a directory, named after the process id and the start time.
+     * The journal is closed when the process exits.
+     *
+     * @param directory The journal directory.
+     * @return The journal.
+     * @throws IOException If the file cannot be created.
+     */
+    public static GameJournal forProcess(Path directory) throws IOException {
+        GameJournal journal = new GameJournal(directory.resolve("journal-" + ProcessHandle.current().pid() + "-"
+                + System.currentTimeMillis() + ".bin"));
+        Runtime.getRuntime().addShutdownHook(new Thread(() -> {
+            try {
+                journal.close();
+            } catch (IOException e) {
+                GameLog.log(GameLog.Level.ERROR, "Game journal close failed: ", e);
+            }
+        }, "GameJournal shutdown"));
+        return journal;
+    }
+
+    /**
+     * Records the start of a game with its target. A game started again replaces its previous id.
+     *
+     * @param model The game that started.
+     */
+    @Override
+    public void gameStarted(NumberleModel model) {
+        long gameId = lastGameId.incrementAndGet();
+        games.put(model, gameId);
+        append(gameId, model.getPlayerId(), STARTED, 0, model.getAdversarial() ? ADVERSARIAL : 0,
+                EquationCodec.pack(model.getTargetEquations()));
+    }
+
+    /**
+     * Records a typed symbol.
+     *
+     * @param model  The game.
+     * @param symbol The symbol typed.
+     */
+    @Override
+    public void keyTyped(NumberleModel model, char symbol) {
+        append(gameId(model), model.getPlayerId(), KEY, EquationCodec.symbolIndex(symbol), 0, 0);
+    }
+
+    /**
+     * Records a deleted symbol.
+     *
+     * @param model The game.
+     */
+    @Override
+    public void keyDeleted(NumberleModel model) {
+        append(gameId(model), model.getPlayerId(), DELETE, 0, 0, 0);
+    }
+
+    /**
+     * Records a scored guess.
+     *
+     * @param model   The game.
+     * @param row     The row of the guess.
+     * @param guess   The packed guess.
+     * @param pattern The feedback pattern.
+     */
+    @Override
+    public void rowScored(NumberleModel model, int row, int guess, int pattern) {
+        append(gameId(model), model.getPlayerId(), SCORED, row, pattern, guess);
+    }
+
+    /**
+     * Records the end of a game with its final target.
+     *
+     * @param model   The game that ended.
+     * @param won     True if the game was won.
+     * @param guesses The number of guesses scored.
+     */
+    @Override
+    public void gameOver(NumberleModel model, boolean won, int guesses) {
+        append(gameId(model), model.getPlayerId(), OVER, guesses, won ? 1 : 0, EquationCodec.pack(model.getTargetEquations()));
+        games.remove(model);
+    }
+
+    /**
+     * Records that a game was discarded before it ended, and forgets it.
+     *
+     * @param model The game that was discarded.
+     */
+    @Override
+    public void gameAbandoned(NumberleModel model) {
+        Long gameId = games.remove(model);
+        if (gameId != null) { // A game the journal never saw is not started just to be abandoned
+            append(gameId, model.getPlayerId(), ABANDONED, 0, 0, 0);
+        }
+    }
+
+    /**
+     * Records the session id a node hosts a game under, which links an imported game to its earlier rows
+     * in the journal of the node it came from.
+     *
+     * @param model     The game.
+     * @param sessionId The session id.
+     * @param imported  True if the game was restored from a snapshot.
+     */
+    @Override
+    public void gameHosted(NumberleModel model, long sessionId, boolean imported) {
+        append(gameId(model), sessionId, HOSTED, imported ? 1 : 0, 0, 0);
+    }
+
+    /**
+     * Returns the id of a running game. A game that started before the journal was attached is
+     * given an id and a STARTED event now.
+     *
+     * @param model The game.
+     * @return The game id.
+     */
+    private long gameId(NumberleModel model) {
+        Long gameId = games.get(model);
+        if (gameId == null) {
+            gameStarted(model);
+            gameId = games.get(model);
+        }
+        return gameId;
+    }
+
+    /**
+     * Appends one event record, waking the writer when the buffer is half full.
+     *
+     * @param gameId   The game.
+     * @param playerId The player of the game.
+     * @param type     The event type.
+     * @param symbol   The symbol, row or guess count.
+     * @param pattern  The feedback pattern.
+     * @param value    The packed equation or result.
+     */
+    private synchronized void append(long gameId, long playerId, byte type, int symbol, int pattern, int value) {
+        while (!closing && buffer.remaining() < RECORD_SIZE) {
+            notifyAll(); // The writer is still writing the spare buffer
+            try {
+                wait();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return; // The event is lost rather than the game thread kept
+            }
+        }
+        if (closing) {
+            return;
+        }
+        buffer.putLong(gameId).putLong(playerId).put(type).put((byte) symbol).putShort((short) pattern).putInt(value);
+        if (buffer.position() >= FLUSH_BYTES) {
+            notifyAll();
+        }
+    }
+
+    /**
+     * Writes the buffers handed over by the games until the journal is closed.
+     * A failure is kept for flush and close, so that the game threads calling the listener are not interrupted by I/O errors.
+     */
+    private void writeLoop() {
+        while (true) {
+            ByteBuffer full;
+            synchronized (this) {
+                if (!closing && !flushing && buffer.position() < FLUSH_BYTES) {
+                    try {
+                        wait(FLUSH_MILLIS);
+                    } catch (InterruptedException e) {
+                        return;
+                    }
+                }
+                flushing = false;
+                if (buffer.position() == 0) {
+                    notifyAll(); // A flush of an empty buffer is done
+                    if (closing) {
+                        return;
+                    }
+                    continue;
+                }
+                full = buffer;
+                buffer = spare;
+                spare = full;
+                swaps++;
+                notifyAll(); // Games waiting for room
+            }
+            full.flip();
+            IOException error = null;
+            try {
+                while (full.hasRemaining()) {
+                    channel.write(full);
+                }
+            } catch (IOException e) {
+                error = e;
+            }
+            full.clear();
+            synchronized (this) {
+                if (failure == null) {
+                    failure = error;
+                }
+                written++;
+                notifyAll(); // Flushes waiting for the write
+            }
+        }
+    }
+
+    /**
+     * Writes the buffered records to the file, waiting for the writer.
+     *
+     * @throws IOException If a write since the journal was created failed.
+     */
+    public synchronized void flush() throws IOException {
+        long target = buffer.position() > 0 ? swaps + 1 : swaps; // The records appended so far are written then
+        flushing = true;
+        notifyAll();
+        try {
+            while (written < target && writer.isAlive()) {
+                wait(FLUSH_MILLIS);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Interrupted while flushing the journal", e);
+        }
+        if (failure != null) {
+            throw failure;
+        }
+    }
+
+    /**
+     * Returns the number of games started in the journal.
+     *
+     * @return The game count.
+     */
+    public long getGames() {
+        return lastGameId.get();
+    }
+
+    /**
+     * Writes the buffered records, forces them to the device and closes the file. Events of games that go on
+     * are dropped from then on.
+     *
+     * @throws IOException If a write failed or the file cannot be closed.
+     */
+    @Override
+    public void close() throws IOException {
+        synchronized (this) {
+            if (closing) {
+                return;
+            }
+            closing = true;
+            notifyAll();
+        }
+        try {
+            writer.join(); // It writes what is buffered, then stops
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        try {
+            synchronized (this) {
+                if (failure != null) {
+                    throw failure;
+                }
+            }
+            channel.force(false);
+        } finally {
+            channel.close();
+        }
+    }
+}
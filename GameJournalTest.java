@@ -0,0 +1,162 @@
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+/**
+ * Tests for the GameJournal class.
+ * This class contains round trips of games written by a journal and read back by JournalReplayer.
+ */
+public class GameJournalTest {
+
+    private Path file;
+    private NumberleModel numberleModel;
+
+    /**
+     * Creates a journal file name and a game before each test.
+     *
+     * @throws IOException If the temporary directory cannot be created.
+     */
+    @Before
+    public void setUp() throws IOException {
+        file = Files.createTempDirectory("journal").resolve("games.bin");
+        numberleModel = new NumberleModel();
+        numberleModel.setPlayerId(5);
+    }
+
+    /**
+     * Tests that every transition written by the journal is replayed.
+     *
+     * This test plays a won game with typed and deleted symbols, then starts a second game and abandons it.
+     *
+     * @pre The journal listens to the game before it starts.
+     * @post The first game is rebuilt with its player, target, rows, keys and result;
+     *       the second is abandoned, and the statistics count the won game only.
+     */
+    @Test
+    public void testWriteReplayRoundTrip() throws IOException {
+        int pattern;
+        try (GameJournal journal = new GameJournal(file)) {
+            numberleModel.addGameListener(journal);
+            numberleModel.initialize();
+            type("2+4=6-01");
+            numberleModel.deleteSymbol();
+            guess("2+4=6-0");
+            pattern = numberleModel.getState().getPattern(0);
+            type("1+3=1+3");
+            guess("1+3=1+3");
+
+            numberleModel.initialize();
+            guess("2+4=6-0");
+            numberleModel.abandon();
+            assertEquals(2, journal.getGames());
+        }
+
+        List<Integer> types = new ArrayList<>();
+        long events = JournalReplayer.replay(file, (gameId, playerId, type, symbol, p, value) -> types.add(type));
+        assertEquals(1 + 15 + 1 + 2 + 1 + 1 + 1 + 1, events); // Started, keys, delete, rows, over; started, row, abandoned
+        assertEquals(Integer.valueOf(GameJournal.ABANDONED), types.get(types.size() - 1));
+
+        JournalReplayer.Game won = JournalReplayer.rebuild(file, 1);
+        assertEquals(5, won.getPlayerId());
+        assertEquals("1+3=1+3", won.getTargetEquation());
+        assertEquals(2, won.getRows());
+        assertEquals("2+4=6-0", won.getGuess(0));
+        assertEquals(pattern, won.getPattern(0));
+        assertEquals("1+3=1+3", won.getGuess(1));
+        assertEquals(15, won.getKeys());
+        assertEquals(1, won.getDeletes());
+        assertTrue(won.isOver());
+        assertTrue(won.isWon());
+        assertFalse(won.isAdversarial());
+        assertFalse(won.isAbandoned());
+
+        JournalReplayer.Game abandoned = JournalReplayer.rebuild(file, 2);
+        assertEquals(1, abandoned.getRows());
+        assertFalse(abandoned.isOver());
+        assertTrue(abandoned.isAbandoned());
+        assertNull(JournalReplayer.rebuild(file, 3));
+
+        GlobalStatistics.Snapshot statistics = JournalReplayer.statistics(file).snapshot();
+        assertEquals(1, statistics.getGames());
+        assertEquals(1, statistics.getWins(2));
+    }
+
+    /**
+     * Tests that a torn last record, as left by a crash, is ignored.
+     *
+     * This test cuts the last record of a journal in half.
+     *
+     * @pre The journal holds a started game and one typed symbol.
+     * @post Only the start is replayed.
+     */
+    @Test
+    public void testIgnoresTornRecord() throws IOException {
+        try (GameJournal journal = new GameJournal(file)) {
+            numberleModel.addGameListener(journal);
+            numberleModel.initialize();
+            type("1");
+        }
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.WRITE)) {
+            channel.truncate(GameJournal.HEADER_SIZE + GameJournal.RECORD_SIZE + GameJournal.RECORD_SIZE / 2);
+        }
+
+        assertEquals(1, JournalReplayer.replay(file, (gameId, playerId, type, symbol, pattern, value) ->
+                assertEquals(GameJournal.STARTED, type)));
+    }
+
+    /**
+     * Tests that events reach the file without a full buffer, a flush or a close.
+     *
+     * This test starts a game and types a symbol, waits for the writer, then types another and flushes.
+     *
+     * @pre The journal is open and holds far fewer events than its buffer.
+     * @post The first two events are written within a few flush periods; after the flush all three are.
+     */
+    @Test
+    public void testWritesOnTimeBound() throws IOException, InterruptedException {
+        try (GameJournal journal = new GameJournal(file)) {
+            numberleModel.addGameListener(journal);
+            numberleModel.initialize();
+            type("1");
+            long deadline = System.nanoTime() + 5_000_000_000L;
+            while (Files.size(file) < GameJournal.HEADER_SIZE + 2 * GameJournal.RECORD_SIZE && System.nanoTime() < deadline) {
+                Thread.sleep(10);
+            }
+            assertEquals(GameJournal.HEADER_SIZE + 2 * GameJournal.RECORD_SIZE, Files.size(file));
+
+            type("+");
+            journal.flush();
+            assertEquals(3, JournalReplayer.replay(file, (gameId, playerId, type, symbol, pattern, value) -> { }));
+        }
+    }
+
+    /**
+     * Types symbols onto the guess.
+     *
+     * @param symbols The symbols.
+     */
+    private void type(String symbols) {
+        for (int i = 0; i < symbols.length(); i++) {
+            numberleModel.typeSymbol(symbols.charAt(i));
+        }
+    }
+
+    /**
+     * Scores a guess.
+     *
+     * @param guess The guess.
+     */
+    private void guess(String guess) {
+        numberleModel.compare(guess, numberleModel.getTargetEquations());
+        numberleModel.processInput(guess);
+    }
+}
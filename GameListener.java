@@ -0,0 +1,70 @@
+/**
+ * The GameListener interface receives the lifecycle transitions of a NumberleModel.
+ * Listeners are called on the thread that drives the game, so they must hand slow work off to another thread.
+ */
+public interface GameListener {
+
+    /**
+     * Called when a new game starts, after the model has been reset.
+     *
+     * @param model The game that started.
+     */
+    default void gameStarted(NumberleModel model) {
+    }
+
+    /**
+     * Called when the player types a symbol onto the current guess.
+     *
+     * @param model  The game.
+     * @param symbol The symbol typed.
+     */
+    default void keyTyped(NumberleModel model, char symbol) {
+    }
+
+    /**
+     * Called when the player deletes the last symbol of the current guess.
+     *
+     * @param model The game.
+     */
+    default void keyDeleted(NumberleModel model) {
+    }
+
+    /**
+     * Called when a guess has been scored, before the remaining attempts are decremented.
+     *
+     * @param model   The game.
+     * @param row     The row of the guess, from 0.
+     * @param guess   The packed guess, see EquationCodec.
+     * @param pattern The feedback pattern, see NumberleSolver.
+     */
+    default void rowScored(NumberleModel model, int row, int guess, int pattern) {
+    }
+
+    /**
+     * Called once when a game ends.
+     *
+     * @param model   The game that ended.
+     * @param won     True if the game was won, false if the attempts ran out.
+     * @param guesses The number of guesses scored.
+     */
+    void gameOver(NumberleModel model, boolean won, int guesses);
+
+    /**
+     * Called once when a game is discarded before it ended, e.g. because its player disconnected.
+     * No further transitions of the game follow until it is started again.
+     *
+     * @param model The game that was discarded.
+     */
+    default void gameAbandoned(NumberleModel model) {
+    }
+
+    /**
+     * Called when a SessionNode hosts the game under a session id, after it started or was imported from another node.
+     *
+     * @param model     The game.
+     * @param sessionId The id of the game on every node, e.g. its SessionRouter id.
+     * @param imported  True if the game was restored from a snapshot.
+     */
+    default void gameHosted(NumberleModel model, long sessionId, boolean imported) {
+    }
+}
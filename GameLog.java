@@ -0,0 +1,201 @@
+import java.io.PrintStream;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * The GameLog class is an asynchronous logger for the game's hot paths.
+ * Callers claim a slot of a bounded ring buffer with one compare-and-set and store references to their message,
+ * so logging never blocks on the console and never allocates; a daemon flusher thread formats and prints the
+ * messages in order. When the buffer is full the message is dropped and counted rather than waiting.
+ * A disabled level costs one volatile read. The threshold is the numberle.log system property, INFO by default.
+ *
+ * <pre>
+ * GameLog.log(GameLog.Level.DEBUG, "correct:", target); // Concatenated on the flusher thread
+ * </pre>
+ */
+public final class GameLog {
+
+    /**
+     * The Level enum orders the severities of messages; OFF disables logging.
+     */
+    public enum Level {
+        DEBUG, INFO, WARN, ERROR, OFF
+    }
+
+    private static final int CAPACITY = 8192; // The number of slots of the ring buffer, a power of two.
+    private static final int MASK = CAPACITY - 1; // Maps a sequence to its slot.
+
+    private static volatile Level threshold = Level.valueOf(System.getProperty("numberle.log", "INFO")); // The lowest logged level.
+    private static volatile PrintStream out = System.out; // The stream the flusher prints to.
+
+    private static final AtomicLong tail = new AtomicLong(); // The next sequence to claim by a caller.
+    private static volatile long head; // The next sequence to print, written by the flusher only.
+    private static final AtomicLongArray ready = new AtomicLongArray(CAPACITY); // Per slot, the sequence it can be written or read at.
+    private static final Level[] levels = new Level[CAPACITY]; // The level of each slot.
+    private static final String[] messages = new String[CAPACITY]; // The message of each slot.
+    private static final Object[] args = new Object[CAPACITY]; // The optional argument of each slot, appended to the message.
+    private static final AtomicLong dropped = new AtomicLong(); // Messages dropped because the buffer was full.
+    private static final Thread flusher = new Thread(GameLog::flushLoop, "GameLog flusher"); // Prints the messages.
+    private static volatile boolean sleeping; // Indicates whether the flusher is parked, or about to park, on an empty buffer.
+
+    static {
+        // A slot can be written at sequence s when ready is s, and read when ready is s + 1
+        for (int i = 0; i < CAPACITY; i++) {
+            ready.set(i, i);
+        }
+        flusher.setDaemon(true);
+        flusher.start();
+        Runtime.getRuntime().addShutdownHook(new Thread(GameLog::drain, "GameLog shutdown"));
+    }
+
+    /**
+     * Prevents instantiation.
+     */
+    private GameLog() {
+    }
+
+    /**
+     * Checks whether a level is logged.
+     *
+     * @param level The level.
+     * @return True if messages of the level are logged.
+     */
+    public static boolean isEnabled(Level level) {
+        return level.compareTo(threshold) >= 0 && level != Level.OFF;
+    }
+
+    /**
+     * Sets the lowest logged level.
+     *
+     * @param level The level, or OFF to log nothing.
+     */
+    public static void setThreshold(Level level) {
+        threshold = level;
+    }
+
+    /**
+     * Sets the stream the messages are printed to.
+     *
+     * @param stream The stream.
+     */
+    public static void setOutput(PrintStream stream) {
+        out = stream;
+    }
+
+    /**
+     * Logs a message.
+     *
+     * @param level   The level of the message.
+     * @param message The message.
+     */
+    public static void log(Level level, String message) {
+        log(level, message, null);
+    }
+
+    /**
+     * Logs a message followed by an argument, which is converted to a string on the flusher thread.
+     *
+     * @param level   The level of the message.
+     * @param message The message.
+     * @param arg     The argument, or null for none. It must not be changed after the call.
+     */
+    public static void log(Level level, String message, Object arg) {
+        if (!isEnabled(level)) {
+            return;
+        }
+        long sequence = tail.get();
+        while (true) {
+            long slotReady = ready.get((int) sequence & MASK);
+            if (slotReady == sequence) {
+                if (tail.compareAndSet(sequence, sequence + 1)) {
+                    break; // The slot is ours
+                }
+                sequence = tail.get();
+            } else if (slotReady < sequence) {
+                dropped.incrementAndGet(); // The flusher has not printed the slot's previous message yet
+                return;
+            } else {
+                sequence = tail.get(); // Another caller claimed it first
+            }
+        }
+        int slot = (int) sequence & MASK;
+        levels[slot] = level;
+        messages[slot] = message;
+        args[slot] = arg;
+        ready.set(slot, sequence + 1); // Publishes the fields to the flusher
+        if (sleeping) { // The buffer was empty; otherwise the flusher is still draining and sees the message
+            LockSupport.unpark(flusher);
+        }
+    }
+
+    /**
+     * Waits until every message logged before the call has been printed.
+     */
+    public static void flush() {
+        long target = tail.get();
+        while (head < target) {
+            Thread.onSpinWait();
+        }
+    }
+
+    /**
+     * Returns the number of messages dropped because the buffer was full.
+     *
+     * @return The drop count.
+     */
+    public static long getDropped() {
+        return dropped.get();
+    }
+
+    /**
+     * Prints messages as they arrive, parking until a caller logs into an empty buffer.
+     * The flusher announces that it sleeps before checking the buffer a last time, and callers check the
+     * announcement after publishing, so a message is never left unprinted while the flusher is parked.
+     */
+    private static void flushLoop() {
+        while (true) {
+            if (!drain()) {
+                sleeping = true;
+                if (ready.get((int) head & MASK) != head + 1) {
+                    LockSupport.park();
+                }
+                sleeping = false;
+            }
+        }
+    }
+
+    /**
+     * Prints the messages in the buffer, in sequence order, as one write.
+     *
+     * @return True if any message was printed.
+     */
+    private static synchronized boolean drain() {
+        long sequence = head;
+        if (ready.get((int) sequence & MASK) != sequence + 1) {
+            return false; // Nothing to print
+        }
+        StringBuilder text = new StringBuilder();
+        while (true) {
+            int slot = (int) sequence & MASK;
+            if (ready.get(slot) != sequence + 1) {
+                break; // Not yet published
+            }
+            text.append(levels[slot]).append(' ').append(messages[slot]);
+            if (args[slot] != null) {
+                text.append(args[slot]);
+            }
+            text.append(System.lineSeparator());
+            levels[slot] = null;
+            messages[slot] = null;
+            args[slot] = null;
+            ready.set(slot, sequence + CAPACITY); // Free for the caller one lap ahead
+            sequence++;
+        }
+        PrintStream stream = out;
+        stream.print(text);
+        stream.flush();
+        head = sequence;
+        return true;
+    }
+}
@@ -0,0 +1,510 @@
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Iterator;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+
+/**
+ * The GameServer class serves Numberle over a line-based text protocol on non-blocking sockets.
+ * A few reactor threads each run a Selector over their share of the connections, so idle terminals cost
+ * a small buffer pair and no thread. Commands are parsed in place from the connection's read buffer and
+ * the fixed responses are encoded once at startup.
+ *
+ * <pre>
+ * N            start a new game          NEW
+ * P &lt;id&gt;       identify the player       OK
+ * T &lt;chars&gt;    type onto the guess       OK
+ * D            delete the last character OK
+ * E            enter the guess           ROW &lt;GY.....&gt; &lt;remaining&gt;, then WON &lt;guesses&gt; or LOST &lt;target&gt;
+ *                                        once the game ends, or ERR &lt;code&gt; &lt;message&gt;
+ * Q            quit                      BYE
+ * </pre>
+ * In a ROW, G is a correct symbol, Y a symbol in the wrong position and . an absent symbol.
+ * Usage: GameServer [port] [threads] [random]; player statistics and the game journal are kept in the directory of the
+ * system property numberle.dataDir, the working directory by default.
+ */
+public class GameServer implements AutoCloseable {
+
+    private static final int LINE = 64; // The longest request line, and the read buffer of a connection.
+    private static final int OUTPUT = 512; // The write buffer of a connection.
+    private static final int RESPONSE = 64; // The longest response to one request.
+
+    private static final byte[] NEW = encode("NEW\n"); // Response to N.
+    private static final byte[] OK = encode("OK\n"); // Response to P, T and D.
+    private static final byte[] BYE = encode("BYE\n"); // Response to Q.
+    private static final byte[] UNKNOWN = encode("ERR ? Unknown command\n"); // Response to anything else.
+    private static final byte[] TOO_LONG = encode("ERR ? Line too long\n"); // Response to an overlong line.
+    private static final byte[] GAME_OVER = encode("ERR ? Game over, send N\n"); // Response to E after the game ended.
+    private static final byte[][] INVALID = new byte[6][]; // Responses to E with an invalid guess, by validation code.
+    private static final byte[] ROW = encode("ROW "); // Prefix of a scored row.
+    private static final byte[] WON = encode("WON "); // Prefix of a win.
+    private static final byte[] LOST = encode("LOST "); // Prefix of a loss.
+    private static final byte[] FEEDBACK = {'.', 'Y', 'G'}; // Feedback symbols by model flag + 1.
+
+    static {
+        String[] messages = new NumberleView.message().getMessages();
+        for (int code = 0; code < INVALID.length; code++) {
+            if (messages[code] != null) {
+                INVALID[code] = encode("ERR " + code + " " + messages[code] + "\n");
+            }
+        }
+    }
+
+    private final ServerSocketChannel server; // The listening socket.
+    private final Reactor[] reactors; // The selector threads; the first also accepts.
+    private final boolean random; // Indicates whether games draw random targets.
+    private final GlobalStatistics statistics = new GlobalStatistics(); // The results of every game served.
+    private final GameListener[] listeners; // Further listeners of every game, e.g. a PlayerStatsStore.
+    private int nextReactor; // The reactor of the next accepted connection, used by the acceptor only.
+
+    /**
+     * Binds the server and starts its reactor threads.
+     *
+     * @param address   The address to listen on.
+     * @param threads   The number of reactor threads.
+     * @param random    True if games draw random targets from the dictionary.
+     * @param listeners Listeners added to every game.
+     * @throws IOException If the socket cannot be bound.
+     */
+    public GameServer(InetSocketAddress address, int threads, boolean random, GameListener... listeners) throws IOException {
+        this.random = random;
+        this.listeners = listeners;
+        server = ServerSocketChannel.open();
+        server.bind(address, 1024);
+        server.configureBlocking(false);
+        reactors = new Reactor[threads];
+        for (int i = 0; i < threads; i++) {
+            reactors[i] = new Reactor(i);
+        }
+        server.register(reactors[0].selector, SelectionKey.OP_ACCEPT);
+        for (Reactor reactor : reactors) {
+            reactor.thread.start();
+        }
+    }
+
+    /**
+     * Returns the port the server listens on.
+     *
+     * @return The port.
+     * @throws IOException If the socket is closed.
+     */
+    public int getPort() throws IOException {
+        return ((InetSocketAddress) server.getLocalAddress()).getPort();
+    }
+
+    /**
+     * Returns the results of the games served.
+     *
+     * @return The statistics.
+     */
+    public GlobalStatistics getStatistics() {
+        return statistics;
+    }
+
+    /**
+     * Stops the reactors and closes every connection.
+     *
+     * @throws IOException If the listening socket cannot be closed.
+     */
+    @Override
+    public void close() throws IOException {
+        for (Reactor reactor : reactors) {
+            reactor.thread.interrupt();
+            reactor.selector.wakeup();
+        }
+        for (Reactor reactor : reactors) {
+            try {
+                reactor.thread.join();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+        server.close();
+    }
+
+    /**
+     * Runs the server on loopback until the process ends.
+     *
+     * @param args The optional port, thread count and "random" to draw random targets.
+     * @throws IOException If the socket cannot be bound, or the player statistics or the journal cannot be opened.
+     */
+    public static void main(String[] args) throws IOException {
+        int port = args.length > 0 ? Integer.parseInt(args[0]) : 7777;
+        int threads = args.length > 1 ? Integer.parseInt(args[1]) : Math.max(1, Runtime.getRuntime().availableProcessors() / 2);
+        boolean random = args.length > 2 && args[2].equals("random");
+        Path dataDir = Paths.get(System.getProperty("numberle.dataDir", "."));
+        PlayerStatsStore stats = PlayerStatsStore.open(dataDir);
+        GameJournal journal = GameJournal.forProcess(dataDir);
+        GameServer server = new GameServer(new InetSocketAddress(InetAddress.getLoopbackAddress(), port), threads, random,
+                stats, journal);
+        System.out.println("Serving on port " + server.getPort() + " with " + threads + " reactor threads");
+    }
+
+    /**
+     * The Reactor class is one selector thread and the connections registered with it.
+     */
+    private final class Reactor implements Runnable {
+
+        private final Selector selector; // The readiness of this reactor's sockets.
+        private final Thread thread; // The thread running the loop.
+        private final Queue<SocketChannel> accepted = new ConcurrentLinkedQueue<>(); // Connections handed over by the acceptor.
+
+        /**
+         * Opens the selector of a reactor.
+         *
+         * @param index The reactor number, for the thread name.
+         * @throws IOException If the selector cannot be opened.
+         */
+        private Reactor(int index) throws IOException {
+            selector = Selector.open();
+            thread = new Thread(this, "GameServer reactor " + index);
+        }
+
+        /**
+         * Selects and serves ready connections until interrupted.
+         */
+        @Override
+        public void run() {
+            try {
+                while (!Thread.currentThread().isInterrupted()) {
+                    selector.select();
+                    SocketChannel channel;
+                    while ((channel = accepted.poll()) != null) {
+                        channel.register(selector, SelectionKey.OP_READ, new Connection(channel));
+                    }
+                    Iterator<SelectionKey> keys = selector.selectedKeys().iterator();
+                    while (keys.hasNext()) {
+                        SelectionKey key = keys.next();
+                        keys.remove();
+                        if (!key.isValid()) {
+                            continue;
+                        }
+                        if (key.isAcceptable()) {
+                            accept();
+                        } else {
+                            Connection connection = (Connection) key.attachment();
+                            try {
+                                connection.handle(key);
+                            } catch (IOException e) {
+                                connection.close(key); // The peer went away
+                            } catch (RuntimeException e) {
+                                GameLog.log(GameLog.Level.WARN, "Connection failed: ", e);
+                                connection.close(key); // The reactor goes on serving the others
+                            }
+                        }
+                    }
+                }
+            } catch (IOException e) {
+                GameLog.log(GameLog.Level.ERROR, "Reactor stopped: ", e);
+            } finally {
+                for (SelectionKey key : selector.keys()) {
+                    if (key.attachment() instanceof Connection) {
+                        ((Connection) key.attachment()).close(key); // Also abandons its game
+                        continue;
+                    }
+                    try {
+                        key.channel().close();
+                    } catch (IOException ignored) {
+                        // Closing anyway
+                    }
+                }
+                try {
+                    selector.close();
+                } catch (IOException ignored) {
+                    // Closing anyway
+                }
+            }
+        }
+
+        /**
+         * Accepts the pending connections and deals them to the reactors in turn.
+         *
+         * @throws IOException If accepting fails.
+         */
+        private void accept() throws IOException {
+            SocketChannel channel;
+            while ((channel = server.accept()) != null) {
+                channel.configureBlocking(false);
+                channel.setOption(java.net.StandardSocketOptions.TCP_NODELAY, true);
+                Reactor reactor = reactors[nextReactor];
+                nextReactor = (nextReactor + 1) % reactors.length;
+                if (reactor == this) {
+                    channel.register(selector, SelectionKey.OP_READ, new Connection(channel));
+                } else {
+                    reactor.accepted.add(channel);
+                    reactor.selector.wakeup();
+                }
+            }
+        }
+    }
+
+    /**
+     * The Connection class is the protocol state of one terminal.
+     */
+    private final class Connection {
+
+        private final SocketChannel channel; // The socket.
+        private final ByteBuffer in = ByteBuffer.allocate(LINE); // Received bytes not yet parsed, in write mode.
+        private final ByteBuffer out = ByteBuffer.allocate(OUTPUT); // Responses not yet sent, in write mode.
+        private final byte[] guess = new byte[EquationCodec.LENGTH]; // The characters typed so far.
+        private int guessLength; // The number of characters typed.
+        private boolean discarding; // Indicates whether the rest of an overlong line is being skipped.
+        private boolean quitting; // Indicates whether the connection closes once the output is sent.
+        private NumberleModel model; // The game, created by the first command.
+
+        /**
+         * Constructs the state of a new connection.
+         *
+         * @param channel The socket.
+         */
+        private Connection(SocketChannel channel) {
+            this.channel = channel;
+        }
+
+        /**
+         * Serves a ready connection: sends pending output, then reads and answers complete lines.
+         *
+         * @param key The selection key of the connection.
+         * @throws IOException If the socket fails.
+         */
+        private void handle(SelectionKey key) throws IOException {
+            if (key.isReadable() && channel.read(in) < 0) {
+                close(key);
+                return;
+            }
+            parse();
+            out.flip();
+            channel.write(out);
+            boolean pending = out.hasRemaining();
+            out.compact();
+            if (!pending && quitting) {
+                close(key);
+            } else if (pending || hasCompleteLine()) {
+                key.interestOps(SelectionKey.OP_WRITE); // Stop reading until the client takes its responses
+            } else {
+                key.interestOps(SelectionKey.OP_READ);
+            }
+        }
+
+        /**
+         * Answers the complete lines in the read buffer while the responses fit in the write buffer.
+         */
+        private void parse() {
+            byte[] bytes = in.array();
+            int start = 0;
+            int end = in.position();
+            boolean stalled = false;
+            for (int i = 0; i < end && !quitting; i++) {
+                if (bytes[i] != '\n') {
+                    continue;
+                }
+                if (out.remaining() < RESPONSE) {
+                    stalled = true;
+                    break; // Resume after the output drains
+                }
+                if (discarding) {
+                    discarding = false; // The end of an overlong line
+                } else {
+                    int lineEnd = i > start && bytes[i - 1] == '\r' ? i - 1 : i;
+                    command(bytes, start, lineEnd);
+                }
+                start = i + 1;
+            }
+            if (start == 0 && end == bytes.length && !stalled) {
+                // A full buffer without a line end: reject the line and skip to its end
+                if (!discarding) {
+                    out.put(TOO_LONG);
+                    discarding = true;
+                }
+                in.clear();
+                return;
+            }
+            in.limit(end).position(start);
+            in.compact();
+        }
+
+        /**
+         * Checks whether the read buffer holds a line that has not been answered.
+         *
+         * @return True if a line end is buffered.
+         */
+        private boolean hasCompleteLine() {
+            byte[] bytes = in.array();
+            for (int i = 0; i < in.position(); i++) {
+                if (bytes[i] == '\n') {
+                    return true;
+                }
+            }
+            return false;
+        }
+
+        /**
+         * Answers one request line.
+         *
+         * @param bytes The read buffer.
+         * @param from  The first byte of the line.
+         * @param to    The end of the line, exclusive, without the line terminator.
+         */
+        private void command(byte[] bytes, int from, int to) {
+            if (from == to) {
+                out.put(UNKNOWN);
+                return;
+            }
+            switch (bytes[from]) {
+                case 'N':
+                    boolean started = model == null;
+                    NumberleModel game = model();
+                    if (!started) {
+                        game.abandon(); // Unless it ended, the previous game is given up
+                        game.initialize(); // model() started the first game
+                    }
+                    guessLength = 0;
+                    out.put(NEW);
+                    break;
+                case 'P':
+                    long playerId = 0;
+                    int digits = 0;
+                    for (int i = from + 1; i < to; i++) {
+                        if (bytes[i] >= '0' && bytes[i] <= '9' && digits < 18) {
+                            playerId = playerId * 10 + bytes[i] - '0';
+                            digits++;
+                        } else if (bytes[i] != ' ') {
+                            digits = -1;
+                            break;
+                        }
+                    }
+                    if (digits > 0) {
+                        model().setPlayerId(playerId);
+                        out.put(OK);
+                    } else {
+                        out.put(UNKNOWN);
+                    }
+                    break;
+                case 'T':
+                    for (int i = from + 1; i < to; i++) {
+                        if (bytes[i] != ' ' && guessLength < guess.length) {
+                            guess[guessLength++] = bytes[i];
+                            model().typeSymbol((char) bytes[i]); // For the listeners, e.g. the journal
+                        }
+                    }
+                    out.put(OK);
+                    break;
+                case 'D':
+                    if (guessLength > 0) {
+                        guessLength--;
+                        model().deleteSymbol();
+                    }
+                    out.put(OK);
+                    break;
+                case 'E':
+                    enter();
+                    break;
+                case 'Q':
+                    out.put(BYE);
+                    quitting = true;
+                    break;
+                default:
+                    out.put(UNKNOWN);
+            }
+        }
+
+        /**
+         * Validates and scores the typed guess.
+         */
+        private void enter() {
+            NumberleModel game = model();
+            if (game.isGameOver()) {
+                out.put(GAME_OVER);
+                return;
+            }
+            String equation = new String(guess, 0, guessLength, StandardCharsets.US_ASCII);
+            int code;
+            try {
+                code = game.validateEquation(equation);
+            } catch (RuntimeException e) {
+                code = 0; // The evaluator throws on a division by zero or a malformed expression
+            }
+            if (code != 4) {
+                out.put(INVALID[code]);
+                return;
+            }
+            game.setCurrentGuess(equation);
+            game.compare(equation, game.getTargetEquations());
+            int row = INumberleModel.MAX_ATTEMPTS - game.getRemainingAttempts();
+            game.setRemainingAttempts();
+            guessLength = 0;
+
+            out.put(ROW);
+            for (int i = 0; i < EquationCodec.LENGTH; i++) {
+                out.put(FEEDBACK[game.getColor(row, i) + 1]);
+            }
+            out.put((byte) ' ').put((byte) ('0' + game.getRemainingAttempts())).put((byte) '\n');
+            if (game.isGameWon()) {
+                out.put(WON).put((byte) ('0' + INumberleModel.MAX_ATTEMPTS - game.getRemainingAttempts())).put((byte) '\n');
+            } else if (game.isGameOver()) {
+                out.put(LOST);
+                String target = game.getTargetEquations();
+                for (int i = 0; i < target.length(); i++) {
+                    out.put((byte) target.charAt(i));
+                }
+                out.put((byte) '\n');
+            }
+        }
+
+        /**
+         * Returns the game of the connection, starting one on first use.
+         *
+         * @return The model.
+         */
+        private NumberleModel model() {
+            if (model == null) {
+                model = new NumberleModel();
+                if (random) {
+                    model.setRandom();
+                }
+                model.addGameListener(statistics);
+                for (GameListener listener : listeners) {
+                    model.addGameListener(listener);
+                }
+                model.initialize();
+            }
+            return model;
+        }
+
+        /**
+         * Closes the connection and abandons its game, if it had not ended.
+         *
+         * @param key The selection key of the connection.
+         */
+        private void close(SelectionKey key) {
+            if (model != null) {
+                model.abandon();
+            }
+            key.cancel();
+            try {
+                channel.close();
+            } catch (IOException ignored) {
+                // Closing anyway
+            }
+        }
+    }
+
+    /**
+     * Encodes a fixed response.
+     *
+     * @param text The response text.
+     * @return The ASCII bytes.
+     */
+    private static byte[] encode(String text) {
+        return text.getBytes(StandardCharsets.US_ASCII);
+    }
+}
@@ -0,0 +1,127 @@
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.SocketChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The GameServerBenchmark class measures a GameServer on loopback: it holds many idle connections open
+ * while a few active clients play games as fast as the server answers, and reports the request throughput
+ * and the round-trip latency percentiles.
+ * Usage: GameServerBenchmark [idle connections] [active clients] [seconds] [reactor threads]
+ */
+public class GameServerBenchmark {
+
+    // One game against the default target: each request and the number of response lines it gets
+    private static final String[] REQUESTS = {"N\n", "T 2+4=6-0\n", "E\n", "T 1+3=1+3\n", "E\n"};
+    private static final int[] RESPONSE_LINES = {1, 1, 1, 1, 2};
+
+    /**
+     * Runs the benchmark.
+     *
+     * @param args The optional idle connections, active clients, duration and reactor threads.
+     * @throws Exception If the server or a client fails.
+     */
+    public static void main(String[] args) throws Exception {
+        int idle = args.length > 0 ? Integer.parseInt(args[0]) : 10_000;
+        int active = args.length > 1 ? Integer.parseInt(args[1]) : 8;
+        int seconds = args.length > 2 ? Integer.parseInt(args[2]) : 10;
+        int threads = args.length > 3 ? Integer.parseInt(args[3]) : 2;
+
+        InetSocketAddress loopback = new InetSocketAddress(InetAddress.getLoopbackAddress(), 0);
+        try (GameServer server = new GameServer(loopback, threads, false)) {
+            InetSocketAddress address = new InetSocketAddress(InetAddress.getLoopbackAddress(), server.getPort());
+            List<SocketChannel> idleChannels = new ArrayList<>();
+            for (int i = 0; i < idle; i++) {
+                idleChannels.add(SocketChannel.open(address));
+            }
+            System.out.println("Holding " + idle + " idle connections");
+
+            long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(seconds);
+            LatencyHistogram[] latencies = new LatencyHistogram[active];
+            Thread[] clients = new Thread[active];
+            for (int c = 0; c < active; c++) {
+                LatencyHistogram histogram = latencies[c] = new LatencyHistogram();
+                clients[c] = new Thread(() -> play(address, deadline, histogram), "client " + c);
+                clients[c].start();
+            }
+            long start = System.nanoTime();
+            LatencyHistogram merged = new LatencyHistogram();
+            for (int c = 0; c < active; c++) {
+                clients[c].join();
+                merged.merge(latencies[c]);
+            }
+            long nanos = System.nanoTime() - start;
+
+            System.out.printf("%d requests from %d clients in %.1f s: %.0f requests/s%n", merged.getCount(), active,
+                    nanos / 1e9, merged.getCount() * 1e9 / nanos);
+            System.out.printf("Round trip: mean %.1f us, p50 %.1f us, p99 %.1f us, p99.9 %.1f us, max %.1f us%n",
+                    merged.getMean() / 1000, merged.getPercentile(50) / 1000.0, merged.getPercentile(99) / 1000.0,
+                    merged.getPercentile(99.9) / 1000.0, merged.getMax() / 1000.0);
+            System.out.println("Games won: " + server.getStatistics().snapshot().getWins());
+            for (SocketChannel channel : idleChannels) {
+                channel.close();
+            }
+        }
+    }
+
+    /**
+     * Plays games over one connection until the deadline, timing every request.
+     *
+     * @param address   The server address.
+     * @param deadline  The System.nanoTime() value to stop at.
+     * @param latencies The histogram of the round trips.
+     */
+    private static void play(InetSocketAddress address, long deadline, LatencyHistogram latencies) {
+        ByteBuffer[] requests = new ByteBuffer[REQUESTS.length];
+        for (int i = 0; i < requests.length; i++) {
+            requests[i] = ByteBuffer.wrap(REQUESTS[i].getBytes(StandardCharsets.US_ASCII));
+        }
+        ByteBuffer response = ByteBuffer.allocate(256);
+        try (SocketChannel channel = SocketChannel.open(address)) {
+            channel.setOption(java.net.StandardSocketOptions.TCP_NODELAY, true);
+            while (System.nanoTime() < deadline) {
+                for (int i = 0; i < requests.length; i++) {
+                    long start = System.nanoTime();
+                    requests[i].rewind();
+                    while (requests[i].hasRemaining()) {
+                        channel.write(requests[i]);
+                    }
+                    readLines(channel, response, RESPONSE_LINES[i]);
+                    latencies.record(System.nanoTime() - start);
+                }
+            }
+            channel.write(ByteBuffer.wrap("Q\n".getBytes(StandardCharsets.US_ASCII)));
+        } catch (IOException e) {
+            throw new IllegalStateException("Client failed", e);
+        }
+    }
+
+    /**
+     * Reads until a number of response lines has arrived.
+     *
+     * @param channel  The connection.
+     * @param response The buffer to read into.
+     * @param lines    The number of lines to wait for.
+     * @throws IOException If the connection fails or closes.
+     */
+    private static void readLines(SocketChannel channel, ByteBuffer response, int lines) throws IOException {
+        response.clear();
+        int seen = 0;
+        while (seen < lines) {
+            int from = response.position();
+            if (channel.read(response) < 0) {
+                throw new IOException("Server closed the connection");
+            }
+            for (int i = from; i < response.position(); i++) {
+                if (response.get(i) == '\n') {
+                    seen++;
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,114 @@
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+/**
+ * Tests for the GameServer class.
+ * This class drives the line protocol over loopback sockets.
+ */
+public class GameServerTest {
+
+    private GameServer server;
+
+    /**
+     * Starts a server with a single reactor, so that every connection shares it.
+     *
+     * @throws IOException If the server cannot be bound.
+     */
+    @Before
+    public void setUp() throws IOException {
+        server = new GameServer(new InetSocketAddress(InetAddress.getLoopbackAddress(), 0), 1, false);
+    }
+
+    /**
+     * Stops the server.
+     *
+     * @throws IOException If the server cannot be closed.
+     */
+    @After
+    public void tearDown() throws IOException {
+        server.close();
+    }
+
+    /**
+     * Tests guesses that the evaluator cannot evaluate.
+     *
+     * This test enters a division by zero and a malformed expression, then uses the connection and a second one.
+     *
+     * @pre The server has one reactor, which is also the acceptor.
+     * @post Both guesses are answered as illegal equations; the connection, the reactor and the acceptor keep serving.
+     */
+    @Test
+    public void testUnevaluableGuessesAreIllegal() throws IOException {
+        try (Socket first = connect()) {
+            BufferedReader in = reader(first);
+            send(first, "T 1/0=1+0\nE\n");
+            assertEquals("OK", in.readLine());
+            assertEquals("ERR 0 Illegal Equation", in.readLine());
+
+            send(first, "N\nT 1(2)3=5\nE\n");
+            assertEquals("NEW", in.readLine());
+            assertEquals("OK", in.readLine());
+            assertEquals("ERR 0 Illegal Equation", in.readLine());
+
+            try (Socket second = connect()) {
+                send(second, "T 1+3=1+3\nE\nQ\n");
+                BufferedReader secondIn = reader(second);
+                assertEquals("OK", secondIn.readLine());
+                assertEquals("ROW GGGGGGG 6", secondIn.readLine());
+                assertEquals("WON 1", secondIn.readLine());
+                assertEquals("BYE", secondIn.readLine());
+            }
+
+            send(first, "Q\n");
+            assertEquals("BYE", in.readLine());
+        }
+    }
+
+    /**
+     * Connects a client to the server.
+     *
+     * @return The socket.
+     * @throws IOException If the server cannot be reached.
+     */
+    private Socket connect() throws IOException {
+        Socket socket = new Socket(InetAddress.getLoopbackAddress(), server.getPort());
+        socket.setSoTimeout(10_000);
+        return socket;
+    }
+
+    /**
+     * Sends request lines.
+     *
+     * @param socket The client.
+     * @param lines  The lines, each ending with a newline.
+     * @throws IOException If the socket fails.
+     */
+    private static void send(Socket socket, String lines) throws IOException {
+        OutputStream out = socket.getOutputStream();
+        out.write(lines.getBytes(StandardCharsets.US_ASCII));
+        out.flush();
+    }
+
+    /**
+     * Returns a reader of the responses of a client.
+     *
+     * @param socket The client.
+     * @return The reader.
+     * @throws IOException If the socket fails.
+     */
+    private static BufferedReader reader(Socket socket) throws IOException {
+        return new BufferedReader(new InputStreamReader(socket.getInputStream(), StandardCharsets.US_ASCII));
+    }
+}
@@ -0,0 +1,51 @@
+import java.nio.ByteBuffer;
+
+/**
+ * The GameSnapshot class converts a game into a fixed 70-byte binary form and back, without Java serialization.
+ * Idle games can be kept as snapshots instead of whole NumberleModel objects.
+ *
+ * Layout (big-endian):
+ * byte version; byte flags (bit 0 random, bit 1 daily, bit 2 adversarial, bit 3 won, bits 4-5 difficulty + 1,
+ * bit 6 strict, bit 7 speed run);
+ * byte remaining attempts; int packed target; int current guess (4 bits per symbol, 15 for blank);
+ * int button colours (2 bits each, colour + 2); long sequence seed; long sequence position;
+ * then 7 rows of 5 bytes: packed guess (28 bits, all ones if none) followed by the feedback pattern (12 bits);
+ * int milliseconds used by a running speed-run game, 0 otherwise.
+ */
+public final class GameSnapshot {
+
+    public static final int VERSION = 2; // The layout version.
+    public static final int SIZE = 70; // The size of a snapshot in bytes.
+    static final int BLANK = 15; // The symbol code of an empty position of the current guess.
+    static final int NO_GUESS = 0x0FFFFFFF; // The row code of a row without a packable guess.
+
+    /**
+     * Prevents instantiation of the utility class.
+     */
+    private GameSnapshot() {
+    }
+
+    /**
+     * Takes a snapshot of a game.
+     *
+     * @param model The game.
+     * @return The snapshot bytes.
+     */
+    public static byte[] take(NumberleModel model) {
+        byte[] snapshot = new byte[SIZE];
+        model.writeSnapshot(ByteBuffer.wrap(snapshot));
+        return snapshot;
+    }
+
+    /**
+     * Restores a game from a snapshot into a new model.
+     *
+     * @param snapshot The snapshot bytes.
+     * @return The restored game, without observers.
+     */
+    public static NumberleModel restore(byte[] snapshot) {
+        NumberleModel model = new NumberleModel();
+        model.readSnapshot(ByteBuffer.wrap(snapshot));
+        return model;
+    }
+}
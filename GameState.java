@@ -0,0 +1,134 @@
+/**
+ * The GameState class is an immutable view of a NumberleModel, published after every change of the game.
+ * It is built from compact primitive fields: the packed target, the packed guess and feedback pattern of each
+ * scored row, and the button colours at 2 bits each. Readers such as the view, metrics or a server take it
+ * from getState without locks or copies, and always see a complete game at one point in time.
+ */
+public final class GameState {
+
+    private final int target; // The packed target equation, or -1 if it cannot be packed.
+    private final int remainingAttempts; // The number of remaining attempts.
+    private final boolean gameWon; // Indicates whether the game has been won.
+    private final int[] guesses; // The packed guess of each scored row, -1 if it cannot be packed; never exposed.
+    private final short[] patterns; // The feedback pattern of each scored row; never exposed.
+    private final int buttons; // The button colours, (colour + 2) in 2 bits per button.
+
+    /**
+     * Constructs a state. The arrays are not copied.
+     *
+     * @param target            The packed target equation.
+     * @param remainingAttempts The number of remaining attempts.
+     * @param gameWon           True if the game has been won.
+     * @param guesses           The packed guess of each scored row.
+     * @param patterns          The feedback pattern of each scored row.
+     * @param buttons           The packed button colours.
+     */
+    GameState(int target, int remainingAttempts, boolean gameWon, int[] guesses, short[] patterns, int buttons) {
+        this.target = target;
+        this.remainingAttempts = remainingAttempts;
+        this.gameWon = gameWon;
+        this.guesses = guesses;
+        this.patterns = patterns;
+        this.buttons = buttons;
+    }
+
+    /**
+     * Returns the target equation.
+     *
+     * @return The target equation, or null if it cannot be packed.
+     */
+    public String getTargetEquation() {
+        return target < 0 ? null : EquationCodec.unpack(target);
+    }
+
+    /**
+     * Returns the number of remaining attempts.
+     *
+     * @return The remaining attempts.
+     */
+    public int getRemainingAttempts() {
+        return remainingAttempts;
+    }
+
+    /**
+     * Checks if the game has been won.
+     *
+     * @return True if the game has been won.
+     */
+    public boolean isGameWon() {
+        return gameWon;
+    }
+
+    /**
+     * Checks if the game is over.
+     *
+     * @return True if the game has been won or no attempts remain.
+     */
+    public boolean isGameOver() {
+        return gameWon || remainingAttempts <= 0;
+    }
+
+    /**
+     * Returns the number of scored rows.
+     *
+     * @return The row count.
+     */
+    public int getRows() {
+        return guesses.length;
+    }
+
+    /**
+     * Returns the guess of a scored row.
+     *
+     * @param row The row, from 0.
+     * @return The guess, or null if it cannot be packed.
+     */
+    public String getGuess(int row) {
+        return guesses[row] < 0 ? null : EquationCodec.unpack(guesses[row]);
+    }
+
+    /**
+     * Returns the packed guess of a scored row.
+     *
+     * @param row The row, from 0.
+     * @return The packed guess, or -1 if it cannot be packed.
+     */
+    public int getPackedGuess(int row) {
+        return guesses[row];
+    }
+
+    /**
+     * Returns the feedback pattern of a scored row.
+     *
+     * @param row The row, from 0.
+     * @return The pattern, see NumberleSolver.
+     */
+    public int getPattern(int row) {
+        return patterns[row];
+    }
+
+    /**
+     * Returns the colour flag of one cell of a scored row.
+     *
+     * @param row      The row, from 0.
+     * @param position The position, from 0.
+     * @return 1 for a correct symbol, 0 for a symbol in another position, -1 for an absent symbol.
+     */
+    public int getFlag(int row, int position) {
+        int pattern = patterns[row];
+        for (int i = position; i < EquationCodec.LENGTH - 1; i++) {
+            pattern /= 3; // Position 0 is the most significant digit
+        }
+        return pattern % 3 - 1;
+    }
+
+    /**
+     * Returns the colour of a keypad button.
+     *
+     * @param index The button index, see EquationCodec.
+     * @return The colour: -2 for unused, otherwise as getFlag.
+     */
+    public int getButtonColor(int index) {
+        return ((buttons >>> (2 * index)) & 3) - 2;
+    }
+}
@@ -0,0 +1,181 @@
+import java.util.Arrays;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * The GlobalStatistics class aggregates the results of all games for the dashboard.
+ * Every counter is a LongAdder, whose striped cells let concurrent games update it without contending on one
+ * cache line. The guesses-to-win distribution is a fixed histogram with one bucket per attempt.
+ * Readers sum the cells into a Snapshot and never block the writers.
+ */
+public class GlobalStatistics implements GameListener {
+
+    private final LongAdder games = new LongAdder(); // Games finished.
+    private final LongAdder wins = new LongAdder(); // Games won.
+    private final LongAdder[] guessesToWin = new LongAdder[INumberleModel.MAX_ATTEMPTS]; // Wins by guesses; index 0 is one guess.
+    private final ConcurrentHashMap<String, TargetCounters> targets = new ConcurrentHashMap<>(); // Results per target equation.
+
+    /**
+     * The TargetCounters class counts the games and wins of one target equation.
+     */
+    private static final class TargetCounters {
+        private final LongAdder games = new LongAdder(); // Games finished with this target.
+        private final LongAdder wins = new LongAdder(); // Games won with this target.
+    }
+
+    /**
+     * Constructs empty statistics.
+     */
+    public GlobalStatistics() {
+        for (int i = 0; i < guessesToWin.length; i++) {
+            guessesToWin[i] = new LongAdder();
+        }
+    }
+
+    /**
+     * Counts a game that ended.
+     *
+     * @param model   The game that ended.
+     * @param won     True if the game was won.
+     * @param guesses The number of guesses scored.
+     */
+    @Override
+    public void gameOver(NumberleModel model, boolean won, int guesses) {
+        record(model.getTargetEquations(), won, guesses);
+    }
+
+    /**
+     * Counts a finished game.
+     *
+     * @param target  The target equation of the game.
+     * @param won     True if the game was won.
+     * @param guesses The number of guesses scored.
+     */
+    public void record(String target, boolean won, int guesses) {
+        games.increment();
+        if (won) {
+            wins.increment();
+            if (guesses >= 1 && guesses <= guessesToWin.length) {
+                guessesToWin[guesses - 1].increment();
+            }
+        }
+
+        TargetCounters counters = targets.get(target);
+        if (counters == null) {
+            counters = targets.computeIfAbsent(target, t -> new TargetCounters());
+        }
+        counters.games.increment();
+        if (won) {
+            counters.wins.increment();
+        }
+    }
+
+    /**
+     * Returns the solve rate of a target equation.
+     *
+     * @param target The target equation.
+     * @return The share of its games that were won, or NaN if none finished.
+     */
+    public double getSolveRate(String target) {
+        TargetCounters counters = targets.get(target);
+        if (counters == null) {
+            return Double.NaN;
+        }
+        long played = counters.games.sum();
+        return played == 0 ? Double.NaN : (double) counters.wins.sum() / played;
+    }
+
+    /**
+     * Returns the number of distinct targets with finished games.
+     *
+     * @return The target count.
+     */
+    public int getTargetCount() {
+        return targets.size();
+    }
+
+    /**
+     * Takes a point-in-time view of the global counters.
+     * The counters are summed one after another without stopping the writers,
+     * so a game finishing during the call may be counted in some of them only.
+     *
+     * @return The snapshot.
+     */
+    public Snapshot snapshot() {
+        long[] distribution = new long[guessesToWin.length];
+        for (int i = 0; i < distribution.length; i++) {
+            distribution[i] = guessesToWin[i].sum();
+        }
+        return new Snapshot(games.sum(), wins.sum(), distribution);
+    }
+
+    /**
+     * The Snapshot class is an immutable view of the global counters.
+     */
+    public static final class Snapshot {
+        private final long games; // Games finished.
+        private final long wins; // Games won.
+        private final long[] guessesToWin; // Wins by guesses; index 0 is one guess.
+
+        /**
+         * Constructs a snapshot.
+         *
+         * @param games        Games finished.
+         * @param wins         Games won.
+         * @param guessesToWin Wins by guesses; index 0 is one guess.
+         */
+        private Snapshot(long games, long wins, long[] guessesToWin) {
+            this.games = games;
+            this.wins = wins;
+            this.guessesToWin = guessesToWin;
+        }
+
+        /**
+         * Returns the number of games finished.
+         *
+         * @return The game count.
+         */
+        public long getGames() {
+            return games;
+        }
+
+        /**
+         * Returns the number of games won.
+         *
+         * @return The win count.
+         */
+        public long getWins() {
+            return wins;
+        }
+
+        /**
+         * Returns the number of wins that took a given number of guesses.
+         *
+         * @param guesses The number of guesses, 1 to MAX_ATTEMPTS.
+         * @return The win count.
+         */
+        public long getWins(int guesses) {
+            return guessesToWin[guesses - 1];
+        }
+
+        /**
+         * Returns the mean number of guesses of the won games.
+         *
+         * @return The mean, or NaN if no game was won.
+         */
+        public double getMeanGuessesToWin() {
+            long total = 0;
+            long count = 0;
+            for (int i = 0; i < guessesToWin.length; i++) {
+                total += (i + 1) * guessesToWin[i];
+                count += guessesToWin[i];
+            }
+            return count == 0 ? Double.NaN : (double) total / count;
+        }
+
+        @Override
+        public String toString() {
+            return "games=" + games + " wins=" + wins + " guessesToWin=" + Arrays.toString(guessesToWin);
+        }
+    }
+}
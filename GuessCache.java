@@ -0,0 +1,320 @@
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * The GuessCache class remembers the validation code of guesses across all sessions of a process, keyed by
+ * the packed guess, so that the popular opening guesses are validated without being parsed again.
+ * The validation code of a guess does not depend on the target or the dictionary, so entries never go stale.
+ *
+ * The cache is a set-associative table of WAYS slots per set, each slot a single long holding the packed guess
+ * and its code, so lookups and updates are lock-free compare-and-sets. Admission and eviction follow TinyLFU:
+ * a count-min sketch of 4-bit counters estimates how often every guess was asked for, and when a set is full
+ * a new guess only replaces the least frequent guess of the set if it was asked for more often. Counters are
+ * halved after about 10 accesses per slot, so the estimates follow the recent popularity of guesses. Accesses are
+ * counted in a striped adder, which is summed on a random sample of accesses only, so sessions on many cores do
+ * not contend on one counter.
+ * The table is capped both in entries and in bytes, including the sketch.
+ */
+public final class GuessCache {
+
+    public static final int MISS = -1; // The code returned for a guess not in the cache.
+
+    private static final int WAYS = 8; // The slots per set.
+    private static final int ROWS = 4; // The hash rows of the sketch.
+    private static final int AGE_CHECK = 64; // One access in this many sums the accesses, a power of two.
+    private static final int BYTES_PER_ENTRY = Long.BYTES + ROWS / 2; // A slot plus its share of 4-bit sketch counters.
+
+    private static final GuessCache SHARED = new GuessCache(Integer.getInteger("numberle.guessCache.entries", 65_536),
+            Long.getLong("numberle.guessCache.bytes", 1L << 20)); // The cache of this process.
+
+    private final AtomicLongArray slots; // The entries, (packed guess + 1) << 8 | code, 0 when empty.
+    private final int setMask; // The number of sets minus one.
+    private final AtomicLongArray sketch; // ROWS rows of 4-bit counters, 16 per long.
+    private final int counterMask; // The counters per row minus one.
+    private final int sampleSize; // The accesses between halvings of the counters.
+    private final LongAdder accesses = new LongAdder(); // The accesses since the last halving.
+    private final AtomicBoolean aging = new AtomicBoolean(); // Indicates whether a thread is halving the counters.
+
+    private final LongAdder hits = new LongAdder(); // Lookups that found the guess.
+    private final LongAdder misses = new LongAdder(); // Lookups that did not find the guess.
+    private final LongAdder admissions = new LongAdder(); // Guesses stored.
+    private final LongAdder rejections = new LongAdder(); // Guesses refused as less frequent than the victim.
+    private final LongAdder evictions = new LongAdder(); // Guesses replaced by more frequent ones.
+
+    /**
+     * Constructs a cache holding at most the given number of entries in at most the given number of bytes.
+     * The capacity is rounded down to a power of two of at least one set.
+     *
+     * @param maxEntries The most entries.
+     * @param maxBytes   The most bytes of table and sketch.
+     */
+    public GuessCache(int maxEntries, long maxBytes) {
+        long capacity = Math.max(WAYS, Math.min(maxEntries, maxBytes / BYTES_PER_ENTRY));
+        int sets = Integer.highestOneBit((int) Math.min(capacity / WAYS, 1 << 24));
+        slots = new AtomicLongArray(sets * WAYS);
+        setMask = sets - 1;
+        int counters = Math.max(16, sets * WAYS); // Counters per row
+        sketch = new AtomicLongArray(ROWS * counters / 16);
+        counterMask = counters - 1;
+        sampleSize = 10 * sets * WAYS;
+    }
+
+    /**
+     * Returns the cache shared by the sessions of this process. Its caps are read from the system properties
+     * numberle.guessCache.entries (default 65536) and numberle.guessCache.bytes (default 1 MiB).
+     *
+     * @return The shared cache.
+     */
+    public static GuessCache shared() {
+        return SHARED;
+    }
+
+    /**
+     * Returns the key of a guess. A multiplication typed as 'x' packs like '*' but is not evaluated
+     * like it, so such guesses are not cached.
+     *
+     * @param guess The guess.
+     * @return The packed guess, or -1 if the guess cannot be cached.
+     */
+    public static int key(CharSequence guess) {
+        for (int i = 0; i < guess.length(); i++) {
+            if (guess.charAt(i) == 'x') {
+                return -1;
+            }
+        }
+        return EquationCodec.pack(guess);
+    }
+
+    /**
+     * Looks up the validation code of a guess and counts the access for admission.
+     *
+     * @param packed The key of the guess.
+     * @return The validation code, or MISS.
+     */
+    public int get(int packed) {
+        long hash = DictionaryMembership.mix(packed);
+        increment(hash);
+        int base = set(hash);
+        long tag = tag(packed);
+        for (int i = 0; i < WAYS; i++) {
+            long entry = slots.get(base + i);
+            if ((entry & ~0xFFL) == tag) {
+                hits.increment();
+                return (int) (entry & 0xFF);
+            }
+        }
+        misses.increment();
+        return MISS;
+    }
+
+    /**
+     * Offers the validation code of a guess that missed. It is stored in a free slot of its set, or in place
+     * of the set's least frequent guess if the new guess is more frequent.
+     *
+     * @param packed The key of the guess.
+     * @param code   The validation code, 0 to 255.
+     */
+    public void put(int packed, int code) {
+        long hash = DictionaryMembership.mix(packed);
+        int base = set(hash);
+        long entry = tag(packed) | code;
+        int victim = -1;
+        long victimEntry = 0;
+        int victimFrequency = Integer.MAX_VALUE;
+        for (int i = 0; i < WAYS; i++) {
+            long current = slots.get(base + i);
+            if (current == 0) {
+                if (slots.compareAndSet(base + i, 0, entry)) {
+                    admissions.increment();
+                    return;
+                }
+                current = slots.get(base + i); // Taken by another thread meanwhile
+            }
+            if ((current & ~0xFFL) == (entry & ~0xFFL)) {
+                return; // Stored by another session meanwhile
+            }
+            int frequency = frequency(DictionaryMembership.mix((int) (current >>> 8) - 1));
+            if (frequency < victimFrequency) {
+                victim = base + i;
+                victimEntry = current;
+                victimFrequency = frequency;
+            }
+        }
+        if (frequency(hash) > victimFrequency && slots.compareAndSet(victim, victimEntry, entry)) {
+            admissions.increment();
+            evictions.increment();
+        } else {
+            rejections.increment();
+        }
+    }
+
+    /**
+     * Returns the first slot of the set of a hash.
+     *
+     * @param hash The hash of a guess.
+     * @return The slot index.
+     */
+    private int set(long hash) {
+        return ((int) (hash >>> 40) & setMask) * WAYS; // High bits; the sketch uses the low bits
+    }
+
+    /**
+     * Returns the part of a slot identifying a guess.
+     *
+     * @param packed The key of the guess.
+     * @return The tag, never 0.
+     */
+    private static long tag(int packed) {
+        return (packed + 1L) << 8;
+    }
+
+    /**
+     * Counts an access in every row of the sketch, and halves the counters once a sample has been counted.
+     * A counter saturates at 15. An increment lost to a concurrent update is not retried, as the counts are estimates.
+     *
+     * @param hash The hash of a guess.
+     */
+    private void increment(long hash) {
+        int h1 = (int) hash;
+        int h2 = (int) (hash >>> 20) | 1;
+        for (int row = 0; row < ROWS; row++) {
+            int counter = (h1 + row * h2) & counterMask;
+            int word = row * (counterMask + 1) / 16 + (counter >>> 4);
+            int shift = (counter & 15) * 4;
+            long value = sketch.get(word);
+            if (((value >>> shift) & 0xF) < 15) {
+                sketch.compareAndSet(word, value, value + (1L << shift));
+            }
+        }
+        accesses.increment();
+        if ((ThreadLocalRandom.current().nextInt() & (AGE_CHECK - 1)) == 0 && accesses.sum() >= sampleSize
+                && aging.compareAndSet(false, true)) {
+            try {
+                if (accesses.sum() >= sampleSize) { // Not halved by the thread that held the flag before
+                    age();
+                }
+            } finally {
+                aging.set(false);
+            }
+        }
+    }
+
+    /**
+     * Returns the estimated access count of a guess, the smallest of its counters.
+     *
+     * @param hash The hash of the guess.
+     * @return The estimate, 0 to 15.
+     */
+    private int frequency(long hash) {
+        int h1 = (int) hash;
+        int h2 = (int) (hash >>> 20) | 1;
+        int frequency = 15;
+        for (int row = 0; row < ROWS; row++) {
+            int counter = (h1 + row * h2) & counterMask;
+            int word = row * (counterMask + 1) / 16 + (counter >>> 4);
+            frequency = Math.min(frequency, (int) (sketch.get(word) >>> ((counter & 15) * 4)) & 0xF);
+        }
+        return frequency;
+    }
+
+    /**
+     * Halves every counter of the sketch, so that old popularity fades. Only the thread holding the aging flag runs it.
+     */
+    private void age() {
+        for (int word = 0; word < sketch.length(); word++) {
+            long value;
+            do {
+                value = sketch.get(word);
+            } while (!sketch.compareAndSet(word, value, (value >>> 1) & 0x7777777777777777L));
+        }
+        accesses.add(-sampleSize);
+    }
+
+    /**
+     * Returns the share of lookups that found their guess.
+     *
+     * @return The hit rate, from 0 to 1.
+     */
+    public double getHitRate() {
+        long found = hits.sum();
+        long total = found + misses.sum();
+        return total == 0 ? 0 : (double) found / total;
+    }
+
+    /**
+     * Returns the number of lookups that found their guess.
+     *
+     * @return The hit count.
+     */
+    public long getHits() {
+        return hits.sum();
+    }
+
+    /**
+     * Returns the number of lookups that did not find their guess.
+     *
+     * @return The miss count.
+     */
+    public long getMisses() {
+        return misses.sum();
+    }
+
+    /**
+     * Returns the number of guesses replaced by more frequent ones.
+     *
+     * @return The eviction count.
+     */
+    public long getEvictions() {
+        return evictions.sum();
+    }
+
+    /**
+     * Returns the number of guesses refused because they were less frequent than the guess they would replace.
+     *
+     * @return The rejection count.
+     */
+    public long getRejections() {
+        return rejections.sum();
+    }
+
+    /**
+     * Returns the number of guesses the cache can hold.
+     *
+     * @return The entry cap.
+     */
+    public int getCapacity() {
+        return slots.length();
+    }
+
+    /**
+     * Returns the number of guesses held, by scanning the table.
+     *
+     * @return The entry count.
+     */
+    public int size() {
+        int size = 0;
+        for (int i = 0; i < slots.length(); i++) {
+            if (slots.get(i) != 0) {
+                size++;
+            }
+        }
+        return size;
+    }
+
+    /**
+     * Returns the memory used by the table and the sketch.
+     *
+     * @return The size in bytes.
+     */
+    public long getMemoryBytes() {
+        return (long) (slots.length() + sketch.length()) * Long.BYTES;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("guess cache: %d/%d entries, %d bytes, hit rate %.1f%%, %d admitted, %d rejected, %d evicted",
+                size(), getCapacity(), getMemoryBytes(), 100 * getHitRate(), admissions.sum(), rejections.sum(), evictions.sum());
+    }
+}
@@ -0,0 +1,103 @@
+/**
+ * The Hint class is the result of a hint search: the best guess found and how thorough the search was.
+ */
+public final class Hint {
+
+    private final String guess; // The suggested guess, or null if no equation fits the feedback or none was found in time.
+    private final int candidates; // Equations still consistent with the feedback.
+    private final int evaluated; // Guesses scored before the search stopped.
+    private final int planned; // Guesses the full search would have scored.
+    private final double expectedRemaining; // Expected candidates left after the suggested guess.
+    private final long elapsedNanos; // Time spent on the search.
+
+    /**
+     * Constructs a hint.
+     *
+     * @param guess             The suggested guess, or null if no equation fits the feedback or none was found in time.
+     * @param candidates        Equations still consistent with the feedback.
+     * @param evaluated         Guesses scored before the search stopped.
+     * @param planned           Guesses the full search would have scored.
+     * @param expectedRemaining Expected candidates left after the suggested guess.
+     * @param elapsedNanos      Time spent on the search.
+     */
+    public Hint(String guess, int candidates, int evaluated, int planned, double expectedRemaining, long elapsedNanos) {
+        this.guess = guess;
+        this.candidates = candidates;
+        this.evaluated = evaluated;
+        this.planned = planned;
+        this.expectedRemaining = expectedRemaining;
+        this.elapsedNanos = elapsedNanos;
+    }
+
+    /**
+     * Returns the suggested guess.
+     *
+     * @return The guess, or null if no equation fits the feedback, or none was found before the deadline.
+     */
+    public String getGuess() {
+        return guess;
+    }
+
+    /**
+     * Returns the number of equations still consistent with the feedback.
+     *
+     * @return The candidate count.
+     */
+    public int getCandidates() {
+        return candidates;
+    }
+
+    /**
+     * Returns the number of guesses scored before the search stopped.
+     *
+     * @return The evaluated count.
+     */
+    public int getEvaluated() {
+        return evaluated;
+    }
+
+    /**
+     * Returns the number of guesses the full search would have scored.
+     *
+     * @return The planned count.
+     */
+    public int getPlanned() {
+        return planned;
+    }
+
+    /**
+     * Checks if the search scored every planned guess before the deadline.
+     *
+     * @return True if the search completed, false if it was cut short.
+     */
+    public boolean isComplete() {
+        return evaluated >= planned;
+    }
+
+    /**
+     * Returns the share of planned guesses that were scored.
+     *
+     * @return The quality, from 0 to 1.
+     */
+    public double getQuality() {
+        return planned == 0 ? 1.0 : (double) evaluated / planned;
+    }
+
+    /**
+     * Returns the expected number of candidates left after the suggested guess.
+     *
+     * @return The expected candidate count.
+     */
+    public double getExpectedRemaining() {
+        return expectedRemaining;
+    }
+
+    /**
+     * Returns the time spent on the search.
+     *
+     * @return The elapsed time in nanoseconds.
+     */
+    public long getElapsedNanos() {
+        return elapsedNanos;
+    }
+}
@@ -0,0 +1,173 @@
+import java.util.Arrays;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.RecursiveTask;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * The HintSearch class finds the best next guess within a deadline.
+ * Guesses are scored in priority order, first the remaining candidates and then sampled probes from the dictionary,
+ * by fork-join workers that claim the next guess from a shared cursor. Every worker checks the deadline and a shared
+ * cancellation flag between guesses, so the search stops promptly and returns the best guess found so far.
+ * The dictionary is filtered down to the candidates in one pass that checks the deadline as well; if time runs out
+ * there, the hint is the first candidate found, and it is marked incomplete.
+ */
+public class HintSearch {
+
+    public static final int PROBES = 1024; // Number of non-candidate guesses sampled from the dictionary.
+    private static final int DEADLINE_STRIDE = 4096; // Dictionary entries filtered between deadline checks, a power of two.
+
+    private final int[] order; // The guesses to score, in priority order.
+    private final int[] candidates; // The equations consistent with the feedback.
+    private final long deadline; // The System.nanoTime() value at which the search stops.
+    private final AtomicInteger cursor = new AtomicInteger(); // The next position of order to score.
+    private final AtomicBoolean cancelled = new AtomicBoolean(); // Set once any worker sees the deadline pass.
+
+    /**
+     * Constructs a search.
+     *
+     * @param order      The guesses to score, in priority order.
+     * @param candidates The equations consistent with the feedback.
+     * @param deadline   The System.nanoTime() value at which the search stops.
+     */
+    private HintSearch(int[] order, int[] candidates, long deadline) {
+        this.order = order;
+        this.candidates = candidates;
+        this.deadline = deadline;
+    }
+
+    /**
+     * Finds the best next guess for the feedback received so far.
+     *
+     * @param dictionary The packed dictionary the target is drawn from.
+     * @param guesses    The packed guesses played so far.
+     * @param patterns   The feedback patterns received for them.
+     * @param rows       The number of rows played.
+     * @param deadline   The System.nanoTime() value at which the search must return.
+     * @return The hint; if the deadline passed while filtering the dictionary, it scored no guess and its planned
+     *         count is the dictionary size.
+     */
+    public static Hint search(int[] dictionary, int[] guesses, int[] patterns, int rows, long deadline) {
+        long start = System.nanoTime();
+        int[] candidates = new int[Math.min(dictionary.length, PROBES)];
+        int count = 0;
+        for (int i = 0; i < dictionary.length; i++) {
+            if ((i & (DEADLINE_STRIDE - 1)) == 0 && System.nanoTime() - deadline >= 0) {
+                // Every candidate found so far fits the feedback, but the count is only a lower bound
+                return new Hint(count == 0 ? null : EquationCodec.unpack(candidates[0]), count, 0, dictionary.length, count,
+                        System.nanoTime() - start);
+            }
+            if (fits(dictionary[i], guesses, patterns, rows)) {
+                if (count == candidates.length) {
+                    candidates = Arrays.copyOf(candidates, count * 2);
+                }
+                candidates[count++] = dictionary[i];
+            }
+        }
+        if (count == 0) {
+            return new Hint(null, 0, 0, 0, 0, System.nanoTime() - start);
+        }
+        if (count <= 2) {
+            return new Hint(EquationCodec.unpack(candidates[0]), count, 0, 0, count == 1 ? 0 : 1, System.nanoTime() - start);
+        }
+        candidates = Arrays.copyOf(candidates, count);
+
+        // Remaining candidates first, then a sample of the dictionary as probes
+        int probes = Math.min(PROBES, dictionary.length);
+        int[] order = Arrays.copyOf(candidates, count + probes);
+        EquationPermutation sample = new EquationPermutation(dictionary.length, ThreadLocalRandom.current().nextLong());
+        for (int i = 0; i < probes; i++) {
+            order[count + i] = dictionary[sample.indexAt(i)];
+        }
+
+        HintSearch search = new HintSearch(order, candidates, deadline);
+        int workers = ForkJoinPool.commonPool().getParallelism();
+        Worker[] tasks = new Worker[workers];
+        for (int i = 0; i < workers; i++) {
+            tasks[i] = search.new Worker();
+        }
+        ForkJoinTask.invokeAll(tasks);
+
+        // Merge the workers' results; on equal scores the earlier guess wins, so candidates beat probes
+        Best best = null;
+        int evaluated = 0;
+        for (Worker task : tasks) {
+            Best result = task.join();
+            evaluated += result.evaluated;
+            if (result.position >= 0 && (best == null || result.score < best.score
+                    || (result.score == best.score && result.position < best.position))) {
+                best = result;
+            }
+        }
+        if (best == null) {
+            return new Hint(EquationCodec.unpack(candidates[0]), count, 0, order.length, count, System.nanoTime() - start);
+        }
+        return new Hint(EquationCodec.unpack(order[best.position]), count, evaluated, order.length,
+                (double) best.score / count, System.nanoTime() - start);
+    }
+
+    /**
+     * Checks whether an equation could be the target, given the feedback received so far.
+     *
+     * @param equation The packed equation.
+     * @param guesses  The packed guesses played so far.
+     * @param patterns The feedback patterns received for them.
+     * @param rows     The number of rows played.
+     * @return True if every row would have received its feedback against the equation.
+     */
+    private static boolean fits(int equation, int[] guesses, int[] patterns, int rows) {
+        for (int row = 0; row < rows; row++) {
+            // A row holding no packable guess tells nothing about the target
+            if (guesses[row] >= 0 && NumberleSolver.feedback(guesses[row], equation) != patterns[row]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * The Best class holds the best guess a worker found.
+     */
+    private static final class Best {
+        private int position = -1; // The position of the best guess in the order, or -1 if none was scored.
+        private long score = Long.MAX_VALUE; // The score of the best guess.
+        private int evaluated; // The number of guesses the worker scored.
+    }
+
+    /**
+     * The Worker class scores guesses claimed from the shared cursor until the order is exhausted or the search stops.
+     */
+    @SuppressWarnings("serial") // Tasks are never serialized
+    private final class Worker extends RecursiveTask<Best> {
+
+        /**
+         * Scores guesses and returns the best one.
+         *
+         * @return The best guess of this worker.
+         */
+        @Override
+        protected Best compute() {
+            Best best = new Best();
+            int[] counts = new int[NumberleSolver.PATTERNS];
+            while (!cancelled.get()) {
+                if (System.nanoTime() - deadline >= 0) {
+                    cancelled.set(true); // Tell the other workers to stop
+                    break;
+                }
+                int position = cursor.getAndIncrement();
+                if (position >= order.length) {
+                    break;
+                }
+                long score = NumberleSolver.score(order[position], candidates, candidates.length, counts);
+                best.evaluated++;
+                if (score < best.score || (score == best.score && position < best.position)) {
+                    best.score = score;
+                    best.position = position;
+                }
+            }
+            return best;
+        }
+    }
+}
@@ -1,3 +1,5 @@
+import java.time.LocalDate;
+
 /**
  * The INumberleModel interface defines the contract for the Numberle game model.
  */
@@ -72,10 +74,26 @@ public interface INumberleModel {
      */
     String getRandomEquation(String input);
 
+    /**
+     * Generates a random equation of the given difficulty from a rated dictionary.
+     *
+     * @param input  The rated dictionary file.
+     * @param bucket The difficulty bucket to draw from.
+     * @return The randomly generated equation.
+     */
+    String getRandomEquation(String input, DifficultyBucket bucket);
+
+    /**
+     * Sets the difficulty of the random targets of new games.
+     *
+     * @param difficulty The difficulty bucket, or null for any difficulty.
+     */
+    void setDifficulty(DifficultyBucket difficulty);
+
     /**
      * Retrieves the color values of the game components.
      *
-     * @return A two-dimensional array containing the color values.
+     * @return A copy of the two-dimensional array containing the color values.
      */
     int[][] getColor();
 
@@ -96,6 +114,14 @@ public interface INumberleModel {
      */
     Boolean compare(String equation, String targetEquations);
 
+    /**
+     * Computes a hint for the next guess, returning the best guess found by the deadline.
+     *
+     * @param deadline The System.nanoTime() value at which the hint must be returned.
+     * @return The hint.
+     */
+    Hint getHint(long deadline);
+
     /**
      * Retrieves the button color values.
      *
@@ -114,4 +140,128 @@ public interface INumberleModel {
      * Toggles the random mode of the game.
      */
     void setRandom();
+
+    /**
+     * Retrieves the daily puzzle of the given date.
+     *
+     * @param date The date of the puzzle.
+     * @return The target equation of the date.
+     */
+    String getDailyEquation(LocalDate date);
+
+    /**
+     * Checks if the game is currently in daily puzzle mode.
+     *
+     * @return True if the game is in daily puzzle mode, false otherwise.
+     */
+    boolean getDaily();
+
+    /**
+     * Toggles the daily puzzle mode of the game.
+     */
+    void setDaily();
+
+    /**
+     * Checks if the game is currently in adversarial mode, where the target is chosen as late as possible.
+     *
+     * @return True if the game is in adversarial mode, false otherwise.
+     */
+    boolean getAdversarial();
+
+    /**
+     * Toggles the adversarial mode of the game.
+     */
+    void setAdversarial();
+
+    /**
+     * Checks if the game is currently in strict mode, where a guess must be an equation of the dictionary.
+     *
+     * @return True if the game is in strict mode, false otherwise.
+     */
+    boolean getStrict();
+
+    /**
+     * Toggles the strict mode of the game.
+     */
+    void setStrict();
+
+    /**
+     * Returns the mode of the games, e.g. "daily".
+     *
+     * @return The mode.
+     */
+    String getMode();
+
+    /**
+     * Makes the following games part of a race, where every player gets the same target and is ranked by guesses and time.
+     *
+     * @param race The race, or null to play alone.
+     */
+    void setRace(Race race);
+
+    /**
+     * Returns the race the games belong to.
+     *
+     * @return The race, or null.
+     */
+    Race getRace();
+
+    /**
+     * Checks if the game is currently in speed-run mode, where a game has a time budget.
+     *
+     * @return True if the game is in speed-run mode, false otherwise.
+     */
+    boolean getSpeedRun();
+
+    /**
+     * Toggles the speed-run mode of the game.
+     */
+    void setSpeedRun();
+
+    /**
+     * Returns the clock of speed-run games.
+     *
+     * @return The clock, holding the timings of the last game.
+     */
+    SpeedRun getClock();
+
+    /**
+     * Returns the timings of every speed-run game of the player.
+     *
+     * @return The aggregate of the finished games.
+     */
+    SpeedRun getSpeedRunTotals();
+
+    /**
+     * Checks if the time budget of a speed-run game has run out.
+     *
+     * @return True if the time has run out, false otherwise.
+     */
+    boolean isOutOfTime();
+
+    /**
+     * Ends a speed-run game whose time budget has run out.
+     *
+     * @return True if the game ended on this call, false otherwise.
+     */
+    boolean checkClock();
+
+    /**
+     * Records that the player typed a symbol onto the current guess.
+     *
+     * @param symbol The symbol typed.
+     */
+    void typeSymbol(char symbol);
+
+    /**
+     * Records that the player deleted the last symbol of the current guess.
+     */
+    void deleteSymbol();
+
+    /**
+     * Retrieves the last published immutable view of the game, which can be read from any thread.
+     *
+     * @return The game state.
+     */
+    GameState getState();
 }
\ No newline at end of file
@@ -0,0 +1,350 @@
+import java.io.IOException;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * The JournalReplayer class reads the events of a GameJournal file back.
+ * The file is memory-mapped in large windows and every record is handed to a Visitor as primitives,
+ * so a replay allocates nothing per event. On top of that it rebuilds one game or recomputes the
+ * statistics of all games.
+ * Usage: JournalReplayer &lt;journal file&gt; [game id]
+ */
+public class JournalReplayer {
+
+    private static final long WINDOW = (Integer.MAX_VALUE / GameJournal.RECORD_SIZE) * (long) GameJournal.RECORD_SIZE; // Bytes mapped at a time.
+
+    /**
+     * The Visitor interface receives the events of a journal in file order.
+     */
+    public interface Visitor {
+
+        /**
+         * Receives one event.
+         *
+         * @param gameId   The game.
+         * @param playerId The player of the game, or the session id of a HOSTED event.
+         * @param type     The event type, e.g. GameJournal.SCORED.
+         * @param symbol   The symbol, row or guess count.
+         * @param pattern  The feedback pattern.
+         * @param value    The packed equation or result.
+         */
+        void event(long gameId, long playerId, int type, int symbol, int pattern, int value);
+    }
+
+    /**
+     * Prevents instantiation of the utility class.
+     */
+    private JournalReplayer() {
+    }
+
+    /**
+     * Replays every event of a journal.
+     *
+     * @param file    The journal file.
+     * @param visitor The receiver of the events.
+     * @return The number of events replayed.
+     * @throws IOException If the file cannot be read or is not a journal.
+     */
+    public static long replay(Path file, Visitor visitor) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            long size = channel.size();
+            if (size < GameJournal.HEADER_SIZE) {
+                throw new IOException("Not a game journal: " + file);
+            }
+            MappedByteBuffer header = channel.map(FileChannel.MapMode.READ_ONLY, 0, GameJournal.HEADER_SIZE);
+            if (header.getInt() != GameJournal.MAGIC || header.getInt() != GameJournal.VERSION) {
+                throw new IOException("Not a game journal: " + file);
+            }
+
+            long events = (size - GameJournal.HEADER_SIZE) / GameJournal.RECORD_SIZE; // A torn last record is ignored
+            long end = GameJournal.HEADER_SIZE + events * GameJournal.RECORD_SIZE;
+            for (long position = GameJournal.HEADER_SIZE; position < end; position += WINDOW) {
+                MappedByteBuffer window = channel.map(FileChannel.MapMode.READ_ONLY, position, Math.min(WINDOW, end - position));
+                window.order(ByteOrder.BIG_ENDIAN);
+                int limit = window.limit();
+                for (int offset = 0; offset < limit; offset += GameJournal.RECORD_SIZE) {
+                    visitor.event(window.getLong(offset), window.getLong(offset + 8), window.get(offset + 16),
+                            window.get(offset + 17), window.getShort(offset + 18), window.getInt(offset + 20));
+                }
+            }
+            return events;
+        }
+    }
+
+    /**
+     * Rebuilds one game from a journal.
+     *
+     * @param file   The journal file.
+     * @param gameId The game.
+     * @return The game, or null if the journal does not contain it.
+     * @throws IOException If the file cannot be read or is not a journal.
+     */
+    public static Game rebuild(Path file, long gameId) throws IOException {
+        Game game = new Game(gameId);
+        replay(file, (id, playerId, type, symbol, pattern, value) -> {
+            if (id == gameId) {
+                game.apply(playerId, type, symbol, pattern, value);
+            }
+        });
+        return game.started ? game : null;
+    }
+
+    /**
+     * Recomputes the statistics of every finished game of a journal.
+     *
+     * @param file The journal file.
+     * @return The statistics.
+     * @throws IOException If the file cannot be read or is not a journal.
+     */
+    public static GlobalStatistics statistics(Path file) throws IOException {
+        GlobalStatistics statistics = new GlobalStatistics();
+        replay(file, (gameId, playerId, type, symbol, pattern, value) -> {
+            if (type == GameJournal.OVER) { // It carries the final target, also of an adversarial game
+                statistics.record(value < 0 ? null : EquationCodec.unpack(value), pattern == 1, symbol);
+            }
+        });
+        return statistics;
+    }
+
+    /**
+     * The Game class is one game rebuilt from its events.
+     */
+    public static final class Game {
+
+        private final long gameId; // The game.
+        private long playerId; // The player of the game.
+        private boolean started; // Indicates whether the start event was seen.
+        private boolean adversarial; // Indicates whether the target was chosen as the game went.
+        private int target = -1; // The packed target, final once the game is over.
+        private final int[] guesses = new int[INumberleModel.MAX_ATTEMPTS]; // The packed guess of each scored row.
+        private final int[] patterns = new int[INumberleModel.MAX_ATTEMPTS]; // The feedback pattern of each scored row.
+        private int rows; // The number of scored rows.
+        private int keys; // The number of symbols typed.
+        private int deletes; // The number of symbols deleted.
+        private boolean over; // Indicates whether the game ended.
+        private boolean won; // Indicates whether the game was won.
+        private boolean abandoned; // Indicates whether the game was discarded before it ended.
+        private long sessionId = -1; // The session id a node hosted the game under, or -1.
+        private boolean imported; // Indicates whether the game was imported from another node.
+
+        /**
+         * Constructs an empty game.
+         *
+         * @param gameId The game.
+         */
+        private Game(long gameId) {
+            this.gameId = gameId;
+        }
+
+        /**
+         * Applies one event of the game.
+         *
+         * @param playerId The player of the game.
+         * @param type     The event type.
+         * @param symbol   The symbol, row or guess count.
+         * @param pattern  The feedback pattern.
+         * @param value    The packed equation or result.
+         */
+        private void apply(long playerId, int type, int symbol, int pattern, int value) {
+            if (type == GameJournal.HOSTED) {
+                sessionId = playerId; // The record carries the session id instead of the player
+                imported = symbol == 1;
+                return;
+            }
+            this.playerId = playerId; // The player may be identified after the game started
+            switch (type) {
+                case GameJournal.STARTED:
+                    started = true;
+                    adversarial = pattern == GameJournal.ADVERSARIAL;
+                    target = value;
+                    over = false; // The game was started again
+                    abandoned = false;
+                    break;
+                case GameJournal.KEY:
+                    keys++;
+                    break;
+                case GameJournal.DELETE:
+                    deletes++;
+                    break;
+                case GameJournal.SCORED:
+                    if (symbol >= 0 && symbol < guesses.length) {
+                        guesses[symbol] = value;
+                        patterns[symbol] = pattern;
+                        rows = Math.max(rows, symbol + 1);
+                    }
+                    break;
+                case GameJournal.OVER:
+                    over = true;
+                    won = pattern == 1;
+                    target = value;
+                    break;
+                case GameJournal.ABANDONED:
+                    abandoned = true;
+                    break;
+                default:
+                    break;
+            }
+        }
+
+        /**
+         * Returns the player of the game.
+         *
+         * @return The player id.
+         */
+        public long getPlayerId() {
+            return playerId;
+        }
+
+        /**
+         * Returns the target equation. The target of an adversarial game is only final once it is over.
+         *
+         * @return The target, or null if it could not be packed.
+         */
+        public String getTargetEquation() {
+            return target < 0 ? null : EquationCodec.unpack(target);
+        }
+
+        /**
+         * Returns the number of scored rows.
+         *
+         * @return The row count.
+         */
+        public int getRows() {
+            return rows;
+        }
+
+        /**
+         * Returns the guess of a scored row.
+         *
+         * @param row The row, from 0.
+         * @return The guess, or null if it could not be packed.
+         */
+        public String getGuess(int row) {
+            return guesses[row] < 0 ? null : EquationCodec.unpack(guesses[row]);
+        }
+
+        /**
+         * Returns the feedback pattern of a scored row.
+         *
+         * @param row The row, from 0.
+         * @return The pattern, see NumberleSolver.
+         */
+        public int getPattern(int row) {
+            return patterns[row];
+        }
+
+        /**
+         * Returns the number of symbols typed.
+         *
+         * @return The key count.
+         */
+        public int getKeys() {
+            return keys;
+        }
+
+        /**
+         * Returns the number of symbols deleted.
+         *
+         * @return The delete count.
+         */
+        public int getDeletes() {
+            return deletes;
+        }
+
+        /**
+         * Checks whether the game ended.
+         *
+         * @return True if the game ended.
+         */
+        public boolean isOver() {
+            return over;
+        }
+
+        /**
+         * Checks whether the game was won.
+         *
+         * @return True if the game was won.
+         */
+        public boolean isWon() {
+            return won;
+        }
+
+        /**
+         * Checks whether the target was chosen as the game went, in adversarial mode.
+         *
+         * @return True if the game was adversarial.
+         */
+        public boolean isAdversarial() {
+            return adversarial;
+        }
+
+        /**
+         * Checks whether the game was discarded before it ended.
+         *
+         * @return True if the game was abandoned.
+         */
+        public boolean isAbandoned() {
+            return abandoned;
+        }
+
+        /**
+         * Returns the session id a node hosted the game under, which finds it in the journals of other nodes.
+         *
+         * @return The session id, or -1 if the game was not hosted by a session node.
+         */
+        public long getSessionId() {
+            return sessionId;
+        }
+
+        /**
+         * Checks whether the game was imported from another node, whose journal holds its earlier rows.
+         *
+         * @return True if the game was imported.
+         */
+        public boolean isImported() {
+            return imported;
+        }
+
+        @Override
+        public String toString() {
+            StringBuilder text = new StringBuilder("game " + gameId + " player " + playerId + " target " + getTargetEquation());
+            for (int row = 0; row < rows; row++) {
+                text.append(System.lineSeparator()).append("  ").append(getGuess(row)).append(' ').append(patterns[row]);
+            }
+            text.append(System.lineSeparator()).append("  keys ").append(keys).append(", deletes ").append(deletes)
+                    .append(over ? (won ? ", won" : ", lost") : abandoned ? ", abandoned" : ", unfinished");
+            return text.toString();
+        }
+    }
+
+    /**
+     * Prints one game of a journal, or replays all of it and prints the recomputed statistics and the replay speed.
+     *
+     * @param args The journal file and an optional game id.
+     * @throws IOException If the file cannot be read or is not a journal.
+     */
+    public static void main(String[] args) throws IOException {
+        if (args.length < 1) {
+            System.out.println("Usage: JournalReplayer <journal file> [game id]");
+            return;
+        }
+        Path file = Paths.get(args[0]);
+        if (args.length > 1) {
+            Game game = rebuild(file, Long.parseLong(args[1]));
+            System.out.println(game == null ? "No such game" : game);
+            return;
+        }
+
+        long[] checksum = new long[1];
+        long start = System.nanoTime();
+        long events = replay(file, (gameId, playerId, type, symbol, pattern, value) -> checksum[0] += type + value);
+        long nanos = System.nanoTime() - start;
+        System.out.printf("Replayed %d events in %.1f ms: %.1f million events/s (checksum %d)%n", events, nanos / 1e6,
+                events * 1e3 / nanos, checksum[0]);
+        System.out.println(statistics(file).snapshot());
+    }
+}
@@ -0,0 +1,134 @@
+/**
+ * The LatencyHistogram class counts durations in log-linear buckets: each power of two of nanoseconds
+ * is split into SUB_BUCKETS equal buckets, so percentiles are accurate to within 1 / SUB_BUCKETS.
+ * A histogram is written by one thread; others may read it while it is written and see slightly stale counts.
+ * Histograms merge by adding buckets.
+ */
+public final class LatencyHistogram {
+
+    private static final int SUB_BITS = 3; // log2 of the number of sub-buckets per power of two.
+    private static final int SUB_BUCKETS = 1 << SUB_BITS; // Sub-buckets per power of two.
+    private static final int BUCKETS = (64 - SUB_BITS + 1) * SUB_BUCKETS; // Buckets covering every long.
+
+    private final long[] counts = new long[BUCKETS]; // The count of each bucket.
+    private long count; // The number of recorded durations.
+    private long total; // The sum of the recorded durations.
+    private long max; // The longest recorded duration.
+
+    /**
+     * Records a duration.
+     *
+     * @param nanos The duration in nanoseconds, not negative.
+     */
+    public void record(long nanos) {
+        counts[bucket(nanos)]++;
+        count++;
+        total += nanos;
+        if (nanos > max) {
+            max = nanos;
+        }
+    }
+
+    /**
+     * Adds the counts of another histogram to this one.
+     *
+     * @param other The histogram to add.
+     */
+    public void merge(LatencyHistogram other) {
+        for (int i = 0; i < BUCKETS; i++) {
+            counts[i] += other.counts[i];
+        }
+        count += other.count;
+        total += other.total;
+        max = Math.max(max, other.max);
+    }
+
+    /**
+     * Clears the histogram.
+     */
+    public void reset() {
+        java.util.Arrays.fill(counts, 0);
+        count = 0;
+        total = 0;
+        max = 0;
+    }
+
+    /**
+     * Returns the number of recorded durations.
+     *
+     * @return The count.
+     */
+    public long getCount() {
+        return count;
+    }
+
+    /**
+     * Returns the mean recorded duration.
+     *
+     * @return The mean in nanoseconds, or 0 if nothing was recorded.
+     */
+    public double getMean() {
+        return count == 0 ? 0 : (double) total / count;
+    }
+
+    /**
+     * Returns the longest recorded duration.
+     *
+     * @return The maximum in nanoseconds.
+     */
+    public long getMax() {
+        return max;
+    }
+
+    /**
+     * Returns a percentile of the recorded durations.
+     *
+     * @param percentile The percentile, from 0 to 100.
+     * @return The upper bound of the bucket holding the percentile, in nanoseconds, or 0 if nothing was recorded.
+     */
+    public long getPercentile(double percentile) {
+        if (count == 0) {
+            return 0;
+        }
+        long rank = (long) Math.ceil(percentile / 100 * count);
+        long seen = 0;
+        for (int i = 0; i < BUCKETS; i++) {
+            seen += counts[i];
+            if (seen >= rank && counts[i] > 0) {
+                return Math.min(upperBound(i), max);
+            }
+        }
+        return max;
+    }
+
+    /**
+     * Returns the bucket of a duration.
+     *
+     * @param nanos The duration.
+     * @return The bucket index.
+     */
+    private static int bucket(long nanos) {
+        if (nanos < SUB_BUCKETS) {
+            return (int) Math.max(nanos, 0); // Small values are exact
+        }
+        int exponent = 63 - Long.numberOfLeadingZeros(nanos); // At least SUB_BITS
+        int sub = (int) (nanos >>> (exponent - SUB_BITS)) & (SUB_BUCKETS - 1);
+        return (exponent - SUB_BITS + 1) * SUB_BUCKETS + sub;
+    }
+
+    /**
+     * Returns the largest duration that falls into a bucket.
+     *
+     * @param bucket The bucket index.
+     * @return The upper bound in nanoseconds.
+     */
+    private static long upperBound(int bucket) {
+        if (bucket < SUB_BUCKETS) {
+            return bucket;
+        }
+        int exponent = bucket / SUB_BUCKETS + SUB_BITS - 1;
+        long sub = bucket % SUB_BUCKETS;
+        long width = 1L << (exponent - SUB_BITS);
+        return (1L << exponent) + (sub + 1) * width - 1;
+    }
+}
@@ -0,0 +1,58 @@
+/**
+ * The MetricsBenchmark class measures the cost of the ModelMetrics timers, disabled and enabled,
+ * alone and around compare.
+ * Usage: MetricsBenchmark [iterations]
+ */
+public class MetricsBenchmark {
+
+    private static long sink; // Consumes results so the JIT keeps the measured work.
+
+    /**
+     * Runs the benchmark.
+     *
+     * @param args The optional number of iterations.
+     */
+    public static void main(String[] args) {
+        int iterations = args.length > 0 ? Integer.parseInt(args[0]) : 20_000_000;
+        ModelMetrics metrics = ModelMetrics.getInstance();
+        NumberleModel model = new NumberleModel();
+        model.initialize();
+        String target = model.getTargetEquations();
+
+        for (int round = 0; round < 3; round++) { // The first rounds warm up the JIT
+            for (boolean enabled : new boolean[]{false, true}) {
+                metrics.setEnabled(enabled);
+                String mode = enabled ? " enabled" : " disabled";
+
+                long start = System.nanoTime();
+                for (int i = 0; i < iterations; i++) {
+                    long timing = ModelMetrics.start();
+                    sink += timing;
+                    ModelMetrics.stop(ModelMetrics.Timer.COMPARE, timing);
+                }
+                report("round " + round + " timer" + mode, iterations, System.nanoTime() - start);
+
+                int games = iterations / 20;
+                start = System.nanoTime();
+                for (int i = 0; i < games; i++) {
+                    sink += model.compare("2+4=6-0", target) ? 1 : 0;
+                }
+                report("round " + round + " compare" + mode, games, System.nanoTime() - start);
+            }
+        }
+        metrics.setEnabled(false);
+        System.out.print(metrics.getReport());
+        System.out.println("sink " + sink);
+    }
+
+    /**
+     * Prints the throughput of a measured loop.
+     *
+     * @param name       The name of the measurement.
+     * @param operations The number of operations.
+     * @param nanos      The elapsed time in nanoseconds.
+     */
+    private static void report(String name, int operations, long nanos) {
+        System.out.printf("%-28s %12.0f ops/s %8.1f ns/op%n", name, operations * 1e9 / nanos, (double) nanos / operations);
+    }
+}
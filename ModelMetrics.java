@@ -0,0 +1,293 @@
+import java.lang.management.ManagementFactory;
+import java.util.Iterator;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.TimeUnit;
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+
+/**
+ * The ModelMetrics class times the hot paths of the model and the view.
+ * Each thread records into its own LatencyHistogram per timer, so the hot path writes only thread-owned memory;
+ * readers merge the histograms of all threads. The histograms of a thread that has ended are folded into a retired
+ * aggregate and unregistered, so threads that come and go do not grow the registry. When recording is disabled a timer costs one volatile read.
+ * Recording is off unless the numberle.metrics system property is true or it is enabled through JMX.
+ *
+ * <pre>
+ * long start = ModelMetrics.start();
+ * ...
+ * ModelMetrics.stop(ModelMetrics.Timer.COMPARE, start);
+ * </pre>
+ */
+public final class ModelMetrics implements ModelMetricsMBean {
+
+    /**
+     * The Timer enum names the instrumented code paths.
+     */
+    public enum Timer {
+        VALIDATE, COMPARE, RANDOM_EQUATION, INITIALIZE, VIEW_UPDATE, VIEW_ENTER
+    }
+
+    public static final String OBJECT_NAME = "numberle:type=ModelMetrics"; // The JMX name of the metrics.
+    private static final ModelMetrics INSTANCE = new ModelMetrics(); // The registered MBean.
+    private static final Timer[] TIMERS = Timer.values(); // The timers, indexed by ordinal.
+
+    private static volatile boolean enabled = Boolean.getBoolean("numberle.metrics"); // Indicates whether the timers record.
+    private static final long loadedNanos = System.nanoTime(); // The time the metrics were loaded, for rates.
+    private static final Queue<Recorder> threads = new ConcurrentLinkedQueue<>(); // The histograms of every live thread that recorded.
+    private static final LatencyHistogram[] retired = newHistograms(); // The calls of ended threads; also guards retirement.
+    private static final ThreadLocal<LatencyHistogram[]> local = ThreadLocal.withInitial(ModelMetrics::newThread); // The histograms of the current thread.
+    private final GlobalStatistics statistics = new GlobalStatistics(); // The results of the games of the process's app.
+
+    /**
+     * Constructs the MBean; use getInstance.
+     */
+    private ModelMetrics() {
+    }
+
+    /**
+     * Returns the MBean.
+     *
+     * @return The metrics.
+     */
+    public static ModelMetrics getInstance() {
+        return INSTANCE;
+    }
+
+    /**
+     * Returns the statistics of the games of the process's app; the app adds them as a listener of its games.
+     *
+     * @return The statistics.
+     */
+    public GlobalStatistics getStatistics() {
+        return statistics;
+    }
+
+    /**
+     * Registers the MBean with the platform MBean server, once.
+     */
+    public static synchronized void register() {
+        try {
+            MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+            ObjectName name = new ObjectName(OBJECT_NAME);
+            if (!server.isRegistered(name)) {
+                server.registerMBean(INSTANCE, name);
+            }
+        } catch (JMException e) {
+            throw new IllegalStateException("Cannot register " + OBJECT_NAME, e);
+        }
+    }
+
+    /**
+     * Starts a timing.
+     *
+     * @return The start time to pass to stop, or 0 if recording is disabled.
+     */
+    public static long start() {
+        return enabled ? System.nanoTime() : 0L;
+    }
+
+    /**
+     * Records the time since start in the current thread's histogram of a timer.
+     *
+     * @param timer The timer.
+     * @param start The value returned by start; 0 records nothing.
+     */
+    public static void stop(Timer timer, long start) {
+        if (start != 0L) {
+            local.get()[timer.ordinal()].record(System.nanoTime() - start);
+        }
+    }
+
+    /**
+     * Creates and publishes the histograms of a thread.
+     *
+     * @return One histogram per timer.
+     */
+    private static LatencyHistogram[] newThread() {
+        LatencyHistogram[] histograms = newHistograms();
+        synchronized (retired) {
+            retireEnded();
+            threads.add(new Recorder(Thread.currentThread(), histograms));
+        }
+        return histograms;
+    }
+
+    /**
+     * Creates one empty histogram per timer.
+     *
+     * @return The histograms.
+     */
+    private static LatencyHistogram[] newHistograms() {
+        LatencyHistogram[] histograms = new LatencyHistogram[TIMERS.length];
+        for (int i = 0; i < histograms.length; i++) {
+            histograms[i] = new LatencyHistogram();
+        }
+        return histograms;
+    }
+
+    /**
+     * Folds the histograms of ended threads into the retired ones and unregisters them.
+     * A thread's last recording happens-before isAlive returns false, so its histograms are complete.
+     * Must hold the lock on retired.
+     */
+    private static void retireEnded() {
+        for (Iterator<Recorder> i = threads.iterator(); i.hasNext(); ) {
+            Recorder recorder = i.next();
+            if (!recorder.owner.isAlive()) {
+                for (int timer = 0; timer < retired.length; timer++) {
+                    retired[timer].merge(recorder.histograms[timer]);
+                }
+                i.remove();
+            }
+        }
+    }
+
+    /**
+     * Returns the number of threads whose histograms are registered.
+     *
+     * @return The count, after retiring ended threads.
+     */
+    static int getThreadCount() {
+        synchronized (retired) {
+            retireEnded();
+            return threads.size();
+        }
+    }
+
+    /**
+     * Merges the histograms of all threads for a timer.
+     * Threads keep recording during the merge, so the result may miss their latest calls.
+     *
+     * @param timer The timer.
+     * @return A new histogram holding every recorded call.
+     */
+    public static LatencyHistogram merged(Timer timer) {
+        LatencyHistogram merged = new LatencyHistogram();
+        synchronized (retired) {
+            retireEnded();
+            merged.merge(retired[timer.ordinal()]);
+            for (Recorder recorder : threads) {
+                merged.merge(recorder.histograms[timer.ordinal()]);
+            }
+        }
+        return merged;
+    }
+
+    /**
+     * Returns whether the timers record.
+     *
+     * @return True if recording is enabled.
+     */
+    @Override
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * Turns recording on or off.
+     *
+     * @param enabled True to record.
+     */
+    @Override
+    public void setEnabled(boolean enabled) {
+        ModelMetrics.enabled = enabled;
+    }
+
+    /**
+     * Returns the number of calls recorded by a timer.
+     *
+     * @param timer The timer name.
+     * @return The call count.
+     */
+    @Override
+    public long getCount(String timer) {
+        return merged(Timer.valueOf(timer)).getCount();
+    }
+
+    /**
+     * Returns the mean call rate of a timer since the metrics were loaded.
+     *
+     * @param timer The timer name.
+     * @return The calls per second.
+     */
+    @Override
+    public double getRate(String timer) {
+        return rate(merged(Timer.valueOf(timer)).getCount());
+    }
+
+    /**
+     * Returns a latency percentile of a timer.
+     *
+     * @param timer      The timer name.
+     * @param percentile The percentile, from 0 to 100.
+     * @return The latency in nanoseconds.
+     */
+    @Override
+    public long getPercentile(String timer, double percentile) {
+        return merged(Timer.valueOf(timer)).getPercentile(percentile);
+    }
+
+    /**
+     * Returns a text table of every timer, with latencies in microseconds.
+     *
+     * @return The report.
+     */
+    @Override
+    public String getReport() {
+        StringBuilder report = new StringBuilder(String.format("%-16s %10s %10s %10s %10s %10s %10s%n",
+                "timer", "count", "rate/s", "mean", "p50", "p99", "max"));
+        for (Timer timer : TIMERS) {
+            LatencyHistogram histogram = merged(timer);
+            report.append(String.format("%-16s %10d %10.2f %10.1f %10.1f %10.1f %10.1f%n", timer,
+                    histogram.getCount(), rate(histogram.getCount()), histogram.getMean() / 1000,
+                    histogram.getPercentile(50) / 1000.0, histogram.getPercentile(99) / 1000.0,
+                    histogram.getMax() / 1000.0));
+        }
+        report.append(GuessCache.shared()).append(System.lineSeparator());
+        report.append(statistics.snapshot()).append(System.lineSeparator());
+        return report.toString();
+    }
+
+    /**
+     * Returns the share of validations answered by the shared GuessCache.
+     *
+     * @return The hit rate, from 0 to 1.
+     */
+    @Override
+    public double getGuessCacheHitRate() {
+        return GuessCache.shared().getHitRate();
+    }
+
+    /**
+     * Converts a count to a rate since the metrics were loaded.
+     *
+     * @param count The count.
+     * @return The count per second.
+     */
+    private static double rate(long count) {
+        long elapsed = System.nanoTime() - loadedNanos;
+        return elapsed <= 0 ? 0 : count * (double) TimeUnit.SECONDS.toNanos(1) / elapsed;
+    }
+
+    /**
+     * The Recorder class pairs the histograms of a thread with the thread, so they can be retired when it ends.
+     */
+    private static final class Recorder {
+
+        private final Thread owner; // The thread that writes the histograms.
+        private final LatencyHistogram[] histograms; // One histogram per timer.
+
+        /**
+         * Constructs a recorder.
+         *
+         * @param owner      The thread that writes the histograms.
+         * @param histograms One histogram per timer.
+         */
+        private Recorder(Thread owner, LatencyHistogram[] histograms) {
+            this.owner = owner;
+            this.histograms = histograms;
+        }
+    }
+}
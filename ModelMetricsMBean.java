@@ -0,0 +1,59 @@
+/**
+ * The ModelMetricsMBean interface is the JMX management interface of ModelMetrics.
+ * Timers are named after the constants of ModelMetrics.Timer, e.g. "COMPARE".
+ */
+public interface ModelMetricsMBean {
+
+    /**
+     * Returns whether the timers record.
+     *
+     * @return True if recording is enabled.
+     */
+    boolean isEnabled();
+
+    /**
+     * Turns recording on or off.
+     *
+     * @param enabled True to record.
+     */
+    void setEnabled(boolean enabled);
+
+    /**
+     * Returns the number of calls recorded by a timer.
+     *
+     * @param timer The timer name.
+     * @return The call count.
+     */
+    long getCount(String timer);
+
+    /**
+     * Returns the mean call rate of a timer since the metrics were loaded.
+     *
+     * @param timer The timer name.
+     * @return The calls per second.
+     */
+    double getRate(String timer);
+
+    /**
+     * Returns a latency percentile of a timer.
+     *
+     * @param timer      The timer name.
+     * @param percentile The percentile, from 0 to 100.
+     * @return The latency in nanoseconds.
+     */
+    long getPercentile(String timer, double percentile);
+
+    /**
+     * Returns the share of validations answered by the shared GuessCache.
+     *
+     * @return The hit rate, from 0 to 1.
+     */
+    double getGuessCacheHitRate();
+
+    /**
+     * Returns a text table of every timer, followed by the guess cache and the game statistics.
+     *
+     * @return The report.
+     */
+    String getReport();
+}
@@ -0,0 +1,41 @@
+import org.junit.After;
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+/**
+ * Tests for the ModelMetrics class.
+ */
+public class ModelMetricsTest {
+
+    /**
+     * Turns recording back off after each test.
+     */
+    @After
+    public void tearDown() {
+        ModelMetrics.getInstance().setEnabled(false);
+    }
+
+    /**
+     * Tests that the histograms of ended threads are retired without losing their calls.
+     *
+     * This test records one call on each of many short-lived threads.
+     *
+     * @pre Recording is enabled.
+     * @post Every call is counted, and no ended thread stays registered.
+     */
+    @Test
+    public void testEndedThreadsAreRetired() throws InterruptedException {
+        ModelMetrics.getInstance().setEnabled(true);
+        long before = ModelMetrics.merged(ModelMetrics.Timer.COMPARE).getCount();
+        int registered = ModelMetrics.getThreadCount();
+        for (int i = 0; i < 100; i++) {
+            Thread thread = new Thread(() -> ModelMetrics.stop(ModelMetrics.Timer.COMPARE, ModelMetrics.start()));
+            thread.start();
+            thread.join();
+        }
+
+        assertEquals(before + 100, ModelMetrics.merged(ModelMetrics.Timer.COMPARE).getCount());
+        assertTrue(ModelMetrics.getThreadCount() <= registered);
+    }
+}
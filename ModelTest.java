@@ -1,3 +1,14 @@
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+
 import org.junit.Before;
 import org.junit.Test;
 
@@ -82,5 +93,624 @@ public class ModelTest {
         assertEquals(Integer.valueOf(3), numberleModel.validateEquation("1+2=3+4"));
     }
 
+    /**
+     * Tests the random target sequence of NumberleModel.
+     *
+     * This test serves a whole dictionary in random mode and checks that no target repeats,
+     * and that the same seed reproduces the same sequence.
+     *
+     * @pre The NumberleModel instance is in random mode and uses a temporary dictionary of 50 equations.
+     * @post Every equation is served exactly once per pass, in the order determined by the seed.
+     */
+    @Test
+    public void testRandomEquationDoesNotRepeat() throws IOException {
+        Path file = Files.createTempFile("equations", ".txt");
+        List<String> equations = new ArrayList<>();
+        for (int i = 0; i < 50; i++) {
+            equations.add(String.format("%02d+0=%02d", i, i));
+        }
+        Files.write(file, equations);
+
+        numberleModel.setRandom();
+        numberleModel.setSequence(42, 0);
+        Set<String> served = new HashSet<>();
+        List<String> order = new ArrayList<>();
+        for (int i = 0; i < equations.size(); i++) {
+            String target = numberleModel.getRandomEquation(file.toString());
+            assertTrue(served.add(target));
+            order.add(target);
+        }
+        assertEquals(new HashSet<>(equations), served);
+
+        numberleModel.setSequence(42, 0);
+        for (String target : order) {
+            assertEquals(target, numberleModel.getRandomEquation(file.toString()));
+        }
+    }
+
+    /**
+     * Tests the snapshot and restore methods of NumberleModel.
+     *
+     * This test scores two rows, snapshots the game and restores it into a new model.
+     *
+     * @pre The NumberleModel instance is in strict and speed-run mode and has two scored rows.
+     * @post The restored model has the same target, attempts, colors, button colors and modes, and the snapshot is GameSnapshot.SIZE bytes.
+     */
+    @Test
+    public void testSnapshotRoundTrip() {
+        numberleModel.setStrict();
+        numberleModel.setSpeedRun();
+        for (String guess : new String[]{"2+4=6-0", "1+3=4+0"}) {
+            numberleModel.compare(guess, numberleModel.getTargetEquations());
+            numberleModel.processInput(guess);
+        }
+
+        byte[] snapshot = GameSnapshot.take(numberleModel);
+        NumberleModel restored = GameSnapshot.restore(snapshot);
+
+        assertEquals(GameSnapshot.SIZE, snapshot.length);
+        assertEquals(numberleModel.getTargetEquations(), restored.getTargetEquations());
+        assertEquals(numberleModel.getRemainingAttempts(), restored.getRemainingAttempts());
+        assertEquals(numberleModel.isGameWon(), restored.isGameWon());
+        assertTrue(restored.getStrict());
+        assertTrue(restored.getSpeedRun());
+        assertFalse(restored.isOutOfTime());
+        assertArrayEquals(numberleModel.getButtonColor(), restored.getButtonColor());
+        for (int row = 0; row < 2; row++) {
+            assertArrayEquals(numberleModel.getColor()[row], restored.getColor()[row]);
+        }
+        int timed = GameSnapshot.SIZE - Integer.BYTES; // The restored clock runs on, so its time may differ
+        assertArrayEquals(Arrays.copyOf(snapshot, timed), Arrays.copyOf(GameSnapshot.take(restored), timed));
+
+        numberleModel.setStrict();
+        numberleModel.setSpeedRun();
+        restored = GameSnapshot.restore(GameSnapshot.take(numberleModel));
+        assertFalse(restored.getStrict());
+        assertFalse(restored.getSpeedRun());
+    }
+
+    /**
+     * Tests that a restored speed-run game goes on from the time it had used.
+     *
+     * This test snapshots a game after 30 ms of play, and snapshots the restored game again.
+     *
+     * @pre The NumberleModel instance plays speed runs.
+     * @post Both restored clocks have used at least 30 ms and are still running within the budget.
+     */
+    @Test
+    public void testSpeedRunSnapshotKeepsClock() throws InterruptedException {
+        numberleModel.setSpeedRun();
+        numberleModel.initialize();
+        Thread.sleep(30);
+
+        NumberleModel restored = GameSnapshot.restore(GameSnapshot.take(numberleModel));
+        assertTrue(restored.getClock().getElapsedMillis() >= 30);
+        restored = GameSnapshot.restore(GameSnapshot.take(restored));
+        assertTrue(restored.getClock().getElapsedMillis() >= 30);
+        assertTrue(restored.getClock().isRunning());
+        assertFalse(restored.isOutOfTime());
+    }
+
+    /**
+     * Tests a speed-run win entered after the budget ran out, and the totals of the player's speed runs.
+     *
+     * This test guesses the target after a 1 ms budget ran out, then wins a game within the default budget.
+     *
+     * @pre The NumberleModel instance plays speed runs and has a listener.
+     * @post The late guess is not reported as scored and loses; the totals count two games and one win.
+     */
+    @Test
+    public void testSpeedRunLateWinIsNotScored() throws InterruptedException {
+        List<Integer> patterns = new ArrayList<>();
+        boolean[] result = new boolean[1];
+        numberleModel.addGameListener(new GameListener() {
+            @Override
+            public void rowScored(NumberleModel model, int row, int guess, int pattern) {
+                patterns.add(pattern);
+            }
+
+            @Override
+            public void gameOver(NumberleModel model, boolean won, int guesses) {
+                result[0] = won;
+            }
+        });
+        numberleModel.setSpeedRun();
+        numberleModel.getClock().setBudget(1);
+        numberleModel.initialize();
+        Thread.sleep(5);
+        assertFalse(numberleModel.compare("1+3=1+3", numberleModel.getTargetEquations()));
+        numberleModel.processInput("1+3=1+3");
+        assertTrue(patterns.isEmpty());
+        assertFalse(result[0]);
+        assertFalse(numberleModel.isGameWon());
+        assertTrue(numberleModel.getClock().isTimedOut());
+
+        numberleModel.getClock().setBudget(SpeedRun.DEFAULT_BUDGET_MILLIS);
+        numberleModel.initialize();
+        assertTrue(numberleModel.compare("1+3=1+3", numberleModel.getTargetEquations()));
+        numberleModel.processInput("1+3=1+3");
+        assertEquals(Integer.valueOf(NumberleSolver.SOLVED), patterns.get(0));
+        assertTrue(result[0]);
+        assertEquals(2, numberleModel.getSpeedRunTotals().getGames());
+        assertEquals(1, numberleModel.getSpeedRunTotals().getWins());
+    }
+
+    /**
+     * Tests that toggling speed-run mode clears the timeout of an earlier game.
+     *
+     * This test lets a speed-run game time out, then toggles the mode off and on again during the next game.
+     *
+     * @pre The NumberleModel instance plays speed runs with a budget of 1 ms.
+     * @post The timed-out game is out of time; the next game, started without a clock, is not over.
+     */
+    @Test
+    public void testSpeedRunToggleClearsTimeout() throws InterruptedException {
+        numberleModel.setSpeedRun();
+        numberleModel.getClock().setBudget(1);
+        numberleModel.initialize();
+        Thread.sleep(5);
+        numberleModel.compare("2+4=6-0", numberleModel.getTargetEquations());
+        numberleModel.processInput("2+4=6-0");
+        assertTrue(numberleModel.isOutOfTime());
+        assertTrue(numberleModel.getClock().isTimedOut());
+
+        numberleModel.setSpeedRun();
+        numberleModel.initialize();
+        numberleModel.setSpeedRun();
+        assertFalse(numberleModel.isOutOfTime());
+        assertFalse(numberleModel.isGameOver());
+    }
+
+    /**
+     * Tests that HintSearch returns by its deadline, also while it filters the dictionary.
+     *
+     * This test searches a dictionary of the equations "ab+c=de" once with a deadline that has passed,
+     * and once with time to spare after one scored row.
+     *
+     * @pre The row is the guess "12+3=15" scored against the target "45+6=51".
+     * @post The late search scores nothing and is incomplete; the other search completes, counts the
+     *       candidates that fit the row and suggests a guess.
+     */
+    @Test
+    public void testHintSearchDeadline() {
+        List<Integer> packed = new ArrayList<>();
+        for (int a = 10; a < 100; a++) {
+            for (int c = 0; c < 10 && a + c < 100; c++) {
+                packed.add(EquationCodec.pack(String.format("%d+%d=%d", a, c, a + c)));
+            }
+        }
+        int[] dictionary = packed.stream().mapToInt(Integer::intValue).toArray();
+        int[] guesses = {EquationCodec.pack("12+3=15"), 0, 0, 0, 0, 0, 0};
+        int[] patterns = {NumberleSolver.feedback(guesses[0], EquationCodec.pack("45+6=51")), 0, 0, 0, 0, 0, 0};
+
+        Hint late = HintSearch.search(dictionary, guesses, patterns, 1, System.nanoTime() - 1);
+        assertFalse(late.isComplete());
+        assertEquals(0, late.getEvaluated());
+
+        int candidates = 0;
+        for (int equation : dictionary) {
+            candidates += NumberleSolver.feedback(guesses[0], equation) == patterns[0] ? 1 : 0;
+        }
+        Hint hint = HintSearch.search(dictionary, guesses, patterns, 1, System.nanoTime() + 10_000_000_000L);
+        assertTrue(hint.isComplete());
+        assertEquals(candidates, hint.getCandidates());
+        assertNotNull(hint.getGuess());
+    }
+
+    /**
+     * Tests the DictionaryMembership index.
+     *
+     * This test builds the index of a dictionary with duplicates and entries that could not be packed,
+     * then checks every member and random non-members.
+     *
+     * @pre A packed dictionary of the equations "ab+c=de", each listed twice, and some -1 entries.
+     * @post Every member is found, no non-member is, duplicates and -1 entries are not counted,
+     *       and the Bloom filter alone rejects most non-members.
+     */
+    @Test
+    public void testDictionaryMembership() {
+        List<Integer> packed = new ArrayList<>();
+        Set<Integer> members = new HashSet<>();
+        for (int a = 10; a < 100; a++) {
+            for (int c = 0; a + c < 100; c++) {
+                int equation = EquationCodec.pack(String.format("%d+%d=%d", a, c % 10, a + c % 10));
+                if (equation >= 0 && members.add(equation)) {
+                    packed.add(equation);
+                    packed.add(equation);
+                    packed.add(-1);
+                }
+            }
+        }
+        DictionaryMembership membership = new DictionaryMembership(packed.stream().mapToInt(Integer::intValue).toArray());
+
+        assertEquals(members.size(), membership.size());
+        for (int member : members) {
+            assertTrue(membership.contains(member));
+        }
+        assertFalse(membership.contains(-1));
+        assertFalse(membership.contains(EquationCodec.pack("1+3=1+3")));
+
+        Random random = new Random(7);
+        int passed = 0;
+        for (int i = 0; i < 10_000; i++) {
+            int other = random.nextInt(1 << 28);
+            if (!members.contains(other)) {
+                assertFalse(membership.contains(other));
+                passed += membership.mightContain(other) ? 1 : 0;
+            }
+        }
+        assertTrue(passed < 500); // About 1% false positives by design
+
+        DictionaryMembership empty = new DictionaryMembership(new int[]{-1});
+        assertEquals(0, empty.size());
+        assertFalse(empty.contains(EquationCodec.pack("1+3=1+3")));
+    }
+
+    /**
+     * Tests the game-over notification of NumberleModel.
+     *
+     * This test wins a game on the second guess and checks that the listeners are told exactly once.
+     *
+     * @pre A GameListener is registered on the NumberleModel instance.
+     * @post The listener received one won game with two guesses.
+     */
+    @Test
+    public void testGameOverListener() {
+        List<Integer> results = new ArrayList<>();
+        numberleModel.addGameListener((model, won, guesses) -> results.add(won ? guesses : -guesses));
+
+        for (String guess : new String[]{"2+4=6-0", "1+3=1+3"}) {
+            numberleModel.compare(guess, numberleModel.getTargetEquations());
+            numberleModel.processInput(guess);
+        }
+        numberleModel.processInput("1+3=1+3");
+
+        assertEquals(1, results.size());
+        assertEquals(Integer.valueOf(2), results.get(0));
+    }
+
+    /**
+     * Tests the published game state of NumberleModel.
+     *
+     * This test scores a guess and checks the new state, and that the state taken before the guess did not change.
+     *
+     * @pre The NumberleModel instance has started a game.
+     * @post The state after the guess has one row whose flags and button colours match the model's arrays.
+     */
+    @Test
+    public void testGameStateIsPublished() {
+        GameState before = numberleModel.getState();
+        numberleModel.compare("2+4=6-0", numberleModel.getTargetEquations());
+        numberleModel.processInput("2+4=6-0");
+        GameState after = numberleModel.getState();
+
+        assertEquals(0, before.getRows());
+        assertEquals(NumberleModel.MAX_ATTEMPTS, before.getRemainingAttempts());
+        assertEquals(1, after.getRows());
+        assertEquals("2+4=6-0", after.getGuess(0));
+        assertEquals("1+3=1+3", after.getTargetEquation());
+        for (int i = 0; i < 7; i++) {
+            assertEquals(numberleModel.getColor()[0][i], after.getFlag(0, i));
+        }
+        for (int i = 0; i < numberleModel.getButtonColor().length; i++) {
+            assertEquals(numberleModel.getButtonColor()[i], after.getButtonColor(i));
+        }
+    }
 
-}
\ No newline at end of file
+    /**
+     * Tests the validation of guesses answered by the shared GuessCache.
+     *
+     * This test validates guesses twice, so the second answer comes from the cache.
+     *
+     * @pre The NumberleModel instance is created.
+     * @post Cached guesses give the same codes as parsed ones, and a hit is counted.
+     */
+    @Test
+    public void testGuessCacheKeepsValidation() {
+        long hits = GuessCache.shared().getHits();
+        for (String guess : new String[]{"1+2=3+0", "1+2=3+4", "12+3456", "1++2=30"}) {
+            Integer parsed = numberleModel.validateEquation(guess);
+            assertEquals(parsed, numberleModel.validateEquation(guess));
+        }
+        assertTrue(GuessCache.shared().getHits() > hits);
+        assertEquals(-1, GuessCache.key("2x3=6+0")); // 'x' is evaluated unlike '*'
+    }
+
+    /**
+     * Tests a race of two NumberleModel games.
+     *
+     * This test lets one racer solve in two guesses and another in one, scoring both from the race's shared feedback.
+     *
+     * @pre The race has a target other than the default equation.
+     * @post Both racers get the race's target and the racer with fewer guesses ranks first.
+     */
+    @Test
+    public void testRaceRanksByGuesses() {
+        Race race = new Race("7/1=2+5", Race.DEFAULT_WINDOW_MILLIS);
+        NumberleModel other = new NumberleModel();
+        numberleModel.setPlayerId(1);
+        other.setPlayerId(2);
+        for (NumberleModel racer : new NumberleModel[]{numberleModel, other}) {
+            racer.setRace(race);
+            racer.initialize();
+            assertSame(race.getTargetEquation(), racer.getTargetEquations());
+        }
+        for (String guess : new String[]{"1+3=1+3", "7/1=2+5"}) {
+            numberleModel.compare(guess, numberleModel.getTargetEquations());
+            numberleModel.processInput(guess);
+        }
+        other.compare("7/1=2+5", other.getTargetEquations());
+        other.processInput("7/1=2+5");
+
+        assertTrue(numberleModel.isGameWon());
+        assertEquals(1, race.getLeaderboard().rank(2));
+        assertEquals(2, race.getLeaderboard().rank(1));
+        assertEquals(1.0 / 3, race.getFeedbackHitRate(), 1e-9); // The second "7/1=2+5" is scored from the table
+    }
+
+    /**
+     * Tests racers who restart or abandon their game of a race.
+     *
+     * This test lets one racer see the feedback of a guess, restart, and solve in one guess; another racer abandons.
+     *
+     * @pre Both racers start a game of the race.
+     * @post Both are ranked as lost, and the restarted game's win does not change the ranking.
+     */
+    @Test
+    public void testRaceRestartForfeits() {
+        Race race = new Race("7/1=2+5", Race.DEFAULT_WINDOW_MILLIS);
+        NumberleModel other = new NumberleModel();
+        numberleModel.setPlayerId(1);
+        other.setPlayerId(2);
+        numberleModel.setRace(race);
+        other.setRace(race);
+        numberleModel.initialize();
+        other.initialize();
+
+        numberleModel.compare("1+3=1+3", numberleModel.getTargetEquations());
+        numberleModel.processInput("1+3=1+3");
+        numberleModel.initialize();
+        numberleModel.compare("7/1=2+5", numberleModel.getTargetEquations());
+        numberleModel.processInput("7/1=2+5");
+        other.abandon();
+
+        assertTrue(numberleModel.isGameWon());
+        assertEquals(2, race.getLeaderboard().size());
+        for (RaceLeaderboard.Standing standing : race.getLeaderboard().top(2)) {
+            assertEquals(RaceLeaderboard.LOST, standing.getGuesses());
+        }
+    }
+
+    /**
+     * Tests the scoring of a multiplication typed as 'x' on the keypad.
+     *
+     * This test scores "2x3=6+0" against "2*3=6+0" and checks the row recorded for hints and listeners.
+     *
+     * @pre The NumberleModel instance is created.
+     * @post The guess wins and is recorded as "2*3=6+0" with the solved pattern.
+     */
+    @Test
+    public void testCompareMultiplicationTypedAsX() {
+        int[] recorded = new int[2];
+        numberleModel.addGameListener(new GameListener() {
+            @Override
+            public void rowScored(NumberleModel model, int row, int guess, int pattern) {
+                recorded[0] = guess;
+                recorded[1] = pattern;
+            }
+
+            @Override
+            public void gameOver(NumberleModel model, boolean won, int guesses) {
+            }
+        });
+
+        assertTrue(numberleModel.compare("2x3=6+0", "2*3=6+0"));
+        assertEquals(EquationCodec.pack("2*3=6+0"), recorded[0]);
+        assertEquals(NumberleSolver.SOLVED, recorded[1]);
+        assertEquals(1, numberleModel.getButtonColor()[12]);
+
+        assertFalse(numberleModel.compare("2x3=6+0", "3*2=6+0"));
+        assertEquals(NumberleSolver.feedback(EquationCodec.pack("2*3=6+0"), EquationCodec.pack("3*2=6+0")), recorded[1]);
+    }
+
+    /**
+     * Tests the GlobalStatistics listener fed by concurrent games.
+     *
+     * This test plays games on four threads, each with its own model: wins in one and two guesses, losses,
+     * and wins in three guesses of a race target, while snapshots are taken.
+     *
+     * @pre A GlobalStatistics instance is registered on every model.
+     * @post Snapshots taken during the games never decrease; the final counters, histogram and per-target
+     *       solve rates match the games played, and an earlier snapshot is unchanged.
+     */
+    @Test
+    public void testGlobalStatistics() throws InterruptedException {
+        GlobalStatistics statistics = new GlobalStatistics();
+        GlobalStatistics.Snapshot empty = statistics.snapshot();
+        Race race = new Race("7/1=2+5", Race.DEFAULT_WINDOW_MILLIS);
+        String[][] games = {
+                {"1+3=1+3"},
+                {"2+4=6-0", "1+3=1+3"},
+                {"2+4=6-0", "2+4=6-0", "2+4=6-0", "2+4=6-0", "2+4=6-0", "2+4=6-0", "2+4=6-0"},
+                {"1+3=1+3", "2+4=6-0", "7/1=2+5"}};
+        Thread[] players = new Thread[games.length];
+        for (int t = 0; t < players.length; t++) {
+            String[] guesses = games[t];
+            NumberleModel model = new NumberleModel();
+            if (t == 3) {
+                model.setRace(race);
+            }
+            model.addGameListener(statistics);
+            players[t] = new Thread(() -> {
+                for (int game = 0; game < 50; game++) {
+                    model.initialize();
+                    for (String guess : guesses) {
+                        model.compare(guess, model.getTargetEquations());
+                        model.processInput(guess);
+                    }
+                }
+            });
+            players[t].start();
+        }
+        GlobalStatistics.Snapshot last = empty;
+        for (Thread player : players) {
+            while (player.isAlive()) {
+                GlobalStatistics.Snapshot next = statistics.snapshot();
+                assertTrue(next.getGames() >= last.getGames());
+                assertTrue(next.getWins() >= last.getWins());
+                for (int guesses = 1; guesses <= NumberleModel.MAX_ATTEMPTS; guesses++) {
+                    assertTrue(next.getWins(guesses) >= last.getWins(guesses));
+                }
+                last = next;
+            }
+            player.join();
+        }
+
+        GlobalStatistics.Snapshot done = statistics.snapshot();
+        assertEquals(200, done.getGames());
+        assertEquals(150, done.getWins());
+        for (int guesses = 1; guesses <= NumberleModel.MAX_ATTEMPTS; guesses++) {
+            assertEquals(guesses <= 3 ? 50 : 0, done.getWins(guesses));
+        }
+        assertEquals(2.0, done.getMeanGuessesToWin(), 1e-9);
+        assertEquals(2, statistics.getTargetCount());
+        assertEquals(100.0 / 150, statistics.getSolveRate("1+3=1+3"), 1e-9);
+        assertEquals(1.0, statistics.getSolveRate("7/1=2+5"), 1e-9);
+        assertTrue(Double.isNaN(statistics.getSolveRate("2+4=6-0")));
+        assertEquals(0, empty.getGames());
+        assertTrue(Double.isNaN(empty.getMeanGuessesToWin()));
+    }
+
+    /**
+     * Tests the packing of equations by EquationCodec.
+     *
+     * This test packs and unpacks equations and checks the rejected inputs.
+     *
+     * @pre None.
+     * @post Every equation unpacks to itself, 'x' unpacks to '*', and other lengths or symbols pack to -1.
+     */
+    @Test
+    public void testEquationCodecRoundTrip() {
+        for (String equation : new String[]{"1+3=1+3", "2+4=6-0", "7/1=2+5", "3*4=6+6", "9-8=0+1"}) {
+            int packed = EquationCodec.pack(equation);
+            assertTrue(packed >= 0);
+            assertEquals(equation, EquationCodec.unpack(packed));
+            for (int i = 0; i < EquationCodec.LENGTH; i++) {
+                assertEquals(equation.charAt(i), EquationCodec.symbolChar(EquationCodec.symbolAt(packed, i)));
+            }
+        }
+        assertEquals("2*3=6+0", EquationCodec.unpack(EquationCodec.pack("2x3=6+0")));
+        assertEquals(-1, EquationCodec.pack("7*8=56"));
+        assertEquals(-1, EquationCodec.pack("1+3=1+3+"));
+        assertEquals(-1, EquationCodec.pack("1+3=1?3"));
+    }
+
+    /**
+     * Tests the feedback patterns of NumberleSolver.
+     *
+     * This test scores guesses against a target and compares them with the colours of the model.
+     *
+     * @pre The NumberleModel instance is created.
+     * @post The patterns are the expected base-3 values and agree with the colours of the scored rows.
+     */
+    @Test
+    public void testSolverFeedback() {
+        int target = EquationCodec.pack("1+3=1+3");
+        assertEquals(NumberleSolver.SOLVED, NumberleSolver.feedback(target, target));
+        assertEquals(540, NumberleSolver.feedback(EquationCodec.pack("2+4=6-0"), target)); // 0202000
+        assertEquals(1366, NumberleSolver.feedback(EquationCodec.pack("3+1=3+1"), target)); // 1212121
+
+        int[] flags = new int[EquationCodec.LENGTH];
+        String[] guesses = {"2+4=6-0", "3+1=3+1", "7/1=3+4"};
+        for (int row = 0; row < guesses.length; row++) {
+            numberleModel.compare(guesses[row], numberleModel.getTargetEquations());
+            numberleModel.processInput(guesses[row]);
+            int pattern = NumberleSolver.feedback(EquationCodec.pack(guesses[row]), target);
+            assertEquals(pattern, NumberleSolver.patternOf(numberleModel.getColor()[row]));
+            NumberleSolver.flagsOf(pattern, flags);
+            assertArrayEquals(numberleModel.getColor()[row], flags);
+        }
+    }
+
+    /**
+     * Tests the daily puzzle schedule.
+     *
+     * This test computes the targets of a week twice and through a schedule file.
+     *
+     * @pre A packed dictionary of 50 equations.
+     * @post The target of a date is always the same, also when remembered, and the schedule file gives the computed target.
+     */
+    @Test
+    public void testDailyTargetIsStable() throws IOException {
+        int[] packed = new int[50];
+        for (int i = 0; i < packed.length; i++) {
+            packed[i] = EquationCodec.pack(String.format("%02d+0=%02d", i, i));
+        }
+        LocalDate first = LocalDate.of(2024, 3, 1);
+        Path file = Files.createTempFile("schedule", ".bin");
+        DailyPuzzleSchedule.compute(packed, first, 7).write(file);
+        DailyPuzzleSchedule schedule = DailyPuzzleSchedule.read(file);
+
+        Set<Integer> targets = new HashSet<>();
+        for (int day = 0; day < 7; day++) {
+            LocalDate date = first.plusDays(day);
+            int target = DailyPuzzleSchedule.targetFor(packed, date);
+            assertEquals(target, DailyPuzzleSchedule.targetFor(packed.clone(), date));
+            assertEquals(target, DailyPuzzleSchedule.cachedTargetFor(packed, date));
+            assertEquals(target, DailyPuzzleSchedule.cachedTargetFor(packed, date)); // Remembered
+            assertTrue(schedule.covers(date));
+            assertEquals(EquationCodec.unpack(target), schedule.getTarget(date));
+            targets.add(target);
+        }
+        assertEquals(7, targets.size()); // The days of a pass never repeat a target
+        assertFalse(schedule.covers(first.plusDays(7)));
+        assertSame(DailyPuzzleSchedule.forFile(file.toString()), DailyPuzzleSchedule.forFile(file.toString()));
+        assertNull(DailyPuzzleSchedule.forFile(file + ".missing"));
+    }
+
+    /**
+     * Tests that the color matrix cannot be changed through its getter.
+     *
+     * This test scores a guess, overwrites the returned row, and scores an invalid-length guess on the next row.
+     *
+     * @pre The default target is "1+3=1+3".
+     * @post The scored row keeps its colors, and each cell is also readable without a copy.
+     */
+    @Test
+    public void testColorIsCopied() {
+        numberleModel.compare("1+3=2+2", numberleModel.getTargetEquations());
+        int[] scored = numberleModel.getColor()[0];
+        assertArrayEquals(new int[]{1, 1, 1, 1, -1, 1, -1}, scored);
+        for (int i = 0; i < EquationCodec.LENGTH; i++) {
+            assertEquals(scored[i], numberleModel.getColor(0, i));
+        }
+
+        Arrays.fill(numberleModel.getColor()[0], 0);
+        numberleModel.setRemainingAttempts();
+        numberleModel.compare("1+3", numberleModel.getTargetEquations());
+        assertArrayEquals(scored, numberleModel.getColor()[0]);
+        assertEquals(3, numberleModel.getColor()[1].length);
+    }
+
+    /**
+     * Tests drawing a target of a difficulty whose bucket is empty.
+     *
+     * This test writes a rated dictionary with easy and hard equations only, and draws medium and hard targets.
+     *
+     * @pre The game is random and the medium bucket is empty.
+     * @post A medium target is drawn from the nearest bucket, the easier one, and a hard target from its own bucket.
+     */
+    @Test
+    public void testEmptyBucketFallsBack() throws IOException {
+        int[] packed = {EquationCodec.pack("1+3=1+3"), EquationCodec.pack("2+4=6-0")};
+        byte[] buckets = {(byte) DifficultyBucket.EASY.ordinal(), (byte) DifficultyBucket.HARD.ordinal()};
+        Path file = Files.createTempFile("rated", ".bin");
+        new RatedDictionary(packed, new byte[2], new short[2], buckets).write(file);
+        numberleModel.setRandom();
+
+        assertEquals("1+3=1+3", numberleModel.getRandomEquation(file.toString(), DifficultyBucket.MEDIUM));
+        assertEquals("2+4=6-0", numberleModel.getRandomEquation(file.toString(), DifficultyBucket.HARD));
+        assertNull(new RatedDictionary(new int[0], new byte[0], new short[0], new byte[0])
+                .nearestNonEmpty(DifficultyBucket.MEDIUM));
+    }
+}
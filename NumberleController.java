@@ -1,3 +1,5 @@
+import java.util.concurrent.TimeUnit;
+
 /**
  * The controller class for the Numberle game, responsible for coordinating interactions between the model and the view.
  */
@@ -96,6 +98,27 @@ public class NumberleController {
         model.compare(equation, model.getTargetEquations());
     }
 
+    /**
+     * Computes a hint for the next guess within a latency budget.
+     *
+     * @param budgetMillis The time the hint may take, in milliseconds.
+     * @return The hint, reporting how much of the search fit into the budget.
+     */
+    public Hint getHint(long budgetMillis) {
+        GameEvents.HintComputed event = GameEvents.hintComputed();
+        Hint hint = model.getHint(System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(budgetMillis));
+        if (event != null && event.shouldCommit()) { // Only while a flight recording is running
+            event.mode = model.getMode();
+            event.attempt = INumberleModel.MAX_ATTEMPTS - model.getRemainingAttempts();
+            event.candidates = hint.getCandidates();
+            event.evaluated = hint.getEvaluated();
+            event.complete = hint.isComplete();
+            event.budgetMillis = budgetMillis;
+            event.commit();
+        }
+        return hint;
+    }
+
     /**
      * Retrieves the button color values.
      *
@@ -105,6 +128,31 @@ public class NumberleController {
         return model.getButtonColor();
     }
 
+    /**
+     * Records that the player typed a symbol onto the current guess.
+     *
+     * @param symbol The symbol typed, as shown on its button.
+     */
+    public void typeSymbol(String symbol) {
+        model.typeSymbol(symbol.charAt(0));
+    }
+
+    /**
+     * Records that the player deleted the last symbol of the current guess.
+     */
+    public void deleteSymbol() {
+        model.deleteSymbol();
+    }
+
+    /**
+     * Retrieves the last published immutable view of the game.
+     *
+     * @return The game state.
+     */
+    public GameState getState() {
+        return model.getState();
+    }
+
     /**
      * Checks if the game is currently in random mode.
      *
@@ -121,6 +169,133 @@ public class NumberleController {
         model.setRandom();
     }
 
+    /**
+     * Checks if the game is currently in daily puzzle mode.
+     *
+     * @return True if the game is in daily puzzle mode, false otherwise.
+     */
+    public boolean getIsDaily() {
+        return model.getDaily();
+    }
+
+    /**
+     * Toggles the daily puzzle mode of the game.
+     */
+    public void setIsDaily() {
+        model.setDaily();
+    }
+
+    /**
+     * Checks if the game is currently in adversarial mode.
+     *
+     * @return True if the game is in adversarial mode, false otherwise.
+     */
+    public boolean getIsAdversarial() {
+        return model.getAdversarial();
+    }
+
+    /**
+     * Toggles the adversarial mode of the game.
+     */
+    public void setIsAdversarial() {
+        model.setAdversarial();
+    }
+
+    /**
+     * Checks if the game is currently in strict mode.
+     *
+     * @return True if guesses must be equations of the dictionary, false otherwise.
+     */
+    public boolean getIsStrict() {
+        return model.getStrict();
+    }
+
+    /**
+     * Toggles the strict mode of the game.
+     */
+    public void setIsStrict() {
+        model.setStrict();
+    }
+
+    /**
+     * Makes the following games part of a race.
+     *
+     * @param race The race, or null to play alone.
+     */
+    public void setRace(Race race) {
+        model.setRace(race);
+    }
+
+    /**
+     * Returns the race the games belong to.
+     *
+     * @return The race, or null.
+     */
+    public Race getRace() {
+        return model.getRace();
+    }
+
+    /**
+     * Checks if the game is currently in speed-run mode.
+     *
+     * @return True if games are played against the clock, false otherwise.
+     */
+    public boolean getIsSpeedRun() {
+        return model.getSpeedRun();
+    }
+
+    /**
+     * Toggles the speed-run mode of the game.
+     */
+    public void setIsSpeedRun() {
+        model.setSpeedRun();
+    }
+
+    /**
+     * Returns the clock of speed-run games.
+     *
+     * @return The clock, holding the timings of the last game.
+     */
+    public SpeedRun getClock() {
+        return model.getClock();
+    }
+
+    /**
+     * Returns the timings of every speed-run game of the player.
+     *
+     * @return The aggregate of the finished games.
+     */
+    public SpeedRun getSpeedRunTotals() {
+        return model.getSpeedRunTotals();
+    }
+
+    /**
+     * Checks if the time budget of a speed-run game has run out.
+     *
+     * @return True if the time has run out, false otherwise.
+     */
+    public boolean isOutOfTime() {
+        return model.isOutOfTime();
+    }
+
+    /**
+     * Ends a speed-run game whose time budget has run out.
+     *
+     * @return True if the game ended on this call, false otherwise.
+     */
+    public boolean checkClock() {
+        return model.checkClock();
+    }
+
+    /**
+     * Sets the difficulty of the random targets of new games.
+     *
+     * @param difficulty The difficulty bucket, or null for any difficulty.
+     */
+    public void setDifficulty(DifficultyBucket difficulty) {
+        model.setDifficulty(difficulty);
+    }
+
     /**
      * Retrieves the remaining attempts in the game.
      *
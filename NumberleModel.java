@@ -1,9 +1,10 @@
 // NumberleModel.java
 
-import java.io.BufferedReader;
-import java.io.FileReader;
-import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.time.LocalDate;
+import java.time.ZoneOffset;
 import java.util.*;
+import java.util.concurrent.ThreadLocalRandom;
 import java.util.function.Function;
 import java.util.stream.Stream;
 
@@ -19,10 +20,34 @@ public class NumberleModel extends Observable implements INumberleModel {
     private boolean gameWon; // Indicates whether the game has been won.
     private StringBuilder[] matrix = new StringBuilder[7]; // The matrix representing the game board.
     private final int[][] color = new int[7][7]; // The color values for each cell in the matrix.
+    private final int[] scoring = new int[EquationCodec.LENGTH]; // The flags of the guess being scored, before they are published.
+
+    private final int[] playedGuesses = new int[MAX_ATTEMPTS]; // The packed guess of each scored row.
+    private final int[] playedPatterns = new int[MAX_ATTEMPTS]; // The feedback pattern of each scored row.
 
     private final int[] buttonColor = new int[15]; // The color values for the buttons.
     private boolean isRandom = false; // Indicates whether the game is in random mode.
+    private boolean isDaily = false; // Indicates whether the game is in daily puzzle mode.
+    private DifficultyBucket difficulty = null; // The difficulty of random targets, or null for any difficulty.
+    private boolean isAdversarial = false; // Indicates whether the game defers choosing its target (Absurdle mode).
+    private boolean isStrict = false; // Indicates whether guesses must be equations of the dictionary.
+    private boolean isSpeedRun = false; // Indicates whether games are played against the clock.
+    private final SpeedRun speedRun = new SpeedRun(SpeedRun.DEFAULT_BUDGET_MILLIS); // The clock of speed-run games.
+    private final SpeedRun speedRunTotals = new SpeedRun(SpeedRun.DEFAULT_BUDGET_MILLIS); // Every speed-run game of the player, merged.
+    private AdversarialTarget adversarialTarget; // The candidates of the deferred target in adversarial mode.
+    private Race race; // The race the games belong to, or null.
+    private int raceTarget = -1; // The packed target of the race the game started in, or -1.
+    private long playerId = 0; // The player of the game, for statistics.
+    private volatile GameListener[] listeners = new GameListener[0]; // The lifecycle listeners, copied on write.
+    private boolean gameOverReported; // Indicates whether the listeners were told that the game ended.
+    private volatile GameState state; // The last published immutable view of the game.
     final String defaultEquation = "1+3=1+3"; // The default equation for the game.
+    final String equationsFile = "E:\\大学\\大四\\大四下\\AOOP\\AOOP_CW\\equations.txt"; // The dictionary of random and daily targets.
+    final String scheduleFile = "E:\\大学\\大四\\大四下\\AOOP\\AOOP_CW\\daily.bin"; // The precomputed daily puzzle schedule.
+    final String ratedFile = "E:\\大学\\大四\\大四下\\AOOP\\AOOP_CW\\equations.rated"; // The dictionary rated by DifficultyRater.
+    final String treeFile = "E:\\大学\\大四\\大四下\\AOOP\\AOOP_CW\\tree.bin"; // The decision tree built by DecisionTreeBuilder.
+    private long sequenceSeed = ThreadLocalRandom.current().nextLong(); // The seed of this player's target sequence.
+    private long sequencePosition = 0; // The number of random targets served from the sequence.
 
 
 
@@ -34,11 +59,44 @@ public class NumberleModel extends Observable implements INumberleModel {
      * button colors, and game won status. It notifies the observers of the model changes.
      */
     public void initialize() {
-        targetEquations = getRandomEquation("E:\\大学\\大四\\大四下\\AOOP\\AOOP_CW\\equations.txt"); // Generate a random target equation
+        long start = ModelMetrics.start();
+        GameEvents.GameStart event = GameEvents.gameStart();
+        adversarialTarget = null; // Only an adversarial game narrows candidates
+        raceTarget = race == null ? -1 : race.getTarget();
+        if (race != null) {
+            targetEquations = race.getTargetEquation(); // The target shared by every racer
+        } else if (isAdversarial) {
+            EquationDictionary dictionary = DictionaryWatcher.forFile(equationsFile).current();
+            adversarialTarget = new AdversarialTarget(dictionary.getPacked(), dictionary.getMasks());
+            targetEquations = EquationCodec.unpack(adversarialTarget.getRepresentative()); // Any candidate, until guesses narrow them
+        } else if (isDaily) {
+            targetEquations = getDailyEquation(LocalDate.now(ZoneOffset.UTC)); // Use today's puzzle
+        } else if (difficulty != null) {
+            targetEquations = getRandomEquation(ratedFile, difficulty); // Generate a random target of the chosen difficulty
+        } else {
+            targetEquations = getRandomEquation(equationsFile); // Generate a random target equation
+        }
         currentGuess = new StringBuilder("       "); // Reset the current guess
         remainingAttempts = MAX_ATTEMPTS; // Reset the remaining attempts
         Arrays.fill(buttonColor, -2); // Reset the button colors
         gameWon = false; // Reset the game won status
+        gameOverReported = false; // The new game has not ended yet
+        if (isSpeedRun) {
+            speedRun.start(); // Start the clock
+        }
+        publishState();
+        ModelMetrics.stop(ModelMetrics.Timer.INITIALIZE, start);
+        if (event != null && event.shouldCommit()) { // Only while a flight recording is running
+            event.mode = getMode();
+            event.playerId = playerId;
+            event.strict = isStrict;
+            event.speedRun = isSpeedRun;
+            event.candidates = adversarialTarget == null ? -1 : adversarialTarget.getCount();
+            event.commit();
+        }
+        for (GameListener listener : listeners) {
+            listener.gameStarted(this);
+        }
 
         setChanged(); // Set the model as changed
         notifyObservers(); // Notify the observers of the model changes
@@ -54,7 +112,12 @@ public class NumberleModel extends Observable implements INumberleModel {
      * @return True indicating that the input was processed successfully.
      */
     public boolean processInput(String input) {
+        if (isSpeedRun) {
+            speedRun.record(SpeedRun.GUESS); // Whether the guess counts was decided when compare scored it
+        }
         remainingAttempts--; // Decrement the remaining attempts
+        publishState(); // Publish the scored guess to the readers
+        checkGameOver(); // Report the end of the game to the listeners
         setChanged(); // Mark the model as changed
         notifyObservers(); // Notify the observers of the model changes
         return true; // Return true indicating successful processing of input
@@ -64,15 +127,167 @@ public class NumberleModel extends Observable implements INumberleModel {
      */
     public void setRemainingAttempts() {
         this.remainingAttempts--;
+        publishState();
+        checkGameOver();
+    }
+
+    /**
+     * Returns the last published view of the game.
+     * It is replaced, never changed, when a game starts or a guess is scored, so it can be read from any thread.
+     * @return The game state.
+     */
+    @Override
+    public GameState getState() {
+        return state;
+    }
+
+    /**
+     * Publishes a new immutable view of the game.
+     */
+    private void publishState() {
+        int rows = Math.max(0, Math.min(MAX_ATTEMPTS - remainingAttempts, MAX_ATTEMPTS));
+        short[] patterns = new short[rows];
+        for (int row = 0; row < rows; row++) {
+            patterns[row] = (short) playedPatterns[row];
+        }
+        int target = targetEquations == null ? -1 : EquationCodec.pack(targetEquations);
+        state = new GameState(target, remainingAttempts, gameWon, Arrays.copyOf(playedGuesses, rows), patterns, packButtons());
+    }
+
+    /**
+     * Packs the button colours into an int, (colour + 2) in 2 bits per button.
+     * @return The packed button colours.
+     */
+    private int packButtons() {
+        int buttons = 0;
+        for (int i = 0; i < buttonColor.length; i++) {
+            buttons |= (buttonColor[i] + 2) << (2 * i);
+        }
+        return buttons;
+    }
+
+    /**
+     * Tells the listeners that the game ended, once per game.
+     */
+    private void checkGameOver() {
+        if (isGameOver() && !gameOverReported) {
+            gameOverReported = true;
+            if (isSpeedRun) {
+                speedRun.finish(gameWon); // Stop the clock and summarize the timings
+                speedRunTotals.merge(speedRun);
+            }
+            int guesses = MAX_ATTEMPTS - remainingAttempts;
+            for (GameListener listener : listeners) {
+                listener.gameOver(this, gameWon, guesses);
+            }
+        }
+    }
+
+    /**
+     * Discards the game, e.g. when its player disconnects, and tells the listeners if it had not ended.
+     */
+    public void abandon() {
+        if (!gameOverReported) {
+            gameOverReported = true; // No game over follows a discarded game
+            for (GameListener listener : listeners) {
+                listener.gameAbandoned(this);
+            }
+        }
+    }
+
+    /**
+     * Records that the player typed a symbol onto the current guess, for the listeners.
+     * @param symbol The symbol typed.
+     */
+    public void typeSymbol(char symbol) {
+        if (isSpeedRun) {
+            speedRun.record(SpeedRun.KEY);
+        }
+        for (GameListener listener : listeners) {
+            listener.keyTyped(this, symbol);
+        }
+    }
+
+    /**
+     * Records that the player deleted the last symbol of the current guess, for the listeners.
+     */
+    public void deleteSymbol() {
+        if (isSpeedRun) {
+            speedRun.record(SpeedRun.DELETE);
+        }
+        for (GameListener listener : listeners) {
+            listener.keyDeleted(this);
+        }
+    }
+
+    /**
+     * Adds a lifecycle listener.
+     * @param listener The listener to add.
+     */
+    public synchronized void addGameListener(GameListener listener) {
+        GameListener[] updated = Arrays.copyOf(listeners, listeners.length + 1);
+        updated[listeners.length] = listener;
+        listeners = updated;
+    }
+
+    /**
+     * Removes a lifecycle listener.
+     * @param listener The listener to remove.
+     */
+    public synchronized void removeGameListener(GameListener listener) {
+        List<GameListener> updated = new ArrayList<>(Arrays.asList(listeners));
+        updated.remove(listener);
+        listeners = updated.toArray(new GameListener[0]);
+    }
+
+    /**
+     * Returns the player of the game.
+     * @return The player id.
+     */
+    public long getPlayerId() {
+        return playerId;
+    }
+
+    /**
+     * Sets the player of the game.
+     * @param playerId The player id.
+     */
+    public void setPlayerId(long playerId) {
+        this.playerId = playerId;
     }
 
     /**
      * Checks if the game is over.
-     * @return True if the remaining attempts are less than or equal to 0 or the game has been won, false otherwise.
+     * @return True if the remaining attempts are less than or equal to 0, the game has been won or its time ran out, false otherwise.
      */
     @Override
     public boolean isGameOver() {
-        return remainingAttempts <= 0 || gameWon;
+        return remainingAttempts <= 0 || gameWon || isOutOfTime();
+    }
+
+    /**
+     * Checks if the time budget of a speed-run game has run out.
+     * @return True if the game is a speed run and its budget has run out, false otherwise.
+     */
+    @Override
+    public boolean isOutOfTime() {
+        return isSpeedRun && speedRun.isExpired();
+    }
+
+    /**
+     * Ends a speed-run game whose budget has run out, notifying the listeners and observers once.
+     * It is called periodically by the view, since time runs out without any input.
+     * @return True if the game ended on this call, false otherwise.
+     */
+    @Override
+    public boolean checkClock() {
+        if (!isOutOfTime() || gameOverReported) {
+            return false;
+        }
+        checkGameOver(); // Report the lost game to the listeners
+        setChanged(); // Mark the model as changed
+        notifyObservers(); // Notify the observers of the model changes
+        return true;
     }
 
     /**
@@ -146,18 +361,38 @@ public class NumberleModel extends Observable implements INumberleModel {
 
     /**
      * Sets the color for a specific row in the matrix.
+     * The values are copied, into the row's array when the lengths match.
      * @param flag The color values to be set for the row.
      */
     public void setColor(int[] flag) {
-        color[7 - getRemainingAttempts()] = flag;
+        int row = 7 - getRemainingAttempts();
+        if (color[row].length == flag.length) {
+            System.arraycopy(flag, 0, color[row], 0, flag.length);
+        } else {
+            color[row] = flag.clone();
+        }
     }
 
     /**
-     * Returns the color matrix.
+     * Returns a copy of the color matrix.
      * @return The color matrix.
      */
     public int[][] getColor() {
-        return color;
+        int[][] copy = new int[color.length][];
+        for (int row = 0; row < color.length; row++) {
+            copy[row] = color[row].clone();
+        }
+        return copy;
+    }
+
+    /**
+     * Returns the color of one cell of the matrix, without copying it.
+     * @param row      The row, from 0.
+     * @param position The position in the row, from 0.
+     * @return The color value.
+     */
+    public int getColor(int row, int position) {
+        return color[row][position];
     }
 
     /**
@@ -170,31 +405,112 @@ public class NumberleModel extends Observable implements INumberleModel {
 
     /**
      * Generates a random equation from a file.
+     * The file is loaded once and watched for changes; a reload only affects games started after it.
+     * Targets follow a seeded permutation of the dictionary, so no target repeats until every equation has been served.
+     * A reload that changes the size of the dictionary changes the permutation, so earlier targets may then come again.
      * @param fileName The file name containing the equations.
      * @return A random equation.
      */
     public String getRandomEquation(String fileName) {
         if (isRandom) {
-            try {
-                BufferedReader reader = new BufferedReader(new FileReader(fileName));
-                List<String> lines = new ArrayList<>();
-                String line;
-                while ((line = reader.readLine()) != null) {
-                    lines.add(line);
-                }
-                reader.close();
-                Random random = new Random();
-                int index = random.nextInt(lines.size());
-                String randomLine = lines.get(index);
-                return randomLine;
-            } catch (IOException e) {
-                throw new RuntimeException(e);
+            long start = ModelMetrics.start();
+            EquationDictionary dictionary = DictionaryWatcher.forFile(fileName).current(); // Latest published snapshot
+            EquationPermutation permutation = new EquationPermutation(dictionary.size(), sequenceSeed);
+            String equation = dictionary.get(permutation.indexAt(sequencePosition++));
+            ModelMetrics.stop(ModelMetrics.Timer.RANDOM_EQUATION, start);
+            return equation;
+        } else {
+            return defaultEquation;
+        }
+    }
+
+    /**
+     * Generates a random equation of a difficulty bucket from a rated dictionary file.
+     * Targets follow the player's seeded permutation of the bucket, so drawing one is constant time.
+     * An empty bucket draws from the nearest non-empty one, and an empty rated dictionary from the whole dictionary.
+     * @param fileName The rated dictionary file written by DifficultyRater.
+     * @param bucket The difficulty bucket to draw from.
+     * @return A random equation of the bucket, or of the nearest bucket that has one.
+     */
+    public String getRandomEquation(String fileName, DifficultyBucket bucket) {
+        if (isRandom) {
+            long start = ModelMetrics.start();
+            RatedDictionary dictionary = RatedDictionary.forFile(fileName);
+            DifficultyBucket drawn = dictionary.nearestNonEmpty(bucket);
+            if (drawn == null) { // The draw below is timed on its own
+                GameLog.log(GameLog.Level.WARN, "No rated equations, drawing from the whole dictionary: ", fileName);
+                return getRandomEquation(equationsFile);
             }
+            if (drawn != bucket) {
+                GameLog.log(GameLog.Level.DEBUG, "Empty difficulty bucket, drawing from: ", drawn);
+            }
+            EquationPermutation permutation = new EquationPermutation(dictionary.size(drawn), sequenceSeed + drawn.ordinal());
+            String equation = dictionary.get(drawn, permutation.indexAt(sequencePosition++));
+            ModelMetrics.stop(ModelMetrics.Timer.RANDOM_EQUATION, start);
+            return equation;
         } else {
             return defaultEquation;
         }
     }
 
+    /**
+     * Sets the difficulty of the random targets of new games.
+     * @param difficulty The difficulty bucket, or null for any difficulty.
+     */
+    public void setDifficulty(DifficultyBucket difficulty) {
+        this.difficulty = difficulty;
+    }
+
+    /**
+     * Returns the difficulty of the random targets of new games.
+     * @return The difficulty bucket, or null for any difficulty.
+     */
+    public DifficultyBucket getDifficulty() {
+        return difficulty;
+    }
+
+    /**
+     * Returns the daily puzzle of a date, which is the same for every player and node.
+     * Dates in the precomputed schedule are an array lookup; other dates are computed from the dictionary,
+     * packed when it was loaded, once per day.
+     * @param date The date of the puzzle.
+     * @return The target equation of the date.
+     */
+    public String getDailyEquation(LocalDate date) {
+        DailyPuzzleSchedule schedule = DailyPuzzleSchedule.forFile(scheduleFile);
+        if (schedule != null && schedule.covers(date)) {
+            return schedule.getTarget(date);
+        }
+        int[] packed = DictionaryWatcher.forFile(equationsFile).current().getPacked();
+        return EquationCodec.unpack(DailyPuzzleSchedule.cachedTargetFor(packed, date));
+    }
+
+    /**
+     * Sets the target sequence of the player, e.g. to resume a player's sequence or to share a day's sequence.
+     * @param seed The seed of the sequence.
+     * @param position The number of targets already served from the sequence.
+     */
+    public void setSequence(long seed, long position) {
+        this.sequenceSeed = seed;
+        this.sequencePosition = position;
+    }
+
+    /**
+     * Returns the seed of the player's target sequence.
+     * @return The sequence seed.
+     */
+    public long getSequenceSeed() {
+        return sequenceSeed;
+    }
+
+    /**
+     * Returns the number of random targets served from the player's sequence.
+     * @return The sequence position.
+     */
+    public long getSequencePosition() {
+        return sequencePosition;
+    }
+
     /**
      * Validates an equation.
      * @param equation The equation to be validated.
@@ -204,29 +520,85 @@ public class NumberleModel extends Observable implements INumberleModel {
      *         2 - Equation must have 7 characters
      *         3 - The left side is not equal to the right side
      *         4 - Equation is valid
+     *         5 - Equation is not in the dictionary (strict mode only)
      */
     public Integer validateEquation(String equation) {
+        long start = ModelMetrics.start();
+        GameEvents.GuessValidated event = GameEvents.guessValidated();
+        Integer result = checkEquation(equation, true);
+        ModelMetrics.stop(ModelMetrics.Timer.VALIDATE, start);
+        if (event != null && event.shouldCommit()) {
+            event.mode = getMode();
+            event.attempt = MAX_ATTEMPTS - remainingAttempts;
+            event.code = result;
+            event.commit();
+        }
+        return result;
+    }
+
+    /**
+     * Validates an equation like validateEquation, without timing and without the shared GuessCache.
+     * Sweeps of inputs that no player guesses use it, so they neither evict the popular guesses
+     * nor are answered from the cache instead of the parser they test.
+     * @param equation The equation to be validated.
+     * @return The validation result of validateEquation.
+     */
+    Integer validateEquationUncached(String equation) {
+        return checkEquation(equation, false);
+    }
+
+    /**
+     * Validates an equation, without timing.
+     * Guesses seen before in any session are answered by the shared GuessCache without being parsed;
+     * the dictionary check of strict mode is applied after it.
+     * @param equation The equation to be validated.
+     * @param cached   True to use the shared GuessCache.
+     * @return The validation result of validateEquation.
+     */
+    private Integer checkEquation(String equation, boolean cached) {
+        int packed = cached ? GuessCache.key(equation) : -1;
+        int result = packed < 0 ? GuessCache.MISS : GuessCache.shared().get(packed);
+        if (result == GuessCache.MISS) {
+            result = parseEquation(equation);
+            if (packed >= 0) {
+                GuessCache.shared().put(packed, result);
+            }
+        }
+
+        if (result == 4 && isStrict && !DictionaryWatcher.forFile(equationsFile).current().getMembership().contains(EquationCodec.pack(equation.replaceAll("\\s+", "")))) {
+            GameLog.log(GameLog.Level.DEBUG, "Not in the dictionary");
+            return 5; // Equation is not in the dictionary
+        }
+        return result;
+    }
+
+    /**
+     * Parses and evaluates an equation, leaving out the dictionary check of strict mode.
+     * @param equation The equation to be validated.
+     * @return The validation result of validateEquation, 0 to 4.
+     */
+    private int parseEquation(String equation) {
         equation = equation.replaceAll("\\s+", "");
         if (equation.length() != 7) {
-            System.out.println("Too short");
+            GameLog.log(GameLog.Level.DEBUG, "Too short");
             return 2; // Equation must have 7 characters
         }
 
         if (!equation.contains("=") || !Character.isDigit(equation.charAt(0)) || !Character.isDigit(equation.charAt(equation.length() - 1))) {
-            System.out.println("No equal");
+            GameLog.log(GameLog.Level.DEBUG, "No equal");
             return 1; // Equation must contain equal sign and have digits at the beginning and end
         }
 
         for (int i = 0; i < 6; i++) {
             if (!Character.isDigit(equation.charAt(i)) && !Character.isDigit(equation.charAt(i + 1))) {
-                System.out.println("Not valid");
+                GameLog.log(GameLog.Level.DEBUG, "Not valid");
                 return 0; // Illegal equation
             }
         }
 
         String[] tokens = equation.replaceAll("\\s+", "").split("=");
         if (!calculate(tokens[0]).equals(calculate(tokens[1]))) {
-            System.out.println("The left side is not equal to the right side");
+            GameLog.log(GameLog.Level.DEBUG, "The left side is not equal to the right side");
             return 3; // The left side is not equal to the right side
         }
 
@@ -239,7 +611,7 @@ public class NumberleModel extends Observable implements INumberleModel {
      * @param s The mathematical expression to be evaluated.
      * @return The result of the evaluation as an integer.
      */
-    private Integer calculate(String s) {
+    Integer calculate(String s) {
         List<String> ls1 = new ArrayList<>();
         int i = 0;
         String str = "";
@@ -369,13 +741,36 @@ public class NumberleModel extends Observable implements INumberleModel {
      * @return True if the strings are equal, false otherwise.
      */
     public Boolean compare(String CG, String TG) {
-        int[] flag = new int[CG.length()]; // Flag array
+        long start = ModelMetrics.start();
+        GameEvents.GuessScored event = GameEvents.guessScored();
+        CG = CG.replace('x', '*'); // The keypad labels multiplication 'x'; score it as the packed '*'
+        if (isAdversarial && adversarialTarget != null) {
+            int guess = EquationCodec.pack(CG);
+            if (guess >= 0) {
+                adversarialTarget.narrow(guess); // Keep the largest partition of the candidates
+                targetEquations = EquationCodec.unpack(adversarialTarget.getRepresentative());
+                TG = targetEquations; // Any survivor gives the kept feedback
+            }
+        }
+        int row = 7 - getRemainingAttempts();
+        boolean late = isOutOfTime(); // A guess scored after the budget ran out does not count
+        // A full guess is scored in a scratch array and copied to its row when complete, so a guess allocates nothing
+        int[] flag = CG.length() == EquationCodec.LENGTH ? scoring : new int[CG.length()]; // Flag array
         int buttonIndex = -1; // Button index
+        boolean invalid = false; // Indicates whether the guess has a symbol off the keypad
+        int guess = GuessCache.key(CG); // The symbols pre-encoded, or -1 to tokenize the characters
+        boolean shared = guess >= 0 && raceTarget >= 0 && race != null && race.getTarget() == raceTarget
+                && EquationCodec.pack(TG) == raceTarget;
+        if (shared) {
+            NumberleSolver.flagsOf(race.feedback(guess), flag); // Scored once per race for every racer
+        }
 
         for (int i = 0; i < CG.length(); i++) {
             char currentChar = CG.charAt(i);
 
-            if (Character.isDigit(currentChar)) {
+            if (guess >= 0) {
+                buttonIndex = EquationCodec.symbolAt(guess, i);
+            } else if (Character.isDigit(currentChar)) {
                 buttonIndex = Character.getNumericValue(currentChar);
             } else {
                 switch (currentChar) {
@@ -395,16 +790,19 @@ public class NumberleModel extends Observable implements INumberleModel {
                         buttonIndex = 14;
                         break;
                     default:
-                        System.out.println("not valid char");
+                        invalid = true; // Logged once for the guess, after the loop
                 }
             }
 
 
-            if (TG.charAt(i) == currentChar) {
+            if (shared) {
+                setButtonColor(buttonIndex, flag[i]);
+
+            } else if (TG.charAt(i) == currentChar) {
                 flag[i] = 1; // Position is correct, set flag to 1
                 setButtonColor(buttonIndex, 1);
 
-            } else if (!TG.contains(String.valueOf(CG.charAt(i)))) {
+            } else if (TG.indexOf(currentChar) < 0) {
                 flag[i] = -1; // Position does not exist, set flag to -1
                 setButtonColor(buttonIndex, -1);
 
@@ -415,13 +813,56 @@ public class NumberleModel extends Observable implements INumberleModel {
             }
         }
 
+        if (invalid) {
+            GameLog.log(GameLog.Level.WARN, "not valid char: ", CG);
+        }
         setColor(flag);
-        boolean isWin = Arrays.equals(flag, new int[]{1, 1, 1, 1, 1, 1, 1});
+        if (!late && row >= 0 && row < MAX_ATTEMPTS && CG.length() == EquationCodec.LENGTH) {
+            playedGuesses[row] = EquationCodec.pack(CG); // Remember the row for hints
+            playedPatterns[row] = NumberleSolver.patternOf(flag);
+            for (GameListener listener : listeners) {
+                listener.rowScored(this, row, playedGuesses[row], playedPatterns[row]);
+            }
+        }
+        boolean isWin = !late && flag.length == EquationCodec.LENGTH;
+        for (int f : flag) {
+            isWin &= f == 1; // Every position is correct
+        }
         setGameWon(isWin);
+        ModelMetrics.stop(ModelMetrics.Timer.COMPARE, start);
+        if (event != null && event.shouldCommit()) {
+            event.mode = getMode();
+            event.attempt = row;
+            event.pattern = flag.length == EquationCodec.LENGTH ? NumberleSolver.patternOf(flag) : -1;
+            event.won = isWin;
+            event.candidates = isAdversarial && adversarialTarget != null ? adversarialTarget.getCount() : -1;
+            event.commit();
+        }
         return isWin;
     }
 
 
+    /**
+     * Computes a hint for the next guess from the rows scored so far.
+     * While the player follows the precomputed decision tree the hint is a walk of the tree.
+     * Otherwise it is searched, returning the best guess found when the deadline passes.
+     *
+     * @param deadline The System.nanoTime() value at which the hint must be returned.
+     * @return The hint.
+     */
+    public Hint getHint(long deadline) {
+        int rows = MAX_ATTEMPTS - remainingAttempts;
+        DecisionTree tree = DecisionTree.forFile(treeFile);
+        if (tree != null) {
+            Hint hint = tree.hint(playedGuesses, playedPatterns, rows);
+            if (hint != null) {
+                return hint;
+            }
+        }
+        int[] dictionary = DictionaryWatcher.forFile(equationsFile).current().getPacked();
+        return HintSearch.search(dictionary, playedGuesses, playedPatterns, rows, deadline);
+    }
+
     /**
      * Sets the color of a button at the given index.
      *
@@ -460,6 +901,253 @@ public class NumberleModel extends Observable implements INumberleModel {
         return isRandom;
     }
 
+    /**
+     * Toggles the daily puzzle flag.
+     * If the flag is currently true, it will be set to false. If it is false, it will be set to true.
+     */
+    public void setDaily() {
+        isDaily = !isDaily;
+    }
+
+    /**
+     * Retrieves the value of the daily puzzle flag.
+     *
+     * @return True if the daily puzzle flag is set, false otherwise.
+     */
+    public boolean getDaily() {
+        return isDaily;
+    }
+
+    /**
+     * Toggles the adversarial flag.
+     * If the flag is currently true, it will be set to false. If it is false, it will be set to true.
+     */
+    public void setAdversarial() {
+        isAdversarial = !isAdversarial;
+    }
+
+    /**
+     * Retrieves the value of the adversarial flag.
+     *
+     * @return True if the adversarial flag is set, false otherwise.
+     */
+    public boolean getAdversarial() {
+        return isAdversarial;
+    }
+
+    /**
+     * Toggles the strict flag.
+     * If the flag is currently true, it will be set to false. If it is false, it will be set to true.
+     */
+    public void setStrict() {
+        isStrict = !isStrict;
+    }
+
+    /**
+     * Retrieves the value of the strict flag.
+     *
+     * @return True if guesses must be equations of the dictionary, false otherwise.
+     */
+    public boolean getStrict() {
+        return isStrict;
+    }
+
+    /**
+     * Returns the mode of the games, as recorded in flight recording events.
+     *
+     * @return "race", "adversarial", "daily", "random", "random-" and the difficulty, or "default".
+     */
+    @Override
+    public String getMode() {
+        if (race != null) {
+            return "race";
+        } else if (isAdversarial) {
+            return "adversarial";
+        } else if (isDaily) {
+            return "daily";
+        } else if (!isRandom) {
+            return "default";
+        }
+        return difficulty == null ? "random" : "random-" + difficulty.name().toLowerCase(Locale.ROOT);
+    }
+
+    /**
+     * Makes the following games part of a race, or ends racing.
+     * A racing game gets the race's target when it starts, is scored from the race's shared feedback,
+     * and is ranked on the race's leaderboard when it ends.
+     *
+     * @param race The race, or null to play alone.
+     */
+    public void setRace(Race race) {
+        if (this.race != null) {
+            removeGameListener(this.race);
+        }
+        this.race = race;
+        if (race != null) {
+            addGameListener(race);
+        }
+    }
+
+    /**
+     * Returns the race the games belong to.
+     *
+     * @return The race, or null.
+     */
+    public Race getRace() {
+        return race;
+    }
+
+    /**
+     * Toggles the speed-run flag. It takes effect when the next game starts; until then the game is not timed.
+     * If the flag is currently true, it will be set to false. If it is false, it will be set to true.
+     */
+    public void setSpeedRun() {
+        isSpeedRun = !isSpeedRun;
+        speedRun.cancel(); // A timeout of an earlier game must not end this one
+    }
+
+    /**
+     * Retrieves the value of the speed-run flag.
+     *
+     * @return True if games are played against the clock, false otherwise.
+     */
+    public boolean getSpeedRun() {
+        return isSpeedRun;
+    }
+
+    /**
+     * Returns the clock of speed-run games, holding the timings of the last game.
+     *
+     * @return The clock.
+     */
+    public SpeedRun getClock() {
+        return speedRun;
+    }
+
+    /**
+     * Returns the timings of every speed-run game of this model's player, merged when each game ends.
+     *
+     * @return The aggregate clock.
+     */
+    @Override
+    public SpeedRun getSpeedRunTotals() {
+        return speedRunTotals;
+    }
+
+    /**
+     * Writes the game state in the fixed binary layout of GameSnapshot.
+     *
+     * @param out The buffer receiving GameSnapshot.SIZE bytes.
+     * @throws IllegalStateException If the target is not a 7-symbol equation.
+     */
+    public void writeSnapshot(ByteBuffer out) {
+        int target = targetEquations == null ? -1 : EquationCodec.pack(targetEquations);
+        if (target < 0) {
+            throw new IllegalStateException("Target cannot be snapshotted: " + targetEquations);
+        }
+        int flags = (isRandom ? 1 : 0) | (isDaily ? 2 : 0) | (isAdversarial ? 4 : 0) | (gameWon ? 8 : 0)
+                | (difficulty == null ? 0 : difficulty.ordinal() + 1) << 4 | (isStrict ? 64 : 0) | (isSpeedRun ? 128 : 0);
+
+        int guess = 0;
+        for (int i = 0; i < EquationCodec.LENGTH; i++) {
+            int symbol = i < currentGuess.length() ? EquationCodec.symbolIndex(currentGuess.charAt(i)) : -1;
+            guess = (guess << 4) | (symbol < 0 ? GameSnapshot.BLANK : symbol);
+        }
+        int buttons = packButtons();
+
+        out.put((byte) GameSnapshot.VERSION);
+        out.put((byte) flags);
+        out.put((byte) remainingAttempts);
+        out.putInt(target);
+        out.putInt(guess);
+        out.putInt(buttons);
+        out.putLong(sequenceSeed);
+        out.putLong(sequencePosition);
+        int played = MAX_ATTEMPTS - remainingAttempts;
+        for (int row = 0; row < MAX_ATTEMPTS; row++) {
+            long packedRow = row < played && playedGuesses[row] >= 0 ? playedGuesses[row] : GameSnapshot.NO_GUESS;
+            packedRow = packedRow << 12 | (row < played ? playedPatterns[row] : 0);
+            out.put((byte) (packedRow >>> 32));
+            out.putInt((int) packedRow);
+        }
+        boolean timed = isSpeedRun && speedRun.isRunning(); // Also a game whose budget ran out unreported
+        out.putInt(timed ? (int) Math.min(speedRun.getElapsedMillis(), Integer.MAX_VALUE) : 0);
+    }
+
+    /**
+     * Replaces the game state with one written by writeSnapshot. Observers are not notified.
+     *
+     * @param in The buffer holding GameSnapshot.SIZE bytes.
+     * @throws IllegalArgumentException If the snapshot has an unknown version.
+     */
+    public void readSnapshot(ByteBuffer in) {
+        if (in.get() != GameSnapshot.VERSION) {
+            throw new IllegalArgumentException("Unknown snapshot version");
+        }
+        int flags = in.get() & 0xFF;
+        isRandom = (flags & 1) != 0;
+        isDaily = (flags & 2) != 0;
+        isAdversarial = (flags & 4) != 0;
+        gameWon = (flags & 8) != 0;
+        int bucket = (flags >>> 4) & 3;
+        difficulty = bucket == 0 ? null : DifficultyBucket.values()[bucket - 1];
+        isStrict = (flags & 64) != 0;
+        isSpeedRun = (flags & 128) != 0;
+        remainingAttempts = in.get();
+        int target = in.getInt();
+        targetEquations = EquationCodec.unpack(target);
+        raceTarget = race != null && race.getTarget() == target ? target : -1; // A race's game restored into it
+
+        int guess = in.getInt();
+        char[] chars = new char[EquationCodec.LENGTH];
+        for (int i = 0; i < EquationCodec.LENGTH; i++) {
+            int symbol = EquationCodec.symbolAt(guess, i);
+            chars[i] = symbol == GameSnapshot.BLANK ? ' ' : EquationCodec.symbolChar(symbol);
+        }
+        currentGuess = new StringBuilder(new String(chars));
+        int buttons = in.getInt();
+        for (int i = 0; i < buttonColor.length; i++) {
+            buttonColor[i] = ((buttons >>> (2 * i)) & 3) - 2;
+        }
+        sequenceSeed = in.getLong();
+        sequencePosition = in.getLong();
+
+        int played = MAX_ATTEMPTS - remainingAttempts;
+        for (int row = 0; row < MAX_ATTEMPTS; row++) {
+            long packedRow = (long) (in.get() & 0xFF) << 32 | (in.getInt() & 0xFFFFFFFFL);
+            int rowGuess = (int) (packedRow >>> 12);
+            playedGuesses[row] = rowGuess == GameSnapshot.NO_GUESS ? -1 : rowGuess;
+            playedPatterns[row] = (int) (packedRow & 0xFFF);
+            if (row < played) {
+                color[row] = new int[EquationCodec.LENGTH];
+                NumberleSolver.flagsOf(playedPatterns[row], color[row]);
+                matrix[row] = playedGuesses[row] < 0 ? null : new StringBuilder(EquationCodec.unpack(playedGuesses[row]));
+            } else {
+                color[row] = new int[EquationCodec.LENGTH];
+                matrix[row] = null;
+            }
+        }
+
+        int elapsedMillis = in.getInt();
+        if (isSpeedRun && !gameWon && remainingAttempts > 0) {
+            speedRun.resume(elapsedMillis); // The clock goes on from the time already used
+        }
+        gameOverReported = isGameOver(); // A restored game that already ended is not reported again
+        publishState();
+
+        // The deferred target is not stored; replaying the guesses narrows the dictionary the same way again
+        adversarialTarget = null;
+        if (isAdversarial) {
+            EquationDictionary dictionary = DictionaryWatcher.forFile(equationsFile).current();
+            adversarialTarget = new AdversarialTarget(dictionary.getPacked(), dictionary.getMasks());
+            for (int row = 0; row < played; row++) {
+                if (playedGuesses[row] >= 0) {
+                    adversarialTarget.narrow(playedGuesses[row]);
+                }
+            }
+        }
+    }
+
     /**
      * Starts a new game by initializing the necessary components.
      */
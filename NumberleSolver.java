@@ -0,0 +1,242 @@
+/**
+ * The NumberleSolver class plays Numberle against packed equations (see EquationCodec).
+ * Feedback follows the rules of NumberleModel.compare: a symbol is correct in its position,
+ * present elsewhere in the target, or absent. A feedback row is encoded as a base-3 pattern,
+ * first position most significant, with 2 for correct, 1 for present and 0 for absent.
+ * The solver always guesses the remaining candidate that minimises the expected number of candidates left.
+ */
+public class NumberleSolver {
+
+    public static final int PATTERNS = 2187; // Number of feedback patterns, 3^7.
+    public static final int SOLVED = PATTERNS - 1; // The pattern of a correct guess.
+
+    private final int[] dictionary; // The packed equations the target is drawn from.
+    private volatile int opening = -1; // The best first guess, computed on first use.
+
+    /**
+     * Constructs a solver for a packed dictionary.
+     *
+     * @param dictionary The packed equations.
+     */
+    public NumberleSolver(int[] dictionary) {
+        this.dictionary = dictionary;
+    }
+
+    /**
+     * Returns the packed dictionary of the solver.
+     *
+     * @return The packed equations.
+     */
+    public int[] getDictionary() {
+        return dictionary;
+    }
+
+    /**
+     * Computes the feedback pattern of a guess against a target.
+     *
+     * @param guess  The packed guess.
+     * @param target The packed target.
+     * @return The feedback pattern.
+     */
+    public static int feedback(int guess, int target) {
+        return feedback(guess, target, EquationCodec.presenceMask(target));
+    }
+
+    /**
+     * Computes the feedback pattern of a guess against a target whose presence mask is known.
+     *
+     * @param guess      The packed guess.
+     * @param target     The packed target.
+     * @param targetMask The presence mask of the target.
+     * @return The feedback pattern.
+     */
+    public static int feedback(int guess, int target, int targetMask) {
+        int pattern = 0;
+        for (int shift = 24; shift >= 0; shift -= 4) {
+            int g = (guess >>> shift) & 0xF;
+            int trit;
+            if (g == ((target >>> shift) & 0xF)) {
+                trit = 2; // Correct position
+            } else if ((targetMask & (1 << g)) != 0) {
+                trit = 1; // Present elsewhere
+            } else {
+                trit = 0; // Absent
+            }
+            pattern = pattern * 3 + trit;
+        }
+        return pattern;
+    }
+
+    /**
+     * Converts a row of model colour flags (1 correct, 0 present, -1 absent) into a feedback pattern.
+     *
+     * @param flags The colour flags of a row.
+     * @return The feedback pattern.
+     */
+    public static int patternOf(int[] flags) {
+        int pattern = 0;
+        for (int i = 0; i < EquationCodec.LENGTH; i++) {
+            pattern = pattern * 3 + flags[i] + 1;
+        }
+        return pattern;
+    }
+
+    /**
+     * Converts a feedback pattern into a row of model colour flags.
+     *
+     * @param pattern The feedback pattern.
+     * @param flags   The array receiving the colour flags.
+     */
+    public static void flagsOf(int pattern, int[] flags) {
+        for (int i = EquationCodec.LENGTH - 1; i >= 0; i--) {
+            flags[i] = pattern % 3 - 1;
+            pattern /= 3;
+        }
+    }
+
+    /**
+     * Keeps the candidates consistent with a guess and its feedback, compacting them in place.
+     *
+     * @param candidates The candidates; the survivors are moved to the front.
+     * @param count      The number of candidates.
+     * @param guess      The packed guess.
+     * @param pattern    The feedback pattern received for the guess.
+     * @return The number of surviving candidates.
+     */
+    public static int filter(int[] candidates, int count, int guess, int pattern) {
+        int kept = 0;
+        for (int i = 0; i < count; i++) {
+            int candidate = candidates[i];
+            if (feedback(guess, candidate) == pattern) {
+                candidates[kept++] = candidate;
+            }
+        }
+        return kept;
+    }
+
+    /**
+     * Scores a guess by the sum of the squared partition sizes it splits the candidates into.
+     * Divided by the candidate count this is the expected number of candidates left after the guess.
+     *
+     * @param guess      The packed guess.
+     * @param candidates The candidates.
+     * @param count      The number of candidates.
+     * @param counts     A reusable array of PATTERNS zeroed counters; it is zeroed again on return.
+     * @return The score, lower is better.
+     */
+    public static long score(int guess, int[] candidates, int count, int[] counts) {
+        long sum = 0;
+        for (int i = 0; i < count; i++) {
+            int pattern = feedback(guess, candidates[i]);
+            sum += 2L * counts[pattern] + 1; // (c + 1)^2 - c^2
+            counts[pattern]++;
+        }
+        for (int i = 0; i < count; i++) {
+            counts[feedback(guess, candidates[i])] = 0;
+        }
+        return sum;
+    }
+
+    /**
+     * Returns the candidate that minimises the expected number of candidates left.
+     *
+     * @param candidates The candidates.
+     * @param count      The number of candidates, at least 1.
+     * @param counts     A reusable array of PATTERNS zeroed counters.
+     * @return The packed best guess.
+     */
+    public static int bestGuess(int[] candidates, int count, int[] counts) {
+        int best = candidates[0];
+        if (count <= 2) {
+            return best; // Guessing either candidate is optimal
+        }
+        long bestScore = Long.MAX_VALUE;
+        for (int i = 0; i < count; i++) {
+            long score = score(candidates[i], candidates, count, counts);
+            if (score < bestScore) {
+                bestScore = score;
+                best = candidates[i];
+            }
+        }
+        return best;
+    }
+
+    /**
+     * Returns the best first guess against the whole dictionary.
+     *
+     * @return The packed opening guess.
+     */
+    public int getOpening() {
+        int result = opening;
+        if (result < 0) {
+            result = bestGuess(dictionary, dictionary.length, new int[PATTERNS]);
+            opening = result;
+        }
+        return result;
+    }
+
+    /**
+     * Plays a game against a target and reports how hard it was for the solver.
+     *
+     * @param target The packed target, which must be in the dictionary.
+     * @return The difficulty of the target.
+     */
+    public Difficulty solve(int target) {
+        int[] candidates = dictionary.clone();
+        int[] counts = new int[PATTERNS];
+        int count = candidates.length;
+        int guess = getOpening();
+        int guesses = 1;
+        int afterOpening = -1;
+
+        while (guess != target) {
+            count = filter(candidates, count, guess, feedback(guess, target));
+            if (count == 0) {
+                throw new IllegalArgumentException("Target is not in the dictionary: " + EquationCodec.unpack(target));
+            }
+            if (afterOpening < 0) {
+                afterOpening = count;
+            }
+            guess = bestGuess(candidates, count, counts);
+            guesses++;
+        }
+        return new Difficulty(guesses, afterOpening < 0 ? 1 : afterOpening);
+    }
+
+    /**
+     * The Difficulty class holds the solver statistics of one target.
+     */
+    public static final class Difficulty {
+        private final int guesses; // Guesses the solver needed.
+        private final int remainingAfterOpening; // Candidates left after the opening guess.
+
+        /**
+         * Constructs a difficulty record.
+         *
+         * @param guesses               Guesses the solver needed.
+         * @param remainingAfterOpening Candidates left after the opening guess.
+         */
+        public Difficulty(int guesses, int remainingAfterOpening) {
+            this.guesses = guesses;
+            this.remainingAfterOpening = remainingAfterOpening;
+        }
+
+        /**
+         * Returns the number of guesses the solver needed.
+         *
+         * @return The number of guesses, including the winning one.
+         */
+        public int getGuesses() {
+            return guesses;
+        }
+
+        /**
+         * Returns the number of candidates left after the opening guess.
+         *
+         * @return The candidate count, 1 if the opening guess was the target.
+         */
+        public int getRemainingAfterOpening() {
+            return remainingAfterOpening;
+        }
+    }
+}
@@ -21,11 +21,15 @@ public class NumberleView implements Observer {
      */
     private final INumberleModel model;
     private final NumberleController controller;
-    private final JFrame frame;
+    private final JFrame frame; // The window, or null when headless.
+    private final Container root; // The container holding every component: the frame's content pane, or a panel when headless.
     private ArrayList<String> localGuess;
     private JPanel chessBoard;
     private message messages;
     private ArrayList<JButton> buttonList = new ArrayList<JButton>();
+    private static final long HINT_BUDGET_MILLIS = 200; // The longest a hint may keep the UI waiting.
+    private static final int CLOCK_TICK_MILLIS = 100; // The refresh period of the speed-run clock.
+    private final JLabel clockLabel = new JLabel(" "); // The time left to a speed-run game.
 
     /**
      * Constructor for creating a new instance of NumberleView.
@@ -34,7 +38,21 @@ public class NumberleView implements Observer {
      * @param controller The NumberleController controller object
      */
     public NumberleView(INumberleModel model, NumberleController controller) {
-        this.frame = new JFrame("Numberle");
+        this(model, controller, false);
+    }
+
+    /**
+     * Constructor for creating a new instance of NumberleView, optionally without a window.
+     * A headless view lays its components out in a plain panel that can be painted offscreen,
+     * and logs its popups instead of showing them.
+     *
+     * @param model      The INumberleModel model object
+     * @param controller The NumberleController controller object
+     * @param headless   True to build the view without a window
+     */
+    NumberleView(INumberleModel model, NumberleController controller, boolean headless) {
+        this.frame = headless ? null : new JFrame("Numberle");
+        this.root = headless ? new JPanel() : frame.getContentPane();
         this.controller = controller;
         this.model = model;
         this.controller.startNewGame();
@@ -45,15 +63,36 @@ public class NumberleView implements Observer {
         this.controller.setView(this);
         update((NumberleModel) this.model, null);
         messages = new message();
+        if (!headless) {
+            new Timer(CLOCK_TICK_MILLIS, e -> tick()).start(); // Runs the speed-run clock on the event thread
+        }
+    }
+
+    /**
+     * Shows the time left to a speed-run game, and ends the game when its budget runs out.
+     */
+    void tick() {
+        if (!controller.getIsSpeedRun()) {
+            clockLabel.setText(" ");
+            return;
+        }
+        clockLabel.setText(String.format("%.1f s", controller.getClock().getRemainingMillis() / 1000.0));
+        if (controller.checkClock()) {
+            showPopup("TIME UP, the answer was " + controller.getTargetEquation());
+        }
     }
 
     /**
      * Initializes the frame by setting up the layout and adding components.
      */
     public void initializeFrame() {
-        frame.setDefaultCloseOperation(JFrame.EXIT_ON_CLOSE); // Set the default close operation of the frame
-        frame.setSize(1000, 1000); // Set the size of the frame to 1000x1000 pixels
-        frame.setLayout(new BorderLayout()); // Set the BorderLayout as the layout manager for the frame
+        if (frame != null) {
+            frame.setDefaultCloseOperation(JFrame.EXIT_ON_CLOSE); // Set the default close operation of the frame
+            frame.setSize(1000, 1000); // Set the size of the frame to 1000x1000 pixels
+        } else {
+            root.setSize(1000, 1000); // Lay out as the 1000x1000 frame would
+        }
+        root.setLayout(new BorderLayout()); // Set the BorderLayout as the layout manager for the frame
 
         JPanel functionPanel = new JPanel(); // Create a new JPanel for the function buttons
         functionPanel.setLayout(new FlowLayout()); // Set the FlowLayout as the layout manager for the function panel
@@ -70,12 +109,34 @@ public class NumberleView implements Observer {
         JButton button2 = createButton("Random", 200, 30);
         functionPanel.add(button2);
 
+        // Create the "Daily" button
+        JButton dailyButton = createButton("Daily", 200, 30);
+        functionPanel.add(dailyButton);
+
+        // Create the "Absurdle" button
+        JButton absurdleButton = createButton("Absurdle", 200, 30);
+        functionPanel.add(absurdleButton);
+
+        // Create the "Strict" button
+        JButton strictButton = createButton("Strict", 200, 30);
+        functionPanel.add(strictButton);
+
+        // Create the "Speed" button
+        JButton speedButton = createButton("Speed", 200, 30);
+        functionPanel.add(speedButton);
+
+        // Create the "Hint" button
+        JButton hintButton = createButton("Hint", 200, 30);
+        functionPanel.add(hintButton);
+
         // Create button3
         JButton button3 = createButton("Wrong Message", 200, 30);
         functionPanel.add(button3);
 
         functionPanel.add(restartButton); // Add the restart button to the function panel
-        frame.add(functionPanel, BorderLayout.SOUTH); // Add the function panel to the south region of the frame
+        clockLabel.setFont(new Font("Arial", Font.BOLD, 20));
+        functionPanel.add(clockLabel); // Add the speed-run clock to the function panel
+        root.add(functionPanel, BorderLayout.SOUTH); // Add the function panel to the south region of the frame
 
         JPanel center = new JPanel(); // Create a new JPanel for the center region
         center.setLayout(new BoxLayout(center, BoxLayout.X_AXIS)); // Set the BoxLayout with horizontal axis for the center panel
@@ -85,7 +146,7 @@ public class NumberleView implements Observer {
         JPanel chessBoardPanel = this.chessBoard; // Get the chessboard panel
         center.add(chessBoardPanel); // Add the chessboard panel to the center panel
         center.add(new JPanel());
-        frame.add(center, BorderLayout.NORTH); // Add the center panel to the north region of the frame
+        root.add(center, BorderLayout.NORTH); // Add the center panel to the north region of the frame
 
         JPanel buttonPanel = new JPanel(); // Create a new JPanel for the button panel
         buttonPanel.setLayout(new GridBagLayout()); // Set the GridBagLayout as the layout manager for the button panel
@@ -132,8 +193,10 @@ public class NumberleView implements Observer {
         gbc.gridwidth = 3;
         buttonPanel.add(enterButton, gbc);
 
-        frame.add(buttonPanel, BorderLayout.CENTER); // Add the button panel to the center region of the frame
-        frame.setVisible(true); // Set the frame as visible
+        root.add(buttonPanel, BorderLayout.CENTER); // Add the button panel to the center region of the frame
+        if (frame != null) {
+            frame.setVisible(true); // Set the frame as visible
+        }
     }
 
     /**
@@ -216,6 +279,31 @@ public class NumberleView implements Observer {
                         showPopup("Random On, Please restart game"); // Show a popup indicating random mode is on
                         controller.setIsRandom(); // Turn on random mode by calling the setIsRandom() method
                     }
+                } else if (Objects.equals(buttonText, "Daily")) {
+                    if (controller.getIsDaily()) {
+                        controller.setIsDaily(); // Turn off daily mode
+                        showPopup("Daily off, Please restart game"); // Show a popup indicating daily mode is off
+                    } else {
+                        showPopup("Daily On, Please restart game"); // Show a popup indicating daily mode is on
+                        controller.setIsDaily(); // Turn on daily mode
+                    }
+                } else if (Objects.equals(buttonText, "Absurdle")) {
+                    if (controller.getIsAdversarial()) {
+                        controller.setIsAdversarial(); // Turn off adversarial mode
+                        showPopup("Absurdle off, Please restart game"); // Show a popup indicating adversarial mode is off
+                    } else {
+                        showPopup("Absurdle On, Please restart game"); // Show a popup indicating adversarial mode is on
+                        controller.setIsAdversarial(); // Turn on adversarial mode
+                    }
+                } else if (Objects.equals(buttonText, "Strict")) {
+                    controller.setIsStrict(); // Takes effect from the next guess
+                    showPopup(controller.getIsStrict() ? "Strict On, guesses must be in the dictionary" : "Strict off");
+                } else if (Objects.equals(buttonText, "Speed")) {
+                    controller.setIsSpeedRun(); // Takes effect from the next game
+                    showPopup(controller.getIsSpeedRun() ? "Speed run On, Please restart game" : "Speed run off, Please restart game");
+                } else if (Objects.equals(buttonText, "Hint")) {
+                    Hint hint = controller.getHint(HINT_BUDGET_MILLIS); // Search for the best guess within the budget
+                    showPopup(hint.getGuess() == null ? "No equation fits the feedback" : "Try: " + hint.getGuess());
                 } else if (Objects.equals(buttonText, "Wrong Message")) {
                     // Implement the logic for the "Wrong Message" button
                 } else {
@@ -231,7 +319,7 @@ public class NumberleView implements Observer {
     /**
      * Restarts the game by clearing the chessboard and resetting other variables.
      */
-    private void restart() {
+    void restart() {
         // Clear the text fields in the chessboard
         for (Component component : chessBoard.getComponents()) {
             if (component instanceof JPanel) {
@@ -279,7 +367,7 @@ public class NumberleView implements Observer {
      *
      * @param Char The character to display.
      */
-    private void DisplayCharOnBoard(String Char) {
+    void DisplayCharOnBoard(String Char) {
         if (localGuess.size() < 7) { // Check if the localGuess list has less than 7 elements
 
             // Get the cell panel to display the character
@@ -297,6 +385,7 @@ public class NumberleView implements Observer {
             cellPanel.repaint(); // Repaint the cell panel to reflect the changes
 
             localGuess.add(Char); // Add the character to the localGuess list
+            controller.typeSymbol(Char); // Record the key for the listeners
         }
     }
 
@@ -304,7 +393,7 @@ public class NumberleView implements Observer {
     /**
      * Deletes the last character displayed on the chessboard.
      */
-    private void Delete() {
+    void Delete() {
         if (localGuess.size() > 0) { // Check if the localGuess list has at least one character
             // Get the cell panel where the last character is displayed
             JPanel cellPanel = (JPanel) chessBoard.getComponent(localGuess.size() - 1 + 7 * (7 - controller.getRemainingAttempts()));
@@ -318,6 +407,7 @@ public class NumberleView implements Observer {
 
             // Remove the last character from the localGuess list
             localGuess.remove(localGuess.size() - 1);
+            controller.deleteSymbol(); // Record the key for the listeners
         }
     }
 
@@ -325,7 +415,12 @@ public class NumberleView implements Observer {
     /**
      * Handles the logic when the user presses the Enter key.
      */
-    private void Enter() {
+    void Enter() {
+        if (controller.isOutOfTime()) { // The speed-run budget ran out
+            showPopup("Time is up, Please restart game");
+            return;
+        }
+        long start = ModelMetrics.start();
         StringBuilder sb = new StringBuilder();
         for (String element : localGuess) {
             sb.append(element);
@@ -336,6 +431,7 @@ public class NumberleView implements Observer {
         int errorNumber = controller.validateEquation(sb.toString());
 
         if (errorNumber != 4) { // Error occurred in the equation
+            ModelMetrics.stop(ModelMetrics.Timer.VIEW_ENTER, start); // The popup waits for the player, so it is not timed
             // Show a popup with the corresponding error message
             showPopup(messages.getMessages()[errorNumber]);
         } else { // Equation is valid
@@ -348,11 +444,12 @@ public class NumberleView implements Observer {
 
             // Clear the localGuess list
             localGuess.clear();
+            ModelMetrics.stop(ModelMetrics.Timer.VIEW_ENTER, start);
 
             if (controller.isGameWon()) { // Game is won
-                showPopup("YOU WON!");
+                showPopup("YOU WON!" + speedRunResult());
             } else if (controller.isGameOver()) { // Game is lost
-                showPopup("YOU LOSE");
+                showPopup("YOU LOSE" + speedRunResult());
             } else { // Game is not over yet
                 // Show a popup with the remaining attempts
                 showPopup("Attempts remaining: " + controller.getRemainingAttempts());
@@ -361,15 +458,44 @@ public class NumberleView implements Observer {
     }
 
 
+    /**
+     * Describes the timings of a finished speed-run game.
+     *
+     * @return The timings, or an empty string if the game was not a speed run.
+     */
+    private String speedRunResult() {
+        if (!controller.getIsSpeedRun()) {
+            return "";
+        }
+        SpeedRun clock = controller.getClock();
+        SpeedRun totals = controller.getSpeedRunTotals();
+        return String.format(" in %.1f s, %d guesses in %.1f s each, %.2f s median per key; %d of %d speed runs won",
+                clock.getElapsedMillis() / 1000.0, clock.getGuessTimes().getCount(), clock.getGuessTimes().getMean() / 1e9,
+                clock.getThinkTimes().getPercentile(50) / 1e9, totals.getWins(), totals.getGames());
+    }
+
     /**
      * Displays a popup message dialog with the specified content.
      *
      * @param content The content of the popup message.
      */
     public void showPopup(String content) {
+        if (frame == null) {
+            GameLog.log(GameLog.Level.DEBUG, "popup: ", content); // No screen to show it on
+            return;
+        }
         JOptionPane.showMessageDialog(null, content, "message", JOptionPane.INFORMATION_MESSAGE);
     }
 
+    /**
+     * Returns the container holding every component of the view, e.g. to paint a headless view offscreen.
+     *
+     * @return The root container.
+     */
+    Container getRoot() {
+        return root;
+    }
+
     /**
      * Sets the background color of a JPanel based on the specified flag.
      *
@@ -390,14 +516,13 @@ public class NumberleView implements Observer {
         }
     }
     /**
-     * Sets the background color of buttons in the button list based on the button color values from the controller.
+     * Sets the background color of buttons in the button list based on the button color values of a game state.
+     *
+     * @param state The game state to show.
      */
-    public void setButtonColor() {
-
-        int[] buttonColorList = controller.getButtonColor();
-
+    public void setButtonColor(GameState state) {
         for (int i = 0; i < buttonList.size(); i++) {
-            switch (buttonColorList[i]) {
+            switch (state.getButtonColor(i)) {
                 case -1:
                     buttonList.get(i).setBackground(Color.decode("#A4AEC4")); // Set the background color to gray
                     break;
@@ -422,17 +547,20 @@ public class NumberleView implements Observer {
      * @param arg An optional argument passed to the update method.
      */
     public void update(java.util.Observable o, Object arg) {
-        if (controller.getRemainingAttempts() != 7) {
-            int[] colors = controller.getColor()[6 - controller.getRemainingAttempts()];
-            System.out.println("correct:" + controller.getTargetEquation());
+        long start = ModelMetrics.start();
+        GameState state = controller.getState(); // One consistent view, even if the model moves on
+        if (state.getRows() > 0) {
+            int row = state.getRows() - 1; // The row scored last
+            GameLog.log(GameLog.Level.DEBUG, "correct:", state.getTargetEquation()); // Formatted off the event thread
 
             for (int i = 0; i < 7; i++) {
-                JPanel cellPanel = (JPanel) chessBoard.getComponent((6 - controller.getRemainingAttempts()) * 7 + i);
-                setColor(cellPanel, colors[i]);
+                JPanel cellPanel = (JPanel) chessBoard.getComponent(row * 7 + i);
+                setColor(cellPanel, state.getFlag(row, i));
             }
 
-            setButtonColor();
+            setButtonColor(state);
         }
+        ModelMetrics.stop(ModelMetrics.Timer.VIEW_UPDATE, start);
     }
     /**
      * The message class represents a collection of predefined messages used in the application.
@@ -448,6 +576,7 @@ public class NumberleView implements Observer {
             messages[1] = "Equation must contain an equal sign";
             messages[2] = "Equation must have 7 characters";
             messages[3] = "The left side is not equal to the right side";
+            messages[5] = "Equation is not in the dictionary";
         }
 
         /**
@@ -0,0 +1,109 @@
+import java.util.Arrays;
+
+/**
+ * The PlayerStats class is an immutable record of one player's results.
+ */
+public final class PlayerStats {
+
+    public static final PlayerStats EMPTY = new PlayerStats(0, 0, 0, 0, new int[INumberleModel.MAX_ATTEMPTS]); // No games.
+
+    private final int played; // Games played.
+    private final int won; // Games won.
+    private final int currentStreak; // Consecutive wins up to the last game.
+    private final int maxStreak; // Longest run of consecutive wins.
+    private final int[] distribution; // Wins by number of guesses; index 0 is one guess.
+
+    /**
+     * Constructs a statistics record.
+     *
+     * @param played        Games played.
+     * @param won           Games won.
+     * @param currentStreak Consecutive wins up to the last game.
+     * @param maxStreak     Longest run of consecutive wins.
+     * @param distribution  Wins by number of guesses; index 0 is one guess. The array is not copied.
+     */
+    PlayerStats(int played, int won, int currentStreak, int maxStreak, int[] distribution) {
+        this.played = played;
+        this.won = won;
+        this.currentStreak = currentStreak;
+        this.maxStreak = maxStreak;
+        this.distribution = distribution;
+    }
+
+    /**
+     * Returns the statistics after one more game.
+     *
+     * @param gameWon True if the game was won.
+     * @param guesses The number of guesses scored.
+     * @return The updated statistics.
+     */
+    public PlayerStats plus(boolean gameWon, int guesses) {
+        int[] updated = distribution.clone();
+        if (gameWon && guesses >= 1 && guesses <= updated.length) {
+            updated[guesses - 1]++;
+        }
+        int streak = gameWon ? currentStreak + 1 : 0;
+        return new PlayerStats(played + 1, won + (gameWon ? 1 : 0), streak, Math.max(maxStreak, streak), updated);
+    }
+
+    /**
+     * Returns the number of games played.
+     *
+     * @return The number of games.
+     */
+    public int getPlayed() {
+        return played;
+    }
+
+    /**
+     * Returns the number of games won.
+     *
+     * @return The number of wins.
+     */
+    public int getWon() {
+        return won;
+    }
+
+    /**
+     * Returns the number of consecutive wins up to the last game.
+     *
+     * @return The current streak.
+     */
+    public int getCurrentStreak() {
+        return currentStreak;
+    }
+
+    /**
+     * Returns the longest run of consecutive wins.
+     *
+     * @return The longest streak.
+     */
+    public int getMaxStreak() {
+        return maxStreak;
+    }
+
+    /**
+     * Returns the number of wins that took a given number of guesses.
+     *
+     * @param guesses The number of guesses, 1 to MAX_ATTEMPTS.
+     * @return The number of wins.
+     */
+    public int getWins(int guesses) {
+        return distribution[guesses - 1];
+    }
+
+    /**
+     * Returns the wins by number of guesses.
+     *
+     * @return A copy of the distribution; index 0 is one guess.
+     */
+    public int[] getDistribution() {
+        return distribution.clone();
+    }
+
+    @Override
+    public String toString() {
+        return "played=" + played + " won=" + won + " streak=" + currentStreak + " maxStreak=" + maxStreak
+                + " distribution=" + Arrays.toString(distribution);
+    }
+}
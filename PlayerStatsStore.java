@@ -0,0 +1,514 @@
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The PlayerStatsStore class persists the results of finished games per player.
+ *
+ * Results are queued by the game thread and written by a background writer to an append-only log.
+ * The writer drains every queued result into one write followed by one force() (group commit),
+ * then applies them to an in-memory map of the players changed since the last compaction.
+ * Compaction merges that map into a new open-addressing table file of fixed 64-byte slots,
+ * which is memory-mapped for lookups, and starts a new log. A lookup checks the in-memory map,
+ * then probes the mapped table; it never reads the log.
+ *
+ * Log layout: long generation, then 16-byte records (long player id, byte won, byte guesses, 6 bytes padding).
+ * Table layout: a 64-byte header (int magic, int version, int capacity, int players, long generation),
+ * then per slot: long player id, int played, int won, int current streak, int max streak,
+ * MAX_ATTEMPTS ints of wins by guesses, padding. A slot with played = 0 is empty.
+ * A table of generation g contains every record of the log of generation g, so a log whose generation
+ * is not newer than the table was already compacted and is discarded on startup.
+ */
+public class PlayerStatsStore implements GameListener, AutoCloseable {
+
+    private static final int RECORD_SIZE = 16; // The size of a log record.
+    private static final int MAX_BATCH = 4096; // The most records committed with one force().
+    private static final int TABLE_MAGIC = 0x4E505354; // "NPST"
+    private static final int TABLE_VERSION = 1; // The table format version.
+    private static final int HEADER_SIZE = 64; // The size of the table header.
+    private static final int SLOT_SIZE = 64; // The size of a table slot.
+    private static final Result WAKE = new Result(0, false, 0); // Queued by close() to wake the writer; never written.
+
+    private final Path directory; // The directory of the log and table files.
+    private final String name; // The common prefix of the file names.
+    private final long compactBytes; // The log size that triggers a compaction.
+    private final long compactMillis; // The time after which a non-empty log is compacted.
+
+    private final BlockingQueue<Result> queue = new LinkedBlockingQueue<>(); // Results waiting for the writer.
+    private final ConcurrentHashMap<Long, PlayerStats> recent = new ConcurrentHashMap<>(); // Players changed since the last compaction.
+    private final FileChannel log; // The append-only result log.
+    private final ByteBuffer batch = ByteBuffer.allocateDirect(MAX_BATCH * RECORD_SIZE); // The writer's batch buffer.
+    private final Thread writer; // The background writer thread.
+
+    private volatile MappedByteBuffer table; // The compacted table, or null before the first compaction.
+    private volatile int tableCapacity; // The number of slots of the table.
+    private long generation; // The generation of the current log.
+    private long lastCompaction = System.currentTimeMillis(); // When the log was last compacted.
+    private volatile long commits; // The number of force() calls.
+    private volatile long recorded; // The number of committed results.
+    private volatile boolean running = true; // Cleared by close().
+
+    /**
+     * The Result class is a queued game result.
+     */
+    private static final class Result {
+        private final long playerId; // The player.
+        private final boolean won; // True if the game was won.
+        private final int guesses; // The number of guesses scored.
+
+        /**
+         * Constructs a result.
+         *
+         * @param playerId The player.
+         * @param won      True if the game was won.
+         * @param guesses  The number of guesses scored.
+         */
+        private Result(long playerId, boolean won, int guesses) {
+            this.playerId = playerId;
+            this.won = won;
+            this.guesses = guesses;
+        }
+    }
+
+    /**
+     * Opens a store, recovering the latest table and any results logged after it.
+     *
+     * @param directory     The directory of the log and table files.
+     * @param name          The common prefix of the file names.
+     * @param compactBytes  The log size that triggers a compaction.
+     * @param compactMillis The time after which a non-empty log is compacted.
+     * @throws IOException If the files cannot be opened.
+     */
+    public PlayerStatsStore(Path directory, String name, long compactBytes, long compactMillis) throws IOException {
+        this.directory = directory;
+        this.name = name;
+        this.compactBytes = compactBytes;
+        this.compactMillis = compactMillis;
+
+        long tableGeneration = openLatestTable();
+        log = FileChannel.open(directory.resolve(name + ".log"), StandardOpenOption.CREATE,
+                StandardOpenOption.READ, StandardOpenOption.WRITE);
+        recoverLog(tableGeneration);
+
+        writer = new Thread(this::writeLoop, "player-stats-writer");
+        writer.setDaemon(true);
+        writer.start();
+    }
+
+    /**
+     * Opens a store that compacts every megabyte of log or every minute.
+     *
+     * @param directory The directory of the log and table files.
+     * @param name      The common prefix of the file names.
+     * @throws IOException If the files cannot be opened.
+     */
+    public PlayerStatsStore(Path directory, String name) throws IOException {
+        this(directory, name, 1 << 20, 60_000);
+    }
+
+    /**
+     * Opens the store of an application in a directory and closes it when the JVM exits, so that the queued
+     * results are committed.
+     *
+     * @param directory The directory of the log and table files.
+     * @return The store.
+     * @throws IOException If the files cannot be opened.
+     */
+    public static PlayerStatsStore open(Path directory) throws IOException {
+        PlayerStatsStore store = new PlayerStatsStore(directory, "player-stats");
+        Runtime.getRuntime().addShutdownHook(new Thread(() -> {
+            try {
+                store.close();
+            } catch (IOException e) {
+                GameLog.log(GameLog.Level.ERROR, "Player statistics close failed: ", e);
+            }
+        }, "PlayerStatsStore shutdown"));
+        return store;
+    }
+
+    /**
+     * Queues the result of a finished game. The call does not wait for the disk.
+     *
+     * @param playerId The player.
+     * @param won      True if the game was won.
+     * @param guesses  The number of guesses scored.
+     */
+    public void record(long playerId, boolean won, int guesses) {
+        queue.add(new Result(playerId, won, guesses));
+    }
+
+    /**
+     * Queues the result of a game that ended.
+     *
+     * @param model   The game that ended.
+     * @param won     True if the game was won.
+     * @param guesses The number of guesses scored.
+     */
+    @Override
+    public void gameOver(NumberleModel model, boolean won, int guesses) {
+        record(model.getPlayerId(), won, guesses);
+    }
+
+    /**
+     * Returns the committed statistics of a player.
+     *
+     * @param playerId The player.
+     * @return The statistics, empty if the player has no committed results.
+     */
+    public PlayerStats lookup(long playerId) {
+        PlayerStats stats = recent.get(playerId);
+        if (stats != null) {
+            return stats;
+        }
+        return lookupTable(playerId);
+    }
+
+    /**
+     * Returns the number of force() calls so far.
+     *
+     * @return The commit count.
+     */
+    public long getCommits() {
+        return commits;
+    }
+
+    /**
+     * Returns the number of results committed so far.
+     *
+     * @return The result count.
+     */
+    public long getRecorded() {
+        return recorded;
+    }
+
+    /**
+     * Commits the queued results, compacts the log and closes the files.
+     *
+     * @throws IOException If the files cannot be closed.
+     */
+    @Override
+    public void close() throws IOException {
+        running = false;
+        queue.add(WAKE); // Interrupting would close the FileChannel under the writer
+        try {
+            writer.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        log.close();
+    }
+
+    /**
+     * Commits queued results in batches and compacts the log when it is large or old enough.
+     */
+    private void writeLoop() {
+        List<Result> results = new ArrayList<>(MAX_BATCH);
+        while (running || !queue.isEmpty()) {
+            try {
+                Result first = queue.poll(compactMillis, TimeUnit.MILLISECONDS);
+                if (first != null) {
+                    results.add(first);
+                    queue.drainTo(results, MAX_BATCH - 1); // Everything that queued up while the last force() ran
+                    results.remove(WAKE);
+                    if (!results.isEmpty()) {
+                        commit(results);
+                    }
+                    results.clear();
+                }
+            } catch (InterruptedException e) {
+                return;
+            } catch (IOException e) {
+                GameLog.log(GameLog.Level.ERROR, "Player statistics commit failed: ", e);
+                results.clear();
+            }
+            try {
+                long logBytes = log.size() - Long.BYTES;
+                if (logBytes >= compactBytes || (logBytes > 0
+                        && (!running || System.currentTimeMillis() - lastCompaction >= compactMillis))) {
+                    compact();
+                }
+            } catch (IOException e) {
+                GameLog.log(GameLog.Level.ERROR, "Player statistics compaction failed: ", e);
+            }
+        }
+    }
+
+    /**
+     * Appends a batch of results to the log, forces it to disk once and applies the results.
+     *
+     * @param results The results to commit.
+     * @throws IOException If the log cannot be written.
+     */
+    private void commit(List<Result> results) throws IOException {
+        batch.clear();
+        for (Result result : results) {
+            batch.putLong(result.playerId);
+            batch.put((byte) (result.won ? 1 : 0));
+            batch.put((byte) result.guesses);
+            batch.putShort((short) 0).putInt(0); // Padding, cleared of the previous batch
+        }
+        batch.flip();
+        long position = log.size();
+        while (batch.hasRemaining()) {
+            position += log.write(batch, position);
+        }
+        log.force(false);
+        commits++;
+
+        for (Result result : results) {
+            apply(result.playerId, result.won, result.guesses);
+        }
+        recorded += results.size();
+    }
+
+    /**
+     * Adds a result to the in-memory statistics of a player.
+     *
+     * @param playerId The player.
+     * @param won      True if the game was won.
+     * @param guesses  The number of guesses scored.
+     */
+    private void apply(long playerId, boolean won, int guesses) {
+        recent.put(playerId, lookup(playerId).plus(won, guesses));
+    }
+
+    /**
+     * Merges the table and the recent players into a table of the next generation and starts a new log.
+     *
+     * @throws IOException If the table cannot be written or the log cannot be reset.
+     */
+    private void compact() throws IOException {
+        Map<Long, PlayerStats> merged = new HashMap<>();
+        MappedByteBuffer current = table;
+        if (current != null) {
+            for (int slot = 0; slot < tableCapacity; slot++) {
+                int offset = HEADER_SIZE + slot * SLOT_SIZE;
+                if (current.getInt(offset + 8) > 0) {
+                    merged.put(current.getLong(offset), readSlot(current, offset));
+                }
+            }
+        }
+        merged.putAll(recent);
+
+        int capacity = 16;
+        while (capacity < merged.size() * 2) {
+            capacity <<= 1;
+        }
+        Path file = tableFile(generation);
+        Path temporary = directory.resolve(name + ".table.tmp");
+        try (FileChannel channel = FileChannel.open(temporary, StandardOpenOption.CREATE, StandardOpenOption.READ,
+                StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+            MappedByteBuffer out = channel.map(FileChannel.MapMode.READ_WRITE, 0, HEADER_SIZE + (long) capacity * SLOT_SIZE);
+            out.putInt(0, TABLE_MAGIC);
+            out.putInt(4, TABLE_VERSION);
+            out.putInt(8, capacity);
+            out.putInt(12, merged.size());
+            out.putLong(16, generation);
+            for (Map.Entry<Long, PlayerStats> entry : merged.entrySet()) {
+                int slot = findSlot(out, capacity, entry.getKey());
+                writeSlot(out, HEADER_SIZE + slot * SLOT_SIZE, entry.getKey(), entry.getValue());
+            }
+            out.force();
+        }
+        Files.move(temporary, file, StandardCopyOption.REPLACE_EXISTING);
+        openTable(file);
+
+        // The new table holds everything logged so far: start the log of the next generation
+        recent.clear();
+        Path previous = tableFile(generation - 1);
+        generation++;
+        resetLog();
+        lastCompaction = System.currentTimeMillis();
+        try {
+            Files.deleteIfExists(previous);
+        } catch (IOException e) {
+            // The previous table may still be mapped on some platforms; it is removed on a later start
+        }
+    }
+
+    /**
+     * Probes the mapped table for a player.
+     *
+     * @param playerId The player.
+     * @return The statistics, empty if the player is not in the table.
+     */
+    private PlayerStats lookupTable(long playerId) {
+        MappedByteBuffer current = table;
+        if (current == null) {
+            return PlayerStats.EMPTY;
+        }
+        int capacity = current.getInt(8);
+        int slot = findSlot(current, capacity, playerId);
+        int offset = HEADER_SIZE + slot * SLOT_SIZE;
+        return current.getInt(offset + 8) > 0 ? readSlot(current, offset) : PlayerStats.EMPTY;
+    }
+
+    /**
+     * Finds the slot of a player, or the empty slot where it would be inserted, by linear probing.
+     *
+     * @param buffer   The table.
+     * @param capacity The number of slots, a power of two.
+     * @param playerId The player.
+     * @return The slot index.
+     */
+    private static int findSlot(ByteBuffer buffer, int capacity, long playerId) {
+        long hash = playerId * 0x9E3779B97F4A7C15L;
+        int slot = (int) (hash ^ (hash >>> 32)) & (capacity - 1);
+        while (true) {
+            int offset = HEADER_SIZE + slot * SLOT_SIZE;
+            if (buffer.getInt(offset + 8) == 0 || buffer.getLong(offset) == playerId) {
+                return slot;
+            }
+            slot = (slot + 1) & (capacity - 1);
+        }
+    }
+
+    /**
+     * Reads the statistics stored in a slot.
+     *
+     * @param buffer The table.
+     * @param offset The offset of the slot.
+     * @return The statistics.
+     */
+    private static PlayerStats readSlot(ByteBuffer buffer, int offset) {
+        int[] distribution = new int[INumberleModel.MAX_ATTEMPTS];
+        for (int i = 0; i < distribution.length; i++) {
+            distribution[i] = buffer.getInt(offset + 24 + 4 * i);
+        }
+        return new PlayerStats(buffer.getInt(offset + 8), buffer.getInt(offset + 12), buffer.getInt(offset + 16),
+                buffer.getInt(offset + 20), distribution);
+    }
+
+    /**
+     * Writes statistics into a slot.
+     *
+     * @param buffer   The table.
+     * @param offset   The offset of the slot.
+     * @param playerId The player.
+     * @param stats    The statistics.
+     */
+    private static void writeSlot(ByteBuffer buffer, int offset, long playerId, PlayerStats stats) {
+        buffer.putLong(offset, playerId);
+        buffer.putInt(offset + 8, stats.getPlayed());
+        buffer.putInt(offset + 12, stats.getWon());
+        buffer.putInt(offset + 16, stats.getCurrentStreak());
+        buffer.putInt(offset + 20, stats.getMaxStreak());
+        for (int i = 0; i < INumberleModel.MAX_ATTEMPTS; i++) {
+            buffer.putInt(offset + 24 + 4 * i, stats.getWins(i + 1));
+        }
+    }
+
+    /**
+     * Returns the file of the table of a generation.
+     *
+     * @param tableGeneration The generation.
+     * @return The table file.
+     */
+    private Path tableFile(long tableGeneration) {
+        return directory.resolve(name + ".table." + tableGeneration);
+    }
+
+    /**
+     * Maps a table file read-only and publishes it for lookups.
+     *
+     * @param file The table file.
+     * @throws IOException If the file cannot be mapped or is not a table.
+     */
+    private void openTable(Path file) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            MappedByteBuffer mapped = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            if (mapped.getInt(0) != TABLE_MAGIC || mapped.getInt(4) != TABLE_VERSION) {
+                throw new IOException("Not a player statistics table: " + file);
+            }
+            tableCapacity = mapped.getInt(8);
+            table = mapped;
+        }
+    }
+
+    /**
+     * Opens the table of the highest generation, if any.
+     *
+     * @return The generation of the table, or 0 if there is none.
+     * @throws IOException If the directory cannot be listed or the table cannot be mapped.
+     */
+    private long openLatestTable() throws IOException {
+        long latest = 0;
+        String prefix = name + ".table.";
+        try (DirectoryStream<Path> files = Files.newDirectoryStream(directory, prefix + "*")) {
+            for (Path file : files) {
+                String suffix = file.getFileName().toString().substring(prefix.length());
+                if (suffix.chars().allMatch(Character::isDigit) && !suffix.isEmpty()) {
+                    latest = Math.max(latest, Long.parseLong(suffix));
+                }
+            }
+        }
+        if (latest > 0) {
+            openTable(tableFile(latest));
+        }
+        return latest;
+    }
+
+    /**
+     * Replays the results logged after the table, or discards a log the table already contains.
+     *
+     * @param tableGeneration The generation of the table, 0 if there is none.
+     * @throws IOException If the log cannot be read or reset.
+     */
+    private void recoverLog(long tableGeneration) throws IOException {
+        ByteBuffer header = ByteBuffer.allocate(Long.BYTES);
+        long logGeneration = log.read(header, 0) == Long.BYTES ? header.getLong(0) : 0;
+        generation = tableGeneration + 1;
+        if (logGeneration != generation) {
+            resetLog(); // Empty, or already compacted into the table
+            return;
+        }
+
+        long records = (log.size() - Long.BYTES) / RECORD_SIZE; // A torn last record is ignored
+        ByteBuffer buffer = ByteBuffer.allocate((int) Math.min(records, MAX_BATCH) * RECORD_SIZE);
+        long position = Long.BYTES;
+        long end = Long.BYTES + records * RECORD_SIZE;
+        while (position < end) {
+            buffer.clear();
+            buffer.limit((int) Math.min(buffer.capacity(), end - position));
+            while (buffer.hasRemaining()) {
+                position += log.read(buffer, position);
+            }
+            buffer.flip();
+            while (buffer.hasRemaining()) {
+                long playerId = buffer.getLong();
+                boolean won = buffer.get() != 0;
+                int guesses = buffer.get();
+                buffer.position(buffer.position() + 6);
+                apply(playerId, won, guesses);
+            }
+        }
+        log.truncate(end);
+    }
+
+    /**
+     * Empties the log and stamps it with the current generation.
+     *
+     * @throws IOException If the log cannot be written.
+     */
+    private void resetLog() throws IOException {
+        log.truncate(0);
+        ByteBuffer header = ByteBuffer.allocate(Long.BYTES);
+        header.putLong(0, generation);
+        log.write(header, 0);
+        log.force(true);
+    }
+}
@@ -0,0 +1,187 @@
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+/**
+ * Tests for the PlayerStatsStore class.
+ * This class contains tests for the group commit, the compaction into the mapped table and the recovery of the log.
+ */
+public class PlayerStatsStoreTest {
+
+    private Path directory;
+
+    /**
+     * Creates an empty directory for the store files before each test.
+     *
+     * @throws IOException If the directory cannot be created.
+     */
+    @Before
+    public void setUp() throws IOException {
+        directory = Files.createTempDirectory("player-stats");
+    }
+
+    /**
+     * Tests the group commit of PlayerStatsStore.
+     *
+     * This test queues a burst of results without waiting and checks how many force() calls committed them.
+     * How many results the writer finds queued depends on the scheduler, so only the bounds of a batch are checked.
+     *
+     * @pre The store is empty and does not compact.
+     * @post Every result is committed, with at most one force() call per result and at least one per 4096 results,
+     *       and the statistics add up.
+     */
+    @Test
+    public void testGroupCommit() throws IOException, InterruptedException {
+        try (PlayerStatsStore store = new PlayerStatsStore(directory, "stats", Long.MAX_VALUE, Long.MAX_VALUE)) {
+            for (int i = 0; i < 10_000; i++) {
+                store.record(i % 10, i % 4 != 0, 1 + i % INumberleModel.MAX_ATTEMPTS);
+            }
+            awaitRecorded(store, 10_000);
+
+            assertTrue(store.getCommits() <= store.getRecorded());
+            assertTrue(store.getCommits() >= 3); // A batch holds at most 4096 results
+            assertEquals(1000, store.lookup(3).getPlayed());
+            assertEquals(PlayerStats.EMPTY, store.lookup(10));
+        }
+    }
+
+    /**
+     * Tests the compaction of PlayerStatsStore into the mapped table.
+     *
+     * This test logs enough results to compact several times, then reopens the store.
+     *
+     * @pre The store compacts every 10 records.
+     * @post The log was reset to its header, a table file exists, and the reopened store answers from the table.
+     */
+    @Test
+    public void testCompactionIntoTable() throws IOException, InterruptedException {
+        PlayerStats expected;
+        try (PlayerStatsStore store = new PlayerStatsStore(directory, "stats", 10 * 16, Long.MAX_VALUE)) {
+            for (int i = 0; i < 100; i++) {
+                store.record(i % 5, i % 3 != 0, 2);
+                if (i % 7 == 0) {
+                    awaitRecorded(store, i + 1); // Several batches, so several compactions
+                }
+            }
+            awaitRecorded(store, 100);
+            expected = store.lookup(4);
+        }
+        assertEquals(Long.BYTES, Files.size(directory.resolve("stats.log")));
+        assertEquals(1, countTables());
+
+        try (PlayerStatsStore store = new PlayerStatsStore(directory, "stats")) {
+            for (long player = 0; player < 5; player++) {
+                assertEquals(20, store.lookup(player).getPlayed());
+            }
+            assertEquals(expected.toString(), store.lookup(4).toString());
+            assertEquals(PlayerStats.EMPTY, store.lookup(5));
+        }
+    }
+
+    /**
+     * Tests the recovery of results logged after the last compaction, as after a crash.
+     *
+     * This test writes a log of generation 1 by hand, in the documented layout, and opens the store on it.
+     *
+     * @pre The directory holds a log of three results and no table.
+     * @post The store replays the three results.
+     */
+    @Test
+    public void testRecoversLog() throws IOException {
+        writeLog(1, 0);
+        try (PlayerStatsStore store = new PlayerStatsStore(directory, "stats", Long.MAX_VALUE, Long.MAX_VALUE)) {
+            PlayerStats stats = store.lookup(42);
+            assertEquals(3, stats.getPlayed());
+            assertEquals(2, stats.getWon());
+            assertEquals(1, stats.getWins(3));
+            assertEquals(1, stats.getWins(5));
+            assertEquals(1, stats.getCurrentStreak());
+        }
+    }
+
+    /**
+     * Tests the recovery of a log whose last record was torn by a crash.
+     *
+     * This test appends half a record to a log of three results and opens the store on it.
+     *
+     * @pre The directory holds a log of three results followed by 9 bytes of a fourth.
+     * @post The torn record is ignored and truncated, and results recorded afterwards are kept.
+     */
+    @Test
+    public void testIgnoresTornRecord() throws IOException, InterruptedException {
+        writeLog(1, 9);
+        try (PlayerStatsStore store = new PlayerStatsStore(directory, "stats", Long.MAX_VALUE, Long.MAX_VALUE)) {
+            assertEquals(3, store.lookup(42).getPlayed());
+            assertEquals(Long.BYTES + 3 * 16, Files.size(directory.resolve("stats.log")));
+
+            store.record(42, true, 1);
+            awaitRecorded(store, 1);
+            assertEquals(4, store.lookup(42).getPlayed());
+        }
+        try (PlayerStatsStore store = new PlayerStatsStore(directory, "stats")) {
+            assertEquals(4, store.lookup(42).getPlayed());
+            assertEquals(1, store.lookup(42).getWins(1));
+        }
+    }
+
+    /**
+     * Writes a log of three results of player 42: won in 3, lost, won in 5.
+     *
+     * @param generation The generation stamped in the log.
+     * @param torn       The number of bytes of a fourth record to append.
+     * @throws IOException If the log cannot be written.
+     */
+    private void writeLog(long generation, int torn) throws IOException {
+        ByteBuffer log = ByteBuffer.allocate(Long.BYTES + 4 * 16);
+        log.putLong(generation);
+        int[][] results = {{1, 3}, {0, 7}, {1, 5}, {1, 2}};
+        for (int[] result : results) {
+            log.putLong(42).put((byte) result[0]).put((byte) result[1]).put(new byte[6]);
+        }
+        log.flip().limit(Long.BYTES + 3 * 16 + torn);
+        try (FileChannel channel = FileChannel.open(directory.resolve("stats.log"), StandardOpenOption.CREATE,
+                StandardOpenOption.WRITE)) {
+            channel.write(log);
+        }
+    }
+
+    /**
+     * Counts the table files in the directory.
+     *
+     * @return The number of tables.
+     * @throws IOException If the directory cannot be listed.
+     */
+    private int countTables() throws IOException {
+        int tables = 0;
+        try (DirectoryStream<Path> files = Files.newDirectoryStream(directory, "stats.table.*")) {
+            for (Path ignored : files) {
+                tables++;
+            }
+        }
+        return tables;
+    }
+
+    /**
+     * Waits until the writer has committed a number of results.
+     *
+     * @param store    The store.
+     * @param recorded The number of results.
+     * @throws InterruptedException If interrupted while waiting.
+     */
+    private static void awaitRecorded(PlayerStatsStore store, long recorded) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + 10_000;
+        while (store.getRecorded() < recorded) {
+            assertTrue(System.currentTimeMillis() < deadline);
+            Thread.sleep(1);
+        }
+    }
+}
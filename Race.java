@@ -0,0 +1,170 @@
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * The Race class is a multiplayer race: every player who joins gets the same target equation, chosen once, and
+ * the clock of every player starts at the same instant, when the race starts. Players are ranked on a
+ * RaceLeaderboard as their games end, by guesses used and then by time.
+ * The feedback of a guess against the shared target is the same for every player, so it is computed once per race
+ * and kept in a small lock-free table; the opening guesses that most players share are scored from it.
+ * A player gets one game per race: a game started again, or abandoned, ranks the player as LOST, so a racer
+ * cannot restart after seeing the feedback of the target.
+ */
+public final class Race implements GameListener {
+
+    public static final long DEFAULT_WINDOW_MILLIS = 600_000; // The time within which the leaderboard ranks finishes by its tree.
+
+    private static final int FEEDBACK_SLOTS = 1 << 14; // The guesses whose feedback is kept, direct-mapped.
+    private static final int PATTERN_BITS = 12; // The bits of a pattern in a feedback slot.
+
+    private final String targetEquation; // The shared target.
+    private final int target; // The packed target.
+    private final int targetMask; // The presence mask of the target.
+    private final RaceLeaderboard leaderboard; // The ranking of the players.
+    private final Set<Long> started = ConcurrentHashMap.newKeySet(); // The players who started a game of the race.
+    private final AtomicLongArray feedback = new AtomicLongArray(FEEDBACK_SLOTS); // (guess + 1) << 12 | pattern, 0 when empty.
+    private final LongAdder feedbackHits = new LongAdder(); // Guesses scored from the table.
+    private final LongAdder feedbackMisses = new LongAdder(); // Guesses scored and added to the table.
+    private volatile long startNanos; // The instant every player's clock starts from.
+
+    /**
+     * Constructs a race. Its clock starts now, unless start is called later.
+     *
+     * @param targetEquation The shared target equation.
+     * @param windowMillis   The time within which the leaderboard ranks finishes by its tree.
+     * @throws IllegalArgumentException If the target is not a 7-symbol equation.
+     */
+    public Race(String targetEquation, long windowMillis) {
+        this.target = EquationCodec.pack(targetEquation);
+        if (target < 0) {
+            throw new IllegalArgumentException("Target cannot be packed: " + targetEquation);
+        }
+        this.targetEquation = targetEquation;
+        this.targetMask = EquationCodec.presenceMask(target);
+        this.leaderboard = new RaceLeaderboard(windowMillis);
+        this.startNanos = System.nanoTime();
+    }
+
+    /**
+     * Constructs a race on a random equation of a dictionary.
+     *
+     * @param dictionary The packed equations.
+     * @param seed       The seed choosing the target, e.g. the race number.
+     * @return The race.
+     */
+    public static Race random(int[] dictionary, long seed) {
+        EquationPermutation permutation = new EquationPermutation(dictionary.length, seed);
+        return new Race(EquationCodec.unpack(dictionary[permutation.indexAt(0)]), DEFAULT_WINDOW_MILLIS);
+    }
+
+    /**
+     * Starts the clock of every player.
+     */
+    public void start() {
+        startNanos = System.nanoTime();
+    }
+
+    /**
+     * Returns the shared target equation. Every player gets the same instance.
+     *
+     * @return The target.
+     */
+    public String getTargetEquation() {
+        return targetEquation;
+    }
+
+    /**
+     * Returns the packed shared target.
+     *
+     * @return The packed target, see EquationCodec.
+     */
+    public int getTarget() {
+        return target;
+    }
+
+    /**
+     * Returns the feedback of a guess against the shared target, computing it only the first time any player asks.
+     *
+     * @param guess The packed guess.
+     * @return The feedback pattern, see NumberleSolver.
+     */
+    public int feedback(int guess) {
+        int slot = (int) (DictionaryMembership.mix(guess) >>> 50); // The top 14 bits
+        long tag = (guess + 1L) << PATTERN_BITS;
+        long entry = feedback.get(slot);
+        if ((entry & ~((1L << PATTERN_BITS) - 1)) == tag) {
+            feedbackHits.increment();
+            return (int) (entry & ((1L << PATTERN_BITS) - 1));
+        }
+        int pattern = NumberleSolver.feedback(guess, target, targetMask);
+        feedback.set(slot, tag | pattern); // A colliding guess simply replaces it
+        feedbackMisses.increment();
+        return pattern;
+    }
+
+    /**
+     * Returns the share of guesses scored from the feedback table.
+     *
+     * @return The hit rate, from 0 to 1.
+     */
+    public double getFeedbackHitRate() {
+        long hits = feedbackHits.sum();
+        long total = hits + feedbackMisses.sum();
+        return total == 0 ? 0 : (double) hits / total;
+    }
+
+    /**
+     * Returns the time since the race started.
+     *
+     * @return The elapsed nanoseconds.
+     */
+    public long getElapsedNanos() {
+        return System.nanoTime() - startNanos;
+    }
+
+    /**
+     * Records the start of a player's game. A player who started a game of the race before forfeits it;
+     * the new game is played but not ranked.
+     *
+     * @param model The game that started.
+     */
+    @Override
+    public void gameStarted(NumberleModel model) {
+        if (!started.add(model.getPlayerId())) {
+            leaderboard.finish(model.getPlayerId(), RaceLeaderboard.LOST, getElapsedNanos()); // No-op once ranked
+        }
+    }
+
+    /**
+     * Ranks a player whose game ended.
+     *
+     * @param model   The game that ended.
+     * @param won     True if the game was won.
+     * @param guesses The number of guesses scored.
+     */
+    @Override
+    public void gameOver(NumberleModel model, boolean won, int guesses) {
+        leaderboard.finish(model.getPlayerId(), won ? guesses : RaceLeaderboard.LOST, getElapsedNanos());
+    }
+
+    /**
+     * Ranks a player whose game was discarded before it ended as LOST.
+     *
+     * @param model The game that was discarded.
+     */
+    @Override
+    public void gameAbandoned(NumberleModel model) {
+        leaderboard.finish(model.getPlayerId(), RaceLeaderboard.LOST, getElapsedNanos());
+    }
+
+    /**
+     * Returns the leaderboard of the race.
+     *
+     * @return The leaderboard.
+     */
+    public RaceLeaderboard getLeaderboard() {
+        return leaderboard;
+    }
+}
@@ -0,0 +1,129 @@
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * The RaceBenchmark class measures a Race under load.
+ * Racers play real NumberleModel games against the shared target, so their guesses are scored from the race's shared
+ * feedback, and are ranked on the leaderboard as their games end; meanwhile reader threads ask for the top 10 and for
+ * the rank of random players. It reports the finish and query rates and the feedback hit rate, and once the race is
+ * over checks every rank answered by the tree against the skip-list order.
+ * Usage: RaceBenchmark [racers] [writer threads] [reader threads]
+ */
+public class RaceBenchmark {
+
+    // Openings every racer tries before the target; most players share a few popular ones
+    private static final String[] OPENINGS = {"2+4=6-0", "7/1=2+5", "9-8=0+1", "3*4=6+6", "8-5=1+2", "5+5=9+1"};
+
+    /**
+     * Runs the benchmark.
+     *
+     * @param args The optional number of racers, writer threads and reader threads.
+     * @throws InterruptedException If interrupted while waiting for the threads.
+     */
+    public static void main(String[] args) throws InterruptedException {
+        int racers = args.length > 0 ? Integer.parseInt(args[0]) : 200_000;
+        int writers = args.length > 1 ? Integer.parseInt(args[1]) : 4;
+        int readers = args.length > 2 ? Integer.parseInt(args[2]) : 2;
+
+        Race race = new Race("1+3=1+3", Race.DEFAULT_WINDOW_MILLIS);
+        RaceLeaderboard leaderboard = race.getLeaderboard();
+
+        AtomicBoolean racing = new AtomicBoolean(true);
+        AtomicLong topQueries = new AtomicLong();
+        AtomicLong rankQueries = new AtomicLong();
+        List<Thread> readerThreads = new ArrayList<>();
+        for (int r = 0; r < readers; r++) {
+            Thread reader = new Thread(() -> {
+                ThreadLocalRandom random = ThreadLocalRandom.current();
+                while (racing.get()) {
+                    leaderboard.top(10);
+                    topQueries.incrementAndGet();
+                    for (int i = 0; i < 10; i++) {
+                        leaderboard.rank(random.nextInt(racers));
+                    }
+                    rankQueries.addAndGet(10);
+                }
+            });
+            reader.start();
+            readerThreads.add(reader);
+        }
+
+        race.start();
+        long start = System.nanoTime();
+        List<Thread> writerThreads = new ArrayList<>();
+        for (int w = 0; w < writers; w++) {
+            int first = w;
+            Thread writer = new Thread(() -> {
+                NumberleModel model = new NumberleModel();
+                model.setRace(race);
+                ThreadLocalRandom random = ThreadLocalRandom.current();
+                for (int player = first; player < racers; player += writers) {
+                    model.setPlayerId(player);
+                    model.initialize();
+                    int misses = random.nextInt(INumberleModel.MAX_ATTEMPTS + 1); // Seven misses lose the race
+                    for (int i = 0; i < misses; i++) {
+                        play(model, OPENINGS[Math.min(random.nextInt(OPENINGS.length), random.nextInt(OPENINGS.length))]);
+                    }
+                    if (!model.isGameOver()) {
+                        play(model, "1+3=1+3"); // Ends the game, which ranks the player
+                    }
+                }
+            });
+            writer.start();
+            writerThreads.add(writer);
+        }
+        for (Thread writer : writerThreads) {
+            writer.join();
+        }
+        double seconds = (System.nanoTime() - start) / 1e9;
+        racing.set(false);
+        for (Thread reader : readerThreads) {
+            reader.join();
+        }
+
+        System.out.printf("%d racers by %d writers in %.2f s: %.0f finishes/s (each a full game)%n", racers, writers,
+                seconds, racers / seconds);
+        System.out.printf("%d readers meanwhile: %.0f top-10/s, %.0f rank/s%n", readers, topQueries.get() / seconds,
+                rankQueries.get() / seconds);
+        System.out.printf("shared feedback hit rate %.2f%%%n", 100 * race.getFeedbackHitRate());
+        System.out.println("top 3: " + leaderboard.top(3));
+
+        long queryStart = System.nanoTime();
+        for (int player = 0; player < racers; player++) {
+            leaderboard.rank(player);
+        }
+        System.out.printf("rank after the race: %.2f us per query%n", (System.nanoTime() - queryStart) / 1e3 / racers);
+        check(leaderboard, racers);
+    }
+
+    /**
+     * Enters a guess as the view does.
+     *
+     * @param model The game.
+     * @param guess The guess.
+     */
+    private static void play(NumberleModel model, String guess) {
+        model.compare(guess, model.getTargetEquations());
+        model.processInput(guess);
+    }
+
+    /**
+     * Checks the rank of every player against the order of the whole board.
+     *
+     * @param leaderboard The leaderboard of a finished race.
+     * @param racers      The number of racers.
+     */
+    private static void check(RaceLeaderboard leaderboard, int racers) {
+        List<RaceLeaderboard.Standing> board = leaderboard.top(racers);
+        int wrong = board.size() == racers ? 0 : Math.abs(racers - board.size());
+        for (RaceLeaderboard.Standing standing : board) {
+            if (leaderboard.rank(standing.getPlayerId()) != standing.getRank()) {
+                wrong++;
+            }
+        }
+        System.out.println(wrong == 0 ? "Every rank matches the board order" : wrong + " ranks differ from the board order");
+    }
+}
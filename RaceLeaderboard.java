@@ -0,0 +1,199 @@
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * The RaceLeaderboard class ranks the players of a Race by guesses used, then by time, while they finish.
+ * Finishes are kept in a concurrent skip list ordered by a long key (guesses, then microseconds, then arrival), so
+ * the top K is a walk of the first K entries. A player's rank is answered by a Fenwick tree counting the finishes of
+ * every (guesses, 10 ms) bucket, plus a short skip-list range within the player's own bucket, so no read sorts
+ * or scans the whole board. Writers and readers never lock; a rank read during concurrent finishes may miss
+ * finishes still being added.
+ */
+public final class RaceLeaderboard {
+
+    public static final int LOST = INumberleModel.MAX_ATTEMPTS + 1; // The guesses ranked for a player who did not solve the race.
+
+    private static final long BUCKET_MICROS = 10_000; // The time resolution of the rank tree.
+    private static final int MICROS_SHIFT = 20; // The position of the time in a key; arrivals take the bits below.
+    private static final long MAX_MICROS = (1L << 36) - 1; // The longest time a key holds, about 19 hours.
+    private static final int GUESSES_SHIFT = 56; // The position of the guesses in a key.
+
+    private final int timeBuckets; // The time buckets per guess count; later finishes share the last one.
+    private final AtomicLongArray tree; // The Fenwick tree of finishes per bucket, indexed from 1.
+    private final ConcurrentSkipListMap<Long, Long> ranking = new ConcurrentSkipListMap<>(); // Player ids by key.
+    private final ConcurrentHashMap<Long, Long> keys = new ConcurrentHashMap<>(); // Keys by player id.
+    private final AtomicInteger arrivals = new AtomicInteger(); // The finishes so far, separating equal times.
+
+    /**
+     * Constructs an empty leaderboard.
+     *
+     * @param windowMillis The time within which finishes are ranked by the tree; later ones are ranked by the skip list.
+     */
+    public RaceLeaderboard(long windowMillis) {
+        timeBuckets = (int) Math.max(1, Math.min(windowMillis * 1000 / BUCKET_MICROS, 1 << 20));
+        tree = new AtomicLongArray(LOST * timeBuckets + 1);
+    }
+
+    /**
+     * Records the finish of a player.
+     *
+     * @param playerId     The player.
+     * @param guesses      The guesses used to solve the race, or LOST.
+     * @param elapsedNanos The time from the start of the race.
+     * @return False if the player had already finished.
+     */
+    public boolean finish(long playerId, int guesses, long elapsedNanos) {
+        if (guesses < 1 || guesses > LOST) {
+            throw new IllegalArgumentException("guesses out of range: " + guesses);
+        }
+        long micros = Math.min(Math.max(0, elapsedNanos / 1000), MAX_MICROS);
+        long key;
+        do {
+            key = ((long) guesses << GUESSES_SHIFT) | (micros << MICROS_SHIFT)
+                    | (arrivals.getAndIncrement() & ((1 << MICROS_SHIFT) - 1));
+        } while (ranking.putIfAbsent(key, playerId) != null); // Only after a million finishes of equal time
+        if (keys.putIfAbsent(playerId, key) != null) {
+            ranking.remove(key);
+            return false;
+        }
+        for (int i = bucket(key) + 1; i < tree.length(); i += i & -i) {
+            tree.getAndIncrement(i);
+        }
+        return true;
+    }
+
+    /**
+     * Returns the rank of a player.
+     *
+     * @param playerId The player.
+     * @return The rank from 1, or -1 if the player has not finished.
+     */
+    public int rank(long playerId) {
+        Long key = keys.get(playerId);
+        if (key == null) {
+            return -1;
+        }
+        int bucket = bucket(key);
+        long ahead = 0;
+        for (int i = bucket; i > 0; i -= i & -i) { // The finishes of every earlier bucket
+            ahead += tree.get(i);
+        }
+        long bucketStart = bucket % timeBuckets * BUCKET_MICROS;
+        long firstKey = (key >>> GUESSES_SHIFT << GUESSES_SHIFT) | (bucketStart << MICROS_SHIFT);
+        ahead += ranking.subMap(firstKey, true, key, false).size(); // The finishes ahead within the bucket
+        return (int) ahead + 1;
+    }
+
+    /**
+     * Returns the leading players.
+     *
+     * @param k The number of players.
+     * @return Up to k standings, best first.
+     */
+    public List<Standing> top(int k) {
+        List<Standing> standings = new ArrayList<>(k);
+        for (Map.Entry<Long, Long> entry : ranking.entrySet()) {
+            if (standings.size() == k) {
+                break;
+            }
+            long key = entry.getKey();
+            standings.add(new Standing(entry.getValue(), (int) (key >>> GUESSES_SHIFT),
+                    (key >>> MICROS_SHIFT & MAX_MICROS) / 1000, standings.size() + 1));
+        }
+        return standings;
+    }
+
+    /**
+     * Returns the number of players who finished.
+     *
+     * @return The finish count.
+     */
+    public int size() {
+        return keys.size();
+    }
+
+    /**
+     * Returns the tree bucket of a key.
+     *
+     * @param key The key.
+     * @return The bucket, from 0.
+     */
+    private int bucket(long key) {
+        int guesses = (int) (key >>> GUESSES_SHIFT);
+        long micros = key >>> MICROS_SHIFT & MAX_MICROS;
+        return (guesses - 1) * timeBuckets + (int) Math.min(micros / BUCKET_MICROS, timeBuckets - 1);
+    }
+
+    /**
+     * The Standing class is the place of one player on the leaderboard.
+     */
+    public static final class Standing {
+
+        private final long playerId; // The player.
+        private final int guesses; // The guesses used, or LOST.
+        private final long elapsedMillis; // The time from the start of the race.
+        private final int rank; // The rank, from 1.
+
+        /**
+         * Constructs a standing.
+         *
+         * @param playerId      The player.
+         * @param guesses       The guesses used, or LOST.
+         * @param elapsedMillis The time from the start of the race.
+         * @param rank          The rank.
+         */
+        private Standing(long playerId, int guesses, long elapsedMillis, int rank) {
+            this.playerId = playerId;
+            this.guesses = guesses;
+            this.elapsedMillis = elapsedMillis;
+            this.rank = rank;
+        }
+
+        /**
+         * Returns the player.
+         *
+         * @return The player id.
+         */
+        public long getPlayerId() {
+            return playerId;
+        }
+
+        /**
+         * Returns the guesses used.
+         *
+         * @return The guesses, or LOST.
+         */
+        public int getGuesses() {
+            return guesses;
+        }
+
+        /**
+         * Returns the time from the start of the race.
+         *
+         * @return The elapsed milliseconds.
+         */
+        public long getElapsedMillis() {
+            return elapsedMillis;
+        }
+
+        /**
+         * Returns the rank.
+         *
+         * @return The rank, from 1.
+         */
+        public int getRank() {
+            return rank;
+        }
+
+        @Override
+        public String toString() {
+            return "#" + rank + " player " + playerId + ": " + (guesses == LOST ? "lost" : guesses + " guesses")
+                    + " in " + elapsedMillis + " ms";
+        }
+    }
+}
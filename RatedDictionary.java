@@ -0,0 +1,219 @@
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * The RatedDictionary class is the binary dictionary: packed equations stored together with their difficulty rating.
+ * On load it builds one index array per DifficultyBucket, so drawing an equation of a bucket is a single array access.
+ *
+ * File layout (big-endian): int magic, int version, int count,
+ * then per equation: int packed equation, short candidates left after the solver's opening, byte solver guesses, byte bucket.
+ */
+public class RatedDictionary {
+
+    private static final int MAGIC = 0x4E524444; // "NRDD"
+    private static final int VERSION = 1; // The file format version.
+
+    private static final ConcurrentHashMap<Path, RatedDictionary> DICTIONARIES = new ConcurrentHashMap<>(); // Loaded dictionaries by file.
+
+    private final int[] packed; // The packed equations.
+    private final byte[] guesses; // Solver guesses per equation.
+    private final short[] remainingAfterOpening; // Candidates left after the solver's opening, per equation.
+    private final byte[] buckets; // The bucket ordinal of each equation.
+    private final int[][] bucketIndex; // The packed equations of each bucket.
+
+    /**
+     * Constructs a rated dictionary and builds its bucket index.
+     *
+     * @param packed                The packed equations.
+     * @param guesses               Solver guesses per equation.
+     * @param remainingAfterOpening Candidates left after the solver's opening, per equation.
+     * @param buckets               The bucket ordinal of each equation.
+     */
+    public RatedDictionary(int[] packed, byte[] guesses, short[] remainingAfterOpening, byte[] buckets) {
+        this.packed = packed;
+        this.guesses = guesses;
+        this.remainingAfterOpening = remainingAfterOpening;
+        this.buckets = buckets;
+
+        int bucketCount = DifficultyBucket.values().length;
+        int[] sizes = new int[bucketCount];
+        for (byte bucket : buckets) {
+            sizes[bucket]++;
+        }
+        bucketIndex = new int[bucketCount][];
+        for (int b = 0; b < bucketCount; b++) {
+            bucketIndex[b] = new int[sizes[b]];
+            sizes[b] = 0;
+        }
+        for (int i = 0; i < packed.length; i++) {
+            int b = buckets[i];
+            bucketIndex[b][sizes[b]++] = packed[i];
+        }
+    }
+
+    /**
+     * Writes the rated dictionary to a file.
+     *
+     * @param file The rated dictionary file.
+     * @throws IOException If the file cannot be written.
+     */
+    public void write(Path file) throws IOException {
+        try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(file)))) {
+            out.writeInt(MAGIC);
+            out.writeInt(VERSION);
+            out.writeInt(packed.length);
+            for (int i = 0; i < packed.length; i++) {
+                out.writeInt(packed[i]);
+                out.writeShort(remainingAfterOpening[i]);
+                out.writeByte(guesses[i]);
+                out.writeByte(buckets[i]);
+            }
+        }
+    }
+
+    /**
+     * Reads a rated dictionary file.
+     *
+     * @param file The rated dictionary file.
+     * @return The rated dictionary.
+     * @throws IOException If the file cannot be read or is not a rated dictionary.
+     */
+    public static RatedDictionary read(Path file) throws IOException {
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(file)))) {
+            if (in.readInt() != MAGIC || in.readInt() != VERSION) {
+                throw new IOException("Not a rated dictionary file: " + file);
+            }
+            int count = in.readInt();
+            int[] packed = new int[count];
+            byte[] guesses = new byte[count];
+            short[] remaining = new short[count];
+            byte[] buckets = new byte[count];
+            for (int i = 0; i < count; i++) {
+                packed[i] = in.readInt();
+                remaining[i] = in.readShort();
+                guesses[i] = in.readByte();
+                buckets[i] = in.readByte();
+            }
+            return new RatedDictionary(packed, guesses, remaining, buckets);
+        }
+    }
+
+    /**
+     * Returns the rated dictionary stored in a file, reading it on first use.
+     *
+     * @param fileName The rated dictionary file name.
+     * @return The rated dictionary.
+     */
+    public static RatedDictionary forFile(String fileName) {
+        Path path = Paths.get(fileName).toAbsolutePath().normalize();
+        RatedDictionary dictionary = DICTIONARIES.get(path);
+        if (dictionary != null) {
+            return dictionary; // Fast path: no locking once the file is loaded
+        }
+        return DICTIONARIES.computeIfAbsent(path, p -> {
+            try {
+                return read(p);
+            } catch (IOException e) {
+                throw new RuntimeException(e);
+            }
+        });
+    }
+
+    /**
+     * Returns the number of equations in the dictionary.
+     *
+     * @return The number of equations.
+     */
+    public int size() {
+        return packed.length;
+    }
+
+    /**
+     * Returns the number of equations in a bucket.
+     *
+     * @param bucket The difficulty bucket.
+     * @return The number of equations.
+     */
+    public int size(DifficultyBucket bucket) {
+        return bucketIndex[bucket.ordinal()].length;
+    }
+
+    /**
+     * Returns the non-empty bucket closest in difficulty to a bucket, the easier one on a tie.
+     *
+     * @param bucket The wanted difficulty bucket.
+     * @return The bucket itself if it is not empty, the nearest non-empty bucket, or null if the dictionary is empty.
+     */
+    public DifficultyBucket nearestNonEmpty(DifficultyBucket bucket) {
+        DifficultyBucket[] all = DifficultyBucket.values();
+        for (int distance = 0; distance < all.length; distance++) {
+            int easier = bucket.ordinal() - distance;
+            int harder = bucket.ordinal() + distance;
+            if (easier >= 0 && bucketIndex[easier].length > 0) {
+                return all[easier];
+            }
+            if (harder < all.length && bucketIndex[harder].length > 0) {
+                return all[harder];
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Returns an equation of a bucket.
+     *
+     * @param bucket The difficulty bucket.
+     * @param index  The index within the bucket.
+     * @return The equation.
+     */
+    public String get(DifficultyBucket bucket, int index) {
+        return EquationCodec.unpack(bucketIndex[bucket.ordinal()][index]);
+    }
+
+    /**
+     * Returns the packed equation at an index of the dictionary.
+     *
+     * @param index The index.
+     * @return The packed equation.
+     */
+    public int getPacked(int index) {
+        return packed[index];
+    }
+
+    /**
+     * Returns the number of guesses the solver needs for an equation.
+     *
+     * @param index The index of the equation.
+     * @return The solver guesses.
+     */
+    public int getSolverGuesses(int index) {
+        return guesses[index];
+    }
+
+    /**
+     * Returns the number of candidates left after the solver's opening guess for an equation.
+     *
+     * @param index The index of the equation.
+     * @return The candidate count.
+     */
+    public int getRemainingAfterOpening(int index) {
+        return remainingAfterOpening[index] & 0xFFFF;
+    }
+
+    /**
+     * Returns the difficulty bucket of an equation.
+     *
+     * @param index The index of the equation.
+     * @return The difficulty bucket.
+     */
+    public DifficultyBucket getBucket(int index) {
+        return DifficultyBucket.values()[buckets[index]];
+    }
+}
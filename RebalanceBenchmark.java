@@ -0,0 +1,165 @@
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * The RebalanceBenchmark class measures how many games move when nodes join or leave a SessionRouter.
+ * It first computes, without any process, the share of a million games that change node on a join and a leave of
+ * consistent hashing with several virtual node counts, against the ideal 1 / N and against modulo hashing, with
+ * the load of the busiest node. It then starts SessionNodes as separate JVMs on loopback, plays games through a router
+ * while one node joins and another leaves, and checks that every game kept its rows across the moves.
+ * Usage: RebalanceBenchmark [games] [nodes]
+ */
+public class RebalanceBenchmark {
+
+    private static final String MISS = "2+4=6-0"; // A guess that does not win against the default target.
+    private static final String WIN = "1+3=1+3"; // The default target.
+
+    /**
+     * Runs the benchmark.
+     *
+     * @param args The optional number of games played across the JVMs and the number of node JVMs to start with.
+     * @throws Exception If a node cannot be started or reached.
+     */
+    public static void main(String[] args) throws Exception {
+        int games = args.length > 0 ? Integer.parseInt(args[0]) : 10_000;
+        int nodes = args.length > 1 ? Integer.parseInt(args[1]) : 3;
+        ringMoves(1_000_000, 8);
+        processMoves(games, nodes);
+    }
+
+    /**
+     * Prints the share of games moved by a join and a leave, computed on rings alone.
+     *
+     * @param games The number of game ids.
+     * @param nodes The number of nodes before the join.
+     */
+    private static void ringMoves(int games, int nodes) {
+        List<String> names = new ArrayList<>();
+        for (int i = 0; i < nodes; i++) {
+            names.add("127.0.0.1:" + (9000 + i));
+        }
+        String joining = "127.0.0.1:" + (9000 + nodes);
+        System.out.printf("%d games, %d nodes -> %d on join -> %d on leave; ideal move %.1f%%%n", games, nodes, nodes + 1,
+                nodes, 100.0 / (nodes + 1));
+        System.out.printf("%-14s %10s %10s %14s%n", "placement", "join moved", "leave moved", "busiest / mean");
+        for (int virtualNodes : new int[]{1, 16, 128, 512}) {
+            ConsistentHashRing before = new ConsistentHashRing(names, virtualNodes);
+            ConsistentHashRing after = before.withNode(joining);
+            ConsistentHashRing left = after.withoutNode(names.get(0));
+            int joined = 0;
+            int leaving = 0;
+            Map<String, Integer> load = new HashMap<>();
+            for (long gameId = 1; gameId <= games; gameId++) {
+                String owner = after.nodeFor(gameId);
+                load.merge(owner, 1, Integer::sum);
+                if (!before.nodeFor(gameId).equals(owner)) {
+                    joined++;
+                }
+                if (!left.nodeFor(gameId).equals(owner)) {
+                    leaving++;
+                }
+            }
+            int busiest = load.values().stream().mapToInt(Integer::intValue).max().orElse(0);
+            System.out.printf("%-14s %9.1f%% %9.1f%% %14.2f%n", virtualNodes + " vnodes", 100.0 * joined / games,
+                    100.0 * leaving / games, busiest * (nodes + 1.0) / games);
+        }
+        int moved = 0; // A leave undoes a join, so modulo hashing moves the same games both ways
+        for (long gameId = 1; gameId <= games; gameId++) {
+            long hash = gameId * 0x9E3779B97F4A7C15L;
+            if (Math.floorMod(hash, nodes) != Math.floorMod(hash, nodes + 1)) {
+                moved++;
+            }
+        }
+        System.out.printf("%-14s %9.1f%% %9.1f%% %14s%n", "modulo", 100.0 * moved / games, 100.0 * moved / games, "-");
+    }
+
+    /**
+     * Plays games across node JVMs while a node joins and another leaves, and prints the moves.
+     *
+     * @param games The number of games.
+     * @param nodes The number of node JVMs to start with.
+     * @throws Exception If a node cannot be started or reached.
+     */
+    private static void processMoves(int games, int nodes) throws Exception {
+        List<Process> processes = new ArrayList<>();
+        try (SessionRouter router = new SessionRouter(ConsistentHashRing.DEFAULT_VIRTUAL_NODES)) {
+            for (int i = 0; i < nodes; i++) {
+                router.addNode("127.0.0.1", startNode(processes));
+            }
+            long start = System.nanoTime();
+            for (long gameId = 1; gameId <= games; gameId++) {
+                router.start(gameId);
+                expect(router.guess(gameId, MISS), 6, SessionNode.PLAYING);
+            }
+            System.out.printf("%n%d games started on %d node JVMs in %.0f ms, sizes %s%n", games, nodes,
+                    (System.nanoTime() - start) / 1e6, router.getSizes());
+
+            int port = startNode(processes);
+            start = System.nanoTime();
+            int moved = router.addNode("127.0.0.1", port);
+            System.out.printf("join:  moved %d games (%.1f%%, ideal %.1f%%) in %.0f ms, sizes %s%n", moved,
+                    100.0 * moved / games, 100.0 / (nodes + 1), (System.nanoTime() - start) / 1e6, router.getSizes());
+            for (long gameId = 1; gameId <= games; gameId++) {
+                expect(router.guess(gameId, MISS), 5, SessionNode.PLAYING); // The first row survived the move
+            }
+
+            String joined = "127.0.0.1:" + port;
+            String leaving = router.getRing().getNodes().stream().filter(node -> !node.equals(joined)).findFirst().get(); // An original node
+            start = System.nanoTime();
+            moved = router.removeNode(leaving);
+            System.out.printf("leave: moved %d games (%.1f%%, ideal %.1f%%) in %.0f ms, sizes %s%n", moved,
+                    100.0 * moved / games, 100.0 / (nodes + 1), (System.nanoTime() - start) / 1e6, router.getSizes());
+            for (long gameId = 1; gameId <= games; gameId++) {
+                expect(router.guess(gameId, WIN), 4, SessionNode.WON);
+            }
+            System.out.println("Every game kept its rows across both moves");
+        } finally {
+            for (Process process : processes) {
+                process.destroy();
+            }
+        }
+    }
+
+    /**
+     * Starts a SessionNode JVM with the class path of this one and waits until it accepts routers.
+     *
+     * @param processes The started processes, to which the new one is added.
+     * @return The port of the node.
+     * @throws IOException If the node cannot be started.
+     */
+    private static int startNode(List<Process> processes) throws IOException {
+        String java = Paths.get(System.getProperty("java.home"), "bin", "java").toString();
+        Process process = new ProcessBuilder(java, "-cp", System.getProperty("java.class.path"), "SessionNode", "0")
+                .redirectErrorStream(true).start();
+        processes.add(process);
+        BufferedReader output = new BufferedReader(new InputStreamReader(process.getInputStream(), StandardCharsets.UTF_8));
+        String line;
+        while ((line = output.readLine()) != null) {
+            if (line.startsWith("READY ")) {
+                return Integer.parseInt(line.substring(6).trim());
+            }
+        }
+        throw new IOException("The node exited before it was ready");
+    }
+
+    /**
+     * Checks the outcome of a guess.
+     *
+     * @param row       The outcome.
+     * @param remaining The expected remaining attempts.
+     * @param result    The expected result of the game.
+     */
+    private static void expect(SessionRouter.Row row, int remaining, int result) {
+        if (row.getCode() != 4 || row.getRemainingAttempts() != remaining || row.getResult() != result) {
+            throw new IllegalStateException("Unexpected outcome: code " + row.getCode() + ", remaining "
+                    + row.getRemainingAttempts() + ", result " + row.getResult());
+        }
+    }
+}
@@ -0,0 +1,321 @@
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.nio.ByteBuffer;
+import java.nio.file.Paths;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * The SessionNode class hosts the games of one shard in its own JVM, for a SessionRouter.
+ * It serves routers on a loopback socket with a binary request-response protocol, a thread per router connection.
+ * With random targets the dictionary is loaded once when the node starts, and shared by all its games.
+ *
+ * Requests are a command byte and a long game id, followed by:
+ * <pre>
+ * N            start a game           -> byte status
+ * G utf guess  score a guess          -> int validation code; if it is 4: short pattern, byte remaining attempts, byte result
+ * X            export a game          -> byte status; if status is OK: GameSnapshot.SIZE bytes
+ * I snapshot   import a game          -> byte status
+ * R            drop a game            -> byte status
+ * L            list the games         -> int count, count longs (the game id of the request is ignored)
+ * </pre>
+ * An exported game stays on the node until it is dropped, so a router can move it without ever losing it.
+ * Status is OK, NO_GAME, or FAILED if the node could not serve the request, e.g. for a corrupt snapshot; the result of a
+ * guess is PLAYING, WON or LOST. A guess the evaluator cannot evaluate, such as 1/0=1+0, gets code 0, illegal.
+ * A request that fails unexpectedly closes its connection only; the router reconnects.
+ * Usage: SessionNode [port] [random]; the game journal is kept in the directory of the system property numberle.dataDir,
+ * the working directory by default.
+ */
+public class SessionNode implements AutoCloseable {
+
+    public static final byte START = 'N'; // Start a game.
+    public static final byte GUESS = 'G'; // Score a guess.
+    public static final byte EXPORT = 'X'; // Export a game.
+    public static final byte IMPORT = 'I'; // Import a game.
+    public static final byte DROP = 'R'; // Drop a game.
+    public static final byte LIST = 'L'; // List the games.
+
+    public static final byte OK = 0; // The request succeeded.
+    public static final byte NO_GAME = 1; // The node does not host the game.
+    public static final byte FAILED = 2; // The node could not serve the request.
+    public static final int NOT_HOSTED = -1; // The code of a guess for a game the node does not host.
+    public static final int GAME_OVER = 6; // The code of a guess for a game that is over.
+
+    public static final byte PLAYING = 0; // The game goes on.
+    public static final byte WON = 1; // The guess won the game.
+    public static final byte LOST = 2; // The game is over without a win.
+
+    private final ServerSocket server; // The listening socket.
+    private final boolean random; // Indicates whether games draw random targets.
+    private final ConcurrentHashMap<Long, NumberleModel> games = new ConcurrentHashMap<>(); // The hosted games by id.
+    private final GameListener[] listeners; // Listeners of every hosted game, e.g. a GameJournal.
+    private final Set<Socket> connections = ConcurrentHashMap.newKeySet(); // The open router connections.
+
+    /**
+     * Starts a node on loopback.
+     *
+     * @param port      The port, or 0 for any free port.
+     * @param random    True to draw random targets.
+     * @param listeners Listeners added to every hosted game, started or imported.
+     * @throws IOException If the socket cannot be bound.
+     */
+    public SessionNode(int port, boolean random, GameListener... listeners) throws IOException {
+        if (random) {
+            NumberleModel model = new NumberleModel();
+            DictionaryWatcher.forFile(model.equationsFile).current().getMembership(); // Loaded once, before the first game
+        }
+        this.server = new ServerSocket(port, 50, InetAddress.getLoopbackAddress());
+        this.random = random;
+        this.listeners = listeners;
+        Thread acceptor = new Thread(this::accept, "session-node-" + server.getLocalPort());
+        acceptor.start();
+    }
+
+    /**
+     * Returns the port the node listens on.
+     *
+     * @return The port.
+     */
+    public int getPort() {
+        return server.getLocalPort();
+    }
+
+    /**
+     * Returns the number of hosted games.
+     *
+     * @return The game count.
+     */
+    public int size() {
+        return games.size();
+    }
+
+    /**
+     * Accepts router connections until the node closes.
+     */
+    private void accept() {
+        while (!server.isClosed()) {
+            try {
+                Socket socket = server.accept();
+                socket.setTcpNoDelay(true);
+                connections.add(socket);
+                Thread connection = new Thread(() -> serve(socket), "session-node-connection");
+                connection.setDaemon(true);
+                connection.start();
+            } catch (IOException e) {
+                if (!server.isClosed()) {
+                    GameLog.log(GameLog.Level.WARN, "accept failed: ", e);
+                }
+            }
+        }
+    }
+
+    /**
+     * Answers the requests of one router connection until it closes.
+     *
+     * @param socket The connection.
+     */
+    private void serve(Socket socket) {
+        try (socket;
+             DataInputStream in = new DataInputStream(new BufferedInputStream(socket.getInputStream()));
+             DataOutputStream out = new DataOutputStream(new BufferedOutputStream(socket.getOutputStream()))) {
+            while (true) {
+                byte command;
+                try {
+                    command = in.readByte();
+                } catch (EOFException e) {
+                    return; // The router closed the connection
+                }
+                long gameId = in.readLong();
+                switch (command) {
+                    case START:
+                        host(gameId, null, out);
+                        break;
+                    case GUESS:
+                        guess(gameId, in.readUTF(), out);
+                        break;
+                    case EXPORT:
+                        export(gameId, out);
+                        break;
+                    case IMPORT:
+                        byte[] snapshot = new byte[GameSnapshot.SIZE];
+                        in.readFully(snapshot);
+                        host(gameId, snapshot, out);
+                        break;
+                    case DROP:
+                        NumberleModel dropped = games.remove(gameId);
+                        if (dropped != null) {
+                            dropped.abandon(); // It goes on at the node it was moved to
+                        }
+                        out.writeByte(dropped != null ? OK : NO_GAME);
+                        break;
+                    case LIST:
+                        Long[] ids = games.keySet().toArray(new Long[0]);
+                        out.writeInt(ids.length);
+                        for (long id : ids) {
+                            out.writeLong(id);
+                        }
+                        break;
+                    default:
+                        throw new IOException("Unknown command " + command);
+                }
+                out.flush();
+            }
+        } catch (IOException e) {
+            if (!server.isClosed()) { // Otherwise close() closed the connection
+                GameLog.log(GameLog.Level.WARN, "router connection failed: ", e);
+            }
+        } catch (RuntimeException e) {
+            GameLog.log(GameLog.Level.ERROR, "router request failed, closing its connection: ", e);
+        } finally {
+            connections.remove(socket);
+        }
+    }
+
+    /**
+     * Hosts a new or imported game under an id, replacing the game hosted under it, and writes the status.
+     *
+     * @param gameId   The game id.
+     * @param snapshot The snapshot of an imported game, or null to start a new game.
+     * @param out      The response stream.
+     * @throws IOException If the response cannot be written.
+     */
+    private void host(long gameId, byte[] snapshot, DataOutputStream out) throws IOException {
+        NumberleModel game;
+        try {
+            if (snapshot == null) {
+                game = newGame();
+            } else {
+                game = GameSnapshot.restore(snapshot);
+                for (GameListener listener : listeners) {
+                    game.addGameListener(listener);
+                }
+            }
+            for (GameListener listener : listeners) {
+                listener.gameHosted(game, gameId, snapshot != null); // Links the journals of the nodes it moves between
+            }
+        } catch (RuntimeException e) {
+            GameLog.log(GameLog.Level.WARN, "cannot host a game: ", e);
+            out.writeByte(FAILED);
+            return;
+        }
+        NumberleModel replaced = games.put(gameId, game);
+        if (replaced != null) {
+            replaced.abandon();
+        }
+        out.writeByte(OK);
+    }
+
+    /**
+     * Creates a started game.
+     *
+     * @return The game.
+     */
+    private NumberleModel newGame() {
+        NumberleModel model = new NumberleModel();
+        if (random) {
+            model.setRandom();
+        }
+        for (GameListener listener : listeners) {
+            model.addGameListener(listener);
+        }
+        model.initialize();
+        return model;
+    }
+
+    /**
+     * Validates and scores a guess, and writes the response.
+     *
+     * @param gameId   The game id.
+     * @param equation The guess.
+     * @param out      The response stream.
+     * @throws IOException If the response cannot be written.
+     */
+    private void guess(long gameId, String equation, DataOutputStream out) throws IOException {
+        NumberleModel game = games.get(gameId);
+        if (game == null) {
+            out.writeInt(NOT_HOSTED);
+            return;
+        }
+        synchronized (game) {
+            int code;
+            try {
+                code = game.isGameOver() ? GAME_OVER : game.validateEquation(equation);
+            } catch (RuntimeException e) {
+                code = 0; // The evaluator throws on a division by zero or a malformed expression
+            }
+            out.writeInt(code);
+            if (code != 4) {
+                return;
+            }
+            game.setCurrentGuess(equation);
+            game.compare(equation, game.getTargetEquations());
+            game.setRemainingAttempts();
+            GameState state = game.getState();
+            out.writeShort(state.getPattern(state.getRows() - 1));
+            out.writeByte(game.getRemainingAttempts());
+            out.writeByte(game.isGameWon() ? WON : game.isGameOver() ? LOST : PLAYING);
+        }
+    }
+
+    /**
+     * Writes the snapshot of a game. The game stays hosted until it is dropped.
+     *
+     * @param gameId The game id.
+     * @param out    The response stream.
+     * @throws IOException If the response cannot be written.
+     */
+    private void export(long gameId, DataOutputStream out) throws IOException {
+        NumberleModel game = games.get(gameId);
+        if (game == null) {
+            out.writeByte(NO_GAME);
+            return;
+        }
+        byte[] snapshot = new byte[GameSnapshot.SIZE];
+        try {
+            synchronized (game) {
+                game.writeSnapshot(ByteBuffer.wrap(snapshot));
+            }
+        } catch (RuntimeException e) { // A target that cannot be packed
+            GameLog.log(GameLog.Level.WARN, "cannot export a game: ", e);
+            out.writeByte(FAILED);
+            return;
+        }
+        out.writeByte(OK);
+        out.write(snapshot);
+    }
+
+    /**
+     * Stops accepting routers and closes their connections, so its games are no longer served.
+     *
+     * @throws IOException If the socket cannot be closed.
+     */
+    @Override
+    public void close() throws IOException {
+        server.close();
+        for (Socket connection : connections) {
+            connection.close();
+        }
+    }
+
+    /**
+     * Runs a node on loopback until the process ends. It prints "READY port" once it accepts routers.
+     *
+     * @param args The optional port, and "random" to draw random targets.
+     * @throws IOException If the socket cannot be bound or the journal cannot be created.
+     */
+    public static void main(String[] args) throws IOException {
+        int port = args.length > 0 ? Integer.parseInt(args[0]) : 0;
+        boolean random = args.length > 1 && args[1].equals("random");
+        GameJournal journal = GameJournal.forProcess(Paths.get(System.getProperty("numberle.dataDir", ".")));
+        SessionNode node = new SessionNode(port, random, journal);
+        System.out.println("READY " + node.getPort());
+        System.out.flush();
+    }
+}
@@ -0,0 +1,597 @@
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.net.Socket;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * The SessionRouter class spreads games over SessionNodes, each in its own JVM, by consistent hashing of the game id.
+ * When a node joins, the games whose points it takes over are exported from their old nodes as GameSnapshots and
+ * imported into it; when a node leaves, its games are moved to the nodes that inherit its arcs. Only those games move.
+ * A move copies every game before the ring changes, and drops the originals only afterwards: if a copy fails, the copies
+ * made so far are dropped and the ring is left as it was, so a game is never lost or routed to a node without it.
+ * A drop that fails leaves a stale copy behind, which is never routed to and is dropped again at the next topology
+ * change; a game imported or started on its node replaces it first.
+ * A connection to a node that fails is reopened by the next request to the node.
+ * Requests for games run concurrently; a topology change waits for them and holds them back until the games have moved.
+ */
+public class SessionRouter implements AutoCloseable {
+
+    private volatile ConsistentHashRing ring; // The current assignment of games to nodes.
+    private final ConcurrentHashMap<String, NodeClient> clients = new ConcurrentHashMap<>(); // The connection to each node.
+    private final ReentrantReadWriteLock topology = new ReentrantReadWriteLock(); // Read by requests, written by changes.
+    private final ConcurrentHashMap<String, Set<Long>> staleCopies = new ConcurrentHashMap<>(); // The games whose drop failed, by node.
+
+    /**
+     * Constructs a router without nodes.
+     *
+     * @param virtualNodes The points of each node on the ring.
+     */
+    public SessionRouter(int virtualNodes) {
+        this.ring = new ConsistentHashRing(Collections.emptyList(), virtualNodes);
+    }
+
+    /**
+     * Adds a node and moves to it the games it now owns.
+     *
+     * @param host The host of the node.
+     * @param port The port of the node.
+     * @return The number of games moved.
+     * @throws IOException If a node cannot be reached; the node is then not added.
+     * @throws IllegalArgumentException If the node was already added.
+     */
+    public int addNode(String host, int port) throws IOException {
+        String name = host + ":" + port;
+        topology.writeLock().lock();
+        try {
+            if (clients.containsKey(name)) {
+                throw new IllegalArgumentException("The node was already added: " + name);
+            }
+            dropStaleCopies();
+            clients.put(name, new NodeClient(host, port));
+            ConsistentHashRing updated = ring.withNode(name);
+            try {
+                List<Move> moves = new ArrayList<>();
+                for (String node : ring.getNodes()) {
+                    for (long gameId : clients.get(node).list()) {
+                        if (ring.nodeFor(gameId).equals(node) && updated.nodeFor(gameId).equals(name)) {
+                            moves.add(new Move(gameId, node, name));
+                        }
+                    }
+                }
+                return move(moves, updated);
+            } catch (IOException | RuntimeException e) {
+                staleCopies.remove(name);
+                try {
+                    clients.remove(name).close();
+                } catch (IOException closeFailure) {
+                    e.addSuppressed(closeFailure);
+                }
+                throw e;
+            }
+        } finally {
+            topology.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Removes a node after moving its games to the nodes that inherit them.
+     *
+     * @param name The node name, host:port.
+     * @return The number of games moved.
+     * @throws IOException If a node cannot be reached; the node is then kept.
+     */
+    public int removeNode(String name) throws IOException {
+        topology.writeLock().lock();
+        try {
+            NodeClient client = clients.get(name);
+            if (client == null) {
+                return 0;
+            }
+            dropStaleCopies();
+            ConsistentHashRing updated = ring.withoutNode(name);
+            List<Move> moves = new ArrayList<>();
+            for (long gameId : client.list()) {
+                if (ring.nodeFor(gameId).equals(name)) { // Not a stale copy
+                    moves.add(new Move(gameId, name, updated.nodeFor(gameId)));
+                }
+            }
+            if (!moves.isEmpty() && updated.getNodes().isEmpty()) {
+                throw new IllegalStateException("The last node cannot leave while it hosts games");
+            }
+            int moved = move(moves, updated);
+            staleCopies.remove(name);
+            clients.remove(name).close();
+            return moved;
+        } finally {
+            topology.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Moves games between nodes as snapshots and switches to the updated ring.
+     * Every game is copied first; if a copy fails, the copies are dropped and the ring is kept. Once the ring
+     * has switched, the originals are dropped.
+     *
+     * @param moves   The games to move.
+     * @param updated The ring that assigns the games to their new nodes.
+     * @return The number of games moved.
+     * @throws IOException If a copy failed; no game has moved then.
+     */
+    private int move(List<Move> moves, ConsistentHashRing updated) throws IOException {
+        List<Move> copied = new ArrayList<>();
+        try {
+            for (Move move : moves) {
+                byte[] snapshot = clients.get(move.from).export(move.gameId);
+                if (snapshot != null) { // The game may have been dropped meanwhile
+                    copied.add(move); // Rolled back even if the import fails after the node took the game
+                    clients.get(move.to).importGame(move.gameId, snapshot);
+                    forgetStaleCopy(move.gameId, move.to); // Replaced by the import
+                }
+            }
+        } catch (IOException | RuntimeException e) {
+            for (Move move : copied) {
+                drop(move.gameId, move.to); // Roll back: the originals are still in place
+            }
+            throw e;
+        }
+        ring = updated;
+        for (Move move : copied) {
+            drop(move.gameId, move.from); // Finish the move: the new nodes serve the games already
+        }
+        return copied.size();
+    }
+
+    /**
+     * Drops a copy of a game that is not routed to. If the node cannot be reached, the stale copy is remembered
+     * and dropped at the next topology change.
+     *
+     * @param gameId The game id.
+     * @param node   The node holding the copy.
+     */
+    private void drop(long gameId, String node) {
+        try {
+            clients.get(node).drop(gameId);
+        } catch (IOException e) {
+            GameLog.log(GameLog.Level.WARN, "A stale copy of a game remains on " + node + ": ", e);
+            staleCopies.computeIfAbsent(node, n -> ConcurrentHashMap.newKeySet()).add(gameId);
+        }
+    }
+
+    /**
+     * Drops the stale copies left by earlier failed drops, keeping those whose node still cannot be reached.
+     */
+    private void dropStaleCopies() {
+        for (Map.Entry<String, Set<Long>> entry : staleCopies.entrySet()) {
+            NodeClient client = clients.get(entry.getKey());
+            Iterator<Long> gameIds = entry.getValue().iterator();
+            while (client != null && gameIds.hasNext()) {
+                try {
+                    client.drop(gameIds.next());
+                    gameIds.remove();
+                } catch (IOException e) {
+                    break; // Tried again at the next change
+                }
+            }
+            if (client == null || entry.getValue().isEmpty()) {
+                staleCopies.remove(entry.getKey());
+            }
+        }
+    }
+
+    /**
+     * Forgets a stale copy that a new game or an imported copy has replaced, so that it is not dropped later.
+     *
+     * @param gameId The game id.
+     * @param node   The node hosting the game now.
+     */
+    private void forgetStaleCopy(long gameId, String node) {
+        Set<Long> gameIds = staleCopies.get(node);
+        if (gameIds != null) {
+            gameIds.remove(gameId);
+        }
+    }
+
+    /**
+     * Starts a game on the node that owns it.
+     *
+     * @param gameId The game id.
+     * @throws IOException If the node cannot be reached.
+     */
+    public void start(long gameId) throws IOException {
+        topology.readLock().lock();
+        try {
+            String node = ring.nodeFor(gameId);
+            clients.get(node).start(gameId);
+            forgetStaleCopy(gameId, node); // Replaced by the new game
+        } finally {
+            topology.readLock().unlock();
+        }
+    }
+
+    /**
+     * Scores a guess on the node that owns the game.
+     *
+     * @param gameId The game id.
+     * @param guess  The guess.
+     * @return The outcome.
+     * @throws IOException If the node cannot be reached.
+     */
+    public Row guess(long gameId, String guess) throws IOException {
+        topology.readLock().lock();
+        try {
+            return clients.get(ring.nodeFor(gameId)).guess(gameId, guess);
+        } finally {
+            topology.readLock().unlock();
+        }
+    }
+
+    /**
+     * Returns the node that owns a game.
+     *
+     * @param gameId The game id.
+     * @return The node name, host:port.
+     */
+    public String nodeFor(long gameId) {
+        return ring.nodeFor(gameId);
+    }
+
+    /**
+     * Returns the current ring.
+     *
+     * @return The ring.
+     */
+    public ConsistentHashRing getRing() {
+        return ring;
+    }
+
+    /**
+     * Returns the number of games each node hosts.
+     *
+     * @return The game counts by node name.
+     * @throws IOException If a node cannot be reached.
+     */
+    public Map<String, Integer> getSizes() throws IOException {
+        topology.readLock().lock();
+        try {
+            Map<String, Integer> sizes = new LinkedHashMap<>();
+            for (String node : ring.getNodes()) {
+                sizes.put(node, clients.get(node).list().length);
+            }
+            return sizes;
+        } finally {
+            topology.readLock().unlock();
+        }
+    }
+
+    /**
+     * Closes the connections to every node. The nodes keep running.
+     *
+     * @throws IOException If a connection cannot be closed.
+     */
+    @Override
+    public void close() throws IOException {
+        topology.writeLock().lock();
+        try {
+            for (NodeClient client : new ArrayList<>(clients.values())) {
+                client.close();
+            }
+            clients.clear();
+        } finally {
+            topology.writeLock().unlock();
+        }
+    }
+
+    /**
+     * The Move class is one game to move between nodes.
+     */
+    private static final class Move {
+
+        private final long gameId; // The game id.
+        private final String from; // The node hosting the game.
+        private final String to; // The node receiving the game.
+
+        /**
+         * Constructs a move.
+         *
+         * @param gameId The game id.
+         * @param from   The node hosting the game.
+         * @param to     The node receiving the game.
+         */
+        private Move(long gameId, String from, String to) {
+            this.gameId = gameId;
+            this.from = from;
+            this.to = to;
+        }
+    }
+
+    /**
+     * The Row class is the outcome of a guess sent to a node.
+     */
+    public static final class Row {
+
+        private final int code; // The validation code, see NumberleModel.validateEquation and SessionNode.
+        private final int pattern; // The feedback pattern, if the guess was scored.
+        private final int remainingAttempts; // The remaining attempts, if the guess was scored.
+        private final int result; // SessionNode.PLAYING, WON or LOST, if the guess was scored.
+
+        /**
+         * Constructs an outcome.
+         *
+         * @param code              The validation code.
+         * @param pattern           The feedback pattern.
+         * @param remainingAttempts The remaining attempts.
+         * @param result            The result of the game.
+         */
+        private Row(int code, int pattern, int remainingAttempts, int result) {
+            this.code = code;
+            this.pattern = pattern;
+            this.remainingAttempts = remainingAttempts;
+            this.result = result;
+        }
+
+        /**
+         * Returns the validation code of the guess.
+         *
+         * @return 4 if the guess was scored, otherwise the reason it was not.
+         */
+        public int getCode() {
+            return code;
+        }
+
+        /**
+         * Returns the feedback pattern of the guess.
+         *
+         * @return The pattern, see NumberleSolver.
+         */
+        public int getPattern() {
+            return pattern;
+        }
+
+        /**
+         * Returns the remaining attempts after the guess.
+         *
+         * @return The remaining attempts.
+         */
+        public int getRemainingAttempts() {
+            return remainingAttempts;
+        }
+
+        /**
+         * Returns the result of the game after the guess.
+         *
+         * @return SessionNode.PLAYING, WON or LOST.
+         */
+        public int getResult() {
+            return result;
+        }
+    }
+
+    /**
+     * The NodeClient class is the connection to one node. Requests on it are serialized.
+     * A request that fails closes the connection, whose stream may hold part of a response, and the next request
+     * reconnects.
+     */
+    private static final class NodeClient implements AutoCloseable {
+
+        private final String host; // The host of the node.
+        private final int port; // The port of the node.
+        private Socket socket; // The connection, or null after a failure until the next request.
+        private DataInputStream in; // The responses.
+        private DataOutputStream out; // The requests.
+        private boolean closed; // Indicates whether the router closed the connection for good.
+
+        /**
+         * Connects to a node.
+         *
+         * @param host The host of the node.
+         * @param port The port of the node.
+         * @throws IOException If the node cannot be reached.
+         */
+        private NodeClient(String host, int port) throws IOException {
+            this.host = host;
+            this.port = port;
+            connect();
+        }
+
+        /**
+         * Opens the connection.
+         *
+         * @throws IOException If the node cannot be reached or the client was closed.
+         */
+        private void connect() throws IOException {
+            if (closed) {
+                throw new IOException("The connection to " + host + ":" + port + " is closed");
+            }
+            socket = new Socket(host, port);
+            socket.setTcpNoDelay(true);
+            in = new DataInputStream(new BufferedInputStream(socket.getInputStream()));
+            out = new DataOutputStream(new BufferedOutputStream(socket.getOutputStream()));
+        }
+
+        /**
+         * Sends one request and reads its response, reconnecting first if the previous request failed.
+         *
+         * @param request The request.
+         * @param <T>     The type of the response.
+         * @return The response.
+         * @throws IOException If the node cannot be reached; the connection is then closed.
+         */
+        private synchronized <T> T call(Request<T> request) throws IOException {
+            if (socket == null) {
+                connect();
+            }
+            try {
+                return request.send();
+            } catch (IOException e) {
+                try {
+                    socket.close();
+                } catch (IOException ignored) {
+                    // Closing anyway
+                }
+                socket = null;
+                throw e;
+            }
+        }
+
+        /**
+         * Starts a game.
+         *
+         * @param gameId The game id.
+         * @throws IOException If the node cannot be reached or could not start the game.
+         */
+        private void start(long gameId) throws IOException {
+            byte status = call(() -> {
+                out.writeByte(SessionNode.START);
+                out.writeLong(gameId);
+                out.flush();
+                return in.readByte();
+            });
+            if (status != SessionNode.OK) {
+                throw new IOException("The node could not start game " + gameId);
+            }
+        }
+
+        /**
+         * Scores a guess.
+         *
+         * @param gameId The game id.
+         * @param guess  The guess.
+         * @return The outcome.
+         * @throws IOException If the node cannot be reached.
+         */
+        private Row guess(long gameId, String guess) throws IOException {
+            return call(() -> {
+                out.writeByte(SessionNode.GUESS);
+                out.writeLong(gameId);
+                out.writeUTF(guess);
+                out.flush();
+                int code = in.readInt();
+                if (code != 4) {
+                    return new Row(code, 0, 0, SessionNode.PLAYING);
+                }
+                int pattern = in.readShort();
+                int remaining = in.readByte();
+                return new Row(code, pattern, remaining, in.readByte());
+            });
+        }
+
+        /**
+         * Exports a game. The node keeps it until it is dropped.
+         *
+         * @param gameId The game id.
+         * @return The snapshot, or null if the node does not host the game.
+         * @throws IOException If the node cannot be reached or could not export the game.
+         */
+        private byte[] export(long gameId) throws IOException {
+            byte[] snapshot = new byte[GameSnapshot.SIZE];
+            byte status = call(() -> {
+                out.writeByte(SessionNode.EXPORT);
+                out.writeLong(gameId);
+                out.flush();
+                byte result = in.readByte();
+                if (result == SessionNode.OK) {
+                    in.readFully(snapshot);
+                }
+                return result;
+            });
+            if (status == SessionNode.FAILED) {
+                throw new IOException("The node could not export game " + gameId);
+            }
+            return status == SessionNode.OK ? snapshot : null;
+        }
+
+        /**
+         * Imports a game.
+         *
+         * @param gameId   The game id.
+         * @param snapshot The snapshot.
+         * @throws IOException If the node cannot be reached or could not import the game.
+         */
+        private void importGame(long gameId, byte[] snapshot) throws IOException {
+            byte status = call(() -> {
+                out.writeByte(SessionNode.IMPORT);
+                out.writeLong(gameId);
+                out.write(snapshot);
+                out.flush();
+                return in.readByte();
+            });
+            if (status != SessionNode.OK) {
+                throw new IOException("The node could not import game " + gameId);
+            }
+        }
+
+        /**
+         * Drops a game.
+         *
+         * @param gameId The game id.
+         * @throws IOException If the node cannot be reached.
+         */
+        private void drop(long gameId) throws IOException {
+            call(() -> {
+                out.writeByte(SessionNode.DROP);
+                out.writeLong(gameId);
+                out.flush();
+                return in.readByte(); // NO_GAME if it was never imported
+            });
+        }
+
+        /**
+         * Lists the hosted games.
+         *
+         * @return The game ids.
+         * @throws IOException If the node cannot be reached.
+         */
+        private long[] list() throws IOException {
+            return call(() -> {
+                out.writeByte(SessionNode.LIST);
+                out.writeLong(0);
+                out.flush();
+                long[] gameIds = new long[in.readInt()];
+                for (int i = 0; i < gameIds.length; i++) {
+                    gameIds[i] = in.readLong();
+                }
+                return gameIds;
+            });
+        }
+
+        /**
+         * Closes the connection for good.
+         *
+         * @throws IOException If the socket cannot be closed.
+         */
+        @Override
+        public synchronized void close() throws IOException {
+            closed = true;
+            if (socket != null) {
+                socket.close();
+            }
+        }
+    }
+
+    /**
+     * The Request interface is one request to a node and the reading of its response.
+     *
+     * @param <T> The type of the response.
+     */
+    private interface Request<T> {
+
+        /**
+         * Writes the request and reads the response.
+         *
+         * @return The response.
+         * @throws IOException If the connection fails.
+         */
+        T send() throws IOException;
+    }
+}
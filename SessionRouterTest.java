@@ -0,0 +1,275 @@
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+/**
+ * Tests for the SessionRouter class.
+ * The nodes run in the test's JVM and are reached over loopback, like nodes in their own JVMs.
+ */
+public class SessionRouterTest {
+
+    private static final String HOST = "127.0.0.1";
+    private static final int GAMES = 200;
+
+    private final List<AutoCloseable> resources = new ArrayList<>(); // Closed after each test, last first.
+    private SessionRouter router;
+
+    /**
+     * Creates a router without nodes.
+     */
+    @Before
+    public void setUp() {
+        router = new SessionRouter(ConsistentHashRing.DEFAULT_VIRTUAL_NODES);
+        resources.add(router);
+    }
+
+    /**
+     * Closes the router and the nodes.
+     *
+     * @throws Exception If one cannot be closed.
+     */
+    @After
+    public void tearDown() throws Exception {
+        for (int i = resources.size() - 1; i >= 0; i--) {
+            resources.get(i).close();
+        }
+    }
+
+    /**
+     * Tests that games keep their rows while nodes join and leave.
+     *
+     * This test scores one row of every game, adds two nodes, removes the first, and scores a second row.
+     *
+     * @pre One node hosts all the games.
+     * @post Every game has two rows, each is hosted once, and the node that left hosts none.
+     */
+    @Test
+    public void testMovesKeepEveryGame() throws IOException {
+        SessionNode first = node();
+        router.addNode(HOST, first.getPort());
+        for (long gameId = 0; gameId < GAMES; gameId++) {
+            router.start(gameId);
+            assertEquals(4, router.guess(gameId, "2+4=6-0").getCode());
+        }
+
+        int moved = router.addNode(HOST, node().getPort());
+        moved += router.addNode(HOST, node().getPort());
+        moved += router.removeNode(HOST + ":" + first.getPort());
+
+        assertTrue(moved > 0);
+        assertEquals(0, first.size());
+        assertEquals(GAMES, router.getSizes().values().stream().mapToInt(Integer::intValue).sum());
+        for (long gameId = 0; gameId < GAMES; gameId++) {
+            assertEquals(INumberleModel.MAX_ATTEMPTS - 2, router.guess(gameId, "2+4=6-0").getRemainingAttempts());
+        }
+    }
+
+    /**
+     * Tests a node that fails while games move to it, and a node added twice.
+     *
+     * This test adds a node that hangs up on every request, then adds the first node again.
+     *
+     * @pre One node hosts all the games.
+     * @post Both adds fail, the ring is unchanged, and every game is still hosted and served.
+     */
+    @Test
+    public void testFailedAddKeepsRing() throws IOException {
+        SessionNode first = node();
+        router.addNode(HOST, first.getPort());
+        for (long gameId = 0; gameId < GAMES; gameId++) {
+            router.start(gameId);
+        }
+        ConsistentHashRing ring = router.getRing();
+
+        ServerSocket broken = new ServerSocket(0, 50, InetAddress.getLoopbackAddress());
+        resources.add(broken);
+        Thread hangUp = new Thread(() -> {
+            while (true) {
+                try (Socket socket = broken.accept()) {
+                    new DataInputStream(socket.getInputStream()).readByte(); // Read a request, never answer
+                } catch (IOException e) {
+                    if (broken.isClosed()) {
+                        return;
+                    }
+                }
+            }
+        });
+        hangUp.setDaemon(true);
+        hangUp.start();
+
+        try {
+            router.addNode(HOST, broken.getLocalPort());
+            fail("The node hangs up");
+        } catch (IOException expected) {
+            // The moves are rolled back
+        }
+        try {
+            router.addNode(HOST, first.getPort());
+            fail("The node was added already");
+        } catch (IllegalArgumentException expected) {
+            // Rejected before connecting
+        }
+
+        assertSame(ring, router.getRing());
+        assertEquals(GAMES, first.size());
+        for (long gameId = 0; gameId < GAMES; gameId++) {
+            assertEquals(4, router.guess(gameId, "2+4=6-0").getCode());
+        }
+    }
+
+    /**
+     * Tests guesses that the evaluator cannot evaluate.
+     *
+     * This test sends a division by zero and a malformed expression to a game, then guesses in another game.
+     *
+     * @pre One node hosts two games.
+     * @post Both guesses are illegal, and the node's connection keeps serving the shard.
+     */
+    @Test
+    public void testUnevaluableGuessesKeepShard() throws IOException {
+        router.addNode(HOST, node().getPort());
+        router.start(1);
+        router.start(2);
+
+        assertEquals(0, router.guess(1, "1/0=1+0").getCode());
+        assertEquals(0, router.guess(1, "1(2)3=5").getCode());
+        SessionRouter.Row row = router.guess(2, "1+3=1+3");
+        assertEquals(4, row.getCode());
+        assertEquals(SessionNode.WON, row.getResult());
+    }
+
+    /**
+     * Tests that the router reconnects to a node after its connection failed.
+     *
+     * This test adds a scripted node that hangs up its first connection after reading a request,
+     * and answers OK to every request on later connections.
+     *
+     * @pre The router's only node is the scripted one.
+     * @post The first start fails, and the next opens a second connection and is served.
+     */
+    @Test
+    public void testReconnectsAfterFailure() throws IOException {
+        ServerSocket scripted = new ServerSocket(0, 50, InetAddress.getLoopbackAddress());
+        resources.add(scripted);
+        AtomicInteger connections = new AtomicInteger();
+        Thread serve = new Thread(() -> {
+            while (!scripted.isClosed()) {
+                try (Socket socket = scripted.accept()) {
+                    DataInputStream in = new DataInputStream(socket.getInputStream());
+                    DataOutputStream out = new DataOutputStream(socket.getOutputStream());
+                    boolean first = connections.incrementAndGet() == 1;
+                    while (true) {
+                        in.readByte();
+                        in.readLong(); // A start request
+                        if (first) {
+                            break; // Hang up without an answer
+                        }
+                        out.writeByte(SessionNode.OK);
+                        out.flush();
+                    }
+                } catch (IOException e) {
+                    // The router closed the connection, or the test ended
+                }
+            }
+        });
+        serve.setDaemon(true);
+        serve.start();
+        router.addNode(HOST, scripted.getLocalPort()); // No node before it, so nothing is listed
+
+        try {
+            router.start(1);
+            fail("The node hung up");
+        } catch (IOException expected) {
+            // The client closes the connection
+        }
+        router.start(2);
+        router.start(3);
+        assertEquals(2, connections.get());
+    }
+
+    /**
+     * Tests that a game moved between nodes is linked in their journals.
+     *
+     * This test scores a row of every game on a node with a journal, adds a second node with its own journal,
+     * and looks up a moved game in both journals by its session id.
+     *
+     * @pre Each node journals its games to its own file.
+     * @post The moved game is HOSTED under its session id in both journals; the second node's copy is imported.
+     */
+    @Test
+    public void testMovedGamesAreLinkedInJournals() throws IOException {
+        Path directory = Files.createTempDirectory("journals");
+        GameJournal firstJournal = new GameJournal(directory.resolve("first.bin"));
+        GameJournal secondJournal = new GameJournal(directory.resolve("second.bin"));
+        SessionNode first = new SessionNode(0, false, firstJournal);
+        resources.add(first);
+        router.addNode(HOST, first.getPort());
+        for (long gameId = 0; gameId < GAMES; gameId++) {
+            router.start(gameId);
+            router.guess(gameId, "2+4=6-0");
+        }
+        SessionNode second = new SessionNode(0, false, secondJournal);
+        resources.add(second);
+        router.addNode(HOST, second.getPort());
+        long moved = 0;
+        while (!router.nodeFor(moved).equals(HOST + ":" + second.getPort())) {
+            moved++;
+        }
+        assertTrue(moved < GAMES);
+        firstJournal.close();
+        secondJournal.close();
+
+        JournalReplayer.Game before = find(directory.resolve("first.bin"), moved);
+        JournalReplayer.Game after = find(directory.resolve("second.bin"), moved);
+        assertNotNull(before);
+        assertNotNull(after);
+        assertFalse(before.isImported());
+        assertTrue(after.isImported());
+        assertEquals(1, before.getRows());
+        assertEquals(before.getTargetEquation(), after.getTargetEquation());
+    }
+
+    /**
+     * Rebuilds the game a journal hosted under a session id.
+     *
+     * @param journal   The journal file.
+     * @param sessionId The session id.
+     * @return The game, or null if the journal has none under the id.
+     * @throws IOException If the journal cannot be read.
+     */
+    private static JournalReplayer.Game find(Path journal, long sessionId) throws IOException {
+        long[] gameId = {-1};
+        JournalReplayer.replay(journal, (id, playerId, type, symbol, pattern, value) -> {
+            if (type == GameJournal.HOSTED && playerId == sessionId) {
+                gameId[0] = id;
+            }
+        });
+        return gameId[0] < 0 ? null : JournalReplayer.rebuild(journal, gameId[0]);
+    }
+
+    /**
+     * Starts a node that is closed after the test.
+     *
+     * @return The node.
+     * @throws IOException If the node cannot be bound.
+     */
+    private SessionNode node() throws IOException {
+        SessionNode node = new SessionNode(0, false);
+        resources.add(node);
+        return node;
+    }
+}
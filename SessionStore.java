@@ -0,0 +1,115 @@
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * The SessionStore class keeps hibernated games on disk as GameSnapshots.
+ * The file is an array of fixed-size slots; a session maps to a slot, and freed slots are reused.
+ * Evicting and restoring a session is one positional read or write of GameSnapshot.SIZE bytes.
+ */
+public class SessionStore implements AutoCloseable {
+
+    private final FileChannel channel; // The slot file.
+    private final ConcurrentHashMap<Long, Integer> slots = new ConcurrentHashMap<>(); // The slot of each hibernated session.
+    private final ConcurrentLinkedQueue<Integer> freeSlots = new ConcurrentLinkedQueue<>(); // Slots released by restores.
+    private final AtomicInteger nextSlot = new AtomicInteger(); // The first slot never used.
+
+    /**
+     * Opens a store, discarding any previous content of the file.
+     *
+     * @param file The slot file.
+     * @throws IOException If the file cannot be opened.
+     */
+    public SessionStore(Path file) throws IOException {
+        this.channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.READ,
+                StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING);
+    }
+
+    /**
+     * Hibernates a game to disk. A session must not be restored while it is being evicted.
+     *
+     * @param sessionId The session id.
+     * @param model     The game to hibernate; it can be dropped afterwards.
+     * @throws IOException If the snapshot cannot be written.
+     */
+    public void evict(long sessionId, NumberleModel model) throws IOException {
+        ByteBuffer buffer = ByteBuffer.allocate(GameSnapshot.SIZE);
+        model.writeSnapshot(buffer);
+        buffer.flip();
+
+        // Concurrent evicts of one session agree on one slot, so none is taken twice and leaked
+        int slot = slots.computeIfAbsent(sessionId, id -> {
+            Integer free = freeSlots.poll();
+            return free != null ? free : nextSlot.getAndIncrement();
+        });
+        long position = (long) slot * GameSnapshot.SIZE;
+        try {
+            while (buffer.hasRemaining()) {
+                position += channel.write(buffer, position);
+            }
+        } catch (IOException e) {
+            if (slots.remove(sessionId, slot)) { // The slot holds a partial snapshot
+                freeSlots.add(slot);
+            }
+            throw e;
+        }
+    }
+
+    /**
+     * Restores a hibernated game and releases its slot.
+     *
+     * @param sessionId The session id.
+     * @return The restored game, or null if the session is not hibernated.
+     * @throws IOException If the snapshot cannot be read; the session stays hibernated in its slot.
+     */
+    public NumberleModel restore(long sessionId) throws IOException {
+        Integer slot = slots.remove(sessionId);
+        if (slot == null) {
+            return null;
+        }
+        ByteBuffer buffer = ByteBuffer.allocate(GameSnapshot.SIZE);
+        long position = (long) slot * GameSnapshot.SIZE;
+        try {
+            while (buffer.hasRemaining()) {
+                if (channel.read(buffer, position + buffer.position()) < 0) {
+                    throw new IOException("Truncated session store");
+                }
+            }
+        } catch (IOException e) {
+            if (slots.putIfAbsent(sessionId, slot) != null) { // Evicted again meanwhile, into another slot
+                freeSlots.add(slot);
+            }
+            throw e;
+        }
+        freeSlots.add(slot);
+        buffer.flip();
+
+        NumberleModel model = new NumberleModel();
+        model.readSnapshot(buffer);
+        return model;
+    }
+
+    /**
+     * Returns the number of hibernated sessions.
+     *
+     * @return The session count.
+     */
+    public int size() {
+        return slots.size();
+    }
+
+    /**
+     * Closes the slot file.
+     *
+     * @throws IOException If the file cannot be closed.
+     */
+    @Override
+    public void close() throws IOException {
+        channel.close();
+    }
+}
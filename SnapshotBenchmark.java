@@ -0,0 +1,81 @@
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+/**
+ * The SnapshotBenchmark class measures the throughput of taking and restoring game snapshots,
+ * in memory and through a SessionStore on disk.
+ * Usage: SnapshotBenchmark [iterations]
+ */
+public class SnapshotBenchmark {
+
+    /**
+     * Runs the benchmark.
+     *
+     * @param args The optional number of iterations.
+     * @throws IOException If the session store cannot be used.
+     */
+    public static void main(String[] args) throws IOException {
+        int iterations = args.length > 0 ? Integer.parseInt(args[0]) : 2_000_000;
+
+        // A game in progress: three rows scored
+        NumberleModel model = new NumberleModel();
+        model.initialize();
+        for (String guess : new String[]{"2+4=6-0", "7/1=2+5", "1+3=4+0"}) {
+            model.compare(guess, model.getTargetEquations());
+            model.processInput(guess);
+        }
+
+        ByteBuffer buffer = ByteBuffer.allocate(GameSnapshot.SIZE);
+        NumberleModel restored = new NumberleModel();
+        for (int round = 0; round < 3; round++) { // The first rounds warm up the JIT
+            long start = System.nanoTime();
+            for (int i = 0; i < iterations; i++) {
+                buffer.clear();
+                model.writeSnapshot(buffer);
+            }
+            long snapshotNanos = System.nanoTime() - start;
+
+            start = System.nanoTime();
+            for (int i = 0; i < iterations; i++) {
+                buffer.flip();
+                restored.readSnapshot(buffer);
+            }
+            long restoreNanos = System.nanoTime() - start;
+            report("round " + round + " snapshot", iterations, snapshotNanos);
+            report("round " + round + " restore", iterations, restoreNanos);
+        }
+
+        // Hibernation through the on-disk store
+        int sessions = Math.min(iterations, 200_000);
+        Path file = Files.createTempFile("sessions", ".bin");
+        try (SessionStore store = new SessionStore(file)) {
+            long start = System.nanoTime();
+            for (int id = 0; id < sessions; id++) {
+                store.evict(id, model);
+            }
+            report("store evict", sessions, System.nanoTime() - start);
+
+            start = System.nanoTime();
+            for (int id = 0; id < sessions; id++) {
+                store.restore(id);
+            }
+            report("store restore", sessions, System.nanoTime() - start);
+        } finally {
+            Files.deleteIfExists(file);
+        }
+        System.out.println("Snapshot size: " + GameSnapshot.SIZE + " bytes");
+    }
+
+    /**
+     * Prints the throughput of a measured loop.
+     *
+     * @param name       The name of the measurement.
+     * @param operations The number of operations.
+     * @param nanos      The elapsed time in nanoseconds.
+     */
+    private static void report(String name, int operations, long nanos) {
+        System.out.printf("%-24s %10.0f ops/s %8.1f ns/op%n", name, operations * 1e9 / nanos, (double) nanos / operations);
+    }
+}
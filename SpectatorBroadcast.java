@@ -0,0 +1,465 @@
+import java.util.Objects;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Flow;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * The SpectatorBroadcast class streams the games it listens to as compact Delta events to any number of
+ * Flow subscribers, e.g. the spectators of a streamer's game.
+ * The player's thread only enqueues the delta on a bounded inbox and schedules a dispatcher, which is constant work
+ * however many spectators watch. The dispatcher copies each delta into every subscriber's bounded buffer on the
+ * executor, and each subscriber is served by its own delivery task as it requests, so a slow spectator only
+ * loses its own events, as chosen by its Policy.
+ *
+ * <pre>
+ * SpectatorBroadcast broadcast = new SpectatorBroadcast();
+ * model.addGameListener(broadcast);
+ * broadcast.subscribe(spectator, 64, SpectatorBroadcast.Policy.DROP_OLDEST);
+ * </pre>
+ */
+public class SpectatorBroadcast implements GameListener, Flow.Publisher<SpectatorBroadcast.Delta>, AutoCloseable {
+
+    /**
+     * The Policy enum chooses what a subscriber's full buffer does with a new delta.
+     */
+    public enum Policy {
+        /** Discard the oldest buffered delta to make room. */
+        DROP_OLDEST,
+        /** Keep only the newest delta; the buffer size is ignored. */
+        LATEST_ONLY
+    }
+
+    private static final int INBOX = 4096; // Deltas waiting for the dispatcher.
+    private static final int DEFAULT_BUFFER = 256; // The buffer of subscribe(Subscriber).
+
+    private final Executor executor; // Runs the dispatcher and the delivery tasks.
+    private final ArrayBlockingQueue<Delta> inbox = new ArrayBlockingQueue<>(INBOX); // Deltas from the players.
+    private final AtomicBoolean dispatching = new AtomicBoolean(); // Indicates whether a dispatcher is scheduled.
+    private final CopyOnWriteArrayList<Subscription> subscriptions = new CopyOnWriteArrayList<>(); // The live subscribers.
+    private final LongAdder inboxDropped = new LongAdder(); // Deltas dropped because the dispatcher fell behind.
+    private volatile boolean closed; // Indicates whether the broadcast takes no more deltas and completes its subscribers.
+
+    /**
+     * Constructs a broadcast that delivers on the common pool.
+     */
+    public SpectatorBroadcast() {
+        this(ForkJoinPool.commonPool());
+    }
+
+    /**
+     * Constructs a broadcast.
+     *
+     * @param executor The executor running the dispatcher and the deliveries.
+     */
+    public SpectatorBroadcast(Executor executor) {
+        this.executor = executor;
+    }
+
+    /**
+     * The Delta class is one transition of a game.
+     * Its payload packs the kind, the row, the packed guess and the feedback pattern, or the result, into one long.
+     */
+    public static final class Delta {
+
+        /** A new game started. */
+        public static final int STARTED = 0;
+        /** A guess was scored. */
+        public static final int SCORED = 1;
+        /** The game ended. */
+        public static final int OVER = 2;
+
+        private final long playerId; // The player of the game.
+        private final long payload; // Kind in bits 48-49, row or guess count in bits 44-47, won in bit 43,
+                                    // packed guess in bits 12-39 and pattern in bits 0-11.
+
+        /**
+         * Constructs a delta.
+         *
+         * @param playerId The player of the game.
+         * @param payload  The packed payload.
+         */
+        private Delta(long playerId, long payload) {
+            this.playerId = playerId;
+            this.payload = payload;
+        }
+
+        /**
+         * Returns the player of the game.
+         *
+         * @return The player id.
+         */
+        public long getPlayerId() {
+            return playerId;
+        }
+
+        /**
+         * Returns the kind of transition.
+         *
+         * @return STARTED, SCORED or OVER.
+         */
+        public int getKind() {
+            return (int) (payload >>> 48) & 3;
+        }
+
+        /**
+         * Returns the row of a scored guess, or the number of guesses of an ended game.
+         *
+         * @return The row or guess count.
+         */
+        public int getRow() {
+            return (int) (payload >>> 44) & 0xF;
+        }
+
+        /**
+         * Returns whether an ended game was won.
+         *
+         * @return True if won.
+         */
+        public boolean isWon() {
+            return (payload >>> 43 & 1) != 0;
+        }
+
+        /**
+         * Returns the scored guess.
+         *
+         * @return The packed guess, see EquationCodec.
+         */
+        public int getGuess() {
+            return (int) (payload >>> 12) & 0x0FFFFFFF;
+        }
+
+        /**
+         * Returns the feedback of the scored guess.
+         *
+         * @return The feedback pattern, see NumberleSolver.
+         */
+        public int getPattern() {
+            return (int) payload & 0xFFF;
+        }
+
+        @Override
+        public String toString() {
+            switch (getKind()) {
+                case STARTED:
+                    return "player " + playerId + " started";
+                case SCORED:
+                    return "player " + playerId + " row " + getRow() + " " + EquationCodec.unpack(getGuess()) + " " + getPattern();
+                default:
+                    return "player " + playerId + (isWon() ? " won in " : " lost after ") + getRow();
+            }
+        }
+    }
+
+    /**
+     * Publishes the start of a game.
+     *
+     * @param model The game that started.
+     */
+    @Override
+    public void gameStarted(NumberleModel model) {
+        publish(new Delta(model.getPlayerId(), (long) Delta.STARTED << 48));
+    }
+
+    /**
+     * Publishes a scored guess.
+     *
+     * @param model   The game.
+     * @param row     The row of the guess.
+     * @param guess   The packed guess.
+     * @param pattern The feedback pattern.
+     */
+    @Override
+    public void rowScored(NumberleModel model, int row, int guess, int pattern) {
+        if (guess < 0) {
+            return; // Not a keypad equation
+        }
+        publish(new Delta(model.getPlayerId(),
+                (long) Delta.SCORED << 48 | (long) row << 44 | (long) guess << 12 | pattern));
+    }
+
+    /**
+     * Publishes the end of a game.
+     *
+     * @param model   The game that ended.
+     * @param won     True if the game was won.
+     * @param guesses The number of guesses scored.
+     */
+    @Override
+    public void gameOver(NumberleModel model, boolean won, int guesses) {
+        publish(new Delta(model.getPlayerId(), (long) Delta.OVER << 48 | (long) guesses << 44 | (won ? 1L << 43 : 0)));
+    }
+
+    /**
+     * Hands a delta to the dispatcher. This is the only work done on the player's thread.
+     *
+     * @param delta The delta.
+     */
+    private void publish(Delta delta) {
+        if (closed) {
+            return;
+        }
+        if (!inbox.offer(delta)) {
+            inboxDropped.increment();
+        }
+        scheduleDispatch();
+    }
+
+    /**
+     * Schedules the dispatcher unless it is already scheduled.
+     */
+    private void scheduleDispatch() {
+        if (dispatching.compareAndSet(false, true)) {
+            executor.execute(this::dispatch);
+        }
+    }
+
+    /**
+     * Copies the waiting deltas into every subscriber's buffer, and completes the subscribers once the broadcast
+     * is closed and the inbox is empty.
+     */
+    private void dispatch() {
+        do {
+            Delta delta;
+            while ((delta = inbox.poll()) != null) {
+                for (Subscription subscription : subscriptions) {
+                    subscription.offer(delta);
+                }
+            }
+            if (closed) {
+                for (Subscription subscription : subscriptions) {
+                    if (subscriptions.remove(subscription)) { // Unless subscribe completed it first
+                        subscription.complete();
+                    }
+                }
+            }
+            dispatching.set(false);
+        } while ((!inbox.isEmpty() || closed && !subscriptions.isEmpty()) // A delta or a close arrived meanwhile
+                && dispatching.compareAndSet(false, true));
+    }
+
+    /**
+     * Subscribes with a drop-oldest buffer of the default size.
+     *
+     * @param subscriber The subscriber.
+     */
+    @Override
+    public void subscribe(Flow.Subscriber<? super Delta> subscriber) {
+        subscribe(subscriber, DEFAULT_BUFFER, Policy.DROP_OLDEST);
+    }
+
+    /**
+     * Subscribes with a buffer and an overflow policy. The subscriber receives the deltas published from now on.
+     *
+     * @param subscriber The subscriber.
+     * @param bufferSize The number of deltas buffered for it, at least 1.
+     * @param policy     What a full buffer does with a new delta.
+     */
+    public void subscribe(Flow.Subscriber<? super Delta> subscriber, int bufferSize, Policy policy) {
+        Objects.requireNonNull(subscriber);
+        if (bufferSize < 1) {
+            throw new IllegalArgumentException("Buffer size must be positive: " + bufferSize);
+        }
+        Subscription subscription = new Subscription(subscriber, policy == Policy.LATEST_ONLY ? 1 : bufferSize);
+        subscriber.onSubscribe(subscription);
+        subscriptions.add(subscription);
+        if (closed && subscriptions.remove(subscription)) { // The dispatcher may have completed the others already
+            subscription.complete();
+        }
+    }
+
+    /**
+     * Returns the number of live subscribers.
+     *
+     * @return The subscriber count.
+     */
+    public int getSubscriberCount() {
+        return subscriptions.size();
+    }
+
+    /**
+     * Returns the number of deltas dropped before reaching any subscriber.
+     *
+     * @return The drop count.
+     */
+    public long getInboxDropped() {
+        return inboxDropped.sum();
+    }
+
+    /**
+     * Completes every subscription once the deltas published before the call have been delivered to it.
+     * The completion is left to the dispatcher, after the deltas still in the inbox.
+     */
+    @Override
+    public void close() {
+        closed = true;
+        scheduleDispatch();
+    }
+
+    /**
+     * The Subscription class buffers the deltas of one subscriber and delivers them as it requests.
+     * The dispatcher and the delivery task share the buffer under the subscription's lock; at most one delivery
+     * task runs at a time, so the subscriber's signals are serialized.
+     */
+    private final class Subscription implements Flow.Subscription {
+
+        private final Flow.Subscriber<? super Delta> subscriber; // The spectator.
+        private final Delta[] buffer; // The buffered deltas, a ring.
+        private int head; // The index of the oldest buffered delta.
+        private int count; // The number of buffered deltas.
+        private long demand; // The deltas requested and not yet delivered.
+        private boolean completing; // Indicates whether onComplete follows the buffered deltas.
+        private Throwable error; // The error to signal instead of further deltas, or null.
+        private volatile boolean cancelled; // Indicates whether the subscription ended.
+        private final AtomicBoolean delivering = new AtomicBoolean(); // Indicates whether a delivery task is scheduled.
+
+        /**
+         * Constructs a subscription.
+         *
+         * @param subscriber The spectator.
+         * @param capacity   The buffer size.
+         */
+        private Subscription(Flow.Subscriber<? super Delta> subscriber, int capacity) {
+            this.subscriber = subscriber;
+            this.buffer = new Delta[capacity];
+        }
+
+        /**
+         * Buffers a delta, dropping the oldest one if the buffer is full.
+         *
+         * @param delta The delta.
+         */
+        private void offer(Delta delta) {
+            synchronized (this) {
+                if (count == buffer.length) {
+                    head = (head + 1) % buffer.length; // Overwrite the oldest
+                    count--;
+                }
+                buffer[(head + count) % buffer.length] = delta;
+                count++;
+            }
+            scheduleDelivery();
+        }
+
+        /**
+         * Marks the subscription to complete after its buffered deltas.
+         */
+        private void complete() {
+            synchronized (this) {
+                completing = true;
+            }
+            scheduleDelivery();
+        }
+
+        /**
+         * Adds demand and delivers what the buffer holds. A request that is not positive is an error,
+         * signalled by the delivery task like every other signal.
+         *
+         * @param n The number of further deltas wanted, positive.
+         */
+        @Override
+        public void request(long n) {
+            synchronized (this) {
+                if (n <= 0) {
+                    if (error == null) {
+                        error = new IllegalArgumentException("Request must be positive: " + n);
+                    }
+                } else {
+                    demand = demand + n < 0 ? Long.MAX_VALUE : demand + n; // Saturate on overflow
+                }
+            }
+            scheduleDelivery();
+        }
+
+        /**
+         * Stops the deliveries and unsubscribes.
+         */
+        @Override
+        public void cancel() {
+            cancelled = true;
+            subscriptions.remove(this);
+        }
+
+        /**
+         * Schedules a delivery task unless one is already scheduled.
+         */
+        private void scheduleDelivery() {
+            if (!cancelled && delivering.compareAndSet(false, true)) {
+                executor.execute(this::deliver);
+            }
+        }
+
+        /**
+         * Delivers buffered deltas while there is demand, then completes if asked to.
+         * An error is signalled before any further delta; a subscriber that throws from onNext is cancelled
+         * and told so by onError.
+         */
+        private void deliver() {
+            while (true) {
+                Delta next = null;
+                boolean complete = false;
+                Throwable failure;
+                synchronized (this) {
+                    failure = error;
+                    if (failure != null) {
+                        count = 0; // Nothing follows an error
+                    } else if (count > 0 && demand > 0) {
+                        next = buffer[head];
+                        buffer[head] = null;
+                        head = (head + 1) % buffer.length;
+                        count--;
+                        demand--;
+                    } else if (count == 0 && completing) {
+                        complete = true;
+                    }
+                }
+                if (cancelled) {
+                    return;
+                }
+                if (failure != null) {
+                    fail(failure);
+                    return;
+                }
+                if (next != null) {
+                    try {
+                        subscriber.onNext(next);
+                    } catch (RuntimeException e) {
+                        fail(e);
+                        return;
+                    }
+                } else if (complete) {
+                    cancelled = true;
+                    subscriber.onComplete();
+                    return;
+                } else {
+                    delivering.set(false);
+                    synchronized (this) {
+                        if (error == null && !((count > 0 && demand > 0) || (count == 0 && completing))) {
+                            return; // Nothing to do until the next offer or request
+                        }
+                    }
+                    if (!delivering.compareAndSet(false, true)) {
+                        return; // Another delivery task took over
+                    }
+                }
+            }
+        }
+
+        /**
+         * Cancels the subscription and signals an error to the subscriber.
+         *
+         * @param failure The error.
+         */
+        private void fail(Throwable failure) {
+            cancel();
+            try {
+                subscriber.onError(failure);
+            } catch (RuntimeException e) {
+                GameLog.log(GameLog.Level.WARN, "Spectator failed on error: ", e);
+            }
+        }
+    }
+}
@@ -0,0 +1,231 @@
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Flow;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+/**
+ * Tests for the SpectatorBroadcast class.
+ * The broadcast runs on an executor that only queues its tasks, so each test decides when the dispatcher and the
+ * deliveries run.
+ */
+public class SpectatorBroadcastTest {
+
+    private final ArrayDeque<Runnable> tasks = new ArrayDeque<>(); // The tasks submitted and not yet run.
+    private SpectatorBroadcast broadcast;
+    private NumberleModel numberleModel;
+
+    /**
+     * Sets up a broadcast on the queueing executor and a game to publish from.
+     */
+    @Before
+    public void setUp() {
+        broadcast = new SpectatorBroadcast(tasks::add);
+        numberleModel = new NumberleModel();
+        numberleModel.setPlayerId(7);
+    }
+
+    /**
+     * Tests a slow subscriber with a drop-oldest buffer.
+     *
+     * This test publishes ten rows to a subscriber that has requested nothing, then requests them all.
+     *
+     * @pre The subscriber has a buffer of 4 deltas.
+     * @post The subscriber receives the newest 4 rows, in order.
+     */
+    @Test
+    public void testSlowSubscriberDropsOldest() {
+        Spectator spectator = new Spectator();
+        broadcast.subscribe(spectator, 4, SpectatorBroadcast.Policy.DROP_OLDEST);
+        publishRows(10);
+        runTasks();
+        assertTrue(spectator.received.isEmpty());
+
+        spectator.subscription.request(Long.MAX_VALUE);
+        runTasks();
+        assertEquals(List.of(6, 7, 8, 9), spectator.rows());
+    }
+
+    /**
+     * Tests a slow subscriber that keeps only the latest delta.
+     *
+     * This test publishes ten rows to a subscriber that has requested nothing, then requests one more at a time.
+     *
+     * @pre The subscriber has the LATEST_ONLY policy and a buffer size that it ignores.
+     * @post The subscriber receives the last row only, and later rows as they come.
+     */
+    @Test
+    public void testSlowSubscriberKeepsLatest() {
+        Spectator spectator = new Spectator();
+        broadcast.subscribe(spectator, 64, SpectatorBroadcast.Policy.LATEST_ONLY);
+        publishRows(10);
+        runTasks();
+
+        spectator.subscription.request(1);
+        runTasks();
+        assertEquals(List.of(9), spectator.rows());
+
+        publishRows(3);
+        runTasks();
+        spectator.subscription.request(5);
+        runTasks();
+        assertEquals(List.of(9, 2), spectator.rows());
+    }
+
+    /**
+     * Tests the completion of the subscribers on close.
+     *
+     * This test closes the broadcast while deltas still wait in the inbox and in a subscriber's buffer,
+     * and subscribes once more after the close.
+     *
+     * @pre One subscriber has demand and one has none; the dispatcher has not run yet.
+     * @post Both subscribers receive every delta published before the close, then complete;
+     *       deltas published after the close and later subscribers get nothing but the completion.
+     */
+    @Test
+    public void testCloseCompletesAfterBufferedDeltas() {
+        Spectator eager = new Spectator();
+        Spectator slow = new Spectator();
+        broadcast.subscribe(eager);
+        broadcast.subscribe(slow);
+        eager.subscription.request(Long.MAX_VALUE);
+        runTasks();
+
+        publishRows(3);
+        broadcast.close(); // The rows are still in the inbox
+        publishRows(2);
+        runTasks();
+        assertEquals(List.of(0, 1, 2), eager.rows());
+        assertTrue(eager.completed);
+        assertFalse(slow.completed); // It has not requested its rows yet
+        assertEquals(0, broadcast.getSubscriberCount());
+
+        slow.subscription.request(2);
+        runTasks();
+        assertFalse(slow.completed);
+        slow.subscription.request(1);
+        runTasks();
+        assertEquals(List.of(0, 1, 2), slow.rows());
+        assertTrue(slow.completed);
+
+        Spectator late = new Spectator();
+        broadcast.subscribe(late);
+        late.subscription.request(1);
+        runTasks();
+        assertTrue(late.received.isEmpty());
+        assertTrue(late.completed);
+    }
+
+    /**
+     * Tests a request that is not positive, and a subscriber that throws from onNext.
+     *
+     * This test requests 0 deltas on one subscription, and delivers a row to a subscriber whose onNext throws.
+     *
+     * @pre Both subscribers are subscribed; the second has demand.
+     * @post Each gets onError from a delivery task, not from the requesting thread, and is unsubscribed;
+     *       the thrower gets no further rows.
+     */
+    @Test
+    public void testErrorsAreSignalledByDelivery() {
+        Spectator invalid = new Spectator();
+        Spectator thrower = new Spectator();
+        invalid.expectsError = true;
+        thrower.expectsError = true;
+        thrower.throwsOnNext = true;
+        broadcast.subscribe(invalid);
+        broadcast.subscribe(thrower);
+
+        invalid.subscription.request(0);
+        assertNull(invalid.error); // Not signalled by the request itself
+        thrower.subscription.request(Long.MAX_VALUE);
+        runTasks();
+        assertTrue(invalid.error instanceof IllegalArgumentException);
+
+        publishRows(2);
+        runTasks();
+        assertTrue(thrower.error instanceof IllegalStateException);
+        assertEquals(1, thrower.received.size());
+        assertEquals(0, broadcast.getSubscriberCount());
+    }
+
+    /**
+     * Publishes scored rows of the game, numbered from 0.
+     *
+     * @param rows The number of rows.
+     */
+    private void publishRows(int rows) {
+        for (int row = 0; row < rows; row++) {
+            broadcast.rowScored(numberleModel, row % 16, EquationCodec.pack("1+3=1+3"), NumberleSolver.SOLVED);
+        }
+    }
+
+    /**
+     * Runs the submitted tasks, including those they submit, until none is left.
+     */
+    private void runTasks() {
+        Runnable task;
+        while ((task = tasks.poll()) != null) {
+            task.run();
+        }
+    }
+
+    /**
+     * The Spectator class records what a subscriber receives, and requests only when the test does.
+     */
+    private static final class Spectator implements Flow.Subscriber<SpectatorBroadcast.Delta> {
+
+        private final List<SpectatorBroadcast.Delta> received = new ArrayList<>(); // The deltas received.
+        private Flow.Subscription subscription; // The subscription, for requests.
+        private boolean completed; // Indicates whether onComplete was called.
+        private boolean expectsError; // Indicates whether onError is expected instead of failing the test.
+        private boolean throwsOnNext; // Indicates whether onNext throws after recording the delta.
+        private Throwable error; // The error signalled, or null.
+
+        @Override
+        public void onSubscribe(Flow.Subscription subscription) {
+            this.subscription = subscription;
+        }
+
+        @Override
+        public void onNext(SpectatorBroadcast.Delta item) {
+            assertFalse(completed);
+            assertNull(error);
+            received.add(item);
+            if (throwsOnNext) {
+                throw new IllegalStateException("Spectator failed");
+            }
+        }
+
+        @Override
+        public void onError(Throwable throwable) {
+            if (!expectsError) {
+                fail(throwable.toString());
+            }
+            assertNull(error);
+            error = throwable;
+        }
+
+        @Override
+        public void onComplete() {
+            assertFalse(completed);
+            completed = true;
+        }
+
+        /**
+         * Returns the rows of the deltas received.
+         *
+         * @return The rows, in order of arrival.
+         */
+        private List<Integer> rows() {
+            List<Integer> rows = new ArrayList<>();
+            for (SpectatorBroadcast.Delta delta : received) {
+                rows.add(delta.getRow());
+            }
+            return rows;
+        }
+    }
+}
@@ -0,0 +1,263 @@
+/**
+ * The SpeedRun class is the clock of a speed-run game, which is lost when its time budget runs out.
+ * Every keystroke and guess is timestamped with System.nanoTime into buffers allocated once with the
+ * SpeedRun, so recording allocates nothing and adds no garbage collection pauses to the times it measures.
+ * When the game ends the timestamps are summarized into histograms of think times (the gaps between
+ * inputs), guess times (the time spent on each row) and the solve time (start to winning guess).
+ * A SpeedRun is used by one game thread. A SpeedRun that is never started serves as the aggregate of the
+ * runs merged into it, e.g. for a leaderboard; merging adds histogram buckets and is cheap.
+ */
+public final class SpeedRun {
+
+    public static final long DEFAULT_BUDGET_MILLIS = 120_000; // The budget of a speed-run game.
+
+    public static final byte KEY = 0; // A symbol was typed.
+    public static final byte DELETE = 1; // A symbol was deleted.
+    public static final byte GUESS = 2; // A guess was entered.
+
+    private static final int CAPACITY = 1024; // The inputs timestamped per game; later keystrokes are counted only.
+
+    private final long[] times = new long[CAPACITY]; // The timestamp of each input.
+    private final byte[] kinds = new byte[CAPACITY]; // The kind of each input.
+    private int inputs; // The number of inputs timestamped.
+    private int overflow; // The number of inputs past the capacity.
+    private long budgetNanos; // The time budget of a game.
+    private long startNanos; // The start of the game.
+    private long endNanos; // The end of the game.
+    private boolean running; // Indicates whether a game is being timed.
+    private boolean timedOut; // Indicates whether the game ended because the budget ran out.
+
+    private final LatencyHistogram thinkTimes = new LatencyHistogram(); // The gaps between inputs.
+    private final LatencyHistogram guessTimes = new LatencyHistogram(); // The time spent on each guess.
+    private final LatencyHistogram solveTimes = new LatencyHistogram(); // The time to the winning guess.
+    private long games; // The number of games summarized.
+    private long wins; // The number of games won.
+
+    /**
+     * Constructs a clock.
+     *
+     * @param budgetMillis The time budget of a game in milliseconds.
+     */
+    public SpeedRun(long budgetMillis) {
+        setBudget(budgetMillis);
+    }
+
+    /**
+     * Sets the time budget of the following games.
+     *
+     * @param budgetMillis The time budget in milliseconds, positive.
+     */
+    public void setBudget(long budgetMillis) {
+        if (budgetMillis <= 0) {
+            throw new IllegalArgumentException("budget must be positive: " + budgetMillis);
+        }
+        budgetNanos = budgetMillis * 1_000_000;
+    }
+
+    /**
+     * Starts timing a new game, clearing the inputs and histograms of the previous one.
+     */
+    public void start() {
+        inputs = 0;
+        overflow = 0;
+        timedOut = false;
+        thinkTimes.reset();
+        guessTimes.reset();
+        solveTimes.reset();
+        games = 0;
+        wins = 0;
+        running = true;
+        startNanos = System.nanoTime();
+    }
+
+    /**
+     * Starts timing a game that was already timed for a while, e.g. one restored from a snapshot.
+     * The inputs of the earlier part are not known, so the histograms cover the rest of the game.
+     *
+     * @param elapsedMillis The time the game has already used.
+     */
+    public void resume(long elapsedMillis) {
+        start();
+        startNanos -= Math.max(0, elapsedMillis) * 1_000_000;
+    }
+
+    /**
+     * Timestamps an input of the running game.
+     *
+     * @param kind KEY, DELETE or GUESS.
+     */
+    public void record(byte kind) {
+        long now = System.nanoTime();
+        if (!running) {
+            return;
+        }
+        if (inputs < CAPACITY) {
+            times[inputs] = now;
+            kinds[inputs] = kind;
+            inputs++;
+        } else {
+            overflow++;
+        }
+    }
+
+    /**
+     * Checks whether the budget of the running game has run out.
+     *
+     * @return True if the game is being timed and its budget has run out, or it ended that way.
+     */
+    public boolean isExpired() {
+        return timedOut || (running && System.nanoTime() - startNanos > budgetNanos);
+    }
+
+    /**
+     * Returns the time left to the running game.
+     *
+     * @return The remaining milliseconds, 0 when the budget has run out.
+     */
+    public long getRemainingMillis() {
+        long elapsed = (running ? System.nanoTime() : endNanos) - startNanos;
+        return Math.max(0, budgetNanos - elapsed) / 1_000_000;
+    }
+
+    /**
+     * Ends the running game and summarizes its timestamps into the histograms.
+     * A game that was not won times out if its budget has run out.
+     *
+     * @param won True if the game was won, by a guess scored within the budget.
+     */
+    public void finish(boolean won) {
+        if (!running) {
+            return;
+        }
+        long now = System.nanoTime();
+        timedOut = !won && now - startNanos > budgetNanos;
+        running = false;
+        endNanos = now;
+
+        long previousInput = startNanos;
+        long previousGuess = startNanos;
+        for (int i = 0; i < inputs; i++) {
+            thinkTimes.record(times[i] - previousInput);
+            previousInput = times[i];
+            if (kinds[i] == GUESS) {
+                guessTimes.record(times[i] - previousGuess);
+                previousGuess = times[i];
+            }
+        }
+        if (won) {
+            solveTimes.record(previousGuess - startNanos); // The winning guess is the last input
+            wins++;
+        }
+        games++;
+    }
+
+    /**
+     * Stops timing without summarizing the game, and forgets whether the last game timed out.
+     * A game that was being timed is then played without a clock.
+     */
+    public void cancel() {
+        running = false;
+        timedOut = false;
+    }
+
+    /**
+     * Adds the histograms and results of another clock to this one.
+     *
+     * @param other A finished clock, or an aggregate.
+     */
+    public void merge(SpeedRun other) {
+        thinkTimes.merge(other.thinkTimes);
+        guessTimes.merge(other.guessTimes);
+        solveTimes.merge(other.solveTimes);
+        games += other.games;
+        wins += other.wins;
+    }
+
+    /**
+     * Checks whether a game is being timed.
+     *
+     * @return True between start and finish or cancel.
+     */
+    public boolean isRunning() {
+        return running;
+    }
+
+    /**
+     * Checks whether the last game ended because its budget ran out.
+     *
+     * @return True if the game timed out.
+     */
+    public boolean isTimedOut() {
+        return timedOut;
+    }
+
+    /**
+     * Returns the time taken by the last game, or by the running game so far.
+     *
+     * @return The elapsed milliseconds.
+     */
+    public long getElapsedMillis() {
+        return ((running ? System.nanoTime() : endNanos) - startNanos) / 1_000_000;
+    }
+
+    /**
+     * Returns the number of inputs of the last game, including those past the capacity.
+     *
+     * @return The input count.
+     */
+    public int getInputs() {
+        return inputs + overflow;
+    }
+
+    /**
+     * Returns the gaps between inputs.
+     *
+     * @return The think-time histogram.
+     */
+    public LatencyHistogram getThinkTimes() {
+        return thinkTimes;
+    }
+
+    /**
+     * Returns the time spent on each guess.
+     *
+     * @return The guess-time histogram.
+     */
+    public LatencyHistogram getGuessTimes() {
+        return guessTimes;
+    }
+
+    /**
+     * Returns the times to the winning guess.
+     *
+     * @return The solve-time histogram.
+     */
+    public LatencyHistogram getSolveTimes() {
+        return solveTimes;
+    }
+
+    /**
+     * Returns the number of games summarized.
+     *
+     * @return The game count.
+     */
+    public long getGames() {
+        return games;
+    }
+
+    /**
+     * Returns the number of games won within the budget.
+     *
+     * @return The win count.
+     */
+    public long getWins() {
+        return wins;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("%d/%d won, solve p50 %.1f s, guess p50 %.1f s, think p50 %.2f s p99 %.2f s",
+                wins, games, solveTimes.getPercentile(50) / 1e9, guessTimes.getPercentile(50) / 1e9,
+                thinkTimes.getPercentile(50) / 1e9, thinkTimes.getPercentile(99) / 1e9);
+    }
+}
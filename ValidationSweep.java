@@ -0,0 +1,268 @@
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.stream.IntStream;
+
+/**
+ * The ValidationSweep class runs every 7-symbol keypad input, 15^7 of them, through
+ * the validation of NumberleModel.validateEquation in parallel and checks each result against an independent reference
+ * evaluator. The sweep bypasses the shared GuessCache, which would otherwise fill with inputs no player guesses.
+ * It reports the results that differ and the inputs that throw, with examples, and the sweep throughput.
+ * The reference uses exact rational arithmetic with the usual precedence, treats division by zero and more than one
+ * equal sign as an illegal equation (0), and otherwise follows the documented order of the validation codes.
+ * Usage: ValidationSweep [limit], where a limit sweeps that many inputs evenly spread over the space.
+ */
+public class ValidationSweep {
+
+    private static final int SYMBOLS = 15; // The keypad symbols, in EquationCodec order.
+    private static final long SPACE = pow(SYMBOLS, EquationCodec.LENGTH); // The number of inputs.
+    private static final int CHUNK = 50_625; // Inputs per parallel task, 15^4.
+    private static final int EXAMPLES = 5; // Examples kept per kind of failure.
+    private static final int THROWS = 5; // The result row of inputs that throw.
+
+    private final long[][] outcomes = new long[THROWS + 1][THROWS]; // Inputs by [actual result or THROWS][expected result].
+    private final Map<String, List<String>> examples = new TreeMap<>(); // Example inputs by kind of failure.
+    private final Map<String, Long> exceptions = new TreeMap<>(); // Inputs that throw, by exception class.
+
+    /**
+     * Sweeps the input space and prints the report.
+     *
+     * @param args The optional number of inputs to sweep.
+     */
+    public static void main(String[] args) {
+        long limit = args.length > 0 ? Math.min(Long.parseLong(args[0]), SPACE) : SPACE;
+        long step = SPACE / limit;
+
+        ValidationSweep sweep = new ValidationSweep();
+        long start = System.nanoTime();
+        int chunks = (int) ((limit + CHUNK - 1) / CHUNK);
+        IntStream.range(0, chunks).parallel().forEach(chunk -> {
+            long first = (long) chunk * CHUNK;
+            sweep.sweep(first, Math.min(first + CHUNK, limit), step);
+        });
+        long nanos = System.nanoTime() - start;
+
+        sweep.print(limit);
+        System.out.printf("Swept %d inputs on %d cores in %.1f s: %.0f inputs/s, %.0f ns/input%n", limit,
+                Runtime.getRuntime().availableProcessors(), nanos / 1e9, limit * 1e9 / nanos, (double) nanos / limit);
+    }
+
+    /**
+     * Validates a range of inputs and merges the results.
+     *
+     * @param from The first input ordinal, inclusive.
+     * @param to   The last input ordinal, exclusive.
+     * @param step The distance between swept inputs in the space.
+     */
+    private void sweep(long from, long to, long step) {
+        NumberleModel model = new NumberleModel();
+        long[][] local = new long[THROWS + 1][THROWS];
+        Map<String, List<String>> localExamples = new TreeMap<>();
+        Map<String, Long> localExceptions = new TreeMap<>();
+        char[] chars = new char[EquationCodec.LENGTH];
+
+        for (long ordinal = from; ordinal < to; ordinal++) {
+            long input = ordinal * step;
+            for (int i = EquationCodec.LENGTH - 1; i >= 0; i--) {
+                chars[i] = EquationCodec.symbolChar((int) (input % SYMBOLS));
+                input /= SYMBOLS;
+            }
+            String equation = new String(chars);
+            int expected = expected(chars);
+            int actual;
+            try {
+                actual = model.validateEquationUncached(equation); // The cache would answer for the parser
+            } catch (RuntimeException e) {
+                actual = THROWS;
+                localExceptions.merge(e.getClass().getSimpleName(), 1L, Long::sum);
+                keep(localExamples, "throws " + e.getClass().getSimpleName(), equation);
+            }
+            local[actual][expected]++;
+            if (actual != expected && actual != THROWS) {
+                keep(localExamples, "returned " + actual + ", expected " + expected, equation);
+            }
+        }
+
+        synchronized (this) {
+            for (int actual = 0; actual <= THROWS; actual++) {
+                for (int expected = 0; expected < THROWS; expected++) {
+                    outcomes[actual][expected] += local[actual][expected];
+                }
+            }
+            localExamples.forEach((kind, inputs) -> inputs.forEach(input -> keep(examples, kind, input)));
+            localExceptions.forEach((type, count) -> exceptions.merge(type, count, Long::sum));
+        }
+    }
+
+    /**
+     * Keeps an example input of a kind of failure, up to EXAMPLES per kind.
+     *
+     * @param examples The examples by kind.
+     * @param kind     The kind of failure.
+     * @param input    The input.
+     */
+    private static void keep(Map<String, List<String>> examples, String kind, String input) {
+        List<String> inputs = examples.computeIfAbsent(kind, k -> new ArrayList<>());
+        if (inputs.size() < EXAMPLES) {
+            inputs.add(input);
+        }
+    }
+
+    /**
+     * Prints the outcome matrix, the failures and the exceptions.
+     *
+     * @param swept The number of inputs swept.
+     */
+    private void print(long swept) {
+        System.out.println("Actual result (rows) by expected result (columns), 5 = threw:");
+        for (int actual = 0; actual <= THROWS; actual++) {
+            StringBuilder row = new StringBuilder(String.format("%d:", actual));
+            for (int expected = 0; expected < THROWS; expected++) {
+                row.append(String.format(" %12d", outcomes[actual][expected]));
+            }
+            System.out.println(row);
+        }
+        long agreed = 0;
+        for (int result = 0; result < THROWS; result++) {
+            agreed += outcomes[result][result];
+        }
+        System.out.println("Agreed: " + agreed + " of " + swept + ", differed or threw: " + (swept - agreed));
+        exceptions.forEach((type, count) -> System.out.println("Threw " + type + ": " + count));
+        examples.forEach((kind, inputs) -> System.out.println(kind + ": " + inputs));
+    }
+
+    /**
+     * Validates an equation with the reference rules, independently of NumberleModel.
+     *
+     * @param chars The 7 symbols of the equation.
+     * @return The validation code of NumberleModel.validateEquation that the equation should get.
+     */
+    static int expected(char[] chars) {
+        if (chars.length != EquationCodec.LENGTH) {
+            return 2;
+        }
+        int equals = -1;
+        int equalsCount = 0;
+        for (int i = 0; i < chars.length; i++) {
+            if (chars[i] == '=') {
+                equals = i;
+                equalsCount++;
+            }
+        }
+        if (equalsCount == 0 || !isDigit(chars[0]) || !isDigit(chars[chars.length - 1])) {
+            return 1;
+        }
+        for (int i = 0; i + 1 < chars.length; i++) {
+            if (!isDigit(chars[i]) && !isDigit(chars[i + 1])) {
+                return 0;
+            }
+        }
+        if (equalsCount > 1) {
+            return 0;
+        }
+        long[] left = evaluate(chars, 0, equals);
+        long[] right = evaluate(chars, equals + 1, chars.length);
+        if (left == null || right == null) {
+            return 0; // Division by zero
+        }
+        return left[0] * right[1] == right[0] * left[1] ? 4 : 3;
+    }
+
+    /**
+     * Evaluates one side of an equation exactly, as a fraction.
+     * The side starts and ends with a digit and has no adjacent operators.
+     *
+     * @param chars The symbols of the equation.
+     * @param from  The first symbol of the side, inclusive.
+     * @param to    The last symbol of the side, exclusive.
+     * @return The numerator and the positive denominator, or null on division by zero.
+     */
+    private static long[] evaluate(char[] chars, int from, int to) {
+        long sumNumerator = 0;
+        long sumDenominator = 1;
+        long termNumerator = 1; // The first number multiplies 1
+        long termDenominator = 1;
+        char termSign = '+'; // The additive operator before the current term
+        char operator = '*'; // The operator before the current number
+
+        int i = from;
+        while (i < to) {
+            long number = 0;
+            while (i < to && isDigit(chars[i])) {
+                number = number * 10 + (chars[i++] - '0');
+            }
+            if (operator == '*') {
+                termNumerator *= number;
+            } else {
+                if (number == 0) {
+                    return null;
+                }
+                termDenominator *= number;
+            }
+            long divisor = gcd(termNumerator, termDenominator);
+            termNumerator /= divisor;
+            termDenominator /= divisor;
+
+            char next = i < to ? chars[i++] : '+';
+            if (next == '*' || next == '/') {
+                operator = next;
+            } else {
+                // The term is complete: add it to the sum
+                long signed = termSign == '-' ? -termNumerator : termNumerator;
+                sumNumerator = sumNumerator * termDenominator + signed * sumDenominator;
+                sumDenominator *= termDenominator;
+                divisor = gcd(sumNumerator, sumDenominator);
+                sumNumerator /= divisor;
+                sumDenominator /= divisor;
+                termSign = next;
+                operator = '*';
+                termNumerator = 1;
+                termDenominator = 1;
+            }
+        }
+        return new long[]{sumNumerator, sumDenominator};
+    }
+
+    /**
+     * Returns the greatest common divisor of two numbers.
+     *
+     * @param a The first number.
+     * @param b The second number, positive.
+     * @return The positive divisor.
+     */
+    private static long gcd(long a, long b) {
+        a = Math.abs(a);
+        while (b != 0) {
+            long r = a % b;
+            a = b;
+            b = r;
+        }
+        return a;
+    }
+
+    /**
+     * Checks whether a symbol is a digit.
+     *
+     * @param c The symbol.
+     * @return True for 0 to 9.
+     */
+    private static boolean isDigit(char c) {
+        return c >= '0' && c <= '9';
+    }
+
+    /**
+     * Raises a number to a power.
+     *
+     * @param base     The base.
+     * @param exponent The exponent.
+     * @return The power.
+     */
+    private static long pow(long base, int exponent) {
+        long result = 1;
+        for (int i = 0; i < exponent; i++) {
+            result *= base;
+        }
+        return result;
+    }
+}
@@ -0,0 +1,166 @@
+import java.awt.Component;
+import java.awt.Container;
+import java.awt.Graphics2D;
+import java.awt.image.BufferedImage;
+import java.lang.management.ManagementFactory;
+import java.util.EnumMap;
+import java.util.Map;
+import javax.swing.SwingUtilities;
+
+/**
+ * The ViewRenderBenchmark class measures the rendering cost of NumberleView without a display.
+ * It builds a headless view, replays scripted games through its key handlers on the event thread, and after
+ * every key lays out what the key invalidated and paints the whole view into a BufferedImage.
+ * It reports per action the paint time, the containers laid out and the bytes allocated per frame.
+ * Usage: ViewRenderBenchmark [games]
+ */
+public class ViewRenderBenchmark {
+
+    /**
+     * The Action enum names the scripted inputs.
+     */
+    private enum Action {
+        TYPE, DELETE, ENTER, RESTART
+    }
+
+    // A game against the default target "1+3=1+3": a typo corrected with Delete, a miss, then the answer
+    private static final String[] SCRIPT = {"2+4=6-1", "<", "0", "!", "1+3=1+3", "!"};
+    private static final int WIDTH = 1000; // The frame width.
+    private static final int HEIGHT = 1000; // The frame height.
+
+    private final NumberleController controller; // The controller of the view.
+    private final NumberleView view; // The headless view.
+    private final BufferedImage image = new BufferedImage(WIDTH, HEIGHT, BufferedImage.TYPE_INT_RGB); // The offscreen frame.
+    private final com.sun.management.ThreadMXBean threads = (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+    private final Map<Action, LatencyHistogram> paintTimes = new EnumMap<>(Action.class); // Frame paint times by action.
+    private final Map<Action, long[]> totals = new EnumMap<>(Action.class); // Frames, layouts and bytes by action.
+
+    /**
+     * Builds the headless view.
+     */
+    private ViewRenderBenchmark() {
+        NumberleModel model = new NumberleModel();
+        controller = new NumberleController(model);
+        view = new NumberleView(model, controller, true);
+        view.getRoot().addNotify(); // Gives the tree lightweight peers, so validation marks it valid
+        for (Action action : Action.values()) {
+            paintTimes.put(action, new LatencyHistogram());
+            totals.put(action, new long[3]);
+        }
+    }
+
+    /**
+     * Runs the benchmark.
+     *
+     * @param args The optional number of games per round.
+     * @throws Exception If the event thread fails.
+     */
+    public static void main(String[] args) throws Exception {
+        System.setProperty("java.awt.headless", "true"); // Before any AWT class initializes
+        int games = args.length > 0 ? Integer.parseInt(args[0]) : 200;
+
+        ViewRenderBenchmark[] benchmark = new ViewRenderBenchmark[1];
+        SwingUtilities.invokeAndWait(() -> benchmark[0] = new ViewRenderBenchmark());
+        for (int round = 0; round < 2; round++) { // The first round warms up the JIT
+            SwingUtilities.invokeAndWait(() -> benchmark[0].reset());
+            SwingUtilities.invokeAndWait(() -> {
+                for (int game = 0; game < games; game++) {
+                    benchmark[0].playGame();
+                }
+            });
+        }
+        benchmark[0].print(games);
+    }
+
+    /**
+     * Replays the script once and restarts, rendering a frame after every key.
+     */
+    private void playGame() {
+        for (String step : SCRIPT) {
+            if (step.equals("<")) {
+                frame(Action.DELETE, view::Delete);
+            } else if (step.equals("!")) {
+                frame(Action.ENTER, view::Enter);
+            } else {
+                for (int i = 0; i < step.length(); i++) {
+                    String key = step.substring(i, i + 1);
+                    frame(Action.TYPE, () -> view.DisplayCharOnBoard(key));
+                }
+            }
+        }
+        frame(Action.RESTART, () -> {
+            view.restart();
+            controller.startNewGame();
+        });
+    }
+
+    /**
+     * Applies an input, then lays out and paints one frame, recording its cost.
+     *
+     * @param action The kind of input.
+     * @param input  The input.
+     */
+    private void frame(Action action, Runnable input) {
+        input.run();
+        long thread = Thread.currentThread().getId();
+        long bytes = threads.getThreadAllocatedBytes(thread);
+        long start = System.nanoTime();
+        int layouts = layout(view.getRoot());
+        Graphics2D graphics = image.createGraphics();
+        view.getRoot().paint(graphics);
+        graphics.dispose();
+        paintTimes.get(action).record(System.nanoTime() - start);
+        long[] total = totals.get(action);
+        total[0]++;
+        total[1] += layouts;
+        total[2] += threads.getThreadAllocatedBytes(thread) - bytes;
+    }
+
+    /**
+     * Lays out the invalid containers of a tree, as the window's validation would.
+     *
+     * @param component The root of the tree.
+     * @return The number of containers laid out.
+     */
+    private static int layout(Component component) {
+        if (component.isValid() || !(component instanceof Container)) {
+            return 0;
+        }
+        Container container = (Container) component;
+        container.doLayout();
+        int layouts = 1;
+        for (Component child : container.getComponents()) {
+            layouts += layout(child);
+        }
+        container.validate(); // Marks the container valid
+        return layouts;
+    }
+
+    /**
+     * Clears the measurements.
+     */
+    private void reset() {
+        paintTimes.values().forEach(LatencyHistogram::reset);
+        totals.values().forEach(total -> java.util.Arrays.fill(total, 0));
+    }
+
+    /**
+     * Prints the measurements of the last round.
+     *
+     * @param games The number of games played.
+     */
+    private void print(int games) {
+        System.out.printf("%d games, %dx%d frames%n", games, WIDTH, HEIGHT);
+        System.out.printf("%-8s %8s %10s %10s %10s %10s %12s%n", "action", "frames", "mean us", "p50 us", "p99 us", "layouts", "bytes/frame");
+        for (Action action : Action.values()) {
+            LatencyHistogram times = paintTimes.get(action);
+            long[] total = totals.get(action);
+            if (total[0] == 0) {
+                continue;
+            }
+            System.out.printf("%-8s %8d %10.1f %10.1f %10.1f %10.2f %12d%n", action, total[0], times.getMean() / 1000,
+                    times.getPercentile(50) / 1000.0, times.getPercentile(99) / 1000.0,
+                    (double) total[1] / total[0], total[2] / total[0]);
+        }
+    }
+}